@@ -0,0 +1,193 @@
+package tv.spideo.test.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * The settings of the auction house that can be changed per
+ * deployment, they are bound from the "auction" prefix.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "auction")
+public class AuctionProperties {
+
+    private Bidding bidding = new Bidding();
+
+    private Persistence persistence = new Persistence();
+
+    private Events events = new Events();
+
+    private BulkImport bulkImport = new BulkImport();
+
+    private Scheduler scheduler = new Scheduler();
+
+    private Async async = new Async();
+
+    private ResponseCache responseCache = new ResponseCache();
+
+    private Ids ids = new Ids();
+
+    @Data
+    public static class Bidding {
+
+        /* DIRECT applies the bid on the request thread, SEQUENCED hands
+        it to a single writer thread through a ring buffer */
+        private BiddingMode mode = BiddingMode.DIRECT;
+
+        // The number of writer threads, an auction is always handled by the same one
+        private int shards = 1;
+
+        // The number of slots of each ring buffer, it must be a power of two
+        private int bufferSize = 65536;
+
+        // The maximum number of bids applied by a writer before it checks the buffer again
+        private int batchSize = 256;
+
+        // The most bids taken by a single batch request, a larger batch is rejected as a whole
+        private int maxBatchSize = 10_000;
+
+    }
+
+    public enum BiddingMode {
+        DIRECT,
+        SEQUENCED
+    }
+
+    @Data
+    public static class Persistence {
+
+        /* MEMORY keeps the auction houses in memory only, WAL also appends
+        every mutation to a write-ahead log that is replayed on startup,
+        MAPPED journals the auction houses the same way and keeps the bids
+        out of the heap in memory-mapped files, two mappings per auction,
+        so vm.max_map_count bounds the number of auctions to about its half */
+        private PersistenceMode mode = PersistenceMode.MEMORY;
+
+        // The directory of the write-ahead log, the mapped bids are in its bids directory
+        private String directory = "data";
+
+        // A new segment is started once the actual one reaches this size in bytes
+        private long segmentSize = 64L * 1024 * 1024;
+
+        /* Without a sync a crash of the machine may lose the last acknowledged
+        mutations, the mapped bids are forced before they are acknowledged too */
+        private boolean fsync = true;
+
+        // The maximum number of records written and synced together
+        private int maxBatchSize = 4096;
+
+        // The delay between two snapshots, zero to only write one when the application stops
+        private Duration snapshotInterval = Duration.ofMinutes(10);
+
+    }
+
+    @Data
+    public static class Events {
+
+        // The number of events kept per auction, it must be a power of two
+        private int bufferSize = 1024;
+
+        // A comment sent to every subscriber, so the closed connections are detected
+        private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+        // The threads that send the events, a subscriber is only sent by one of them at a time
+        private int senders = 8;
+
+        // A subscriber blocked by a single send for longer than this is disconnected
+        private Duration sendTimeout = Duration.ofSeconds(10);
+
+    }
+
+    @Data
+    public static class BulkImport {
+
+        // The number of threads that apply the records, zero for one per processor
+        private int workers = 0;
+
+        // The records of an auction are handed to its worker by chunks of this size
+        private int chunkSize = 1024;
+
+        // The chunks waiting for each worker, the parser waits once they are all full
+        private int queueSize = 4;
+
+        // The rejected records detailed in the report, the others are only counted
+        private int maxRejections = 100;
+
+        // The progress is logged every time this number of records is read
+        private long progressInterval = 1_000_000L;
+
+    }
+
+    @Data
+    public static class Scheduler {
+
+        /* The auctions are started at their starting time and finished at
+        their end time, otherwise their status is only changed by hand */
+        private boolean enabled = false;
+
+        // The precision of the deadlines, a task runs at most one tick after its deadline
+        private Duration tick = Duration.ofMillis(1);
+
+        // The number of threads that change the status of the auctions
+        private int workers = 4;
+
+    }
+
+    @Data
+    public static class Async {
+
+        /* The threads of the asynchronous API that run the operations waiting
+        for the journal and the end of the bids, zero for one per processor */
+        private int workers = 0;
+
+        // A request waiting for a new leader of an auction is answered without content after this delay
+        private Duration leaderTimeout = Duration.ofSeconds(30);
+
+    }
+
+    @Data
+    public static class ResponseCache {
+
+        /* The serialized responses kept with their version, the cache is
+        emptied once it is full, zero to serialize every response */
+        private int maxEntries = 10_000;
+
+        // A larger response is serialized every time, so a huge listing is not kept twice in memory
+        private int maxEntrySize = 16 * 1024 * 1024;
+
+        // The smallest response compressed for the clients that accept gzip
+        private int gzipMinSize = 1024;
+
+    }
+
+    @Data
+    public static class Ids {
+
+        /* SNOWFLAKE gives compact time-ordered ids of 64 bits, UUID the random
+        UUIDs of the first versions, the ids already given are kept either way */
+        private IdGeneratorType generator = IdGeneratorType.SNOWFLAKE;
+
+        // The node of the time-ordered ids, from 0 to 1023, every instance sharing the ids needs its own
+        private int node = 0;
+
+    }
+
+    public enum IdGeneratorType {
+        SNOWFLAKE,
+        UUID
+    }
+
+    public enum PersistenceMode {
+        MEMORY,
+        WAL,
+        MAPPED
+    }
+
+}
@@ -0,0 +1,27 @@
+package tv.spideo.test.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tv.spideo.test.util.id.IdGenerator;
+import tv.spideo.test.util.id.SnowflakeIdGenerator;
+import tv.spideo.test.util.id.UuidIdGenerator;
+
+/**
+ * Create the generator of the ids of the repository from the ids settings.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+@Configuration
+public class IdConfiguration {
+
+    @Bean
+    public IdGenerator idGenerator(AuctionProperties properties) {
+        AuctionProperties.Ids ids = properties.getIds();
+        if (ids.getGenerator() == AuctionProperties.IdGeneratorType.UUID) {
+            return new UuidIdGenerator();
+        }
+        return new SnowflakeIdGenerator(ids.getNode());
+    }
+
+}
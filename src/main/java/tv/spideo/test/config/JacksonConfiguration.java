@@ -3,6 +3,8 @@ package tv.spideo.test.config;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.zalando.problem.ProblemModule;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
@@ -13,6 +15,9 @@ import com.fasterxml.jackson.databind.cfg.MapperConfig;
 import com.fasterxml.jackson.databind.introspect.Annotated;
 import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
 import com.fasterxml.jackson.databind.jsontype.TypeResolverBuilder;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
@@ -23,13 +28,30 @@ public class JacksonConfiguration {
     @Bean
     @Primary
     public ObjectMapper serializingObjectMapper() {
-        ObjectMapper mapper = new ObjectMapper()
+        return configure(new ObjectMapper());
+    }
+
+    // The binary formats of the same model, for the clients that ask for them with Accept and Content-Type
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter() {
+        return new MappingJackson2SmileHttpMessageConverter(configure(new ObjectMapper(new SmileFactory())));
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+        return new MappingJackson2CborHttpMessageConverter(configure(new ObjectMapper(new CBORFactory())));
+    }
+
+    private static ObjectMapper configure(ObjectMapper mapper) {
+        mapper
                 //To not have all the stack if an exception occured
                 .registerModule(new ProblemModule())
                 .registerModule(new ParameterNamesModule())
                 .registerModule(new Jdk8Module())
                 //Support Java instant serialization/deserialization
                 .registerModule(new JavaTimeModule());
+        // The summaries are filtered by the fields of a request, they are serialized whole otherwise
+        mapper.setFilterProvider(new SimpleFilterProvider().setFailOnUnknownId(false));
         mapper.setAnnotationIntrospector(new JacksonAnnotationIntrospector() {
             /**
              *
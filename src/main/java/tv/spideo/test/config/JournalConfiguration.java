@@ -0,0 +1,63 @@
+package tv.spideo.test.config;
+
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tv.spideo.test.repository.journal.AuctionHouseJournal;
+import tv.spideo.test.repository.journal.MemoryJournal;
+import tv.spideo.test.repository.journal.WriteAheadLog;
+import tv.spideo.test.repository.storage.BidLogStorage;
+import tv.spideo.test.repository.storage.HeapBidLogStorage;
+import tv.spideo.test.repository.storage.MappedBidLogStorage;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Create the journal and the bid storage of the repository from the persistence mode,
+ * report how long the journal took to be replayed on startup and whether it failed.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+@Configuration
+public class JournalConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public AuctionHouseJournal auctionHouseJournal(AuctionProperties properties) throws IOException {
+        AuctionProperties.Persistence persistence = properties.getPersistence();
+        if (persistence.getMode() != AuctionProperties.PersistenceMode.MEMORY) {
+            return new WriteAheadLog(Paths.get(persistence.getDirectory()), persistence.getSegmentSize(),
+                    persistence.isFsync(), persistence.getMaxBatchSize());
+        }
+        return new MemoryJournal();
+    }
+
+    @Bean(destroyMethod = "close")
+    public BidLogStorage bidLogStorage(AuctionProperties properties) throws IOException {
+        AuctionProperties.Persistence persistence = properties.getPersistence();
+        if (persistence.getMode() == AuctionProperties.PersistenceMode.MAPPED) {
+            return new MappedBidLogStorage(Paths.get(persistence.getDirectory(), "bids"), persistence.isFsync());
+        }
+        return new HeapBidLogStorage();
+    }
+
+    @Bean
+    public MeterBinder auctionHouseJournalMetrics(AuctionHouseJournal journal) {
+        return (registry) -> TimeGauge.builder("auction.journal.replay.time", journal, TimeUnit.MILLISECONDS,
+                (replayedJournal) -> replayedJournal.getReplayTime().toMillis())
+                .description("The time taken to load the snapshot and replay the journal on startup")
+                .register(registry);
+    }
+
+    // Down once the journal failed, the instance only serves reads that may not be durable anymore
+    @Bean
+    public HealthIndicator auctionHouseJournalHealthIndicator(AuctionHouseJournal journal) {
+        return () -> journal.getFailure() == null ? Health.up().build() : Health.down(journal.getFailure()).build();
+    }
+
+}
@@ -4,8 +4,12 @@ import com.fasterxml.jackson.annotation.*;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.*;
 
+import java.io.Serializable;
 import java.time.Instant;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Data
 @Builder
@@ -16,6 +20,10 @@ import java.util.HashMap;
 @JsonDeserialize(builder = Auction.AuctionBuilder.class)
 public class Auction implements Base {
 
+    // The bids are only added with addBid, the ones given in the input are ignored
+    @JsonIgnoreProperties(value = {"bidders", "bidding"})
+    public static class AuctionBuilder {}
+
     @JsonProperty("id")
     private String id;
 
@@ -40,33 +48,280 @@ public class Auction implements Base {
 
     @Builder.Default
     @JsonProperty("status")
-    private AuctionStatus status = AuctionStatus.NOT_STARTED;
+    private volatile AuctionStatus status = AuctionStatus.NOT_STARTED;
 
     @JsonProperty("initialPrice")
     private double initialPrice;
 
+    /* The price before any bid is accepted, once there is a leading
+    bid the current price is the one of the leader */
+    @Setter(AccessLevel.NONE)
     @JsonProperty("currentPrice")
     private double currentPrice;
 
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @Builder.Default
-    @JsonProperty("bidders")
-    private final HashMap<String, AuctionBidder> bidders = new HashMap<>();
+    private final BidLog bidLog = new BidLog();
 
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
     @Builder.Default
-    @JsonProperty("bidding")
-    private final HashMap<String, Double> bidding = new HashMap<>();
+    private final AtomicReference<Leader> leader = new AtomicReference<>();
+
+    /* The version of the last accepted bid or change of status, see
+    Versions, the other fields are not changed once it is saved. A
+    copy only takes a new version once it is saved */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Setter(AccessLevel.NONE)
+    private volatile long version;
+
+    // The clock of the repository of a saved auction, given by its auction house
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile Versions versions;
+
+    // The version of the auction house of a saved auction, it is raised with the version of the auction
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile AtomicLong auctionHouseVersion;
+
+    public double getCurrentPrice() {
+        Leader actualLeader = this.leader.get();
+        return actualLeader == null ? this.currentPrice : actualLeader.getPrice();
+    }
+
+    @JsonIgnore
+    public Leader getLeader() {
+        return this.leader.get();
+    }
+
+    /**
+     * Accept a bid if the auction is running and its price is higher
+     * than the one of the leader, a bid without a finite price or a
+     * bidding time is never accepted. The bids that are too low or too
+     * late are rejected without any lock, the others are checked again,
+     * appended to the history and only then lead the auction, under the
+     * monitor of the bid log, which appending takes anyway. The status
+     * and the leader are only changed under the same monitor, so no bid
+     * is accepted once the auction is finished, the history is in the
+     * order of the prices and a bid that could not be appended never
+     * leads the auction.
+     *
+     * @param bidder the bidder with a generated id
+     * @return the outcome of the bid
+     */
+    @JsonIgnore
+    public BidResult bid(AuctionBidder bidder) {
+        if (!Double.isFinite(bidder.getPrice()) || bidder.getBiddingTime() == null)
+            return BidResult.INVALID_BID;
+        if (this.status != AuctionStatus.RUNNING)
+            return BidResult.NOT_RUNNING;
+        // Written as a negation so that no comparison with NaN lets a bid through
+        if (!(bidder.getPrice() > getLeadingPrice()))
+            return BidResult.PRICE_TOO_LOW;
+        synchronized (this.bidLog) {
+            if (this.status != AuctionStatus.RUNNING)
+                return BidResult.NOT_RUNNING;
+            if (!(bidder.getPrice() > getLeadingPrice()))
+                return BidResult.PRICE_TOO_LOW;
+            addBid(bidder);
+            // Nobody else changes the leader while the monitor is held
+            this.leader.set(new Leader(bidder.getPrice(), bidder));
+            return BidResult.ACCEPTED;
+        }
+    }
+
+    /**
+     * Change the status of the auction, once the bids being accepted are
+     * in the history, see {@link #bid(AuctionBidder)}.
+     */
+    @JsonIgnore
+    public void changeStatus(AuctionStatus status) {
+        synchronized (this.bidLog) {
+            this.status = status;
+        }
+    }
+
+    /**
+     * Try to make the bidder the leader of the auction whatever its
+     * status is, e.g. for a bid read back from the journal. The price
+     * and the leader are swapped together with a compare-and-set, so
+     * a lower price can never replace a higher one.
+     *
+     * @param bidder the bidder that wants to lead the auction
+     * @return true if the bidder is the new leader, false if its price is too low or not finite
+     */
+    @JsonIgnore
+    public boolean outbid(AuctionBidder bidder) {
+        if (!Double.isFinite(bidder.getPrice()))
+            return false;
+        Leader newLeader = new Leader(bidder.getPrice(), bidder);
+        Leader actualLeader;
+        do {
+            actualLeader = this.leader.get();
+            double price = actualLeader == null
+                    ? Math.max(this.currentPrice, this.initialPrice) : actualLeader.getPrice();
+            if (!(bidder.getPrice() > price)) {
+                return false;
+            }
+        } while (!this.leader.compareAndSet(actualLeader, newLeader));
+        return true;
+    }
+
+    // The price a bid must beat
+    private double getLeadingPrice() {
+        Leader actualLeader = this.leader.get();
+        return actualLeader == null ? Math.max(this.currentPrice, this.initialPrice) : actualLeader.getPrice();
+    }
+
+    /**
+     * Add an accepted bid to the history of the auction.
+     *
+     * @param bidder the accepted bidder
+     * @return the position of the bid in the history
+     */
+    @JsonIgnore
+    public int addBid(AuctionBidder bidder) {
+        int position = this.bidLog.append(bidder);
+        bidder.setPosition(position);
+        touch();
+        return position;
+    }
+
+    /**
+     * Add a bid that was already accepted, e.g. when it is read back
+     * from the journal, its price is not checked again and the bidder
+     * only leads the auction if its price is the highest one, once
+     * it is in the history.
+     */
+    @JsonIgnore
+    public int restoreBid(AuctionBidder bidder) {
+        synchronized (this.bidLog) {
+            int position = addBid(bidder);
+            outbid(bidder);
+            return position;
+        }
+    }
+
+    /**
+     * Make the highest bid of the history the leader, e.g. once the
+     * history was loaded from a snapshot.
+     */
+    @JsonIgnore
+    public void restoreLeader() {
+        int position = this.bidLog.getHighestPricePosition();
+        if (position >= 0)
+            outbid(this.bidLog.get(position));
+    }
+
+    /**
+     * Copy the auction with another bid log, e.g. one stored in a file,
+     * the highest bid of the log leads the copy.
+     *
+     * @param bidLog the bid log of the copy
+     * @return the copy of the auction
+     */
+    @JsonIgnore
+    public Auction withBidLog(BidLog bidLog) {
+        Auction auction = Auction.builder()
+                .id(this.id)
+                .name(this.name)
+                .creatorId(this.creatorId)
+                .description(this.description)
+                .startingTime(this.startingTime)
+                .endTime(this.endTime)
+                .maxBidders(this.maxBidders)
+                .status(this.status)
+                .initialPrice(this.initialPrice)
+                .currentPrice(this.currentPrice)
+                .bidLog(bidLog)
+                .build();
+        auction.restoreLeader();
+        return auction;
+    }
+
+    // Link the auction to the clock and the version of its auction house, its version starts from the clock
+    void attach(Versions versions, AtomicLong auctionHouseVersion) {
+        this.versions = versions;
+        this.auctionHouseVersion = auctionHouseVersion;
+        if (versions != null && this.version < versions.current())
+            this.version = versions.current();
+    }
+
+    /**
+     * Give the auction and its auction house a new version, once one of
+     * its mutations is visible, an auction that is not saved has no
+     * version to take.
+     */
+    @JsonIgnore
+    public void touch() {
+        Versions actualVersions = this.versions;
+        if (actualVersions == null)
+            return;
+        long newVersion = actualVersions.next();
+        this.version = newVersion;
+        AtomicLong actualAuctionHouseVersion = this.auctionHouseVersion;
+        if (actualAuctionHouseVersion != null)
+            actualAuctionHouseVersion.accumulateAndGet(newVersion, Math::max);
+    }
 
+    // The price before any bid, the current price is the one of the leader once there is one
     @JsonIgnore
-    public Auction addBid(AuctionBidder bidder) {
-        this.bidders.put(bidder.getId(), bidder);
-        this.bidding.put(bidder.getId(), bidder.getPrice());
-        return this;
+    public double getOpeningPrice() {
+        return this.currentPrice;
+    }
+
+    /* The bidders and the bidding are rebuilt from the bid log when
+    they are needed, they are only read by the API */
+    @JsonProperty("bidders")
+    public Map<String, AuctionBidder> getBidders() {
+        Map<String, AuctionBidder> bidders = new LinkedHashMap<>();
+        this.bidLog.forEach((bidder) -> bidders.put(bidder.getId(), bidder));
+        return bidders;
+    }
+
+    @JsonProperty("bidding")
+    public Map<String, Double> getBidding() {
+        Map<String, Double> bidding = new LinkedHashMap<>();
+        this.bidLog.forEach((bidder) -> bidding.put(bidder.getId(), bidder.getPrice()));
+        return bidding;
     }
 
     public void setCurrentPriceIfZero() {
         this.currentPrice = Double.compare(this.currentPrice, 0.0) == 0 ? this.initialPrice : this.currentPrice;
     }
 
+    /* An immutable pair of the leading bidder and its price,
+    the price is copied as the bidder itself is mutable */
+    @Value
+    public static class Leader implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        double price;
+        AuctionBidder bidder;
+
+    }
+
+    public enum BidResult {
+        ACCEPTED,
+        NOT_RUNNING,
+        PRICE_TOO_LOW,
+        INVALID_BID
+    }
+
     public enum AuctionStatus {
         NOT_STARTED,
         RUNNING,
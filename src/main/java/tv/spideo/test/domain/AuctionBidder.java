@@ -1,5 +1,6 @@
 package tv.spideo.test.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.*;
@@ -30,4 +31,9 @@ public class AuctionBidder implements Base {
     @JsonProperty("price")
     private double price;
 
+    // The position of the bid in the history of its auction, once it is accepted
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private int position;
+
 }
@@ -5,7 +5,13 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.*;
 
 import javax.validation.constraints.NotNull;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Data
 @Builder
@@ -27,11 +33,168 @@ public class AuctionHouse implements Base {
 
     @Builder.Default
     @JsonProperty("auctions")
-    private final HashMap<String, Auction> auctions = new HashMap<>();
+    private final ConcurrentHashMap<String, Auction> auctions = new ConcurrentHashMap<>();
+
+    /* The auctions grouped by their status, it is kept up to date
+    by the functions below, so the status of a saved auction must
+    only be changed with updateAuctionStatus */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    @Builder.Default
+    private final EnumMap<Auction.AuctionStatus, ConcurrentHashMap<String, Auction>> auctionsByStatus = newStatusIndex();
+
+    // The ids of the auctions in order, so the auctions can be read page by page
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    @Builder.Default
+    private final ConcurrentSkipListSet<String> auctionIds = new ConcurrentSkipListSet<>();
+
+    /* The highest version of the auction house and of its auctions, every
+    auction raises it with its own version, see Auction#touch. It only
+    takes a new version once the auction house is saved */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @Builder.Default
+    private final AtomicLong version = new AtomicLong();
+
+    // The clock of the repository that saved the auction house, null until it is saved
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile Versions versions;
 
     @JsonIgnore
     public void addAuction(Auction auction) {
-        auctions.put(auction.getId(), auction);
+        auction.attach(versions, version);
+        auctionIds.add(auction.getId());
+        Auction previousAuction = auctions.put(auction.getId(), auction);
+        if (previousAuction != null && previousAuction.getStatus() != auction.getStatus())
+            auctionsByStatus.get(previousAuction.getStatus()).remove(previousAuction.getId(), previousAuction);
+        auctionsByStatus.get(auction.getStatus()).put(auction.getId(), auction);
+        // The auction and the auction house take the same new version
+        auction.touch();
+    }
+
+    @JsonIgnore
+    public Auction removeAuction(String auctionId) {
+        Auction removedAuction = auctions.remove(auctionId);
+        if (removedAuction != null) {
+            auctionsByStatus.get(removedAuction.getStatus()).remove(auctionId, removedAuction);
+            auctionIds.remove(auctionId);
+            removedAuction.attach(versions, null);
+            touch();
+        }
+        return removedAuction;
+    }
+
+    /**
+     * Get at most limit auctions that come after an auction id.
+     *
+     * @param afterAuctionId the last auction id of the previous page, null for the first page
+     * @param limit the maximum number of auctions
+     * @return the auctions ordered by their id
+     */
+    @JsonIgnore
+    public List<Auction> getAuctionsAfter(String afterAuctionId, int limit) {
+        List<Auction> page = new ArrayList<>(Math.min(limit, auctions.size()));
+        Iterator<String> ids = (afterAuctionId == null ? auctionIds : auctionIds.tailSet(afterAuctionId, false)).iterator();
+        while (page.size() < limit && ids.hasNext()) {
+            Auction auction = auctions.get(ids.next());
+            if (auction != null)
+                page.add(auction);
+        }
+        return page;
+    }
+
+    /**
+     * Change the status of one of the auctions and move it to its new
+     * group. The caller must hold the lock of the auction.
+     */
+    @JsonIgnore
+    public void updateAuctionStatus(Auction auction, Auction.AuctionStatus status) {
+        Auction.AuctionStatus previousStatus = auction.getStatus();
+        auctionsByStatus.get(status).put(auction.getId(), auction);
+        auction.changeStatus(status);
+        if (previousStatus != status)
+            auctionsByStatus.get(previousStatus).remove(auction.getId(), auction);
+        auction.touch();
+    }
+
+    /**
+     * Get the version of the auction house and its auctions, it is
+     * the highest version of the auction house and of every auction,
+     * so it changes with anything serialized with the auction house.
+     */
+    @JsonIgnore
+    public long getVersion() {
+        return this.version.get();
+    }
+
+    /**
+     * Give the auction house and its auctions the clock of the repository
+     * that saves it, their versions start from its current version.
+     *
+     * @param versions the clock of the repository
+     */
+    @JsonIgnore
+    public void attach(Versions versions) {
+        this.versions = versions;
+        this.version.accumulateAndGet(versions.current(), Math::max);
+        auctions.values().forEach((auction) -> auction.attach(versions, version));
+    }
+
+    /**
+     * Give the auction house a new version, once one of its mutations is
+     * visible, an auction house that is not saved has no version to take.
+     */
+    @JsonIgnore
+    public void touch() {
+        Versions actualVersions = this.versions;
+        if (actualVersions != null)
+            this.version.accumulateAndGet(actualVersions.next(), Math::max);
+    }
+
+    @JsonIgnore
+    public List<Auction> getAuctionsByStatus(Auction.AuctionStatus status) {
+        return new ArrayList<>(auctionsByStatus.get(status).values());
+    }
+
+    @JsonIgnore
+    public int countAuctionsByStatus(Auction.AuctionStatus status) {
+        return auctionsByStatus.get(status).size();
+    }
+
+    /**
+     * Group again all the auctions by their status, it is needed
+     * when the auctions were given to the builder.
+     */
+    @JsonIgnore
+    public void indexAuctions() {
+        auctionsByStatus.values().forEach(ConcurrentHashMap::clear);
+        auctionIds.clear();
+        auctions.values().forEach((auction) -> {
+            auction.attach(versions, version);
+            auctionsByStatus.get(auction.getStatus()).put(auction.getId(), auction);
+            auctionIds.add(auction.getId());
+        });
+    }
+
+    private static EnumMap<Auction.AuctionStatus, ConcurrentHashMap<String, Auction>> newStatusIndex() {
+        // All the statuses are added once, so the map itself is never modified concurrently
+        EnumMap<Auction.AuctionStatus, ConcurrentHashMap<String, Auction>> statusIndex = new EnumMap<>(Auction.AuctionStatus.class);
+        for (Auction.AuctionStatus status : Auction.AuctionStatus.values()) {
+            statusIndex.put(status, new ConcurrentHashMap<>());
+        }
+        return statusIndex;
     }
 
 }
@@ -0,0 +1,50 @@
+package tv.spideo.test.domain;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The fields of an auction house shown in a list, without its auctions.
+ * The counts are read from the groups kept by the auction house, so a
+ * summary costs the same whatever the number of auctions and bids.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonFilter(AuctionHouseSummary.FIELDS_FILTER)
+public class AuctionHouseSummary implements Base {
+
+    // The filter of the summaries that keeps the fields asked by the client
+    public static final String FIELDS_FILTER = "fields";
+
+    @JsonProperty("id")
+    private String id;
+
+    @JsonProperty("name")
+    private String name;
+
+    @JsonProperty("creatorName")
+    private String creatorName;
+
+    @JsonProperty("auctionCount")
+    private int auctionCount;
+
+    @JsonProperty("auctionCountByStatus")
+    private Map<Auction.AuctionStatus, Integer> auctionCountByStatus = new EnumMap<>(Auction.AuctionStatus.class);
+
+    public static AuctionHouseSummary of(AuctionHouse auctionHouse) {
+        Map<Auction.AuctionStatus, Integer> auctionCountByStatus = new EnumMap<>(Auction.AuctionStatus.class);
+        for (Auction.AuctionStatus status : Auction.AuctionStatus.values()) {
+            auctionCountByStatus.put(status, auctionHouse.countAuctionsByStatus(status));
+        }
+        return new AuctionHouseSummary(auctionHouse.getId(), auctionHouse.getName(), auctionHouse.getCreatorName(),
+                auctionHouse.getAuctions().size(), auctionCountByStatus);
+    }
+
+}
@@ -0,0 +1,26 @@
+package tv.spideo.test.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+/**
+ * The status and the price of an auction sent to the subscribers of
+ * its event stream when the status changes.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuctionStatusEvent implements Base {
+
+    @JsonProperty("auctionId")
+    private String auctionId;
+
+    @JsonProperty("status")
+    private Auction.AuctionStatus status;
+
+    @JsonProperty("currentPrice")
+    private double currentPrice;
+
+}
@@ -0,0 +1,45 @@
+package tv.spideo.test.domain;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * The fields of an auction shown in a list, without its bids. The
+ * price is the one of the leader and the number of bids is the size
+ * of the bid log, so the bids themselves are never read.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonFilter(AuctionHouseSummary.FIELDS_FILTER)
+public class AuctionSummary implements Base {
+
+    @JsonProperty("id")
+    private String id;
+
+    @JsonProperty("name")
+    private String name;
+
+    @JsonProperty("status")
+    private Auction.AuctionStatus status;
+
+    @JsonProperty("currentPrice")
+    private double currentPrice;
+
+    @JsonProperty("bidCount")
+    private int bidCount;
+
+    @JsonProperty("endTime")
+    private Instant endTime;
+
+    public static AuctionSummary of(Auction auction) {
+        return new AuctionSummary(auction.getId(), auction.getName(), auction.getStatus(),
+                auction.getCurrentPrice(), auction.getBidLog().size(), auction.getEndTime());
+    }
+
+}
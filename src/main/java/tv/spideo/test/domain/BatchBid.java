@@ -0,0 +1,29 @@
+package tv.spideo.test.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * A bid of a batch, the auction is given with the bid as the
+ * bids of a batch may target many auctions of an auction house.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchBid implements Base {
+
+    @NotNull
+    @JsonProperty("auctionId")
+    private String auctionId;
+
+    @JsonProperty("name")
+    private String name;
+
+    @JsonProperty("price")
+    private double price;
+
+}
@@ -0,0 +1,43 @@
+package tv.spideo.test.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+/**
+ * The result of a bid of a batch, in the order of the batch. An
+ * accepted bid has its bidder, a rejected one has the type and the
+ * title of the error it would have got alone.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchBidResult implements Base {
+
+    @JsonProperty("auctionId")
+    private String auctionId;
+
+    @JsonProperty("accepted")
+    private boolean accepted;
+
+    @JsonProperty("bidder")
+    private AuctionBidder bidder;
+
+    @JsonProperty("error")
+    private String error;
+
+    @JsonProperty("message")
+    private String message;
+
+    public static BatchBidResult accepted(String auctionId, AuctionBidder bidder) {
+        return new BatchBidResult(auctionId, true, bidder, null, null);
+    }
+
+    public static BatchBidResult rejected(String auctionId, String error, String message) {
+        return new BatchBidResult(auctionId, false, null, error, message);
+    }
+
+}
@@ -0,0 +1,63 @@
+package tv.spideo.test.domain;
+
+import java.io.Closeable;
+
+/**
+ * The storage of the columns of a {@link BidLog}, one fixed-size
+ * record per bid. The log decides when a bid is written and when
+ * it is published, the columns only keep the values.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+public interface BidColumns extends Closeable {
+
+    /**
+     * Write the columns of a bid, it is not visible to the readers
+     * of the log until the size is published.
+     */
+    void write(int position, long idMostSignificantBits, long idLeastSignificantBits,
+               long biddingTime, double price, int nameIndex);
+
+    /**
+     * Called once a bid is written, the columns that are kept in a
+     * file store the size so they can be opened again as they are.
+     */
+    void publish(int size, int highestPricePosition);
+
+    // Called under the lock of the log before the bids that use the name are published
+    void addName(int index, String name);
+
+    long getIdMostSignificantBits(int position);
+
+    long getIdLeastSignificantBits(int position);
+
+    long getBiddingTime(int position);
+
+    double getPrice(int position);
+
+    int getNameIndex(int position);
+
+    // The state that was stored before the columns were opened, nothing for the in-memory ones
+
+    int getStoredSize();
+
+    int getStoredHighestPricePosition();
+
+    String[] getStoredNames();
+
+    /**
+     * Make the bids below a size durable before they are acknowledged,
+     * nothing is done by the columns that are not kept in a file.
+     */
+    void force(int size);
+
+    /**
+     * @return true if the bids are kept after a restart without being journaled
+     */
+    boolean isPersistent();
+
+    @Override
+    void close();
+
+}
@@ -0,0 +1,294 @@
+package tv.spideo.test.domain;
+
+import tv.spideo.test.util.id.CompactIds;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * An append-only log of the accepted bids of an auction stored in
+ * columns of primitive values instead of one object per bid, the
+ * columns are kept on the heap unless other {@link BidColumns} are
+ * given, e.g. a memory-mapped file.
+ * The name of the bidders are stored once in a dictionary and
+ * referenced by their index.
+ * Appending is synchronized while reading is lock-free, the
+ * number of bids is published after the bid is written.
+ * The id of a bid is kept in two longs, the bits of a UUID or, for
+ * a {@link CompactIds compact id}, zero then the id, a UUID never
+ * starts with 64 zero bits so both are read back as they were given.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+public class BidLog implements Base {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int FIRST_NAMES_SIZE = 8;
+
+    private final BidColumns columns;
+    private volatile String[] names;
+    private volatile int size;
+    private volatile int highestPricePosition;
+
+    // Only used by the writers, under the lock
+    private final HashMap<String, Integer> nameIndexes = new HashMap<>();
+    private int namesCount;
+
+    public BidLog() {
+        this(new HeapBidColumns());
+    }
+
+    /**
+     * Create a log over columns that may already contain bids,
+     * they are read in place, nothing is loaded.
+     *
+     * @param columns the storage of the bids
+     */
+    public BidLog(BidColumns columns) {
+        this.columns = columns;
+        String[] storedNames = columns.getStoredNames();
+        for (int idx = 0; idx < storedNames.length; idx++) {
+            nameIndexes.put(storedNames[idx], idx);
+        }
+        this.namesCount = storedNames.length;
+        this.names = storedNames;
+        this.highestPricePosition = columns.getStoredHighestPricePosition();
+        this.size = columns.getStoredSize();
+    }
+
+    /**
+     * Append an accepted bid to the log.
+     *
+     * @param bidder the bidder with a generated id
+     * @return the position of the bid in the log
+     */
+    public synchronized int append(AuctionBidder bidder) {
+        int position = size;
+        long[] id = toIdBits(bidder.getId());
+        write(position, id[0], id[1],
+                bidder.getBiddingTime().toEpochMilli(), bidder.getPrice(), nameIndex(bidder.getName()));
+        size = position + 1;
+        return position;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Make the bids up to a position durable in their storage, the bids
+     * appended meanwhile are forced with them, so the concurrent bidders
+     * share the cost of a single force.
+     *
+     * @param position the position of the last bid to make durable
+     */
+    public void force(int position) {
+        columns.force(Math.max(position + 1, size));
+    }
+
+    /**
+     * @return true if the bids are kept by their storage after a restart
+     */
+    public boolean isPersistent() {
+        return columns.isPersistent();
+    }
+
+    public AuctionBidder get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException(String.valueOf(position));
+        }
+        return toBidder(position);
+    }
+
+    public double getPrice(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException(String.valueOf(position));
+        }
+        return columns.getPrice(position);
+    }
+
+    /**
+     * The bid with the highest price, an accepted bid is always
+     * higher than the previous ones so it leads the auction.
+     *
+     * @return the position of the bid or -1 if the log is empty
+     */
+    public int getHighestPricePosition() {
+        return highestPricePosition;
+    }
+
+    /**
+     * Go through the bids from a position (included) to another
+     * one (excluded), the bids are materialized one by one.
+     */
+    public void forEach(int from, int to, Consumer<AuctionBidder> consumer) {
+        int end = Math.min(to, size);
+        for (int position = Math.max(from, 0); position < end; position++) {
+            consumer.accept(toBidder(position));
+        }
+    }
+
+    public void forEach(Consumer<AuctionBidder> consumer) {
+        forEach(0, size, consumer);
+    }
+
+    /**
+     * A lazy stream of the bids that were in the log when
+     * it was called, a bid is materialized when it is read.
+     */
+    public Stream<AuctionBidder> stream() {
+        return IntStream.range(0, size).mapToObj(this::get);
+    }
+
+    /**
+     * Write the first bids of the log in a compact binary form, the
+     * columns of every bid then the dictionary of their names.
+     * The bids appended meanwhile are not written.
+     *
+     * @param output the output of the snapshot
+     * @param count the number of bids to write, at most the size of the log
+     */
+    public void writeTo(DataOutput output, int count) throws IOException {
+        // The names are read after the size, so they contain the names of all these bids
+        String[] actualNames = names;
+        int writtenNamesCount = 0;
+        output.writeInt(count);
+        for (int position = 0; position < count; position++) {
+            int nameIndex = columns.getNameIndex(position);
+            output.writeLong(columns.getIdMostSignificantBits(position));
+            output.writeLong(columns.getIdLeastSignificantBits(position));
+            output.writeLong(columns.getBiddingTime(position));
+            output.writeDouble(columns.getPrice(position));
+            output.writeInt(nameIndex);
+            writtenNamesCount = Math.max(writtenNamesCount, nameIndex + 1);
+        }
+        output.writeInt(writtenNamesCount);
+        for (int idx = 0; idx < writtenNamesCount; idx++) {
+            writeName(output, actualNames[idx]);
+        }
+    }
+
+    /**
+     * Read a log written by {@link #writeTo(DataOutput, int)}.
+     */
+    public static BidLog readFrom(DataInput input) throws IOException {
+        BidLog bidLog = new BidLog();
+        bidLog.load(input);
+        return bidLog;
+    }
+
+    private synchronized void load(DataInput input) throws IOException {
+        int count = input.readInt();
+        for (int position = 0; position < count; position++) {
+            long idMostSignificantBits = input.readLong();
+            long idLeastSignificantBits = input.readLong();
+            long biddingTime = input.readLong();
+            double price = input.readDouble();
+            write(position, idMostSignificantBits, idLeastSignificantBits, biddingTime, price, input.readInt());
+        }
+        String[] loadedNames = new String[input.readInt()];
+        for (int idx = 0; idx < loadedNames.length; idx++) {
+            loadedNames[idx] = readName(input);
+            nameIndexes.put(loadedNames[idx], idx);
+        }
+        namesCount = loadedNames.length;
+        names = loadedNames;
+        size = count;
+    }
+
+    // Write the columns of a bid and keep track of the highest price, the size is published by the caller
+    private void write(int position, long idMostSignificantBits, long idLeastSignificantBits,
+                       long biddingTime, double price, int nameIndex) {
+        columns.write(position, idMostSignificantBits, idLeastSignificantBits, biddingTime, price, nameIndex);
+        if (highestPricePosition < 0 || price > columns.getPrice(highestPricePosition)) {
+            highestPricePosition = position;
+        }
+        columns.publish(position + 1, highestPricePosition);
+    }
+
+    private static void writeName(DataOutput output, String name) throws IOException {
+        if (name == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readName(DataInput input) throws IOException {
+        int length = input.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param id the id of a bid
+     * @return true if the id can be kept by the log, a compact id or a UUID
+     */
+    public static boolean isValidId(String id) {
+        try {
+            toIdBits(id);
+            return true;
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+    }
+
+    private static long[] toIdBits(String id) {
+        if (CompactIds.isCompactId(id))
+            return new long[]{0, CompactIds.decode(id)};
+        UUID uuid = UUID.fromString(id);
+        if (uuid.getMostSignificantBits() == 0)
+            throw new IllegalArgumentException("A UUID of the bids does not start with 64 zero bits: " + id);
+        return new long[]{uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()};
+    }
+
+    private static String toId(long mostSignificantBits, long leastSignificantBits) {
+        if (mostSignificantBits == 0)
+            return CompactIds.encode(leastSignificantBits);
+        return new UUID(mostSignificantBits, leastSignificantBits).toString();
+    }
+
+    private AuctionBidder toBidder(int position) {
+        return AuctionBidder.builder()
+                .id(toId(columns.getIdMostSignificantBits(position), columns.getIdLeastSignificantBits(position)))
+                .name(names[columns.getNameIndex(position)])
+                .biddingTime(Instant.ofEpochMilli(columns.getBiddingTime(position)))
+                .price(columns.getPrice(position))
+                .position(position)
+                .build();
+    }
+
+    private int nameIndex(String name) {
+        Integer index = nameIndexes.get(name);
+        if (index == null) {
+            index = namesCount++;
+            nameIndexes.put(name, index);
+            columns.addName(index, name);
+            String[] actualNames = names;
+            if (index >= actualNames.length) {
+                actualNames = Arrays.copyOf(actualNames, Math.max(FIRST_NAMES_SIZE, actualNames.length * 2));
+            }
+            actualNames[index] = name;
+            // Published before the size of the log
+            names = actualNames;
+        }
+        return index;
+    }
+
+}
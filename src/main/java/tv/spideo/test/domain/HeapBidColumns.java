@@ -0,0 +1,155 @@
+package tv.spideo.test.domain;
+
+import java.util.Arrays;
+
+/**
+ * The columns of a {@link BidLog} in primitive arrays on the heap.
+ * The columns are split in chunks which double in size up to
+ * MAX_CHUNK_SIZE, so a small auction stays small and a big one
+ * never copies its bids when it grows. As the sizes are fixed the
+ * chunk of a position is computed instead of searched.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+class HeapBidColumns implements BidColumns, Base {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int FIRST_CHUNK_SHIFT = 3;
+    private static final int MAX_CHUNK_SHIFT = 13;
+    private static final int MAX_CHUNK_SIZE = 1 << MAX_CHUNK_SHIFT;
+    // The chunks that double in size end before this position, the next ones all have MAX_CHUNK_SIZE bids
+    private static final int GROWING_CHUNKS_END = (1 << (MAX_CHUNK_SHIFT + 1)) - (1 << FIRST_CHUNK_SHIFT);
+    private static final int GROWING_CHUNKS = MAX_CHUNK_SHIFT - FIRST_CHUNK_SHIFT + 1;
+
+    private volatile Chunk[] chunks = new Chunk[0];
+
+    @Override
+    public void write(int position, long idMostSignificantBits, long idLeastSignificantBits,
+                      long biddingTime, double price, int nameIndex) {
+        Chunk chunk = chunkFor(position);
+        int offset = position - chunk.start;
+        chunk.idsMostSignificantBits[offset] = idMostSignificantBits;
+        chunk.idsLeastSignificantBits[offset] = idLeastSignificantBits;
+        chunk.biddingTimes[offset] = biddingTime;
+        chunk.prices[offset] = price;
+        chunk.names[offset] = nameIndex;
+    }
+
+    @Override
+    public void publish(int size, int highestPricePosition) {
+        // The log publishes its own size
+    }
+
+    @Override
+    public void addName(int index, String name) {
+        // The names are kept by the log
+    }
+
+    @Override
+    public long getIdMostSignificantBits(int position) {
+        Chunk chunk = chunks[chunkIndex(position)];
+        return chunk.idsMostSignificantBits[position - chunk.start];
+    }
+
+    @Override
+    public long getIdLeastSignificantBits(int position) {
+        Chunk chunk = chunks[chunkIndex(position)];
+        return chunk.idsLeastSignificantBits[position - chunk.start];
+    }
+
+    @Override
+    public long getBiddingTime(int position) {
+        Chunk chunk = chunks[chunkIndex(position)];
+        return chunk.biddingTimes[position - chunk.start];
+    }
+
+    @Override
+    public double getPrice(int position) {
+        Chunk chunk = chunks[chunkIndex(position)];
+        return chunk.prices[position - chunk.start];
+    }
+
+    @Override
+    public int getNameIndex(int position) {
+        Chunk chunk = chunks[chunkIndex(position)];
+        return chunk.names[position - chunk.start];
+    }
+
+    @Override
+    public int getStoredSize() {
+        return 0;
+    }
+
+    @Override
+    public int getStoredHighestPricePosition() {
+        return -1;
+    }
+
+    @Override
+    public String[] getStoredNames() {
+        return new String[0];
+    }
+
+    @Override
+    public void force(int size) {
+        // Nothing is kept after a restart
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    private Chunk chunkFor(int position) {
+        int index = chunkIndex(position);
+        Chunk[] actualChunks = chunks;
+        if (index < actualChunks.length) {
+            return actualChunks[index];
+        }
+        int start = index < GROWING_CHUNKS ? ((1 << (index + FIRST_CHUNK_SHIFT)) - (1 << FIRST_CHUNK_SHIFT))
+                : GROWING_CHUNKS_END + (index - GROWING_CHUNKS) * MAX_CHUNK_SIZE;
+        Chunk chunk = new Chunk(start, index < GROWING_CHUNKS ? 1 << (index + FIRST_CHUNK_SHIFT) : MAX_CHUNK_SIZE);
+        Chunk[] newChunks = Arrays.copyOf(actualChunks, index + 1);
+        newChunks[index] = chunk;
+        chunks = newChunks;
+        return chunk;
+    }
+
+    // The chunk k < GROWING_CHUNKS starts at 8 * (2^k - 1) and holds 8 * 2^k bids
+    private static int chunkIndex(int position) {
+        if (position < GROWING_CHUNKS_END) {
+            return 31 - Integer.numberOfLeadingZeros((position >>> FIRST_CHUNK_SHIFT) + 1);
+        }
+        return GROWING_CHUNKS + (position - GROWING_CHUNKS_END) / MAX_CHUNK_SIZE;
+    }
+
+    private static final class Chunk implements Base {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final long[] idsMostSignificantBits;
+        private final long[] idsLeastSignificantBits;
+        private final long[] biddingTimes;
+        private final double[] prices;
+        private final int[] names;
+
+        private Chunk(int start, int size) {
+            this.start = start;
+            this.idsMostSignificantBits = new long[size];
+            this.idsLeastSignificantBits = new long[size];
+            this.biddingTimes = new long[size];
+            this.prices = new double[size];
+            this.names = new int[size];
+        }
+
+    }
+
+}
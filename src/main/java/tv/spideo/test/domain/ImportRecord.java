@@ -0,0 +1,50 @@
+package tv.spideo.test.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+/**
+ * A line of a bulk import, it holds one of an auction house, an
+ * auction of an auction house or a historical bid of an auction.
+ *
+ * <pre><code>{"auctionHouse": {...}}
+ * {"auctionHouseId": "...", "auction": {...}}
+ * {"auctionHouseId": "...", "auctionId": "...", "bid": {...}}</code></pre>
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportRecord implements Base {
+
+    @JsonProperty("auctionHouse")
+    private AuctionHouse auctionHouse;
+
+    @JsonProperty("auctionHouseId")
+    private String auctionHouseId;
+
+    @JsonProperty("auction")
+    private Auction auction;
+
+    @JsonProperty("auctionId")
+    private String auctionId;
+
+    @JsonProperty("bid")
+    private AuctionBidder bid;
+
+    public static ImportRecord ofAuctionHouse(AuctionHouse auctionHouse) {
+        return new ImportRecord(auctionHouse, null, null, null, null);
+    }
+
+    public static ImportRecord ofAuction(String auctionHouseId, Auction auction) {
+        return new ImportRecord(null, auctionHouseId, auction, null, null);
+    }
+
+    public static ImportRecord ofBid(String auctionHouseId, String auctionId, AuctionBidder bid) {
+        return new ImportRecord(null, auctionHouseId, null, auctionId, bid);
+    }
+
+}
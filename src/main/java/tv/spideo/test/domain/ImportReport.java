@@ -0,0 +1,71 @@
+package tv.spideo.test.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * The outcome of a bulk import. Only the first rejected records are
+ * detailed, the others are only counted. An import that stopped on a
+ * line which is not valid JSON is not completed, the records before
+ * it are imported.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportReport implements Base {
+
+    @JsonProperty("completed")
+    private boolean completed;
+
+    @JsonProperty("records")
+    private long records;
+
+    @JsonProperty("auctionHouses")
+    private long auctionHouses;
+
+    @JsonProperty("auctions")
+    private long auctions;
+
+    @JsonProperty("bids")
+    private long bids;
+
+    @JsonProperty("rejected")
+    private long rejected;
+
+    @JsonProperty("durationMillis")
+    private long durationMillis;
+
+    @JsonProperty("recordsPerSecond")
+    private long recordsPerSecond;
+
+    @JsonProperty("rejections")
+    private List<Rejection> rejections;
+
+    @Data
+    @ToString
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Rejection implements Base {
+
+        @JsonProperty("line")
+        private long line;
+
+        @JsonProperty("error")
+        private String error;
+
+        @JsonProperty("message")
+        private String message;
+
+        @JsonProperty("detail")
+        private String detail;
+
+    }
+
+}
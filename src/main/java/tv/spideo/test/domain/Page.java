@@ -0,0 +1,25 @@
+package tv.spideo.test.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of a list, the next cursor is null when it is the last page.
+ */
+@Data
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class Page<T> implements Base {
+
+    @JsonProperty("items")
+    private List<T> items = new ArrayList<>();
+
+    @JsonProperty("nextCursor")
+    private String nextCursor;
+
+}
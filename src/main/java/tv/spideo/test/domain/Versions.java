@@ -0,0 +1,35 @@
+package tv.spideo.test.domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The clock of the versions of the auction houses and their auctions.
+ * Every repository has its own clock, given to the auction houses it
+ * saves and through them to their auctions. Every mutation takes a new
+ * version once it is visible, so a version is never given twice and a
+ * newer state always has a higher version, and the actual version is the
+ * one of the last mutation of any of them. An object that is not saved
+ * has no clock, so building one, e.g. for an export, does not change it.
+ * The versions start again from zero when the application starts.
+ */
+public final class Versions {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * Take the version of a mutation, it must be called once the mutation is visible.
+     *
+     * @return a version higher than all the previous ones
+     */
+    public long next() {
+        return clock.incrementAndGet();
+    }
+
+    /**
+     * @return the version of the last mutation
+     */
+    public long current() {
+        return clock.get();
+    }
+
+}
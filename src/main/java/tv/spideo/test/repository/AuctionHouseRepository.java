@@ -2,14 +2,21 @@ package tv.spideo.test.repository;
 
 import org.springframework.stereotype.Repository;
 import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
 import tv.spideo.test.domain.AuctionHouse;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 @Repository
 public interface AuctionHouseRepository {
 
+    String generateId();
+    void checkWritable();
+    long getVersion();
+
     Optional<AuctionHouse> findAuctionHouseByName(String auctionHouseName);
     Optional<AuctionHouse> findAuctionHouseById(String auctionHouseId);
     Optional<AuctionHouse> saveAuctionHouse(AuctionHouse auctionHouse);
@@ -18,7 +25,14 @@ public interface AuctionHouseRepository {
     Optional<Boolean> deleteAuctionHouse(AuctionHouse auctionHouse);
     void deleteAllAuctionHouses();
 
+    Optional<Auction> saveAuction(AuctionHouse auctionHouse, Auction auction);
+    Optional<Auction> saveAuctionStatus(AuctionHouse auctionHouse, Auction auction, Auction.AuctionStatus status);
+    Optional<AuctionBidder> saveBid(AuctionHouse auctionHouse, Auction auction, AuctionBidder bidder);
+    CompletableFuture<AuctionBidder> saveBidAsync(AuctionHouse auctionHouse, Auction auction, AuctionBidder bidder);
+    List<AuctionBidder> saveBids(AuctionHouse auctionHouse, Auction auction, List<AuctionBidder> bidders);
     Optional<Boolean> deleteAuction(AuctionHouse auctionHouse, Auction auction);
     Optional<Auction> findAuctionByHouseIdAndAuctionId(String auctionHouseId, String auctionId);
 
+    <T> T withAuctionLock(String auctionId, Supplier<T> action);
+
 }
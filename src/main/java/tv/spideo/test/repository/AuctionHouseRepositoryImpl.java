@@ -1,41 +1,194 @@
 package tv.spideo.test.repository;
 
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
 import tv.spideo.test.domain.AuctionHouse;
-import tv.spideo.test.util.CommonUtils;
+import tv.spideo.test.domain.Versions;
+import tv.spideo.test.repository.journal.AuctionHouseJournal;
+import tv.spideo.test.repository.journal.JournalRecord;
+import tv.spideo.test.repository.journal.MemoryJournal;
+import tv.spideo.test.repository.storage.BidLogStorage;
+import tv.spideo.test.repository.storage.HeapBidLogStorage;
+import tv.spideo.test.util.id.IdGenerator;
+import tv.spideo.test.web.exception.JournalFailedException;
+import tv.spideo.test.util.id.SnowflakeIdGenerator;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * An in-memory implementation of {@link AuctionHouseRepository} that can be
+ * shared by all the request threads. The auction houses are kept in a
+ * {@link ConcurrentHashMap} and every auction gets its own lock, so the
+ * mutations of an auction (e.g. a status update) never contend with
+ * the ones of another auction.
+ * The names and the creators of the auction houses are indexed, so
+ * all the lookups are done in constant time whatever the number of
+ * auction houses is.
+ * Every mutation is applied in memory then appended to the
+ * {@link AuctionHouseJournal}, it returns once the journal made it
+ * durable and the journal is replayed when the repository is created.
+ * The bid log of every auction is opened from the {@link BidLogStorage},
+ * the bids are not journaled when the storage keeps them itself.
+ * Once the journal failed, every mutation is rejected before it is
+ * applied in memory, so nothing is changed that could not be made durable.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
 @Component
 public class AuctionHouseRepositoryImpl implements AuctionHouseRepository {
 
-    private static HashMap<String, AuctionHouse> auctionHouses = new HashMap<>();
+    private final ConcurrentHashMap<String, AuctionHouse> auctionHouses = new ConcurrentHashMap<>();
+
+    // The unique name of an auction house to its id
+    private final ConcurrentHashMap<String, String> auctionHouseIdsByName = new ConcurrentHashMap<>();
+
+    // The creator of the auction houses to their ids
+    private final ConcurrentHashMap<String, Set<String>> auctionHouseIdsByCreator = new ConcurrentHashMap<>();
+
+    // The keys that were indexed for an auction house, as its name or creator may change between two saves
+    private final ConcurrentHashMap<String, IndexedKeys> indexedKeys = new ConcurrentHashMap<>();
+
+    // One lock per auction, created the first time the auction is mutated
+    private final ConcurrentHashMap<String, ReentrantLock> auctionLocks = new ConcurrentHashMap<>();
+
+    private final AuctionHouseJournal journal;
+
+    private final BidLogStorage bidLogStorage;
+
+    private final IdGenerator idGenerator;
+
+    // The clock of the versions of the auction houses and the auctions saved here
+    private final Versions versions = new Versions();
+
+    /**
+     * Create an in-memory repository, nothing is kept after a restart.
+     */
+    public AuctionHouseRepositoryImpl() {
+        this(new MemoryJournal());
+    }
+
+    /**
+     * Create a repository that keeps the bids on the heap and rebuild its state from the journal.
+     *
+     * @param journal the journal of the mutations
+     */
+    public AuctionHouseRepositoryImpl(AuctionHouseJournal journal) {
+        this(journal, new HeapBidLogStorage());
+    }
+
+    /**
+     * Create a repository that gives the time-ordered ids of the node 0.
+     *
+     * @param journal the journal of the mutations
+     * @param bidLogStorage the storage of the bid logs
+     */
+    public AuctionHouseRepositoryImpl(AuctionHouseJournal journal, BidLogStorage bidLogStorage) {
+        this(journal, bidLogStorage, new SnowflakeIdGenerator(0));
+    }
+
+    /**
+     * Create a repository and rebuild its state from the journal and
+     * the bid logs that were stored, the logs of the auctions that
+     * do not exist anymore are deleted.
+     *
+     * @param journal the journal of the mutations
+     * @param bidLogStorage the storage of the bid logs
+     * @param idGenerator the generator of the ids of the auction houses, the auctions and the bids
+     */
+    @Autowired
+    public AuctionHouseRepositoryImpl(AuctionHouseJournal journal, BidLogStorage bidLogStorage, IdGenerator idGenerator) {
+        this.journal = journal;
+        this.bidLogStorage = bidLogStorage;
+        this.idGenerator = idGenerator;
+        // The number of bids of every auction of the snapshot, the bids of the tail before them are already there
+        Map<String, Integer> restoredBids = new HashMap<>();
+        journal.replay((auctionHouse) -> restore(auctionHouse, restoredBids), (record) -> apply(record, restoredBids));
+        bidLogStorage.retain(auctionHouses.values().stream()
+                .flatMap((auctionHouse) -> auctionHouse.getAuctions().keySet().stream())
+                .collect(Collectors.toSet()));
+    }
+
+    @Override
+    public long getVersion() {
+        return versions.current();
+    }
+
+    @Override
+    public String generateId() {
+        return idGenerator.generateId();
+    }
+
+    /**
+     * Reject a mutation before it is applied if the journal failed,
+     * the state in memory would not be durable anymore.
+     *
+     * @throws JournalFailedException if the journal failed
+     */
+    @Override
+    public void checkWritable() {
+        if (journal.getFailure() != null) {
+            throw new JournalFailedException();
+        }
+    }
 
     @Override
     public Optional<AuctionHouse> findAuctionHouseByName(String auctionHouseName) {
-        return auctionHouses.values()
-                .stream()
-                .filter((auctionHouse) -> auctionHouse.getName().contentEquals(auctionHouseName))
-                .findFirst();
+        return Optional.ofNullable(auctionHouseName)
+                .map(auctionHouseIdsByName::get)
+                .map(auctionHouses::get);
     }
 
     @Override
     public Optional<AuctionHouse> findAuctionHouseById(String auctionHouseId) {
-        return auctionHouses.entrySet()
-                .stream()
-                .filter((entry) -> entry.getKey().contentEquals(auctionHouseId))
-                .map(Map.Entry::getValue)
-                .findFirst();
+        return Optional.ofNullable(auctionHouseId)
+                .map(auctionHouses::get);
     }
 
+    /**
+     * Save an auction house and index its name and creator. The name
+     * is reserved atomically, so two auction houses can never share
+     * the same name even if they are saved at the same time.
+     *
+     * @param auctionHouse the auction house to save
+     * @return the saved auction house or empty if its name is used by another one
+     */
     @Override
     public Optional<AuctionHouse> saveAuctionHouse(AuctionHouse auctionHouse) {
+        checkWritable();
         if (auctionHouse.getId() == null)
-            auctionHouse.setId(CommonUtils.generateUUID());
-        auctionHouses.put(auctionHouse.getId(), auctionHouse);
-        return Optional.of(auctionHouse);
+            auctionHouse.setId(idGenerator.generateId());
+        // The name is reserved before the bid logs are opened, so a rejected save opens no file
+        String name = auctionHouse.getName();
+        String ownerId = name == null ? null : auctionHouseIdsByName.putIfAbsent(name, auctionHouse.getId());
+        if (ownerId != null && !ownerId.equals(auctionHouse.getId()))
+            return Optional.empty();
+        try {
+            openBidLogs(auctionHouse);
+        } catch (RuntimeException exception) {
+            // The name is only released if this save reserved it
+            if (name != null && ownerId == null)
+                auctionHouseIdsByName.remove(name, auctionHouse.getId());
+            throw exception;
+        }
+        return putAuctionHouse(auctionHouse).map((savedAuctionHouse) -> {
+            CompletableFuture<Void> durable = journal.append(JournalRecord.auctionHouseSaved(savedAuctionHouse));
+            // The auctions given with the auction house, the records are durable in the order they were appended
+            for (Auction auction : savedAuctionHouse.getAuctions().values()) {
+                durable = journal.append(JournalRecord.auctionSaved(savedAuctionHouse.getId(), auction));
+            }
+            await(durable);
+            return savedAuctionHouse;
+        });
     }
 
     @Override
@@ -45,34 +198,329 @@ public class AuctionHouseRepositoryImpl implements AuctionHouseRepository {
 
     @Override
     public List<AuctionHouse> findAllAuctionHousesByCreatorId(String auctionHouseCreator) {
-        return auctionHouses.values()
-                .stream()
-                .filter((auction) -> auction.getCreatorName().contentEquals(auctionHouseCreator))
-                .collect(Collectors.toList());
+        return Optional.ofNullable(auctionHouseCreator)
+                .map(auctionHouseIdsByCreator::get)
+                .map((auctionHouseIds) -> auctionHouseIds.stream()
+                        .map(auctionHouses::get)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()))
+                .orElseGet(ArrayList::new);
     }
 
     @Override
     public Optional<Boolean> deleteAuctionHouse(AuctionHouse auctionHouse) {
-        return Optional.of(auctionHouses.remove(auctionHouse.getId()) != null);
+        checkWritable();
+        Optional<AuctionHouse> removedAuctionHouse = removeAuctionHouse(auctionHouse.getId());
+        removedAuctionHouse.ifPresent((removed) -> {
+            await(journal.append(JournalRecord.auctionHouseDeleted(removed.getId())));
+            removed.getAuctions().keySet().forEach(bidLogStorage::delete);
+        });
+        return Optional.of(removedAuctionHouse.isPresent());
     }
 
     @Override
-    public Optional<Boolean> deleteAuction(AuctionHouse auctionHouse, Auction auction) {
-        return Optional.of(auctionHouses.get(auctionHouse.getId())
-                .getAuctions()
-                .remove(auction.getId()) != null);
+    public void deleteAllAuctionHouses() {
+        checkWritable();
+        clear();
+        await(journal.append(JournalRecord.allAuctionHousesDeleted()));
+        bidLogStorage.deleteAll();
     }
 
+    /**
+     * Add an auction to a saved auction house.
+     *
+     * @param auctionHouse the auction house of the auction
+     * @param auction the auction with an id
+     * @return the saved auction, with the bid log of the storage, or empty if the auction house was deleted
+     */
     @Override
-    public void deleteAllAuctionHouses() {
-        auctionHouses.clear();
+    public Optional<Auction> saveAuction(AuctionHouse auctionHouse, Auction auction) {
+        checkWritable();
+        return Optional.ofNullable(auctionHouses.get(auctionHouse.getId()))
+                .map((savedAuctionHouse) -> {
+                    Auction savedAuction = openBidLog(auction);
+                    savedAuctionHouse.addAuction(savedAuction);
+                    await(journal.append(JournalRecord.auctionSaved(savedAuctionHouse.getId(), savedAuction)));
+                    return savedAuction;
+                });
+    }
+
+    /**
+     * Change the status of an auction, the caller must hold the lock of the auction.
+     *
+     * @param auctionHouse the auction house of the auction
+     * @param auction the auction to update
+     * @param status the new status
+     * @return the updated auction or empty if the auction house or the auction was deleted
+     */
+    @Override
+    public Optional<Auction> saveAuctionStatus(AuctionHouse auctionHouse, Auction auction, Auction.AuctionStatus status) {
+        checkWritable();
+        return Optional.ofNullable(auctionHouses.get(auctionHouse.getId()))
+                // The auction may have been deleted before its lock was taken
+                .filter((savedAuctionHouse) -> savedAuctionHouse.getAuctions().get(auction.getId()) == auction)
+                .map((savedAuctionHouse) -> {
+                    savedAuctionHouse.updateAuctionStatus(auction, status);
+                    await(journal.append(JournalRecord.auctionStatusChanged(savedAuctionHouse.getId(),
+                            auction.getId(), status)));
+                    return auction;
+                });
+    }
+
+    /**
+     * Make a bid durable, the bid was already accepted by the auction
+     * so the in-memory state is up to date. Nothing is journaled if
+     * the bid log is kept by the storage, it is forced instead.
+     *
+     * @param auctionHouse the auction house of the auction
+     * @param auction the auction that accepted the bid
+     * @param bidder the accepted bidder
+     * @return the bidder or empty if the auction or its auction house was deleted since the bid was accepted
+     */
+    @Override
+    public Optional<AuctionBidder> saveBid(AuctionHouse auctionHouse, Auction auction, AuctionBidder bidder) {
+        return Optional.ofNullable(auctionHouses.get(auctionHouse.getId()))
+                .filter((savedAuctionHouse) -> savedAuctionHouse.getAuctions().get(auction.getId()) == auction)
+                .map((savedAuctionHouse) -> await(saveBidAsync(savedAuctionHouse, auction, bidder)));
+    }
+
+    /**
+     * Make a bid durable without waiting for it, the result is completed
+     * by the writer of the journal once the bid is synced.
+     *
+     * @param auctionHouse the auction house of the auction
+     * @param auction the auction that accepted the bid
+     * @param bidder the accepted bidder
+     * @return the bidder, once it is durable
+     */
+    @Override
+    public CompletableFuture<AuctionBidder> saveBidAsync(AuctionHouse auctionHouse, Auction auction,
+                                                         AuctionBidder bidder) {
+        if (auction.getBidLog().isPersistent()) {
+            auction.getBidLog().force(bidder.getPosition());
+            return CompletableFuture.completedFuture(bidder);
+        }
+        return journal.append(JournalRecord.bidAccepted(auctionHouse.getId(), auction.getId(), bidder))
+                .thenApply((durable) -> bidder);
+    }
+
+    /**
+     * Make the accepted bids of a batch durable together, the records
+     * are durable in the order they were appended so only the last
+     * one is awaited.
+     *
+     * @param auctionHouse the auction house of the auction
+     * @param auction the auction that accepted the bids
+     * @param bidders the accepted bidders
+     * @return the bidders
+     */
+    @Override
+    public List<AuctionBidder> saveBids(AuctionHouse auctionHouse, Auction auction, List<AuctionBidder> bidders) {
+        if (bidders.isEmpty())
+            return bidders;
+        if (auction.getBidLog().isPersistent()) {
+            auction.getBidLog().force(bidders.get(bidders.size() - 1).getPosition());
+            return bidders;
+        }
+        CompletableFuture<Void> durable = null;
+        for (AuctionBidder bidder : bidders) {
+            durable = journal.append(JournalRecord.bidAccepted(auctionHouse.getId(), auction.getId(), bidder));
+        }
+        await(durable);
+        return bidders;
+    }
+
+    @Override
+    public Optional<Boolean> deleteAuction(AuctionHouse auctionHouse, Auction auction) {
+        checkWritable();
+        return Optional.ofNullable(auctionHouses.get(auctionHouse.getId()))
+                .map((savedAuctionHouse) -> {
+                    // Removed under the lock of the auction, so no status change puts it back in a group
+                    ReentrantLock lock = auctionLocks.computeIfAbsent(auction.getId(), (id) -> new ReentrantLock());
+                    lock.lock();
+                    try {
+                        boolean deleted = savedAuctionHouse.removeAuction(auction.getId()) != null;
+                        if (deleted) {
+                            await(journal.append(JournalRecord.auctionDeleted(savedAuctionHouse.getId(), auction.getId())));
+                            bidLogStorage.delete(auction.getId());
+                            // The waiters of this lock find the auction deleted once they get it
+                            auctionLocks.remove(auction.getId(), lock);
+                        }
+                        return deleted;
+                    } finally {
+                        lock.unlock();
+                    }
+                });
     }
 
     @Override
     public Optional<Auction> findAuctionByHouseIdAndAuctionId(String auctionHouseId, String auctionId) {
-        return Optional.of(auctionHouses.get(auctionHouseId)
-                .getAuctions()
-                .get(auctionId));
+        return Optional.ofNullable(auctionHouses.get(auctionHouseId))
+                .map((auctionHouse) -> auctionHouse.getAuctions().get(auctionId));
+    }
+
+    @Override
+    public <T> T withAuctionLock(String auctionId, Supplier<T> action) {
+        ReentrantLock lock = auctionLocks.computeIfAbsent(auctionId, (id) -> new ReentrantLock());
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The in-memory part of a save, it is shared with the replay of the journal
+    private Optional<AuctionHouse> putAuctionHouse(AuctionHouse auctionHouse) {
+        if (auctionHouse.getId() == null)
+            auctionHouse.setId(idGenerator.generateId());
+        String auctionHouseId = auctionHouse.getId();
+        if (auctionHouse.getName() != null) {
+            String ownerId = auctionHouseIdsByName.putIfAbsent(auctionHouse.getName(), auctionHouseId);
+            if (ownerId != null && !ownerId.equals(auctionHouseId))
+                return Optional.empty();
+        }
+        IndexedKeys keys = new IndexedKeys(auctionHouse.getName(), auctionHouse.getCreatorName());
+        IndexedKeys previousKeys = indexedKeys.put(auctionHouseId, keys);
+        if (previousKeys != null && !previousKeys.equals(keys))
+            unindex(auctionHouseId, previousKeys, keys);
+        if (keys.getCreatorName() != null) {
+            auctionHouseIdsByCreator.compute(keys.getCreatorName(), (creatorName, ids) -> {
+                Set<String> auctionHouseIds = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                auctionHouseIds.add(auctionHouseId);
+                return auctionHouseIds;
+            });
+        }
+        auctionHouses.put(auctionHouseId, auctionHouse);
+        auctionHouse.attach(versions);
+        auctionHouse.touch();
+        return Optional.of(auctionHouse);
+    }
+
+    private Optional<AuctionHouse> removeAuctionHouse(String auctionHouseId) {
+        AuctionHouse removedAuctionHouse = auctionHouses.remove(auctionHouseId);
+        if (removedAuctionHouse != null) {
+            IndexedKeys keys = indexedKeys.remove(removedAuctionHouse.getId());
+            if (keys != null)
+                unindex(removedAuctionHouse.getId(), keys, IndexedKeys.NONE);
+            removedAuctionHouse.getAuctions().keySet().forEach(auctionLocks::remove);
+            versions.next();
+        }
+        return Optional.ofNullable(removedAuctionHouse);
+    }
+
+    private void clear() {
+        auctionHouses.clear();
+        auctionHouseIdsByName.clear();
+        auctionHouseIdsByCreator.clear();
+        indexedKeys.clear();
+        auctionLocks.clear();
+        versions.next();
+    }
+
+    // Give the auctions the bid logs of the storage, the bids given with them are ignored anyway
+    private void openBidLogs(AuctionHouse auctionHouse) {
+        auctionHouse.getAuctions().values().forEach((auction) -> auctionHouse.addAuction(openBidLog(auction)));
+    }
+
+    private Auction openBidLog(Auction auction) {
+        if (!bidLogStorage.isPersistent() || auction.getId() == null)
+            return auction;
+        return auction.withBidLog(bidLogStorage.open(auction.getId()));
+    }
+
+    private void restore(AuctionHouse auctionHouse, Map<String, Integer> restoredBids) {
+        openBidLogs(auctionHouse);
+        putAuctionHouse(auctionHouse);
+        auctionHouse.getAuctions().values()
+                .forEach((auction) -> restoredBids.put(auction.getId(), auction.getBidLog().size()));
+    }
+
+    /**
+     * Apply a mutation read from the journal without writing it again.
+     * An auction is only added if it is not there yet, so the auctions
+     * are never replaced by a record of an older state, and a bid is
+     * skipped if its position shows that it is already in the snapshot
+     * or in the storage. The stored bid logs are not deleted meanwhile,
+     * the ones of the deleted auctions are dropped once it is done.
+     */
+    private void apply(JournalRecord record, Map<String, Integer> restoredBids) {
+        AuctionHouse auctionHouse = record.getAuctionHouseId() == null ? null : auctionHouses.get(record.getAuctionHouseId());
+        Auction auction = auctionHouse == null || record.getAuctionId() == null ? null
+                : auctionHouse.getAuctions().get(record.getAuctionId());
+        switch (record.getType()) {
+            case AUCTION_HOUSE_SAVED:
+                AuctionHouse savedAuctionHouse = auctionHouse != null ? auctionHouse
+                        : AuctionHouse.builder().id(record.getAuctionHouseId()).build();
+                savedAuctionHouse.setName(record.getAuctionHouseName());
+                savedAuctionHouse.setCreatorName(record.getCreatorName());
+                putAuctionHouse(savedAuctionHouse);
+                break;
+            case AUCTION_HOUSE_DELETED:
+                removeAuctionHouse(record.getAuctionHouseId());
+                break;
+            case ALL_AUCTION_HOUSES_DELETED:
+                clear();
+                break;
+            case AUCTION_SAVED:
+                if (auctionHouse != null && auction == null) {
+                    Auction savedAuction = openBidLog(record.getAuction());
+                    auctionHouse.addAuction(savedAuction);
+                    restoredBids.put(savedAuction.getId(), savedAuction.getBidLog().size());
+                }
+                break;
+            case AUCTION_DELETED:
+                if (auction != null)
+                    auctionHouse.removeAuction(auction.getId());
+                break;
+            case AUCTION_STATUS_CHANGED:
+                if (auction != null)
+                    auctionHouse.updateAuctionStatus(auction, record.getStatus());
+                break;
+            case BID_ACCEPTED:
+                if (auction != null && record.getBidder().getPosition() >= restoredBids.getOrDefault(auction.getId(), 0))
+                    auction.restoreBid(record.getBidder());
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Wait until the journal made a mutation durable and rethrow its failure as is
+    private static <T> T await(CompletableFuture<T> durable) {
+        try {
+            return durable.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * Remove the old keys of an auction house from the indexes
+     * unless they are still the actual ones.
+     */
+    private void unindex(String auctionHouseId, IndexedKeys oldKeys, IndexedKeys actualKeys) {
+        if (oldKeys.getName() != null && !oldKeys.getName().equals(actualKeys.getName()))
+            auctionHouseIdsByName.remove(oldKeys.getName(), auctionHouseId);
+        if (oldKeys.getCreatorName() != null && !oldKeys.getCreatorName().equals(actualKeys.getCreatorName())) {
+            auctionHouseIdsByCreator.computeIfPresent(oldKeys.getCreatorName(), (creatorName, ids) -> {
+                ids.remove(auctionHouseId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    @Value
+    private static class IndexedKeys {
+
+        private static final IndexedKeys NONE = new IndexedKeys(null, null);
+
+        String name;
+        String creatorName;
+
     }
 
 }
@@ -0,0 +1,59 @@
+package tv.spideo.test.repository.journal;
+
+import tv.spideo.test.domain.AuctionHouse;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The journal of the mutations of the auction houses. The repository
+ * applies a mutation in memory then appends it to the journal, and
+ * replays the journal when it is created to rebuild its state.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+public interface AuctionHouseJournal extends Closeable {
+
+    /**
+     * Append a mutation to the journal.
+     *
+     * @param record the mutation
+     * @return a future completed once the mutation is durable
+     */
+    CompletableFuture<Void> append(JournalRecord record);
+
+    /**
+     * Rebuild the state from the latest snapshot then from the mutations
+     * that were appended after it, in the order they were appended.
+     * The tail may contain mutations that are already in the snapshot,
+     * so applying a mutation must not change a state that contains it.
+     *
+     * @param restore the function that takes every auction house of the snapshot
+     * @param apply the function that applies every mutation of the tail
+     */
+    void replay(Consumer<AuctionHouse> restore, Consumer<JournalRecord> apply);
+
+    /**
+     * Write a snapshot of the auction houses and drop the part of the
+     * journal it contains. The writers are not stopped meanwhile.
+     *
+     * @param auctionHouses the auction houses, it is read once the journal was cut
+     */
+    void snapshot(Supplier<Collection<AuctionHouse>> auctionHouses);
+
+    /**
+     * @return the failure that stopped the journal, null while it makes the mutations durable
+     */
+    Exception getFailure();
+
+    /**
+     * @return the time taken by the last replay
+     */
+    Duration getReplayTime();
+
+}
@@ -0,0 +1,203 @@
+package tv.spideo.test.repository.journal;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
+import tv.spideo.test.domain.AuctionHouse;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * A mutation of the auction houses as it is written in the journal.
+ * Only the fields of its type are set, the others are null.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class JournalRecord {
+
+    Type type;
+    String auctionHouseId;
+    String auctionHouseName;
+    String creatorName;
+    Auction auction;
+    String auctionId;
+    Auction.AuctionStatus status;
+    AuctionBidder bidder;
+
+    public static JournalRecord auctionHouseSaved(AuctionHouse auctionHouse) {
+        return new JournalRecord(Type.AUCTION_HOUSE_SAVED, auctionHouse.getId(), auctionHouse.getName(),
+                auctionHouse.getCreatorName(), null, null, null, null);
+    }
+
+    public static JournalRecord auctionHouseDeleted(String auctionHouseId) {
+        return new JournalRecord(Type.AUCTION_HOUSE_DELETED, auctionHouseId, null, null, null, null, null, null);
+    }
+
+    public static JournalRecord allAuctionHousesDeleted() {
+        return new JournalRecord(Type.ALL_AUCTION_HOUSES_DELETED, null, null, null, null, null, null, null);
+    }
+
+    public static JournalRecord auctionSaved(String auctionHouseId, Auction auction) {
+        return new JournalRecord(Type.AUCTION_SAVED, auctionHouseId, null, null, auction, auction.getId(), null, null);
+    }
+
+    public static JournalRecord auctionDeleted(String auctionHouseId, String auctionId) {
+        return new JournalRecord(Type.AUCTION_DELETED, auctionHouseId, null, null, null, auctionId, null, null);
+    }
+
+    public static JournalRecord auctionStatusChanged(String auctionHouseId, String auctionId, Auction.AuctionStatus status) {
+        return new JournalRecord(Type.AUCTION_STATUS_CHANGED, auctionHouseId, null, null, null, auctionId, status, null);
+    }
+
+    public static JournalRecord bidAccepted(String auctionHouseId, String auctionId, AuctionBidder bidder) {
+        return new JournalRecord(Type.BID_ACCEPTED, auctionHouseId, null, null, null, auctionId, null, bidder);
+    }
+
+    /**
+     * Write the record in a compact binary form, the fields
+     * are written in a fixed order that depends on the type.
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeByte(type.ordinal());
+        writeString(output, auctionHouseId);
+        switch (type) {
+            case AUCTION_HOUSE_SAVED:
+                writeString(output, auctionHouseName);
+                writeString(output, creatorName);
+                break;
+            case AUCTION_SAVED:
+                writeAuction(output, auction);
+                break;
+            case AUCTION_DELETED:
+                writeString(output, auctionId);
+                break;
+            case AUCTION_STATUS_CHANGED:
+                writeString(output, auctionId);
+                output.writeByte(status.ordinal());
+                break;
+            case BID_ACCEPTED:
+                writeString(output, auctionId);
+                writeString(output, bidder.getId());
+                writeString(output, bidder.getName());
+                output.writeLong(bidder.getBiddingTime().toEpochMilli());
+                output.writeDouble(bidder.getPrice());
+                output.writeInt(bidder.getPosition());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Read a record written by {@link #writeTo(DataOutput)}.
+     */
+    public static JournalRecord readFrom(DataInput input) throws IOException {
+        Type type = Type.values()[input.readUnsignedByte()];
+        String auctionHouseId = readString(input);
+        switch (type) {
+            case AUCTION_HOUSE_SAVED:
+                return new JournalRecord(type, auctionHouseId, readString(input), readString(input),
+                        null, null, null, null);
+            case AUCTION_SAVED:
+                Auction auction = readAuction(input).build();
+                return new JournalRecord(type, auctionHouseId, null, null, auction, auction.getId(), null, null);
+            case AUCTION_DELETED:
+                return new JournalRecord(type, auctionHouseId, null, null, null, readString(input), null, null);
+            case AUCTION_STATUS_CHANGED:
+                return new JournalRecord(type, auctionHouseId, null, null, null, readString(input),
+                        Auction.AuctionStatus.values()[input.readUnsignedByte()], null);
+            case BID_ACCEPTED:
+                String auctionId = readString(input);
+                AuctionBidder bidder = AuctionBidder.builder()
+                        .id(readString(input))
+                        .name(readString(input))
+                        .biddingTime(Instant.ofEpochMilli(input.readLong()))
+                        .price(input.readDouble())
+                        .position(input.readInt())
+                        .build();
+                return new JournalRecord(type, auctionHouseId, null, null, null, auctionId, null, bidder);
+            default:
+                return new JournalRecord(type, auctionHouseId, null, null, null, null, null, null);
+        }
+    }
+
+    static void writeAuction(DataOutput output, Auction auction) throws IOException {
+        writeString(output, auction.getId());
+        writeString(output, auction.getName());
+        writeString(output, auction.getCreatorId());
+        writeString(output, auction.getDescription());
+        writeInstant(output, auction.getStartingTime());
+        writeInstant(output, auction.getEndTime());
+        output.writeInt(auction.getMaxBidders());
+        output.writeByte(auction.getStatus().ordinal());
+        output.writeDouble(auction.getInitialPrice());
+        output.writeDouble(auction.getOpeningPrice());
+    }
+
+    // The bids are not part of the auction, so its history can be given to the builder
+    static Auction.AuctionBuilder readAuction(DataInput input) throws IOException {
+        return Auction.builder()
+                .id(readString(input))
+                .name(readString(input))
+                .creatorId(readString(input))
+                .description(readString(input))
+                .startingTime(readInstant(input))
+                .endTime(readInstant(input))
+                .maxBidders(input.readInt())
+                .status(Auction.AuctionStatus.values()[input.readUnsignedByte()])
+                .initialPrice(input.readDouble())
+                .currentPrice(input.readDouble());
+    }
+
+    // The strings may be null or longer than what writeUTF accepts
+    static void writeString(DataOutput output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    static String readString(DataInput input) throws IOException {
+        int length = input.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInstant(DataOutput output, Instant instant) throws IOException {
+        output.writeBoolean(instant != null);
+        if (instant != null) {
+            output.writeLong(instant.getEpochSecond());
+            output.writeInt(instant.getNano());
+        }
+    }
+
+    private static Instant readInstant(DataInput input) throws IOException {
+        return input.readBoolean() ? Instant.ofEpochSecond(input.readLong(), input.readInt()) : null;
+    }
+
+    public enum Type {
+        AUCTION_HOUSE_SAVED,
+        AUCTION_HOUSE_DELETED,
+        ALL_AUCTION_HOUSES_DELETED,
+        AUCTION_SAVED,
+        AUCTION_DELETED,
+        AUCTION_STATUS_CHANGED,
+        BID_ACCEPTED
+    }
+
+}
@@ -0,0 +1,52 @@
+package tv.spideo.test.repository.journal;
+
+import tv.spideo.test.domain.AuctionHouse;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The journal of the in-memory mode, nothing is written so
+ * nothing is replayed and every mutation is durable at once.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+public class MemoryJournal implements AuctionHouseJournal {
+
+    private static final CompletableFuture<Void> DURABLE = CompletableFuture.completedFuture(null);
+
+    @Override
+    public CompletableFuture<Void> append(JournalRecord record) {
+        return DURABLE;
+    }
+
+    @Override
+    public void replay(Consumer<AuctionHouse> restore, Consumer<JournalRecord> apply) {
+        // Nothing was written
+    }
+
+    @Override
+    public void snapshot(Supplier<Collection<AuctionHouse>> auctionHouses) {
+        // Nothing is kept after a restart
+    }
+
+    @Override
+    public Exception getFailure() {
+        return null;
+    }
+
+    @Override
+    public Duration getReplayTime() {
+        return Duration.ZERO;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+}
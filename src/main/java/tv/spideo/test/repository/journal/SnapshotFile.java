@@ -0,0 +1,117 @@
+package tv.spideo.test.repository.journal;
+
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.domain.BidLog;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A compact binary snapshot of all the auction houses with their auctions
+ * and bids. It is written to a temporary file which is synced then renamed,
+ * so a snapshot is either complete or not there at all, and it ends with
+ * the checksum of its content.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x41554354;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Write the auction houses as they are while the snapshot is
+     * written, they may be mutated meanwhile.
+     *
+     * @return the number of bids that were written
+     */
+    static long write(Path path, Collection<AuctionHouse> auctionHouses) throws IOException {
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        long bids = 0;
+        try (FileOutputStream file = new FileOutputStream(temporaryPath.toFile())) {
+            CRC32 crc = new CRC32();
+            DataOutputStream output = new DataOutputStream(
+                    new CheckedOutputStream(new BufferedOutputStream(file, BUFFER_SIZE), crc));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(auctionHouses.size());
+            for (AuctionHouse auctionHouse : auctionHouses) {
+                JournalRecord.writeString(output, auctionHouse.getId());
+                JournalRecord.writeString(output, auctionHouse.getName());
+                JournalRecord.writeString(output, auctionHouse.getCreatorName());
+                List<Auction> auctions = new ArrayList<>(auctionHouse.getAuctions().values());
+                output.writeInt(auctions.size());
+                for (Auction auction : auctions) {
+                    BidLog bidLog = auction.getBidLog();
+                    // The bids of a persistent log are already in their own file
+                    int count = bidLog.isPersistent() ? 0 : bidLog.size();
+                    JournalRecord.writeAuction(output, auction);
+                    bidLog.writeTo(output, count);
+                    bids += count;
+                }
+            }
+            output.writeLong(crc.getValue());
+            output.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE);
+        return bids;
+    }
+
+    /**
+     * Read a snapshot written by {@link #write(Path, Collection)}.
+     *
+     * @param path the snapshot
+     * @param restore the function that takes every auction house
+     * @throws IOException if the snapshot is corrupted
+     */
+    static void read(Path path, Consumer<AuctionHouse> restore) throws IOException {
+        CRC32 crc = new CRC32();
+        try (DataInputStream input = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE), crc))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("The file " + path + " is not a snapshot");
+            }
+            List<AuctionHouse> auctionHouses = new ArrayList<>();
+            int auctionHousesCount = input.readInt();
+            for (int houseIdx = 0; houseIdx < auctionHousesCount; houseIdx++) {
+                AuctionHouse auctionHouse = AuctionHouse.builder()
+                        .id(JournalRecord.readString(input))
+                        .name(JournalRecord.readString(input))
+                        .creatorName(JournalRecord.readString(input))
+                        .build();
+                int auctionsCount = input.readInt();
+                for (int auctionIdx = 0; auctionIdx < auctionsCount; auctionIdx++) {
+                    Auction auction = JournalRecord.readAuction(input)
+                            .bidLog(BidLog.readFrom(input))
+                            .build();
+                    auction.restoreLeader();
+                    auctionHouse.addAuction(auction);
+                }
+                auctionHouses.add(auctionHouse);
+            }
+            long checksum = crc.getValue();
+            if (input.readLong() != checksum) {
+                throw new IOException("The checksum of the snapshot " + path + " does not match");
+            }
+            // Nothing is restored from a corrupted snapshot
+            auctionHouses.forEach(restore);
+        }
+    }
+
+}
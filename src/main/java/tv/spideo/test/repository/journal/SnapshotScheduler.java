@@ -0,0 +1,79 @@
+package tv.spideo.test.repository.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tv.spideo.test.config.AuctionProperties;
+import tv.spideo.test.repository.AuctionHouseRepository;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write a snapshot of the repository in the background every snapshot
+ * interval and once more when the application stops, so a restart only
+ * replays what was journaled since the last snapshot. It does nothing
+ * unless the mutations are written to a write-ahead log.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+@Component
+public class SnapshotScheduler {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getCanonicalName());
+
+    private final AuctionHouseJournal journal;
+    private final AuctionHouseRepository auctionHouseRepository;
+    private final boolean enabled;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Create a new {@link SnapshotScheduler} and schedule the snapshots.
+     *
+     * @param journal the journal that writes the snapshots
+     * @param auctionHouseRepository the repository to snapshot
+     * @param properties the properties of the auction house
+     */
+    @Autowired
+    public SnapshotScheduler(AuctionHouseJournal journal, AuctionHouseRepository auctionHouseRepository,
+                             AuctionProperties properties) {
+        this.journal = journal;
+        this.auctionHouseRepository = auctionHouseRepository;
+        this.enabled = properties.getPersistence().getMode() != AuctionProperties.PersistenceMode.MEMORY;
+        Duration interval = properties.getPersistence().getSnapshotInterval();
+        this.executor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "journal-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled && !interval.isZero()) {
+            executor.scheduleWithFixedDelay(this::snapshot, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Write a snapshot now, a failure is logged and the journal is kept as is.
+     */
+    public void snapshot() {
+        try {
+            journal.snapshot(auctionHouseRepository::findAllAuctionHouses);
+        } catch (RuntimeException exception) {
+            logger.error("Could not write a snapshot of the auction houses", exception);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        if (enabled) {
+            snapshot();
+        }
+    }
+
+}
@@ -0,0 +1,436 @@
+package tv.spideo.test.repository.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tv.spideo.test.domain.AuctionHouse;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * A segmented write-ahead log on the local disk. Every record is framed as
+ * [length][crc32][payload] and the segments are named after their index,
+ * a new segment is started once the actual one reaches the segment size.
+ * The records are encoded by the request threads and written by a single
+ * writer thread which takes everything that was appended meanwhile,
+ * writes it and syncs it once (group commit), so a sync is shared by
+ * all the concurrent requests instead of being paid by each of them.
+ * A record that was not completely written before a crash is detected
+ * by its length or its checksum and cut from the log when it is replayed.
+ * A snapshot is named after the first segment it does not contain, the
+ * segments before it are deleted once it is written, so only the tail
+ * of the log is replayed after the snapshot is loaded.
+ * The log stops at its first failed write (fail-stop): what the batch
+ * wrote in the segment is cut and every later record is rejected, so
+ * a torn record is always at the end of the log, after the records
+ * that were acknowledged, and nothing is acknowledged after it.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+public class WriteAheadLog implements AuctionHouseJournal {
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int HEADER_SIZE = 8;
+    private static final long POLL_MILLIS = 100L;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getCanonicalName());
+
+    private final Path directory;
+    private final long segmentSize;
+    private final boolean fsync;
+    private final int maxBatchSize;
+
+    private final LinkedBlockingQueue<PendingRecord> pendingRecords = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile Duration replayTime = Duration.ZERO;
+    private volatile Exception failure;
+
+    // Only used by the writer thread
+    private FileChannel segment;
+    private long segmentIndex;
+    // The size of the segment once its last batch was written, it is cut back to it if a batch fails
+    private long writtenSize;
+    private ByteBuffer batchBuffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    /**
+     * Create a write-ahead log in a directory and start its writer.
+     *
+     * @param directory the directory of the segments, it is created if needed
+     * @param segmentSize the size in bytes after which a new segment is started
+     * @param fsync false to only write the records to the page cache
+     * @param maxBatchSize the maximum number of records synced together
+     */
+    public WriteAheadLog(Path directory, long segmentSize, boolean fsync, int maxBatchSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        this.maxBatchSize = maxBatchSize;
+        this.writer = new Thread(this::write, "write-ahead-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public CompletableFuture<Void> append(JournalRecord record) {
+        if (!running) {
+            throw new IllegalStateException("The write-ahead log is closed");
+        }
+        PendingRecord pendingRecord = new PendingRecord(encode(record));
+        pendingRecords.add(pendingRecord);
+        // The writer may have failed and stopped before the record was added
+        if (failure != null) {
+            rejectPendingRecords();
+        }
+        return pendingRecord.durable;
+    }
+
+    @Override
+    public Exception getFailure() {
+        return failure;
+    }
+
+    /**
+     * Load the latest snapshot then read the segments that come after it
+     * in order. It must be called before the first append, a torn record
+     * at the end of the last segment is cut so the next records are
+     * appended after the valid ones.
+     */
+    @Override
+    public void replay(Consumer<AuctionHouse> restore, Consumer<JournalRecord> apply) {
+        long start = System.nanoTime();
+        List<Path> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        long firstSegmentIndex = 0;
+        if (!snapshots.isEmpty()) {
+            Path snapshot = snapshots.get(snapshots.size() - 1);
+            firstSegmentIndex = indexOf(snapshot, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            try {
+                SnapshotFile.read(snapshot, restore);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+        List<Path> segments = new ArrayList<>();
+        for (Path segment : list(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (indexOf(segment, SEGMENT_PREFIX, SEGMENT_SUFFIX) >= firstSegmentIndex)
+                segments.add(segment);
+        }
+        long records = 0;
+        for (int idx = 0; idx < segments.size(); idx++) {
+            Path path = segments.get(idx);
+            SegmentReplay segmentReplay = replaySegment(path, apply);
+            records += segmentReplay.records;
+            try {
+                long length = Files.size(path);
+                if (segmentReplay.validLength < length) {
+                    if (idx < segments.size() - 1) {
+                        throw new IllegalStateException("The segment " + path + " of the write-ahead log is corrupted");
+                    }
+                    logger.warn("Cutting {} torn bytes at the end of {}", length - segmentReplay.validLength, path);
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                        channel.truncate(segmentReplay.validLength);
+                    }
+                }
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+        replayTime = Duration.ofNanos(System.nanoTime() - start);
+        logger.info("Loaded {} snapshot(s) and replayed {} record(s) of {} segment(s) from {} in {} ms",
+                snapshots.isEmpty() ? 0 : 1, records, segments.size(), directory, replayTime.toMillis());
+    }
+
+    /**
+     * Cut the log then write the snapshot. Every record appended before
+     * the cut was applied before the snapshot is read so it is in the
+     * snapshot, the records appended after the cut are in the tail even
+     * if the snapshot contains some of them too.
+     */
+    @Override
+    public synchronized void snapshot(Supplier<Collection<AuctionHouse>> auctionHouses) {
+        long start = System.nanoTime();
+        PendingRecord cut = new PendingRecord(null);
+        pendingRecords.add(cut);
+        try {
+            cut.durable.join();
+        } catch (CompletionException exception) {
+            throw new IllegalStateException("The write-ahead log could not be cut", exception.getCause());
+        }
+        long firstSegmentIndex = cut.segmentIndex;
+        try {
+            long bids = SnapshotFile.write(directory.resolve(name(SNAPSHOT_PREFIX, firstSegmentIndex, SNAPSHOT_SUFFIX)),
+                    auctionHouses.get());
+            // The older segments and snapshots are contained in the new snapshot
+            for (Path segment : list(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+                if (indexOf(segment, SEGMENT_PREFIX, SEGMENT_SUFFIX) < firstSegmentIndex)
+                    Files.delete(segment);
+            }
+            for (Path snapshot : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+                if (indexOf(snapshot, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) < firstSegmentIndex)
+                    Files.delete(snapshot);
+            }
+            logger.info("Wrote a snapshot of {} bid(s) before the segment {} in {} ms",
+                    bids, firstSegmentIndex, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    public Duration getReplayTime() {
+        return replayTime;
+    }
+
+    /**
+     * Stop the writer once everything that was appended is written.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    private SegmentReplay replaySegment(Path path, Consumer<JournalRecord> apply) {
+        SegmentReplay segmentReplay = new SegmentReplay();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            long length = Files.size(path);
+            CRC32 crc = new CRC32();
+            while (segmentReplay.validLength + HEADER_SIZE <= length) {
+                int recordLength = input.readInt();
+                int checksum = input.readInt();
+                if (recordLength < 0 || segmentReplay.validLength + HEADER_SIZE + recordLength > length) {
+                    break;
+                }
+                byte[] payload = new byte[recordLength];
+                input.readFully(payload);
+                crc.reset();
+                crc.update(payload, 0, recordLength);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply.accept(JournalRecord.readFrom(new DataInputStream(new ByteArrayInputStream(payload))));
+                segmentReplay.validLength += HEADER_SIZE + recordLength;
+                segmentReplay.records++;
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return segmentReplay;
+    }
+
+    private void write() {
+        List<PendingRecord> batch = new ArrayList<>(maxBatchSize);
+        while (running || !pendingRecords.isEmpty()) {
+            try {
+                PendingRecord first = pendingRecords.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pendingRecords.drainTo(batch, maxBatchSize - 1);
+                if (failure != null) {
+                    reject(batch);
+                } else {
+                    writeBatch(batch);
+                    batch.forEach((pendingRecord) -> pendingRecord.durable.complete(null));
+                }
+            } catch (IOException | RuntimeException exception) {
+                logger.error("Could not write {} record(s) to the write-ahead log, the next ones are rejected",
+                        batch.size(), exception);
+                failure = exception;
+                cutFailedBatch();
+                reject(batch);
+            } catch (InterruptedException exception) {
+                failure = exception;
+                reject(batch);
+                rejectPendingRecords();
+                Thread.currentThread().interrupt();
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    // The frames of the failed batch are cut, so no record of the log comes after a torn one
+    private void cutFailedBatch() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.truncate(writtenSize);
+        } catch (IOException | RuntimeException exception) {
+            logger.error("Could not cut the failed batch from the write-ahead log", exception);
+        }
+    }
+
+    private void reject(List<PendingRecord> batch) {
+        IllegalStateException rejection = new IllegalStateException("The write-ahead log failed", failure);
+        batch.forEach((pendingRecord) -> pendingRecord.durable.completeExceptionally(rejection));
+    }
+
+    private void rejectPendingRecords() {
+        List<PendingRecord> rejectedRecords = new ArrayList<>();
+        pendingRecords.drainTo(rejectedRecords);
+        reject(rejectedRecords);
+    }
+
+    // Write the frames of the batch and sync them once, a cut starts a new segment
+    private void writeBatch(List<PendingRecord> batch) throws IOException {
+        batchBuffer.clear();
+        for (PendingRecord pendingRecord : batch) {
+            if (pendingRecord.frame == null) {
+                flush();
+                openSegment(true);
+                pendingRecord.segmentIndex = segmentIndex;
+                continue;
+            }
+            if (batchBuffer.remaining() < pendingRecord.frame.length) {
+                flush();
+                if (batchBuffer.capacity() < pendingRecord.frame.length) {
+                    batchBuffer = ByteBuffer.allocateDirect(Integer.highestOneBit(pendingRecord.frame.length) << 1);
+                }
+            }
+            batchBuffer.put(pendingRecord.frame);
+        }
+        flush();
+        if (fsync && segment != null) {
+            segment.force(false);
+        }
+        if (segment != null) {
+            writtenSize = segment.size();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (batchBuffer.position() == 0) {
+            return;
+        }
+        if (segment == null || segment.size() >= segmentSize) {
+            openSegment(segment != null);
+        }
+        batchBuffer.flip();
+        while (batchBuffer.hasRemaining()) {
+            segment.write(batchBuffer);
+        }
+        batchBuffer.clear();
+    }
+
+    /**
+     * Open the segment where the next records are written. The last segment
+     * is continued when the log is opened unless it is full or a new one is
+     * needed, a new segment always comes after the latest snapshot.
+     */
+    private void openSegment(boolean next) throws IOException {
+        if (segment == null) {
+            List<Path> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            List<Path> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            long lastSnapshotIndex = snapshots.isEmpty() ? 0
+                    : indexOf(snapshots.get(snapshots.size() - 1), SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            Path last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            long lastIndex = last == null ? 0 : indexOf(last, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            if (!next && last != null && lastIndex >= lastSnapshotIndex && Files.size(last) < segmentSize) {
+                segmentIndex = lastIndex;
+                segment = FileChannel.open(last, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                writtenSize = segment.size();
+                return;
+            }
+            segmentIndex = Math.max(lastIndex, lastSnapshotIndex - 1);
+        } else {
+            if (fsync) {
+                segment.force(false);
+            }
+            segment.close();
+        }
+        segmentIndex++;
+        segment = FileChannel.open(directory.resolve(name(SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writtenSize = 0;
+    }
+
+    private List<Path> list(String prefix, String suffix) {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> directoryPaths = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            directoryPaths.forEach(paths::add);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        // The index is padded with zeros, so the names are in the order of the indexes
+        paths.sort(null);
+        return paths;
+    }
+
+    private static String name(String prefix, long index, String suffix) {
+        return String.format("%s%020d%s", prefix, index, suffix);
+    }
+
+    private static long indexOf(Path path, String prefix, String suffix) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    // The record is framed by the request thread, so the writer only copies bytes
+    private static byte[] encode(JournalRecord record) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeLong(0L);
+            record.writeTo(output);
+            byte[] frame = bytes.toByteArray();
+            int payloadLength = frame.length - HEADER_SIZE;
+            CRC32 crc = new CRC32();
+            crc.update(frame, HEADER_SIZE, payloadLength);
+            ByteBuffer.wrap(frame).putInt(payloadLength).putInt((int) crc.getValue());
+            return frame;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    // A record without a frame is a cut, the writer gives it the index of the segment it started
+    private static final class PendingRecord {
+
+        private final byte[] frame;
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+        private long segmentIndex;
+
+        private PendingRecord(byte[] frame) {
+            this.frame = frame;
+        }
+
+    }
+
+    private static final class SegmentReplay {
+
+        private long validLength;
+        private long records;
+
+    }
+
+}
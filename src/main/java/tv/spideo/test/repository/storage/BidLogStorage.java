@@ -0,0 +1,54 @@
+package tv.spideo.test.repository.storage;
+
+import tv.spideo.test.domain.BidLog;
+
+import java.io.Closeable;
+import java.util.Set;
+
+/**
+ * The storage of the bid logs of the auctions. The repository opens
+ * the log of an auction when it is created or restored, a persistent
+ * storage gives back the bids it had before the restart.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+public interface BidLogStorage extends Closeable {
+
+    /**
+     * Open the bid log of an auction, it is created if it does not exist.
+     *
+     * @param auctionId the id of the auction
+     * @return the bid log with the bids that were stored
+     */
+    BidLog open(String auctionId);
+
+    /**
+     * Delete the bid log of an auction.
+     *
+     * @param auctionId the id of the auction
+     */
+    void delete(String auctionId);
+
+    /**
+     * Delete the bid logs of every auction.
+     */
+    void deleteAll();
+
+    /**
+     * Delete the bid logs of the auctions that are not in a set, e.g.
+     * the ones of the auctions that were deleted before a restart.
+     *
+     * @param auctionIds the ids of the auctions to keep
+     */
+    void retain(Set<String> auctionIds);
+
+    /**
+     * @return true if the bids are kept after a restart without being journaled
+     */
+    boolean isPersistent();
+
+    @Override
+    void close();
+
+}
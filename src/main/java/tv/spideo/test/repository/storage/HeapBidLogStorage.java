@@ -0,0 +1,46 @@
+package tv.spideo.test.repository.storage;
+
+import tv.spideo.test.domain.BidLog;
+
+import java.util.Set;
+
+/**
+ * The storage of the in-memory and write-ahead log modes, the bids
+ * stay on the heap and they are restored from the journal.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+public class HeapBidLogStorage implements BidLogStorage {
+
+    @Override
+    public BidLog open(String auctionId) {
+        return new BidLog();
+    }
+
+    @Override
+    public void delete(String auctionId) {
+        // The log is collected with its auction
+    }
+
+    @Override
+    public void deleteAll() {
+        // The logs are collected with their auctions
+    }
+
+    @Override
+    public void retain(Set<String> auctionIds) {
+        // Nothing is kept after a restart
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+}
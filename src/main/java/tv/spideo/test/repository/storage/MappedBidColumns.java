@@ -0,0 +1,329 @@
+package tv.spideo.test.repository.storage;
+
+import tv.spideo.test.domain.BidColumns;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The bids of an auction in a memory-mapped file with a fixed layout,
+ * so they are out of the heap and they are read in place after a
+ * restart. The file starts with a header followed by one record of
+ * RECORD_SIZE bytes per bid:
+ * <pre>
+ * header  [magic:4][version:4][size:4][highest price position:4][names end:8][names count:4]
+ * record  [id msb:8][id lsb:8][bidding time:8][price:8][name index:4]
+ * </pre>
+ * The records are mapped by regions which are added when the log grows,
+ * the header is mapped with the first one. The names are appended to a
+ * second mapped file as [length:4][utf-8], a name never spans two regions.
+ * The pages are written back by the operating system, unless the bids
+ * are forced before they are acknowledged (fsync).
+ * Every region is a mapping of its own and an auction has at least two
+ * of them, one for its bids and one for its names, so the number of
+ * open auctions is bounded by the mappings of the process, about half
+ * of vm.max_map_count on Linux (65530 by default).
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+public class MappedBidColumns implements BidColumns {
+
+    private static final int MAGIC = 0x42494453;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 36;
+    private static final int REGION_SHIFT = 14;
+    private static final int REGION_RECORDS = 1 << REGION_SHIFT;
+    private static final int REGION_MASK = REGION_RECORDS - 1;
+    private static final long REGION_SIZE = (long) REGION_RECORDS * RECORD_SIZE;
+    private static final int NAMES_REGION_SIZE = 1 << 20;
+    // Written instead of a name that does not fit at the end of a region
+    private static final int NEXT_REGION = -2;
+
+    private static final int SIZE_OFFSET = 8;
+    private static final int HIGHEST_PRICE_POSITION_OFFSET = 12;
+    private static final int NAMES_END_OFFSET = 16;
+    private static final int NAMES_COUNT_OFFSET = 24;
+
+    private final Path bidsPath;
+    private final Path namesPath;
+    private final boolean fsync;
+    private final MappedByteBuffer header;
+    private volatile ByteBuffer[] regions;
+    // Every mapping of the bids, so they can be forced while the log grows
+    private final List<MappedByteBuffer> mappings = new CopyOnWriteArrayList<>();
+    // Only changed by the writer, under the lock of the log, they are read when the bids are forced
+    private volatile MappedByteBuffer[] namesRegions = new MappedByteBuffer[0];
+    private long namesEnd;
+
+    // The bids below it were forced, a force covers the ones published meanwhile
+    private final Object forceLock = new Object();
+    private volatile int forcedSize;
+    private int forcedNamesRegion;
+
+    private final int storedSize;
+    private final int storedHighestPricePosition;
+    private final String[] storedNames;
+
+    /**
+     * Open the files of an auction, the bids are written back by the operating system.
+     *
+     * @param bidsPath the file of the bids
+     * @param namesPath the file of the names of the bidders
+     */
+    public MappedBidColumns(Path bidsPath, Path namesPath) {
+        this(bidsPath, namesPath, false);
+    }
+
+    /**
+     * Open the files of an auction, they are created if they do not exist.
+     *
+     * @param bidsPath the file of the bids
+     * @param namesPath the file of the names of the bidders
+     * @param fsync true to force the bids to the disk before they are acknowledged
+     */
+    public MappedBidColumns(Path bidsPath, Path namesPath, boolean fsync) {
+        this.bidsPath = bidsPath;
+        this.namesPath = namesPath;
+        this.fsync = fsync;
+        try {
+            boolean created = !Files.exists(bidsPath);
+            this.header = map(bidsPath, 0, HEADER_SIZE + REGION_SIZE);
+            mappings.add(header);
+            ByteBuffer duplicate = header.duplicate();
+            duplicate.position(HEADER_SIZE);
+            this.regions = new ByteBuffer[]{duplicate.slice()};
+            if (created || header.getInt(0) != MAGIC) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putInt(SIZE_OFFSET, 0);
+                header.putInt(HIGHEST_PRICE_POSITION_OFFSET, -1);
+                header.putLong(NAMES_END_OFFSET, 0L);
+                header.putInt(NAMES_COUNT_OFFSET, 0);
+            } else if (header.getInt(4) != VERSION) {
+                throw new IllegalStateException("The version of " + bidsPath + " is not supported");
+            }
+            this.storedSize = header.getInt(SIZE_OFFSET);
+            this.forcedSize = storedSize;
+            this.storedHighestPricePosition = header.getInt(HIGHEST_PRICE_POSITION_OFFSET);
+            this.namesEnd = header.getLong(NAMES_END_OFFSET);
+            this.storedNames = readNames(header.getInt(NAMES_COUNT_OFFSET));
+            while (regions.length * (long) REGION_RECORDS < storedSize) {
+                addRegion();
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    public void write(int position, long idMostSignificantBits, long idLeastSignificantBits,
+                      long biddingTime, double price, int nameIndex) {
+        int region = position >>> REGION_SHIFT;
+        while (region >= regions.length) {
+            addRegion();
+        }
+        ByteBuffer buffer = regions[region];
+        int offset = (position & REGION_MASK) * RECORD_SIZE;
+        buffer.putLong(offset, idMostSignificantBits);
+        buffer.putLong(offset + 8, idLeastSignificantBits);
+        buffer.putLong(offset + 16, biddingTime);
+        buffer.putDouble(offset + 24, price);
+        buffer.putInt(offset + 32, nameIndex);
+    }
+
+    @Override
+    public void publish(int size, int highestPricePosition) {
+        header.putInt(HIGHEST_PRICE_POSITION_OFFSET, highestPricePosition);
+        header.putInt(SIZE_OFFSET, size);
+    }
+
+    @Override
+    public void addName(int index, String name) {
+        byte[] bytes = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+        int length = 4 + (bytes == null ? 0 : bytes.length);
+        if (length > NAMES_REGION_SIZE) {
+            throw new IllegalArgumentException("The name of the bidder is too long");
+        }
+        int offset = (int) (namesEnd % NAMES_REGION_SIZE);
+        if (offset + length > NAMES_REGION_SIZE) {
+            if (offset + 4 <= NAMES_REGION_SIZE) {
+                namesRegion(namesEnd).putInt(offset, NEXT_REGION);
+            }
+            namesEnd += NAMES_REGION_SIZE - offset;
+            offset = 0;
+        }
+        MappedByteBuffer region = namesRegion(namesEnd);
+        region.putInt(offset, bytes == null ? -1 : bytes.length);
+        if (bytes != null) {
+            for (int idx = 0; idx < bytes.length; idx++) {
+                region.put(offset + 4 + idx, bytes[idx]);
+            }
+        }
+        namesEnd += length;
+        header.putLong(NAMES_END_OFFSET, namesEnd);
+        header.putInt(NAMES_COUNT_OFFSET, index + 1);
+    }
+
+    @Override
+    public long getIdMostSignificantBits(int position) {
+        return regions[position >>> REGION_SHIFT].getLong((position & REGION_MASK) * RECORD_SIZE);
+    }
+
+    @Override
+    public long getIdLeastSignificantBits(int position) {
+        return regions[position >>> REGION_SHIFT].getLong((position & REGION_MASK) * RECORD_SIZE + 8);
+    }
+
+    @Override
+    public long getBiddingTime(int position) {
+        return regions[position >>> REGION_SHIFT].getLong((position & REGION_MASK) * RECORD_SIZE + 16);
+    }
+
+    @Override
+    public double getPrice(int position) {
+        return regions[position >>> REGION_SHIFT].getDouble((position & REGION_MASK) * RECORD_SIZE + 24);
+    }
+
+    @Override
+    public int getNameIndex(int position) {
+        return regions[position >>> REGION_SHIFT].getInt((position & REGION_MASK) * RECORD_SIZE + 32);
+    }
+
+    @Override
+    public int getStoredSize() {
+        return storedSize;
+    }
+
+    @Override
+    public int getStoredHighestPricePosition() {
+        return storedHighestPricePosition;
+    }
+
+    @Override
+    public String[] getStoredNames() {
+        return storedNames;
+    }
+
+    /**
+     * Force the regions of the bids that were not forced yet, the names
+     * they may use and the header. A bidder waiting for a force that
+     * covers its bid returns without forcing anything (group commit).
+     */
+    @Override
+    public void force(int size) {
+        if (!fsync || forcedSize >= size) {
+            return;
+        }
+        synchronized (forceLock) {
+            if (forcedSize >= size) {
+                return;
+            }
+            ByteBuffer[] actualRegions = regions;
+            int lastRegion = Math.min((size - 1) >>> REGION_SHIFT, actualRegions.length - 1);
+            // The first region is mapped with the header, which is forced last
+            for (int region = Math.max(forcedSize >>> REGION_SHIFT, 1); region <= lastRegion; region++) {
+                ((MappedByteBuffer) actualRegions[region]).force();
+            }
+            MappedByteBuffer[] actualNamesRegions = namesRegions;
+            for (int region = forcedNamesRegion; region < actualNamesRegions.length; region++) {
+                actualNamesRegions[region].force();
+            }
+            forcedNamesRegion = Math.max(actualNamesRegions.length - 1, 0);
+            header.force();
+            forcedSize = size;
+        }
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    /**
+     * Write the mapped pages to the disk, the mapping itself is
+     * released by the garbage collector.
+     */
+    @Override
+    public void close() {
+        for (MappedByteBuffer mapping : mappings) {
+            mapping.force();
+        }
+        for (MappedByteBuffer namesRegion : namesRegions) {
+            namesRegion.force();
+        }
+    }
+
+    private void addRegion() {
+        ByteBuffer[] actualRegions = regions;
+        ByteBuffer[] newRegions = Arrays.copyOf(actualRegions, actualRegions.length + 1);
+        try {
+            MappedByteBuffer mapping = map(bidsPath, HEADER_SIZE + actualRegions.length * REGION_SIZE, REGION_SIZE);
+            mappings.add(mapping);
+            newRegions[actualRegions.length] = mapping;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        regions = newRegions;
+    }
+
+    private MappedByteBuffer namesRegion(long position) {
+        int region = (int) (position / NAMES_REGION_SIZE);
+        while (region >= namesRegions.length) {
+            try {
+                MappedByteBuffer[] newRegions = Arrays.copyOf(namesRegions, namesRegions.length + 1);
+                newRegions[namesRegions.length] = map(namesPath, namesRegions.length * (long) NAMES_REGION_SIZE,
+                        NAMES_REGION_SIZE);
+                namesRegions = newRegions;
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+        return namesRegions[region];
+    }
+
+    private String[] readNames(int namesCount) {
+        String[] names = new String[namesCount];
+        long position = 0;
+        int count = 0;
+        while (count < namesCount && position < namesEnd) {
+            MappedByteBuffer region = namesRegion(position);
+            int offset = (int) (position % NAMES_REGION_SIZE);
+            int length = offset + 4 <= NAMES_REGION_SIZE ? region.getInt(offset) : NEXT_REGION;
+            if (length == NEXT_REGION) {
+                position += NAMES_REGION_SIZE - offset;
+                continue;
+            }
+            if (length >= 0) {
+                byte[] bytes = new byte[length];
+                for (int idx = 0; idx < length; idx++) {
+                    bytes[idx] = region.get(offset + 4 + idx);
+                }
+                names[count] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            count++;
+            position += 4 + Math.max(length, 0);
+        }
+        return names;
+    }
+
+    // The channel can be closed once the region is mapped, the mapping stays valid
+    private static MappedByteBuffer map(Path path, long position, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        }
+    }
+
+}
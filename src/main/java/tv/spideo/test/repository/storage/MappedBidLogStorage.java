@@ -0,0 +1,133 @@
+package tv.spideo.test.repository.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tv.spideo.test.domain.BidLog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keep the bid log of every auction in two memory-mapped files of a
+ * directory, see {@link MappedBidColumns}. The bids are out of the heap,
+ * they are written to the disk by the operating system and read in place
+ * after a restart, so they are neither journaled nor snapshotted. With
+ * fsync they are forced before they are acknowledged, like the journal.
+ * Every opened auction takes at least two mappings, so the process can
+ * not open more than about half of vm.max_map_count auctions.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+public class MappedBidLogStorage implements BidLogStorage {
+
+    private static final String BIDS_EXTENSION = ".bids";
+    private static final String NAMES_EXTENSION = ".names";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getCanonicalName());
+
+    private final Path directory;
+
+    private final boolean fsync;
+
+    // The logs that were opened, an auction gets the same log every time it is opened
+    private final ConcurrentHashMap<String, OpenedBidLog> bidLogs = new ConcurrentHashMap<>();
+
+    /**
+     * Create the storage, the bids are written back by the operating system.
+     *
+     * @param directory the directory of the files
+     */
+    public MappedBidLogStorage(Path directory) throws IOException {
+        this(directory, false);
+    }
+
+    /**
+     * Create the storage, the directory is created if it does not exist.
+     *
+     * @param directory the directory of the files
+     * @param fsync true to force the bids to the disk before they are acknowledged
+     */
+    public MappedBidLogStorage(Path directory, boolean fsync) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.fsync = fsync;
+    }
+
+    @Override
+    public BidLog open(String auctionId) {
+        return bidLogs.computeIfAbsent(auctionId, (id) -> {
+            MappedBidColumns columns = new MappedBidColumns(directory.resolve(id + BIDS_EXTENSION),
+                    directory.resolve(id + NAMES_EXTENSION), fsync);
+            return new OpenedBidLog(columns, new BidLog(columns));
+        }).bidLog;
+    }
+
+    /**
+     * Delete the files of an auction, the log stays readable by
+     * the requests that already got it.
+     */
+    @Override
+    public void delete(String auctionId) {
+        bidLogs.remove(auctionId);
+        try {
+            Files.deleteIfExists(directory.resolve(auctionId + BIDS_EXTENSION));
+            Files.deleteIfExists(directory.resolve(auctionId + NAMES_EXTENSION));
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        bidLogs.clear();
+        retain(Collections.emptySet());
+    }
+
+    @Override
+    public void retain(Set<String> auctionIds) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + BIDS_EXTENSION)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                String auctionId = fileName.substring(0, fileName.length() - BIDS_EXTENSION.length());
+                if (!auctionIds.contains(auctionId)) {
+                    delete(auctionId);
+                }
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    /**
+     * Write every opened log to the disk.
+     */
+    @Override
+    public void close() {
+        bidLogs.values().forEach((openedBidLog) -> openedBidLog.columns.close());
+        logger.info("Wrote the bids of {} auctions to {}", bidLogs.size(), directory);
+    }
+
+    private static final class OpenedBidLog {
+
+        private final MappedBidColumns columns;
+        private final BidLog bidLog;
+
+        private OpenedBidLog(MappedBidColumns columns, BidLog bidLog) {
+            this.columns = columns;
+            this.bidLog = bidLog;
+        }
+
+    }
+
+}
@@ -2,18 +2,41 @@ package tv.spideo.test.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.zalando.problem.AbstractThrowableProblem;
+import tv.spideo.test.config.AuctionProperties;
 import tv.spideo.test.domain.Auction;
 import tv.spideo.test.domain.AuctionBidder;
 import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.domain.AuctionHouseSummary;
+import tv.spideo.test.domain.AuctionSummary;
+import tv.spideo.test.domain.BatchBid;
+import tv.spideo.test.domain.BatchBidResult;
+import tv.spideo.test.domain.BidLog;
+import tv.spideo.test.domain.Page;
+import tv.spideo.test.domain.Versions;
 import tv.spideo.test.repository.AuctionHouseRepository;
+import tv.spideo.test.service.event.AuctionEventBroadcaster;
+import tv.spideo.test.service.metrics.AuctionMetrics;
+import tv.spideo.test.service.metrics.AuctionMetrics.Operation;
+import tv.spideo.test.service.scheduler.AuctionScheduler;
+import tv.spideo.test.service.sequencer.BidSequencer;
 import tv.spideo.test.util.CommonUtils;
 import tv.spideo.test.web.exception.*;
 
+import javax.annotation.PostConstruct;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * The service which communicates with the controller and the repository (Database)
@@ -24,17 +47,55 @@ import java.util.stream.Collectors;
 @Service
 public class AuctionHouseService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final AuctionHouseRepository auctionHouseRepository;
 
+    private final BidSequencer bidSequencer;
+
+    private final AuctionEventBroadcaster eventBroadcaster;
+
+    private final AuctionScheduler auctionScheduler;
+
+    private final AuctionMetrics auctionMetrics;
+
+    private final int maxBatchSize;
+
     /**
      * Create a new {@link AuctionHouseService} instance with the
-     * repository that will be injected to it.
+     * repository, the properties, that give the size of the batches,
+     * the bid sequencer, the event broadcaster, the scheduler and
+     * the metrics that will be injected to it.
      *
      * @param auctionHouseRepository an instance of {@link AuctionHouseRepository}
+     * @param properties the properties of the auction house
+     * @param bidSequencer an instance of {@link BidSequencer}
+     * @param eventBroadcaster an instance of {@link AuctionEventBroadcaster}
+     * @param auctionScheduler an instance of {@link AuctionScheduler}
+     * @param auctionMetrics an instance of {@link AuctionMetrics}
      */
     @Autowired
-    public AuctionHouseService(AuctionHouseRepository auctionHouseRepository) {
+    public AuctionHouseService(AuctionHouseRepository auctionHouseRepository, AuctionProperties properties,
+                               BidSequencer bidSequencer, AuctionEventBroadcaster eventBroadcaster,
+                               AuctionScheduler auctionScheduler, AuctionMetrics auctionMetrics) {
         this.auctionHouseRepository = auctionHouseRepository;
+        this.bidSequencer = bidSequencer;
+        this.eventBroadcaster = eventBroadcaster;
+        this.auctionScheduler = auctionScheduler;
+        this.auctionMetrics = auctionMetrics;
+        this.maxBatchSize = properties.getBidding().getMaxBatchSize();
+    }
+
+    /**
+     * Schedule the next status change of every auction, e.g. the ones
+     * restored from the journal on startup.
+     */
+    @PostConstruct
+    public void scheduleAllAuctions() {
+        if (!auctionScheduler.isEnabled())
+            return;
+        auctionHouseRepository.findAllAuctionHouses().forEach((auctionHouse) -> auctionHouse.getAuctions().values()
+                .forEach((auction) -> scheduleStatusChange(auctionHouse.getId(), auction)));
     }
 
     /**
@@ -42,18 +103,27 @@ public class AuctionHouseService {
      * from a valid "AuctionHouse" model. It checks
      * if the given name of the auction house is
      * already used then we should throw an exception
-     * otherwise, save it in the database.
+     * otherwise, save it in the database. The name
+     * is reserved by the repository while saving, so
+     * if another auction house took it meanwhile we
+     * throw the same exception.
      **
      * @param auctionHouse the auction house that needs to be created
      * @throws AuctionHouseAlreadyExistException if the auction house's name exist
-     * @throws GeneralException if there is an error occurred while saving the auction house
      * @return a response entity of the same auction house but with an ID
      */
     public AuctionHouse createAuctionHouse(AuctionHouse auctionHouse) {
-        auctionHouseRepository.findAuctionHouseByName(auctionHouse.getName())
-                .ifPresent((existedAuctionHouse) -> { throw new AuctionHouseAlreadyExistException(); });
-        return auctionHouseRepository.saveAuctionHouse(auctionHouse)
-                .orElseThrow(GeneralException::new);
+        return auctionMetrics.record(Operation.CREATE_AUCTION_HOUSE, () -> {
+            auctionHouseRepository.findAuctionHouseByName(auctionHouse.getName())
+                    .ifPresent((existedAuctionHouse) -> { throw new AuctionHouseAlreadyExistException(); });
+            // The auctions may be given with the auction house
+            auctionHouse.indexAuctions();
+            AuctionHouse savedAuctionHouse = auctionHouseRepository.saveAuctionHouse(auctionHouse)
+                    .orElseThrow(AuctionHouseAlreadyExistException::new);
+            savedAuctionHouse.getAuctions().values()
+                    .forEach((auction) -> scheduleStatusChange(savedAuctionHouse.getId(), auction));
+            return savedAuctionHouse;
+        });
     }
 
     /**
@@ -62,7 +132,8 @@ public class AuctionHouseService {
      * @return an empty list or actual list of the auction houses
      */
     public List<AuctionHouse> getAllAuctionHouses() {
-        return auctionHouseRepository.findAllAuctionHouses();
+        return auctionMetrics.record(Operation.GET_ALL_AUCTION_HOUSES, () ->
+                auctionHouseRepository.findAllAuctionHouses());
     }
 
     /**
@@ -71,7 +142,33 @@ public class AuctionHouseService {
      * @return an empty list or actual list of the auction houses
      */
     public List<AuctionHouse> getAuctionHousesByCreatorId(String creatorId) {
-        return auctionHouseRepository.findAllAuctionHousesByCreatorId(creatorId);
+        return auctionMetrics.record(Operation.GET_AUCTION_HOUSES_BY_CREATOR_ID, () ->
+                auctionHouseRepository.findAllAuctionHousesByCreatorId(creatorId));
+    }
+
+    /**
+     * Get the summaries of all auction houses, without their auctions.
+     *
+     * @return an empty list or actual list of the summaries of the auction houses
+     */
+    public List<AuctionHouseSummary> getAuctionHouseSummaries() {
+        return auctionMetrics.record(Operation.GET_AUCTION_HOUSE_SUMMARIES, () ->
+                auctionHouseRepository.findAllAuctionHouses().stream()
+                    .map(AuctionHouseSummary::of)
+                    .collect(Collectors.toList()));
+    }
+
+    /**
+     * Get the summaries of the auction houses of a creator, without their auctions.
+     *
+     * @param creatorId the name of the creator
+     * @return an empty list or actual list of the summaries of the auction houses
+     */
+    public List<AuctionHouseSummary> getAuctionHouseSummariesByCreatorId(String creatorId) {
+        return auctionMetrics.record(Operation.GET_AUCTION_HOUSE_SUMMARIES_BY_CREATOR_ID, () ->
+                auctionHouseRepository.findAllAuctionHousesByCreatorId(creatorId).stream()
+                    .map(AuctionHouseSummary::of)
+                    .collect(Collectors.toList()));
     }
 
     /**
@@ -83,17 +180,28 @@ public class AuctionHouseService {
      * @return A boolean, true if the auction house is deleted, false otherwise
      */
     public boolean deleteAuctionHouse(String auctionHouseId) {
-        AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
-                .orElseThrow(AuctionHouseNotFoundException::new);
-        return auctionHouseRepository.deleteAuctionHouse(auctionHouse)
-                .orElseThrow(AuctionHouseNotFoundException::new);
+        return auctionMetrics.record(Operation.DELETE_AUCTION_HOUSE, () -> {
+            AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+            boolean deleted = auctionHouseRepository.deleteAuctionHouse(auctionHouse)
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+            if (deleted)
+                auctionHouse.getAuctions().keySet().forEach(this::auctionDeleted);
+            return deleted;
+        });
     }
 
     /**
      * Delete all auction houses to clear the db for test purpose.
      */
     public void deleteAllAuctionHouse() {
-        auctionHouseRepository.deleteAllAuctionHouses();
+        auctionMetrics.record(Operation.DELETE_ALL_AUCTION_HOUSES, () -> {
+            List<AuctionHouse> auctionHouses = auctionHouseRepository.findAllAuctionHouses();
+            auctionHouseRepository.deleteAllAuctionHouses();
+            auctionHouses.forEach((auctionHouse) -> auctionHouse.getAuctions().keySet()
+                    .forEach(this::auctionDeleted));
+            return null;
+        });
     }
 
     /**
@@ -107,16 +215,20 @@ public class AuctionHouseService {
      * @return The actual auction with a generated ID
      */
     public Auction createAuction(String auctionHouseId, Auction auction) {
-        return auctionHouseRepository.findAuctionHouseById(auctionHouseId)
-                .map((auctionHouse) -> {
-                    auction.setId(CommonUtils.generateUUID());
-                    // We need to set the current price to the initial price if it's null
-                    auction.setCurrentPriceIfZero();
-                    auctionHouse.addAuction(auction);
-                    auctionHouseRepository.saveAuctionHouse(auctionHouse);
-                    return auction;
-                })
-                .orElseThrow(AuctionHouseNotFoundException::new);
+        return auctionMetrics.record(Operation.CREATE_AUCTION, () -> {
+            return auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .map((auctionHouse) -> {
+                        auction.setId(auctionHouseRepository.generateId());
+                        // We need to set the current price to the initial price if it's null
+                        auction.setCurrentPriceIfZero();
+                        // In case of the auction house was deleted by someone else
+                        Auction savedAuction = auctionHouseRepository.saveAuction(auctionHouse, auction)
+                                .orElseThrow(AuctionHouseNotFoundException::new);
+                        scheduleStatusChange(auctionHouse.getId(), savedAuction);
+                        return savedAuction;
+                    })
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+        });
     }
 
     /**
@@ -128,9 +240,69 @@ public class AuctionHouseService {
      * @return An empty list or a list of auctions of that auction house
      */
     public List<Auction> getAuctionsByAuctionHouseId(String auctionHouseId) {
-        return auctionHouseRepository.findAuctionHouseById(auctionHouseId)
-                .map((auctionHouse) -> new ArrayList<>(auctionHouse.getAuctions().values()))
-                .orElseThrow(AuctionHouseNotFoundException::new);
+        return auctionMetrics.record(Operation.GET_AUCTIONS_BY_AUCTION_HOUSE_ID, () ->
+                auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .map((auctionHouse) -> new ArrayList<>(auctionHouse.getAuctions().values()))
+                    .orElseThrow(AuctionHouseNotFoundException::new));
+    }
+
+    /**
+     * Get the summaries of the auctions of a specific auction house,
+     * without their bids, or throw an exception if the auction house
+     * is not found.
+     *
+     * @param auctionHouseId the auction house id that contains the auctions
+     * @throws AuctionHouseNotFoundException if the auction house is not found in db
+     * @return An empty list or a list of the summaries of the auctions
+     */
+    public List<AuctionSummary> getAuctionSummaries(String auctionHouseId) {
+        return auctionMetrics.record(Operation.GET_AUCTION_SUMMARIES, () ->
+                auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .map((auctionHouse) -> auctionHouse.getAuctions().values().stream()
+                            .map(AuctionSummary::of)
+                            .collect(Collectors.toList()))
+                    .orElseThrow(AuctionHouseNotFoundException::new));
+    }
+
+    /**
+     * Get a page of auctions of a specific auction house or
+     * throw an exception if the auction house is not found.
+     * The auctions are ordered by their id and the cursor is
+     * the id of the last auction of the page.
+     *
+     * @param auctionHouseId the auction house id that contains the auction
+     * @param limit the maximum number of auctions in the page
+     * @param cursor the cursor given with the previous page, null for the first page
+     * @throws AuctionHouseNotFoundException if the auction house is not found in db
+     * @throws InvalidCursorException if the cursor was not given by a previous page
+     * @return A page of auctions of that auction house
+     */
+    public Page<Auction> getAuctionsPageByAuctionHouseId(String auctionHouseId, int limit, String cursor) {
+        return auctionMetrics.record(Operation.GET_AUCTIONS_PAGE_BY_AUCTION_HOUSE_ID, () -> {
+            AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+            int pageSize = toPageSize(limit);
+            List<Auction> auctions = auctionHouse.getAuctionsAfter(cursor == null ? null : decodeCursor(cursor), pageSize);
+            String nextCursor = auctions.size() < pageSize ? null
+                    : CommonUtils.encodeCursor(auctions.get(auctions.size() - 1).getId());
+            return new Page<>(auctions, nextCursor);
+        });
+    }
+
+    /**
+     * Stream all auctions of a specific auction house or throw
+     * an exception if the auction house is not found. The auctions
+     * are read while the stream is consumed.
+     *
+     * @param auctionHouseId the auction house id that contains the auction
+     * @throws AuctionHouseNotFoundException if the auction house is not found in db
+     * @return A lazy stream of the auctions of that auction house
+     */
+    public Stream<Auction> streamAuctionsByAuctionHouseId(String auctionHouseId) {
+        return auctionMetrics.record(Operation.STREAM_AUCTIONS_BY_AUCTION_HOUSE_ID, () ->
+                auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .map((auctionHouse) -> auctionHouse.getAuctions().values().stream())
+                    .orElseThrow(AuctionHouseNotFoundException::new));
     }
 
     /**
@@ -145,11 +317,15 @@ public class AuctionHouseService {
      * @return A boolean, true if the auction house is deleted, false otherwise
      */
     public boolean deleteAuction(String auctionHouseId, String auctionId) {
-        AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
-                .orElseThrow(AuctionHouseNotFoundException::new);
-        Auction auction = Optional.ofNullable(auctionHouse.getAuctions().get(auctionId))
-                .orElseThrow(AuctionNotFoundException::new);
-        return auctionHouseRepository.deleteAuction(auctionHouse, auction).isPresent();
+        return auctionMetrics.record(Operation.DELETE_AUCTION, () -> {
+            AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+            Auction auction = findAuction(auctionHouse, auctionId);
+            Optional<Boolean> deleted = auctionHouseRepository.deleteAuction(auctionHouse, auction);
+            if (deleted.orElse(false))
+                auctionDeleted(auctionId);
+            return deleted.isPresent();
+        });
     }
 
     /**
@@ -163,13 +339,26 @@ public class AuctionHouseService {
      * @return An empty list or a list of filtered auctions with the given status
      */
     public List<Auction> getAuctionsByStatus(String auctionHouseId, Auction.AuctionStatus auctionStatus) {
-        return auctionHouseRepository.findAuctionHouseById(auctionHouseId)
-                .map((auctionHouse) -> auctionHouse.getAuctions().values()
-                            .stream()
-                            .filter((auction) -> auction.isFiltered(auctionStatus))
-                            .collect(Collectors.toList())
-                )
-                .orElseThrow(AuctionHouseNotFoundException::new);
+        return auctionMetrics.record(Operation.GET_AUCTIONS_BY_STATUS, () ->
+                auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .map((auctionHouse) -> auctionHouse.getAuctionsByStatus(auctionStatus))
+                    .orElseThrow(AuctionHouseNotFoundException::new));
+    }
+
+    /**
+     * Count the auctions of an auction house by status or
+     * throw exception if the auction house is not found.
+     *
+     * @param auctionHouseId the auction house id that we should to count the auctions
+     * @param auctionStatus the status of the auction {@link Auction.AuctionStatus}
+     * @throws AuctionHouseNotFoundException if the auction house is not found in db
+     * @return The number of auctions with the given status
+     */
+    public int countAuctionsByStatus(String auctionHouseId, Auction.AuctionStatus auctionStatus) {
+        return auctionMetrics.record(Operation.COUNT_AUCTIONS_BY_STATUS, () ->
+                auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .map((auctionHouse) -> auctionHouse.countAuctionsByStatus(auctionStatus))
+                    .orElseThrow(AuctionHouseNotFoundException::new));
     }
 
     /**
@@ -186,25 +375,83 @@ public class AuctionHouseService {
      * @return The auction with the updated status
      */
     public Auction updateAuctionStatus(String auctionHouseId, String auctionId, Auction.AuctionStatus auctionStatus) {
-        AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
-                .orElseThrow(AuctionHouseNotFoundException::new);
-        Auction auction = auctionHouse.getAuctions()
-                .values()
-                .stream()
-                .filter(v -> v.getId().contentEquals(auctionId))
-                .findFirst()
-                .orElseThrow(AuctionNotFoundException::new);
-        if (auction.getStatus() == Auction.AuctionStatus.NOT_FOUND) {
-            throw new AuctionNotFoundException();
-        } else if (auction.getStatus() == Auction.AuctionStatus.TERMINATED) {
-            throw new AuctionFinishedException();
+        return auctionMetrics.record(Operation.UPDATE_AUCTION_STATUS, () -> {
+            AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+            Auction auction = findAuction(auctionHouse, auctionId);
+            return auctionHouseRepository.withAuctionLock(auctionId, () -> {
+                // The auction may have been deleted before its lock was taken
+                if (auction.getStatus() == Auction.AuctionStatus.NOT_FOUND
+                        || auctionHouse.getAuctions().get(auctionId) != auction) {
+                    throw new AuctionNotFoundException();
+                } else if (auction.getStatus() == Auction.AuctionStatus.TERMINATED) {
+                    throw new AuctionFinishedException();
+                }
+                // In case of the auction house was deleted by someone else
+                Auction updatedAuction = auctionHouseRepository.saveAuctionStatus(auctionHouse, auction, auctionStatus)
+                        .orElseThrow(AuctionHouseNotFoundException::new);
+                // Published under the lock, so the subscribers get the status changes in order
+                statusChanged(auctionHouse.getId(), updatedAuction);
+                return updatedAuction;
+            });
+        });
+    }
+
+    /**
+     * Schedule the next status change of an auction if the scheduler is
+     * enabled: a waiting auction is started at its starting time and a
+     * running one is finished at its end time. The change scheduled
+     * before for the auction is cancelled.
+     *
+     * @param auctionHouseId the auction house id of the auction
+     * @param auction the auction with its actual status
+     */
+    public void scheduleStatusChange(String auctionHouseId, Auction auction) {
+        if (!auctionScheduler.isEnabled())
+            return;
+        String auctionId = auction.getId();
+        if (auction.getStatus() == Auction.AuctionStatus.NOT_STARTED && auction.getStartingTime() != null) {
+            auctionScheduler.schedule(auctionId, auction.getStartingTime(), () -> applyScheduledStatus(auctionHouseId,
+                    auctionId, Auction.AuctionStatus.NOT_STARTED, Auction.AuctionStatus.RUNNING));
+        } else if (auction.getStatus() == Auction.AuctionStatus.RUNNING && auction.getEndTime() != null) {
+            auctionScheduler.schedule(auctionId, auction.getEndTime(), () -> applyScheduledStatus(auctionHouseId,
+                    auctionId, Auction.AuctionStatus.RUNNING, Auction.AuctionStatus.TERMINATED));
+        } else {
+            auctionScheduler.cancel(auctionId);
         }
-        auction.setStatus(auctionStatus);
-        auctionHouse.getAuctions().replace(auctionId, auction);
-        // In case of the auction house was deleted by someone else
-        auctionHouseRepository.saveAuctionHouse(auctionHouse)
-                .orElseThrow(AuctionHouseNotFoundException::new);
-        return auction;
+    }
+
+    /**
+     * Change the status of an auction at its deadline, it runs on a thread
+     * of the {@link AuctionScheduler}. Nothing is changed if the status
+     * was changed by hand meanwhile or if the auction was deleted.
+     */
+    private void applyScheduledStatus(String auctionHouseId, String auctionId, Auction.AuctionStatus expectedStatus,
+                                      Auction.AuctionStatus auctionStatus) {
+        auctionHouseRepository.findAuctionHouseById(auctionHouseId).ifPresent((auctionHouse) -> {
+            Auction auction = auctionHouse.getAuctions().get(auctionId);
+            if (auction == null)
+                return;
+            auctionHouseRepository.withAuctionLock(auctionId, () -> {
+                if (auction.getStatus() != expectedStatus)
+                    return null;
+                auctionHouseRepository.saveAuctionStatus(auctionHouse, auction, auctionStatus)
+                        .ifPresent((updatedAuction) -> statusChanged(auctionHouseId, updatedAuction));
+                return null;
+            });
+        });
+    }
+
+    private void statusChanged(String auctionHouseId, Auction auction) {
+        eventBroadcaster.publishStatus(auction);
+        scheduleStatusChange(auctionHouseId, auction);
+        if (auction.getStatus() == Auction.AuctionStatus.TERMINATED)
+            auctionMetrics.auctionFinished(auction);
+    }
+
+    private void auctionDeleted(String auctionId) {
+        auctionScheduler.cancel(auctionId);
+        eventBroadcaster.publishDeleted(auctionId);
     }
 
     /**
@@ -219,29 +466,217 @@ public class AuctionHouseService {
      * @param bidder a valid {@link AuctionBidder} that wants to bid
      * @throws AuctionNotStartedException if the auction did not start yet
      * @throws BiddingPriceLowException if the the bidder's price is lower than the current auction price
+     * @throws InvalidBidException if the bidder's price is not a finite number or it has no bidding time
      * @throws AuctionNotFoundException if the auction was not found in the list of the auctions
      * @throws AuctionHouseNotFoundException if the auction house is not found in db
      * @return The actual bidder with a generated id
      */
     public AuctionBidder bidOnAuction(String auctionHouseId, String auctionId, AuctionBidder bidder) {
-        return auctionHouseRepository.findAuctionHouseById(auctionHouseId)
-                .map((auctionHouse) -> {
-                    Auction auction = Optional.of(auctionHouse.getAuctions()
-                            .get(auctionId))
-                            .orElseThrow(AuctionNotFoundException::new);
-                    if (auction.getStatus() != Auction.AuctionStatus.RUNNING) {
-                        throw new AuctionNotStartedException();
-                    }
-                    if (bidder.getPrice() > auction.getCurrentPrice() && bidder.getPrice() > auction.getInitialPrice())
-                        auction.setCurrentPrice(bidder.getPrice());
-                    else
-                        throw new BiddingPriceLowException();
-                    bidder.setId(CommonUtils.generateUUID());
-                    auctionHouse.getAuctions().replace(auctionId, auction.addBid(bidder));
-                    auctionHouseRepository.saveAuctionHouse(auctionHouse);
-                    return bidder;
-                })
-                .orElseThrow(AuctionHouseNotFoundException::new);
+        return auctionMetrics.record(Operation.BID_ON_AUCTION, () -> {
+            return auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .map((auctionHouse) -> {
+                        Auction auction = findAuction(auctionHouse, auctionId);
+                        AuctionBidder acceptedBidder = bidSequencer.isEnabled()
+                                ? BidSequencer.await(bidSequencer.submit(auction, bidder, this::acceptBid))
+                                : acceptBid(auction, bidder);
+                        // The bid is acknowledged once it is durable, it is saved by the request
+                        // thread so the writer of the sequencer never waits for the journal,
+                        // the auction may have been deleted since the bid was accepted
+                        AuctionBidder savedBidder = auctionHouseRepository.saveBid(auctionHouse, auction, acceptedBidder)
+                                .orElseThrow(AuctionNotFoundException::new);
+                        eventBroadcaster.publishBid(auction, savedBidder);
+                        return savedBidder;
+                    })
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+        });
+    }
+
+    /**
+     * Bid on an auction in an auction house without waiting for the
+     * writer of the sequencer or the journal, the result is completed
+     * once the bid is durable or rejected, with the same exceptions as
+     * {@link #bidOnAuction(String, String, AuctionBidder)}. The steps
+     * after a wait run on the given executor, so neither the writer of
+     * the sequencer nor the writer of the journal runs them.
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that we should use to get the auction to bid on
+     * @param bidder a valid {@link AuctionBidder} that wants to bid
+     * @param executor the executor of the steps after a wait
+     * @return The actual bidder with a generated id, once it is durable
+     */
+    public CompletableFuture<AuctionBidder> bidOnAuctionAsync(String auctionHouseId, String auctionId,
+                                                              AuctionBidder bidder, Executor executor) {
+        return auctionMetrics.recordAsync(Operation.BID_ON_AUCTION, () -> {
+            AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+            Auction auction = findAuction(auctionHouse, auctionId);
+            CompletableFuture<AuctionBidder> acceptedBidder = bidSequencer.isEnabled()
+                    ? bidSequencer.submit(auction, bidder, this::acceptBid)
+                    : CompletableFuture.completedFuture(acceptBid(auction, bidder));
+            CompletableFuture<AuctionBidder> savedBidder = then(acceptedBidder, executor,
+                    (accepted) -> auctionHouseRepository.saveBidAsync(auctionHouse, auction, accepted));
+            return then(savedBidder, executor, (saved) -> {
+                eventBroadcaster.publishBid(auction, saved);
+                return CompletableFuture.completedFuture(saved);
+            });
+        });
+    }
+
+    // Run the next step on the thread that completed the previous one only if it is the calling thread
+    private static <T, U> CompletableFuture<U> then(CompletableFuture<T> previous, Executor executor,
+                                                    Function<T, CompletableFuture<U>> next) {
+        return previous.isDone() ? previous.thenCompose(next) : previous.thenComposeAsync(next, executor);
+    }
+
+    /**
+     * Wait until an auction of an auction house is led by another
+     * bidder than the given one, the result is completed at once if
+     * it is already the case. A waiter does not cost a thread, it is
+     * completed by the {@link AuctionEventBroadcaster} with the next
+     * accepted bid.
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that we should use to get the auction
+     * @param bidderId the id of the leader known by the caller, or null if it knows none
+     * @throws AuctionNotFoundException if the auction was not found in the list of the auctions
+     * @throws AuctionHouseNotFoundException if the auction house is not found in db
+     * @throws AuctionFinishedException if the auction is finished and its leader is the known one
+     * @return The new leader of the auction
+     */
+    public CompletableFuture<AuctionBidder> awaitAuctionLeader(String auctionHouseId, String auctionId,
+                                                               String bidderId) {
+        return auctionMetrics.record(Operation.AWAIT_AUCTION_LEADER, () -> {
+            AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+            Auction auction = findAuction(auctionHouse, auctionId);
+            AuctionBidder leader = newLeader(auction, bidderId);
+            if (leader != null)
+                return CompletableFuture.completedFuture(leader);
+            CompletableFuture<AuctionBidder> nextBid = eventBroadcaster.nextBid(auctionId);
+            // The auction may have been outbid or finished before the waiter was added
+            leader = newLeader(auction, bidderId);
+            if (leader != null)
+                nextBid.complete(leader);
+            else if (auction.getStatus() == Auction.AuctionStatus.TERMINATED)
+                nextBid.completeExceptionally(new AuctionFinishedException());
+            return nextBid;
+        });
+    }
+
+    private static AuctionBidder newLeader(Auction auction, String bidderId) {
+        Auction.Leader leader = auction.getLeader();
+        return leader == null || leader.getBidder().getId().equals(bidderId) ? null : leader.getBidder();
+    }
+
+    /**
+     * Bid many times on the auctions of an auction house in one call.
+     * The bids are grouped by auction, every auction is looked up once
+     * and its bids are applied in one pass, in the order of the batch,
+     * then made durable together. A bid that is rejected does not
+     * reject the others.
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param bids the bids with the id of their auction
+     * @throws AuctionHouseNotFoundException if the auction house is not found in db
+     * @throws BatchTooLargeException if there are more bids than the maximum batch size
+     * @return The result of every bid, in the order of the batch
+     */
+    public List<BatchBidResult> bidOnAuctions(String auctionHouseId, List<BatchBid> bids) {
+        return auctionMetrics.record(Operation.BID_ON_AUCTIONS, () -> {
+            if (bids.size() > maxBatchSize) {
+                throw new BatchTooLargeException();
+            }
+            AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+            Map<String, List<Integer>> positionsByAuction = new LinkedHashMap<>();
+            for (int position = 0; position < bids.size(); position++) {
+                positionsByAuction.computeIfAbsent(bids.get(position).getAuctionId(), (auctionId) -> new ArrayList<>())
+                        .add(position);
+            }
+            BatchBidResult[] results = new BatchBidResult[bids.size()];
+            positionsByAuction.forEach((auctionId, positions) -> {
+                Auction auction = auctionId == null ? null : auctionHouse.getAuctions().get(auctionId);
+                if (auction == null) {
+                    AuctionNotFoundException notFound = new AuctionNotFoundException();
+                    positions.forEach((position) -> results[position] = rejected(auctionId, notFound));
+                    return;
+                }
+                List<AuctionBidder> acceptedBidders = applyBids(auction, bids, positions, results);
+                auctionHouseRepository.saveBids(auctionHouse, auction, acceptedBidders);
+                acceptedBidders.forEach((bidder) -> eventBroadcaster.publishBid(auction, bidder));
+            });
+            return Arrays.asList(results);
+        });
+    }
+
+    // Apply the bids of one auction, the sequencer gets all of them before the first one is awaited
+    private List<AuctionBidder> applyBids(Auction auction, List<BatchBid> bids, List<Integer> positions,
+                                          BatchBidResult[] results) {
+        List<AuctionBidder> bidders = new ArrayList<>(positions.size());
+        for (int position : positions) {
+            bidders.add(AuctionBidder.builder()
+                    .name(bids.get(position).getName())
+                    .price(bids.get(position).getPrice())
+                    .build());
+        }
+        List<CompletableFuture<AuctionBidder>> submitted = new ArrayList<>();
+        if (bidSequencer.isEnabled()) {
+            bidders.forEach((bidder) -> submitted.add(bidSequencer.submit(auction, bidder, this::acceptBid)));
+        }
+        List<AuctionBidder> acceptedBidders = new ArrayList<>(bidders.size());
+        for (int idx = 0; idx < bidders.size(); idx++) {
+            int position = positions.get(idx);
+            try {
+                AuctionBidder acceptedBidder = bidSequencer.isEnabled()
+                        ? BidSequencer.await(submitted.get(idx))
+                        : acceptBid(auction, bidders.get(idx));
+                acceptedBidders.add(acceptedBidder);
+                results[position] = BatchBidResult.accepted(auction.getId(), acceptedBidder);
+            } catch (AbstractThrowableProblem problem) {
+                results[position] = rejected(auction.getId(), problem);
+            }
+        }
+        return acceptedBidders;
+    }
+
+    private BatchBidResult rejected(String auctionId, AbstractThrowableProblem problem) {
+        auctionMetrics.bidRejected(problem);
+        return BatchBidResult.rejected(auctionId, problem.getType().toString(), problem.getTitle());
+    }
+
+    /**
+     * Accept a bid if the auction is running and the bidder's
+     * price is higher than the current one. It runs on the request
+     * thread or on the writer thread of the {@link BidSequencer}.
+     *
+     * @param auction the auction to bid on
+     * @param bidder a valid {@link AuctionBidder} that wants to bid
+     * @throws AuctionNotStartedException if the auction did not start yet
+     * @throws BiddingPriceLowException if the the bidder's price is lower than the current auction price
+     * @throws InvalidBidException if the bidder's price is not a finite number or it has no bidding time
+     * @throws JournalFailedException if the journal failed, nothing is accepted anymore
+     * @return The actual bidder with a generated id
+     */
+    private AuctionBidder acceptBid(Auction auction, AuctionBidder bidder) {
+        if (auction.getStatus() != Auction.AuctionStatus.RUNNING) {
+            throw new AuctionNotStartedException();
+        }
+        // The bid would lead the auction in memory before the journal rejects it
+        auctionHouseRepository.checkWritable();
+        bidder.setId(auctionHouseRepository.generateId());
+        // The status, the price check, the new leader and the history are changed
+        // together by the auction, so a bid never lands after the auction finished
+        switch (auction.bid(bidder)) {
+            case NOT_RUNNING:
+                throw new AuctionNotStartedException();
+            case PRICE_TOO_LOW:
+                throw new BiddingPriceLowException();
+            case INVALID_BID:
+                throw new InvalidBidException();
+            default:
+                return bidder;
+        }
     }
 
     /**
@@ -256,19 +691,84 @@ public class AuctionHouseService {
      * @return Map of id of bidders and prices that they used to bid
      */
     public Map<String, Double> getAllBidding(String auctionHouseId, String auctionId) {
-        AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
-                .orElseThrow(AuctionHouseNotFoundException::new);
-        Auction auction = auctionHouse.getAuctions()
-                .values()
-                .stream()
-                .filter(v -> v.getId().contentEquals(auctionId))
-                .findFirst()
-                .orElseThrow(AuctionNotFoundException::new);
-        return auction.getBidding()
-                .entrySet()
-                .stream()
-                .collect(Collectors.toMap((entry) -> auction.getBidders().get(entry.getKey()).getName(),
-                        Map.Entry::getValue));
+        return auctionMetrics.record(Operation.GET_ALL_BIDDING, () -> {
+            AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+            Auction auction = findAuction(auctionHouse, auctionId);
+            // A bidder may bid many times, we keep its highest price
+            Map<String, Double> bidding = new HashMap<>();
+            auction.getBidLog().forEach((bidder) -> bidding.merge(bidder.getName(), bidder.getPrice(), Math::max));
+            return bidding;
+        });
+    }
+
+    /**
+     * Get a page of the bidding of an auction in an auction house
+     * or throw an exception if the auction house or the auction is
+     * not found. The bids are in the order they were accepted and
+     * the cursor is the position of the next bid.
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that we should use to get the auction
+     * @param limit the maximum number of bids in the page
+     * @param cursor the cursor given with the previous page, null for the first page
+     * @throws AuctionNotFoundException if the auction is not found in the list of auctions
+     * @throws AuctionHouseNotFoundException if the auction house is not found in db
+     * @throws InvalidCursorException if the cursor was not given by a previous page
+     * @return A page of the bidders with their prices
+     */
+    public Page<AuctionBidder> getBiddingPage(String auctionHouseId, String auctionId, int limit, String cursor) {
+        return auctionMetrics.record(Operation.GET_BIDDING_PAGE, () -> {
+            AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+            BidLog bidLog = findAuction(auctionHouse, auctionId).getBidLog();
+            int from = cursor == null ? 0 : toPosition(decodeCursor(cursor));
+            int to = from + toPageSize(limit);
+            List<AuctionBidder> bidders = new ArrayList<>();
+            bidLog.forEach(from, to, bidders::add);
+            String nextCursor = to < bidLog.size() ? CommonUtils.encodeCursor(String.valueOf(to)) : null;
+            return new Page<>(bidders, nextCursor);
+        });
+    }
+
+    /**
+     * Stream all bidding of an auction in an auction house
+     * or throw an exception if the auction house or the
+     * auction is not found.
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that we should use to get the auction
+     * @throws AuctionNotFoundException if the auction is not found in the list of auctions
+     * @throws AuctionHouseNotFoundException if the auction house is not found in db
+     * @return A lazy stream of the bidders in the order they were accepted
+     */
+    public Stream<AuctionBidder> streamBidding(String auctionHouseId, String auctionId) {
+        return auctionMetrics.record(Operation.STREAM_BIDDING, () -> {
+            AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+            return findAuction(auctionHouse, auctionId).getBidLog().stream();
+        });
+    }
+
+    /**
+     * Subscribe to the events of an auction in an auction house
+     * or throw an exception if the auction house or the auction
+     * is not found. The subscriber gets every accepted bid and
+     * status change, and the winner once the auction is finished.
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that we should use to get the auction
+     * @param lastEventId the id of the last event received before a reconnection, or null
+     * @throws AuctionNotFoundException if the auction is not found in the list of auctions
+     * @throws AuctionHouseNotFoundException if the auction house is not found in db
+     * @return The response that streams the events of the auction
+     */
+    public ResponseBodyEmitter subscribeToAuction(String auctionHouseId, String auctionId, Long lastEventId) {
+        return auctionMetrics.record(Operation.SUBSCRIBE_TO_AUCTION, () -> {
+            AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+            return eventBroadcaster.subscribe(findAuction(auctionHouse, auctionId), lastEventId);
+        });
     }
 
     /**
@@ -286,24 +786,113 @@ public class AuctionHouseService {
      * @return The winner of the auction {@link AuctionBidder}
      */
     public AuctionBidder getAuctionWinner(String auctionHouseId, String auctionId) {
+        return auctionMetrics.record(Operation.GET_AUCTION_WINNER, () -> {
+            AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+            Auction auction = findAuction(auctionHouse, auctionId);
+            if (auction.getStatus() != Auction.AuctionStatus.TERMINATED) {
+                throw new AuctionNotFinishedException();
+            }
+            // The leader is kept up to date by every accepted bid
+            return Optional.ofNullable(auction.getLeader())
+                    .map(Auction.Leader::getBidder)
+                    .orElseThrow(NoBiddingFoundException::new);
+        });
+    }
+
+    /**
+     * Get the actual leader of an auction of an auction house, it
+     * can be read at any time even if the auction is not finished.
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that we should use to get the auction
+     * @throws AuctionNotFoundException if the auction is not found in the list of auctions
+     * @throws NoBiddingFoundException if there is no bidding yet
+     * @throws AuctionHouseNotFoundException if the auction house is not found in db
+     * @return The bidder that leads the auction {@link AuctionBidder}
+     */
+    public AuctionBidder getAuctionLeader(String auctionHouseId, String auctionId) {
+        return auctionMetrics.record(Operation.GET_AUCTION_LEADER, () -> {
+            AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                    .orElseThrow(AuctionHouseNotFoundException::new);
+            return Optional.ofNullable(findAuction(auctionHouse, auctionId).getLeader())
+                    .map(Auction.Leader::getBidder)
+                    .orElseThrow(NoBiddingFoundException::new);
+        });
+    }
+
+    /**
+     * Get the version of all the auction houses, it changes with
+     * anything serialized with them, see {@link Versions}, the
+     * clock is kept by the repository.
+     *
+     * @return the version of the last mutation
+     */
+    public long getAuctionHousesVersion() {
+        return auctionHouseRepository.getVersion();
+    }
+
+    /**
+     * Get the version of an auction house and its auctions.
+     *
+     * @param auctionHouseId the auction house id
+     * @throws AuctionHouseNotFoundException if the auction house is not found in db
+     * @return the version of the last mutation of the auction house or one of its auctions
+     */
+    public long getAuctionHouseVersion(String auctionHouseId) {
+        return auctionHouseRepository.findAuctionHouseById(auctionHouseId)
+                .map(AuctionHouse::getVersion)
+                .orElseThrow(AuctionHouseNotFoundException::new);
+    }
+
+    /**
+     * Get the version of an auction of an auction house.
+     *
+     * @param auctionHouseId the auction house id that contains the auction
+     * @param auctionId the auction id
+     * @throws AuctionNotFoundException if the auction is not found in the list of auctions
+     * @throws AuctionHouseNotFoundException if the auction house is not found in db
+     * @return the version of the last accepted bid or change of status of the auction
+     */
+    public long getAuctionVersion(String auctionHouseId, String auctionId) {
         AuctionHouse auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId)
                 .orElseThrow(AuctionHouseNotFoundException::new);
-        Auction auction = auctionHouse.getAuctions()
-                .values()
-                .stream()
-                .filter(v -> v.getId().contentEquals(auctionId))
-                .findFirst()
+        return findAuction(auctionHouse, auctionId).getVersion();
+    }
+
+    /**
+     * Get an auction of an auction house by its id.
+     *
+     * @param auctionHouse the auction house that contains the auction
+     * @param auctionId the auction id
+     * @throws AuctionNotFoundException if the auction is not found in the list of auctions
+     * @return The auction
+     */
+    private Auction findAuction(AuctionHouse auctionHouse, String auctionId) {
+        return Optional.ofNullable(auctionHouse.getAuctions().get(auctionId))
                 .orElseThrow(AuctionNotFoundException::new);
-        if (auction.getStatus() != Auction.AuctionStatus.TERMINATED) {
-            throw new AuctionNotFinishedException();
+    }
+
+    private static int toPageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    private static String decodeCursor(String cursor) {
+        try {
+            return CommonUtils.decodeCursor(cursor);
+        } catch (IllegalArgumentException exception) {
+            throw new InvalidCursorException();
+        }
+    }
+
+    private static int toPosition(String position) {
+        try {
+            int from = Integer.parseInt(position);
+            if (from < 0)
+                throw new InvalidCursorException();
+            return from;
+        } catch (NumberFormatException exception) {
+            throw new InvalidCursorException();
         }
-        return auction.getBidders()
-            .get(auction
-                .getBidding()
-                .entrySet()
-                .stream()
-                .max(Map.Entry.comparingByValue())
-                .orElseThrow(NoBiddingFoundException::new)
-                .getKey());
     }
 }
@@ -0,0 +1,146 @@
+package tv.spideo.test.service.async;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import tv.spideo.test.config.AuctionProperties;
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
+import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.domain.BatchBid;
+import tv.spideo.test.domain.BatchBidResult;
+import tv.spideo.test.service.AuctionHouseService;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The operations of the {@link AuctionHouseService} as results that
+ * are completed later, so a request does not keep its thread while it
+ * waits. The reads never wait, they run on the calling thread. A bid
+ * waits for the writer of the sequencer and the journal without a
+ * thread, the other mutations wait for the journal on the workers of
+ * this service, and a request waiting for a new leader only costs an
+ * entry in the {@link tv.spideo.test.service.event.AuctionEventBroadcaster}.
+ * The operations and their exceptions are the ones of the
+ * {@link AuctionHouseService}, the exceptions complete the results.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+@Service
+public class AsyncAuctionHouseService {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getCanonicalName());
+
+    private final AuctionHouseService auctionHouseService;
+
+    private final ExecutorService workers;
+
+    /**
+     * Create a new {@link AsyncAuctionHouseService} instance over the
+     * service, its workers are started with it.
+     *
+     * @param auctionHouseService an instance of {@link AuctionHouseService}
+     * @param properties the properties of the auction house
+     */
+    @Autowired
+    public AsyncAuctionHouseService(AuctionHouseService auctionHouseService, AuctionProperties properties) {
+        this.auctionHouseService = auctionHouseService;
+        int configuredWorkers = properties.getAsync().getWorkers();
+        int workerCount = configuredWorkers > 0 ? configuredWorkers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger workerIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, (task) -> {
+            Thread thread = new Thread(task, "auction-async-" + workerIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("The asynchronous operations are run by {} worker(s)", workerCount);
+    }
+
+    public CompletableFuture<AuctionHouse> createAuctionHouse(AuctionHouse auctionHouse) {
+        return CompletableFuture.supplyAsync(() -> auctionHouseService.createAuctionHouse(auctionHouse), workers);
+    }
+
+    public CompletableFuture<List<AuctionHouse>> getAllAuctionHouses() {
+        return now(auctionHouseService::getAllAuctionHouses);
+    }
+
+    public CompletableFuture<Boolean> deleteAuctionHouse(String auctionHouseId) {
+        return CompletableFuture.supplyAsync(() -> auctionHouseService.deleteAuctionHouse(auctionHouseId), workers);
+    }
+
+    public CompletableFuture<Auction> createAuction(String auctionHouseId, Auction auction) {
+        return CompletableFuture.supplyAsync(() -> auctionHouseService.createAuction(auctionHouseId, auction), workers);
+    }
+
+    public CompletableFuture<List<Auction>> getAuctionsByAuctionHouseId(String auctionHouseId) {
+        return now(() -> auctionHouseService.getAuctionsByAuctionHouseId(auctionHouseId));
+    }
+
+    public CompletableFuture<Boolean> deleteAuction(String auctionHouseId, String auctionId) {
+        return CompletableFuture.supplyAsync(() -> auctionHouseService.deleteAuction(auctionHouseId, auctionId),
+                workers);
+    }
+
+    public CompletableFuture<Auction> updateAuctionStatus(String auctionHouseId, String auctionId,
+                                                          Auction.AuctionStatus auctionStatus) {
+        return CompletableFuture.supplyAsync(
+                () -> auctionHouseService.updateAuctionStatus(auctionHouseId, auctionId, auctionStatus), workers);
+    }
+
+    public CompletableFuture<AuctionBidder> bidOnAuction(String auctionHouseId, String auctionId,
+                                                         AuctionBidder bidder) {
+        return auctionHouseService.bidOnAuctionAsync(auctionHouseId, auctionId, bidder, workers);
+    }
+
+    public CompletableFuture<List<BatchBidResult>> bidOnAuctions(String auctionHouseId, List<BatchBid> bids) {
+        return CompletableFuture.supplyAsync(() -> auctionHouseService.bidOnAuctions(auctionHouseId, bids), workers);
+    }
+
+    public CompletableFuture<AuctionBidder> getAuctionLeader(String auctionHouseId, String auctionId) {
+        return now(() -> auctionHouseService.getAuctionLeader(auctionHouseId, auctionId));
+    }
+
+    public CompletableFuture<AuctionBidder> awaitAuctionLeader(String auctionHouseId, String auctionId,
+                                                               String bidderId) {
+        try {
+            return auctionHouseService.awaitAuctionLeader(auctionHouseId, auctionId, bidderId);
+        } catch (RuntimeException exception) {
+            return failed(exception);
+        }
+    }
+
+    public CompletableFuture<AuctionBidder> getAuctionWinner(String auctionHouseId, String auctionId) {
+        return now(() -> auctionHouseService.getAuctionWinner(auctionHouseId, auctionId));
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // A read of the memory, it is cheaper to run it than to hand it over
+    private static <T> CompletableFuture<T> now(Supplier<T> read) {
+        try {
+            return CompletableFuture.completedFuture(read.get());
+        } catch (RuntimeException exception) {
+            return failed(exception);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(RuntimeException exception) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(exception);
+        return result;
+    }
+
+}
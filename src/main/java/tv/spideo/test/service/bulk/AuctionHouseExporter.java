@@ -0,0 +1,207 @@
+package tv.spideo.test.service.bulk;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
+import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.domain.BidLog;
+import tv.spideo.test.domain.ImportRecord;
+import tv.spideo.test.repository.AuctionHouseRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Export the auction houses, their auctions and the bids of the auctions
+ * as newline-delimited JSON, in the format read by the {@link AuctionHouseImporter}.
+ * The export is taken in two steps: the cut copies every auction with
+ * the number of its bids without copying the bids, then the records
+ * are written one by one. As the bid logs are only appended to, the
+ * bids of the cut are read in place while the auctions keep receiving
+ * bids, the ones accepted after the cut are not exported.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+@Component
+public class AuctionHouseExporter {
+
+    // The output is flushed every time this number of records is written
+    private static final int FLUSH_EVERY = 4096;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getCanonicalName());
+
+    private final AuctionHouseRepository auctionHouseRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter recordWriter;
+
+    /**
+     * Create a new {@link AuctionHouseExporter} with the repository that is
+     * exported and the object mapper that writes the records.
+     *
+     * @param auctionHouseRepository an instance of {@link AuctionHouseRepository}
+     * @param objectMapper the object mapper that writes the records
+     */
+    @Autowired
+    public AuctionHouseExporter(AuctionHouseRepository auctionHouseRepository, ObjectMapper objectMapper) {
+        this.auctionHouseRepository = auctionHouseRepository;
+        this.objectMapper = objectMapper;
+        this.recordWriter = objectMapper.writerFor(ImportRecord.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Take the point in time of an export. The status of an auction is
+     * read before the number of its bids, so the auction is exported as
+     * it was at a moment between the two.
+     *
+     * @return the auction houses and auctions to export, with the number of bids of every auction
+     */
+    public Cut cut() {
+        List<AuctionHouseCut> auctionHouses = new ArrayList<>();
+        for (AuctionHouse auctionHouse : auctionHouseRepository.findAllAuctionHouses()) {
+            List<AuctionCut> auctions = new ArrayList<>(auctionHouse.getAuctions().size());
+            for (Auction auction : auctionHouse.getAuctions().values()) {
+                BidLog bidLog = auction.getBidLog();
+                // The copy has no bids, only its opening price
+                Auction copy = auction.withBidLog(new BidLog());
+                auctions.add(new AuctionCut(copy, bidLog, bidLog.size()));
+            }
+            AuctionHouse copy = AuctionHouse.builder()
+                    .id(auctionHouse.getId())
+                    .name(auctionHouse.getName())
+                    .creatorName(auctionHouse.getCreatorName())
+                    .build();
+            auctionHouses.add(new AuctionHouseCut(copy, auctions));
+        }
+        return new Cut(auctionHouses);
+    }
+
+    /**
+     * Write the records of a cut, one per line: an auction house, then
+     * each of its auctions followed by its bids in the order they were
+     * accepted. The output is not closed.
+     *
+     * @param cut the cut to export
+     * @param output the output of the records
+     * @return the number of records written
+     */
+    public long writeTo(Cut cut, OutputStream output) throws IOException {
+        long start = System.nanoTime();
+        RecordOutput records;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            records = new RecordOutput(generator);
+            for (AuctionHouseCut auctionHouse : cut.auctionHouses) {
+                String auctionHouseId = auctionHouse.auctionHouse.getId();
+                records.write(ImportRecord.ofAuctionHouse(auctionHouse.auctionHouse));
+                for (AuctionCut auction : auctionHouse.auctions) {
+                    String auctionId = auction.auction.getId();
+                    records.write(ImportRecord.ofAuction(auctionHouseId, auction.auction));
+                    try {
+                        auction.bidLog.forEach(0, auction.bids,
+                                (bidder) -> records.writeUnchecked(ImportRecord.ofBid(auctionHouseId, auctionId, bidder)));
+                    } catch (UncheckedIOException exception) {
+                        throw exception.getCause();
+                    }
+                }
+            }
+            generator.writeRaw('\n');
+        }
+        logger.info("Exported {} records in {} ms", records.written, (System.nanoTime() - start) / 1_000_000L);
+        return records.written;
+    }
+
+    /**
+     * The auction houses and auctions of an export, it only keeps
+     * a copy of every auction, not of its bids.
+     */
+    public static final class Cut {
+
+        private final List<AuctionHouseCut> auctionHouses;
+
+        private Cut(List<AuctionHouseCut> auctionHouses) {
+            this.auctionHouses = auctionHouses;
+        }
+
+        public int getAuctionHouses() {
+            return auctionHouses.size();
+        }
+
+        public long getBids() {
+            long bids = 0;
+            for (AuctionHouseCut auctionHouse : auctionHouses) {
+                for (AuctionCut auction : auctionHouse.auctions) {
+                    bids += auction.bids;
+                }
+            }
+            return bids;
+        }
+
+    }
+
+    private static final class AuctionHouseCut {
+
+        private final AuctionHouse auctionHouse;
+        private final List<AuctionCut> auctions;
+
+        private AuctionHouseCut(AuctionHouse auctionHouse, List<AuctionCut> auctions) {
+            this.auctionHouse = auctionHouse;
+            this.auctions = auctions;
+        }
+
+    }
+
+    private static final class AuctionCut {
+
+        private final Auction auction;
+        private final BidLog bidLog;
+        private final int bids;
+
+        private AuctionCut(Auction auction, BidLog bidLog, int bids) {
+            this.auction = auction;
+            this.bidLog = bidLog;
+            this.bids = bids;
+        }
+
+    }
+
+    private final class RecordOutput {
+
+        private final JsonGenerator generator;
+        private long written;
+
+        private RecordOutput(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        private void write(ImportRecord record) throws IOException {
+            recordWriter.writeValue(generator, record);
+            if (++written % FLUSH_EVERY == 0)
+                generator.flush();
+        }
+
+        // The bids are written from a consumer which can not throw an IOException
+        private void writeUnchecked(ImportRecord record) {
+            try {
+                write(record);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,432 @@
+package tv.spideo.test.service.bulk;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.zalando.problem.AbstractThrowableProblem;
+import tv.spideo.test.config.AuctionProperties;
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
+import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.domain.BidLog;
+import tv.spideo.test.domain.ImportRecord;
+import tv.spideo.test.domain.ImportReport;
+import tv.spideo.test.repository.AuctionHouseRepository;
+import tv.spideo.test.service.AuctionHouseService;
+import tv.spideo.test.web.exception.AuctionAlreadyExistException;
+import tv.spideo.test.web.exception.AuctionHouseAlreadyExistException;
+import tv.spideo.test.web.exception.AuctionHouseNotFoundException;
+import tv.spideo.test.web.exception.AuctionNotFoundException;
+import tv.spideo.test.web.exception.InvalidImportRecordException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Import auction houses, auctions and historical bids from a stream of
+ * newline-delimited JSON, one {@link ImportRecord} per line. The records
+ * are read one by one with the streaming parser of Jackson by the caller
+ * thread, while worker threads apply them, so the memory used does not
+ * depend on the size of the stream. An auction and its bids are always
+ * applied by the same worker in the order of the stream, the bids of an
+ * auction are made durable together. The auction houses are applied by
+ * the caller thread before the records that follow them are read.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+@Component
+public class AuctionHouseImporter {
+
+    private static final Chunk END = new Chunk(0);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getCanonicalName());
+
+    private final AuctionHouseRepository auctionHouseRepository;
+    private final AuctionHouseService auctionHouseService;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader recordReader;
+    private final int workers;
+    private final int chunkSize;
+    private final int queueSize;
+    private final int maxRejections;
+    private final long progressInterval;
+
+    /**
+     * Create a new {@link AuctionHouseImporter} with the repository where
+     * the records are saved, the service that schedules the status changes
+     * of the imported auctions and the object mapper that reads them.
+     *
+     * @param auctionHouseRepository an instance of {@link AuctionHouseRepository}
+     * @param auctionHouseService an instance of {@link AuctionHouseService}
+     * @param properties the properties of the auction house
+     * @param objectMapper the object mapper that reads the records
+     */
+    @Autowired
+    public AuctionHouseImporter(AuctionHouseRepository auctionHouseRepository, AuctionHouseService auctionHouseService,
+                                AuctionProperties properties, ObjectMapper objectMapper) {
+        AuctionProperties.BulkImport bulkImport = properties.getBulkImport();
+        this.auctionHouseRepository = auctionHouseRepository;
+        this.auctionHouseService = auctionHouseService;
+        this.objectMapper = objectMapper;
+        this.recordReader = objectMapper.readerFor(ImportRecord.class);
+        this.workers = bulkImport.getWorkers() > 0
+                ? bulkImport.getWorkers() : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = bulkImport.getChunkSize();
+        this.queueSize = bulkImport.getQueueSize();
+        this.maxRejections = bulkImport.getMaxRejections();
+        this.progressInterval = bulkImport.getProgressInterval();
+    }
+
+    /**
+     * Import the records of a stream until its end. A record that can not
+     * be applied is rejected without stopping the import, a line that is
+     * not valid JSON stops it, the records before it stay imported.
+     *
+     * @param input the newline-delimited JSON records
+     * @return the report of the import once every record is applied
+     */
+    public ImportReport importFrom(InputStream input) {
+        Import actualImport = new Import();
+        actualImport.start();
+        boolean completed = false;
+        long line = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                line = parser.getTokenLocation().getLineNr();
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    actualImport.reject(line, InvalidImportRecordException::new);
+                } else {
+                    read(parser, line, actualImport);
+                }
+                if (++actualImport.records % progressInterval == 0)
+                    logger.info("Bulk import read {} records ({} records/s)", actualImport.records,
+                            actualImport.recordsPerSecond());
+            }
+            completed = true;
+        } catch (JsonParseException exception) {
+            long invalidLine = exception.getLocation() != null ? exception.getLocation().getLineNr() : line;
+            actualImport.reject(invalidLine, () -> new InvalidImportRecordException(exception.getOriginalMessage()));
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            actualImport.finish();
+        }
+        ImportReport report = actualImport.report(completed);
+        logger.info("Bulk import of {} records done in {} ms ({} records/s), {} rejected",
+                report.getRecords(), report.getDurationMillis(), report.getRecordsPerSecond(), report.getRejected());
+        return report;
+    }
+
+    // Read a record, a record with a value of the wrong type is skipped until the end of its line
+    private void read(JsonParser parser, long line, Import actualImport) throws IOException {
+        ImportRecord record;
+        try {
+            record = recordReader.readValue(parser);
+        } catch (JsonParseException exception) {
+            throw exception;
+        } catch (JsonProcessingException exception) {
+            while (!parser.getParsingContext().inRoot() && parser.nextToken() != null) {
+                // Skip the rest of the record
+            }
+            actualImport.reject(line, () -> new InvalidImportRecordException(exception.getOriginalMessage()));
+            return;
+        }
+        if (record.getAuctionHouse() != null) {
+            importAuctionHouse(line, record.getAuctionHouse(), actualImport);
+        } else if (record.getAuction() != null) {
+            Auction auction = record.getAuction();
+            if (auction.getId() == null)
+                auction.setId(auctionHouseRepository.generateId());
+            actualImport.dispatch(auction.getId(), line, record);
+        } else if (record.getBid() != null && record.getAuctionId() != null) {
+            actualImport.dispatch(record.getAuctionId(), line, record);
+        } else if (record.getBid() != null) {
+            actualImport.reject(line, AuctionNotFoundException::new);
+        } else {
+            actualImport.reject(line, InvalidImportRecordException::new);
+        }
+    }
+
+    // The auctions that follow an auction house may belong to it, so it is saved before they are read
+    private void importAuctionHouse(long line, AuctionHouse auctionHouse, Import actualImport) {
+        if (auctionHouse.getName() == null) {
+            actualImport.reject(line, InvalidImportRecordException::new);
+            return;
+        }
+        if (auctionHouse.getId() != null && auctionHouseRepository.findAuctionHouseById(auctionHouse.getId()).isPresent()) {
+            actualImport.reject(line, AuctionHouseAlreadyExistException::new);
+            return;
+        }
+        auctionHouse.indexAuctions();
+        if (auctionHouseRepository.saveAuctionHouse(auctionHouse).isPresent()) {
+            actualImport.auctionHouses.increment();
+            actualImport.auctions.add(auctionHouse.getAuctions().size());
+            auctionHouse.getAuctions().values()
+                    .forEach((auction) -> auctionHouseService.scheduleStatusChange(auctionHouse.getId(), auction));
+        } else {
+            actualImport.reject(line, AuctionHouseAlreadyExistException::new);
+        }
+    }
+
+    /**
+     * The state of one import, its workers only live as long as it.
+     */
+    private final class Import {
+
+        private final long startTime = System.nanoTime();
+        // Only counted by the caller thread
+        private long records;
+        private final LongAdder auctionHouses = new LongAdder();
+        private final LongAdder auctions = new LongAdder();
+        private final LongAdder bids = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final ConcurrentLinkedQueue<ImportReport.Rejection> rejections = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger detailedRejections = new AtomicInteger();
+
+        // The chunk being filled and the queue of every worker
+        private final Chunk[] chunks = new Chunk[workers];
+        private final List<BlockingQueue<Chunk>> queues = new ArrayList<>(workers);
+        private final List<Thread> threads = new ArrayList<>(workers);
+        private volatile RuntimeException failure;
+
+        private void start() {
+            for (int worker = 0; worker < workers; worker++) {
+                BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queueSize);
+                Thread thread = new Thread(() -> apply(queue), "auction-import-" + worker);
+                thread.setDaemon(true);
+                chunks[worker] = new Chunk(chunkSize);
+                queues.add(queue);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        private void dispatch(String auctionId, long line, ImportRecord record) {
+            if (failure != null)
+                throw failure;
+            int worker = (auctionId.hashCode() & Integer.MAX_VALUE) % workers;
+            Chunk chunk = chunks[worker];
+            chunk.add(line, record);
+            if (chunk.isFull()) {
+                put(worker, chunk);
+                chunks[worker] = new Chunk(chunkSize);
+            }
+        }
+
+        // Hand the last chunks to the workers and wait until they are applied
+        private void finish() {
+            for (int worker = 0; worker < workers; worker++) {
+                if (chunks[worker].size > 0)
+                    put(worker, chunks[worker]);
+                put(worker, END);
+            }
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("The bulk import was interrupted", exception);
+                }
+            }
+            if (failure != null)
+                throw failure;
+        }
+
+        private void put(int worker, Chunk chunk) {
+            try {
+                queues.get(worker).put(chunk);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("The bulk import was interrupted", exception);
+            }
+        }
+
+        private void apply(BlockingQueue<Chunk> queue) {
+            ChunkWriter writer = new ChunkWriter(this);
+            try {
+                Chunk chunk;
+                while ((chunk = queue.take()) != END) {
+                    // The chunks are still taken after a failure, so the parser is never blocked
+                    if (failure == null)
+                        writer.write(chunk);
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException exception) {
+                failure = exception;
+                queue.clear();
+            }
+        }
+
+        private void reject(long line, Supplier<AbstractThrowableProblem> problem) {
+            rejected.increment();
+            // The problem is only created for the rejections that are detailed
+            if (detailedRejections.getAndIncrement() < maxRejections) {
+                AbstractThrowableProblem actualProblem = problem.get();
+                rejections.add(new ImportReport.Rejection(line, String.valueOf(actualProblem.getType()),
+                        actualProblem.getTitle(), actualProblem.getDetail()));
+            }
+        }
+
+        private long recordsPerSecond() {
+            long elapsedNanos = Math.max(System.nanoTime() - startTime, 1L);
+            return records * 1_000_000_000L / elapsedNanos;
+        }
+
+        private ImportReport report(boolean completed) {
+            List<ImportReport.Rejection> sortedRejections = new ArrayList<>(rejections);
+            sortedRejections.sort((first, second) -> Long.compare(first.getLine(), second.getLine()));
+            return new ImportReport(completed, records, auctionHouses.sum(), auctions.sum(), bids.sum(),
+                    rejected.sum(), (System.nanoTime() - startTime) / 1_000_000L, recordsPerSecond(), sortedRejections);
+        }
+
+    }
+
+    /**
+     * Apply the chunks of a worker. The bids that follow each other
+     * on the same auction are saved together.
+     */
+    private final class ChunkWriter {
+
+        private final Import actualImport;
+        private final List<AuctionBidder> pendingBids = new ArrayList<>();
+        // The auctions rejected as their id exists, an auction is always written by the same worker
+        private final Set<String> duplicatedAuctionIds = new HashSet<>();
+        private AuctionHouse auctionHouse;
+        private Auction auction;
+
+        private ChunkWriter(Import actualImport) {
+            this.actualImport = actualImport;
+        }
+
+        private void write(Chunk chunk) {
+            for (int idx = 0; idx < chunk.size; idx++) {
+                ImportRecord record = chunk.records[idx];
+                try {
+                    if (record.getAuction() != null) {
+                        writeAuction(record);
+                    } else {
+                        writeBid(record);
+                    }
+                } catch (AbstractThrowableProblem problem) {
+                    actualImport.reject(chunk.lines[idx], () -> problem);
+                }
+            }
+            flush();
+        }
+
+        private void writeAuction(ImportRecord record) {
+            flush();
+            AuctionHouse savedAuctionHouse = findAuctionHouse(record.getAuctionHouseId());
+            Auction newAuction = record.getAuction();
+            newAuction.setCurrentPriceIfZero();
+            auction = null;
+            // An existing auction is never replaced, nor its bid log opened again
+            auction = auctionHouseRepository.withAuctionLock(newAuction.getId(), () -> {
+                if (savedAuctionHouse.getAuctions().containsKey(newAuction.getId())) {
+                    duplicatedAuctionIds.add(newAuction.getId());
+                    throw new AuctionAlreadyExistException();
+                }
+                return auctionHouseRepository.saveAuction(savedAuctionHouse, newAuction)
+                        .orElseThrow(AuctionHouseNotFoundException::new);
+            });
+            auctionHouseService.scheduleStatusChange(savedAuctionHouse.getId(), auction);
+            actualImport.auctions.increment();
+        }
+
+        private void writeBid(ImportRecord record) {
+            // The bids of a rejected auction must not be added to the existing one
+            if (duplicatedAuctionIds.contains(record.getAuctionId()))
+                throw new AuctionAlreadyExistException();
+            if (auction == null || auctionHouse == null || !auction.getId().equals(record.getAuctionId())
+                    || !auctionHouse.getId().equals(record.getAuctionHouseId())) {
+                flush();
+                auction = null;
+                auction = Optional.ofNullable(findAuctionHouse(record.getAuctionHouseId())
+                        .getAuctions().get(record.getAuctionId()))
+                        .orElseThrow(AuctionNotFoundException::new);
+            }
+            AuctionBidder bidder = record.getBid();
+            if (!Double.isFinite(bidder.getPrice()))
+                throw new InvalidImportRecordException("The price of the bid is not a finite number");
+            if (bidder.getBiddingTime() == null)
+                throw new InvalidImportRecordException("The bid has no bidding time");
+            if (bidder.getId() == null) {
+                bidder.setId(auctionHouseRepository.generateId());
+            } else if (!BidLog.isValidId(bidder.getId())) {
+                // The bid logs only keep the ids of the bids as UUIDs or compact ids
+                throw new InvalidImportRecordException("The id of the bid is not a UUID nor a compact id");
+            }
+            // The bid was accepted by the old platform, its price is not checked again
+            auctionHouseRepository.checkWritable();
+            auction.restoreBid(bidder);
+            pendingBids.add(bidder);
+        }
+
+        private AuctionHouse findAuctionHouse(String auctionHouseId) {
+            if (auctionHouse == null || !auctionHouse.getId().equals(auctionHouseId)) {
+                auctionHouse = null;
+                auctionHouse = auctionHouseRepository.findAuctionHouseById(auctionHouseId == null ? "" : auctionHouseId)
+                        .orElseThrow(AuctionHouseNotFoundException::new);
+            }
+            return auctionHouse;
+        }
+
+        private void flush() {
+            if (!pendingBids.isEmpty()) {
+                auctionHouseRepository.saveBids(auctionHouse, auction, pendingBids);
+                actualImport.bids.add(pendingBids.size());
+                pendingBids.clear();
+            }
+        }
+
+    }
+
+    /**
+     * The records handed to a worker at once, with their line in the stream.
+     */
+    private static final class Chunk {
+
+        private final long[] lines;
+        private final ImportRecord[] records;
+        private int size;
+
+        private Chunk(int capacity) {
+            this.lines = new long[capacity];
+            this.records = new ImportRecord[capacity];
+        }
+
+        private void add(long line, ImportRecord record) {
+            lines[size] = line;
+            records[size++] = record;
+        }
+
+        private boolean isFull() {
+            return size == records.length;
+        }
+
+    }
+
+}
@@ -0,0 +1,324 @@
+package tv.spideo.test.service.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import tv.spideo.test.config.AuctionProperties;
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
+import tv.spideo.test.domain.AuctionStatusEvent;
+import tv.spideo.test.web.exception.AuctionFinishedException;
+import tv.spideo.test.web.exception.AuctionNotFoundException;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Push the accepted bids, the status changes and the winner of an
+ * auction to its subscribers as Server-Sent Events. An event is only
+ * serialized if the auction has a channel, i.e. it was subscribed,
+ * and the same frame is sent to all the subscribers, so a subscriber
+ * costs neither a thread nor a copy of the events. A single dispatcher
+ * thread schedules the subscribers with frames to receive on a pool of
+ * senders, as a send blocks until the client reads it, and disconnects
+ * the ones blocked for longer than the send timeout. The requests
+ * waiting for the next bid of an auction are completed by the
+ * dispatcher, with the last bid accepted when it runs.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+@Component
+public class AuctionEventBroadcaster {
+
+    public static final String BID_EVENT = "bid";
+    public static final String STATUS_EVENT = "status";
+    public static final String WINNER_EVENT = "winner";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getCanonicalName());
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final long heartbeatIntervalNanos;
+    private final long sendTimeoutNanos;
+    private final ExecutorService senders;
+
+    private final ConcurrentHashMap<String, AuctionEventChannel> channels = new ConcurrentHashMap<>();
+    // The channels with frames to send, in the order they were published
+    private final ConcurrentLinkedQueue<AuctionEventChannel> scheduledChannels = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<String, BidWaiters> bidWaiters = new ConcurrentHashMap<>();
+    // The waiters with a bid to receive
+    private final ConcurrentLinkedQueue<BidWaiters> scheduledWaiters = new ConcurrentLinkedQueue<>();
+    private volatile Thread dispatcher;
+    private volatile boolean running = true;
+
+    /**
+     * Create a new {@link AuctionEventBroadcaster}, the dispatcher thread
+     * is started with the first subscriber.
+     *
+     * @param properties the properties of the auction house
+     * @param objectMapper the object mapper that serializes the events
+     */
+    @Autowired
+    public AuctionEventBroadcaster(AuctionProperties properties, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = properties.getEvents().getBufferSize();
+        this.heartbeatIntervalNanos = properties.getEvents().getHeartbeatInterval().toNanos();
+        this.sendTimeoutNanos = properties.getEvents().getSendTimeout().toNanos();
+        AtomicInteger senderIndex = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(properties.getEvents().getSenders(), (runnable) -> {
+            Thread thread = new Thread(runnable, "auction-events-sender-" + senderIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Subscribe to the events of an auction. If the auction is finished
+     * the subscriber gets its last status and winner and is completed.
+     *
+     * @param auction the auction to follow
+     * @param lastEventId the id of the last event received before a reconnection, or null
+     * @return the response that streams the events
+     */
+    public ResponseBodyEmitter subscribe(Auction auction, Long lastEventId) {
+        // The stream stays open until the auction is finished or the client leaves
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(0L);
+        if (auction.getStatus() != Auction.AuctionStatus.TERMINATED) {
+            if (lastEventId == null)
+                send(emitter, AuctionEventChannel.frame(-1, STATUS_EVENT, serialize(toStatusEvent(auction))));
+            // The bids accepted from now on are published
+            channels.computeIfAbsent(auction.getId(),
+                    (id) -> new AuctionEventChannel(id, bufferSize, senders, auction.getBidLog().size()))
+                    .subscribe(emitter, lastEventId);
+            startDispatcher();
+        }
+        // The auction may have been finished while the subscriber was added
+        if (auction.getStatus() == Auction.AuctionStatus.TERMINATED) {
+            send(emitter, AuctionEventChannel.frame(-1, STATUS_EVENT, serialize(toStatusEvent(auction))));
+            if (auction.getLeader() != null)
+                send(emitter, AuctionEventChannel.frame(-1, WINNER_EVENT, serialize(auction.getLeader().getBidder())));
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    /**
+     * Publish an accepted bid to the subscribers of its auction, after the
+     * bids accepted before it, so they are received in the order of the
+     * history even if the bids were saved in another order.
+     */
+    public void publishBid(Auction auction, AuctionBidder bidder) {
+        AuctionEventChannel channel = channels.get(auction.getId());
+        if (channel != null && channel.publishBids(auction.getBidLog(), bidder.getPosition(), this::serialize)) {
+            schedule(channel);
+        }
+        BidWaiters waiters = bidWaiters.get(auction.getId());
+        if (waiters != null && !waiters.futures.isEmpty()) {
+            waiters.offer(bidder);
+            schedule(waiters);
+        }
+    }
+
+    /**
+     * Wait for the next bid accepted by an auction. The result is
+     * completed with an {@link AuctionFinishedException} once the
+     * auction is finished, or an {@link AuctionNotFoundException} if
+     * it is deleted. A waiter that is not needed anymore is cancelled.
+     *
+     * @param auctionId the id of the auction
+     * @return the next accepted bid
+     */
+    public CompletableFuture<AuctionBidder> nextBid(String auctionId) {
+        CompletableFuture<AuctionBidder> nextBid = new CompletableFuture<>();
+        // Added under the lock of the entry, so it is either released with it or kept in a new one
+        bidWaiters.compute(auctionId, (id, waiters) -> {
+            BidWaiters actualWaiters = waiters != null ? waiters : new BidWaiters();
+            actualWaiters.futures.add(nextBid);
+            return actualWaiters;
+        });
+        nextBid.whenComplete((bidder, error) -> removeWaiter(auctionId, nextBid));
+        startDispatcher();
+        return nextBid;
+    }
+
+    /**
+     * Publish the new status of an auction, once it is finished its
+     * winner is published and its subscribers are completed.
+     */
+    public void publishStatus(Auction auction) {
+        if (auction.getStatus() == Auction.AuctionStatus.TERMINATED)
+            release(auction.getId(), new AuctionFinishedException());
+        AuctionEventChannel channel = channels.get(auction.getId());
+        if (channel == null)
+            return;
+        channel.publish(STATUS_EVENT, serialize(toStatusEvent(auction)));
+        if (auction.getStatus() == Auction.AuctionStatus.TERMINATED) {
+            if (auction.getLeader() != null)
+                channel.publish(WINNER_EVENT, serialize(auction.getLeader().getBidder()));
+            close(channel);
+        }
+        schedule(channel);
+    }
+
+    /**
+     * Tell the subscribers of a deleted auction that it was deleted and complete them.
+     */
+    public void publishDeleted(String auctionId) {
+        release(auctionId, new AuctionNotFoundException());
+        AuctionEventChannel channel = channels.get(auctionId);
+        if (channel == null)
+            return;
+        channel.publish(STATUS_EVENT, serialize(new AuctionStatusEvent(auctionId, Auction.AuctionStatus.DELETED, 0)));
+        close(channel);
+        schedule(channel);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread actualDispatcher = dispatcher;
+        if (actualDispatcher != null) {
+            LockSupport.unpark(actualDispatcher);
+            actualDispatcher.join();
+        }
+        senders.shutdownNow();
+        // The open streams are closed with the connections of the server
+    }
+
+    private void close(AuctionEventChannel channel) {
+        channel.close();
+        channels.remove(channel.getAuctionId(), channel);
+    }
+
+    // No bid will come anymore, the waiters are completed by the publishing thread as it is rare
+    private void release(String auctionId, RuntimeException cause) {
+        // No waiter can be added to the entry once it is removed
+        BidWaiters waiters = bidWaiters.remove(auctionId);
+        if (waiters != null)
+            waiters.futures.forEach((nextBid) -> nextBid.completeExceptionally(cause));
+    }
+
+    // The entry of an auction is removed with its last waiter
+    private void removeWaiter(String auctionId, CompletableFuture<AuctionBidder> nextBid) {
+        bidWaiters.computeIfPresent(auctionId, (id, waiters) -> {
+            waiters.futures.remove(nextBid);
+            return waiters.futures.isEmpty() ? null : waiters;
+        });
+    }
+
+    private void schedule(AuctionEventChannel channel) {
+        if (channel.scheduled.compareAndSet(false, true)) {
+            scheduledChannels.offer(channel);
+            wakeUpDispatcher();
+        }
+    }
+
+    private void schedule(BidWaiters waiters) {
+        if (waiters.scheduled.compareAndSet(false, true)) {
+            scheduledWaiters.offer(waiters);
+            wakeUpDispatcher();
+        }
+    }
+
+    private void wakeUpDispatcher() {
+        Thread actualDispatcher = dispatcher;
+        if (actualDispatcher != null)
+            LockSupport.unpark(actualDispatcher);
+    }
+
+    private synchronized void startDispatcher() {
+        if (dispatcher == null && running) {
+            Thread thread = new Thread(this::dispatch, "auction-events");
+            thread.setDaemon(true);
+            dispatcher = thread;
+            thread.start();
+            logger.info("Auction events are dispatched with buffers of {} events", bufferSize);
+        }
+    }
+
+    private void dispatch() {
+        long nextHeartbeat = System.nanoTime() + heartbeatIntervalNanos;
+        // A stalled send is detected within half of the timeout
+        long checkIntervalNanos = Math.max(sendTimeoutNanos / 2, TimeUnit.MILLISECONDS.toNanos(1));
+        long nextCheck = System.nanoTime() + checkIntervalNanos;
+        while (running) {
+            AuctionEventChannel channel;
+            while ((channel = scheduledChannels.poll()) != null) {
+                // Cleared first, so the events published meanwhile schedule the channel again
+                channel.scheduled.set(false);
+                channel.dispatch();
+            }
+            BidWaiters waiters;
+            while ((waiters = scheduledWaiters.poll()) != null) {
+                waiters.scheduled.set(false);
+                AuctionBidder lastBid = waiters.lastBid;
+                // A completed waiter removes itself from the set
+                waiters.futures.forEach((nextBid) -> nextBid.complete(lastBid));
+            }
+            long now = System.nanoTime();
+            if (now - nextHeartbeat >= 0) {
+                channels.values().forEach(AuctionEventChannel::sendHeartbeat);
+                nextHeartbeat = now + heartbeatIntervalNanos;
+            }
+            if (now - nextCheck >= 0) {
+                channels.values().forEach((subscribedChannel) -> subscribedChannel.evictStalled(now, sendTimeoutNanos));
+                nextCheck = now + checkIntervalNanos;
+            }
+            if (scheduledChannels.isEmpty() && scheduledWaiters.isEmpty())
+                LockSupport.parkNanos(this, Math.max(Math.min(nextHeartbeat, nextCheck) - System.nanoTime(), 0L));
+        }
+    }
+
+    private static AuctionStatusEvent toStatusEvent(Auction auction) {
+        return new AuctionStatusEvent(auction.getId(), auction.getStatus(), auction.getCurrentPrice());
+    }
+
+    private byte[] serialize(Object event) {
+        try {
+            return objectMapper.writeValueAsBytes(event);
+        } catch (JsonProcessingException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static void send(ResponseBodyEmitter emitter, byte[] frame) {
+        try {
+            emitter.send(frame, MediaType.TEXT_EVENT_STREAM);
+        } catch (IOException exception) {
+            emitter.completeWithError(exception);
+        }
+    }
+
+    // The requests waiting for the next bid of an auction
+    private static final class BidWaiters {
+
+        private final Set<CompletableFuture<AuctionBidder>> futures = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile AuctionBidder lastBid;
+
+        // A bid saved after a later one does not replace it
+        private synchronized void offer(AuctionBidder bidder) {
+            if (lastBid == null || lastBid.getPosition() < bidder.getPosition())
+                lastBid = bidder;
+        }
+
+    }
+
+}
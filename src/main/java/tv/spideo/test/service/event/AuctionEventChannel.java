@@ -0,0 +1,263 @@
+package tv.spideo.test.service.event;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import tv.spideo.test.domain.AuctionBidder;
+import tv.spideo.test.domain.BidLog;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * The events of one auction and its subscribers. The events are
+ * serialized once into Server-Sent Events frames and kept in a ring
+ * shared by all the subscribers, every subscriber only keeps the
+ * sequence of the next frame it has to receive.
+ * Publishing is synchronized and the bids are published in the order
+ * of the history of the auction, every subscriber sends its own frames
+ * on the senders of the {@link AuctionEventBroadcaster}, one at a time,
+ * so a slow client only delays itself.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+final class AuctionEventChannel {
+
+    private static final MediaType EVENT_STREAM = MediaType.TEXT_EVENT_STREAM;
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final String auctionId;
+    private final Executor senders;
+    private final byte[][] frames;
+    private final int mask;
+    // The sequence of the next frame, the frames before it are published
+    private volatile long published;
+    private volatile boolean closed;
+    // The position in the history of the next bid to publish
+    private int nextBid;
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    // Set while the channel waits for the dispatcher, so it is queued once
+    final AtomicBoolean scheduled = new AtomicBoolean();
+
+    AuctionEventChannel(String auctionId, int bufferSize, Executor senders, int nextBid) {
+        if (Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("The buffer size of the events must be a power of two");
+        }
+        this.auctionId = auctionId;
+        this.senders = senders;
+        this.frames = new byte[bufferSize][];
+        this.mask = bufferSize - 1;
+        this.nextBid = nextBid;
+    }
+
+    String getAuctionId() {
+        return auctionId;
+    }
+
+    /**
+     * Publish an event, its sequence is its id in the stream.
+     *
+     * @param event the name of the event
+     * @param data the serialized event, on a single line
+     */
+    synchronized void publish(String event, byte[] data) {
+        long sequence = published;
+        frames[(int) (sequence & mask)] = frame(sequence, event, data);
+        published = sequence + 1;
+    }
+
+    /**
+     * Publish the bids of the history up to the given position, the ones
+     * before it that are not published yet first. The threads that accepted
+     * the bids may publish them in any order, the subscribers still receive
+     * them in the order of the history, and a bid that is never published
+     * by its own thread is published by the next one. The bids are only
+     * serialized if the channel has subscribers.
+     *
+     * @param bidLog the history of the auction
+     * @param position the position of the accepted bid in the history
+     * @param serializer the serializer of the bids, on a single line
+     * @return true if a bid was published
+     */
+    synchronized boolean publishBids(BidLog bidLog, int position, Function<AuctionBidder, byte[]> serializer) {
+        if (position < nextBid)
+            return false;
+        // The older bids would be overwritten in the ring anyway
+        int from = Math.max(nextBid, position + 1 - frames.length);
+        nextBid = position + 1;
+        if (subscribers.isEmpty())
+            return false;
+        for (int idx = from; idx <= position; idx++) {
+            publish(AuctionEventBroadcaster.BID_EVENT, serializer.apply(bidLog.get(idx)));
+        }
+        return true;
+    }
+
+    /**
+     * Add a subscriber that receives the events after the last one it
+     * received, or only the next ones. It is disconnected if the events
+     * it missed are not in the ring anymore.
+     *
+     * @param emitter the response of the subscriber
+     * @param lastEventId the id of the last event received before a reconnection, or null
+     */
+    void subscribe(ResponseBodyEmitter emitter, Long lastEventId) {
+        Subscriber subscriber = new Subscriber(emitter);
+        subscriber.next = lastEventId == null ? published : Math.min(lastEventId + 1, published);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onError((error) -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * No event is published anymore, the subscribers are completed
+     * once they received the events that were already published.
+     */
+    void close() {
+        closed = true;
+    }
+
+    /**
+     * Schedule the subscribers that did not receive every frame yet.
+     */
+    void dispatch() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.schedule();
+        }
+    }
+
+    /**
+     * Send a comment to every subscriber, a connection that was closed
+     * by the client fails and is removed.
+     */
+    void sendHeartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeat = true;
+            subscriber.schedule();
+        }
+    }
+
+    /**
+     * Disconnect the subscribers blocked by a single send for longer than
+     * the timeout. The emitter is not touched here as it is locked by the
+     * blocked send, the sender is interrupted and completes it itself.
+     */
+    void evictStalled(long now, long sendTimeoutNanos) {
+        for (Subscriber subscriber : subscribers) {
+            synchronized (subscriber) {
+                if (subscriber.sender != null && now - subscriber.sendStart > sendTimeoutNanos) {
+                    subscribers.remove(subscriber);
+                    subscriber.failure = new IOException("The subscriber of " + auctionId + " is too slow");
+                    subscriber.sender.interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Build a frame of the event stream, the id is omitted if it is negative.
+     */
+    static byte[] frame(long id, String event, byte[] data) {
+        byte[] header = ((id >= 0 ? "id: " + id + "\n" : "") + "event: " + event + "\ndata: ")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] frame = new byte[header.length + data.length + 2];
+        System.arraycopy(header, 0, frame, 0, header.length);
+        System.arraycopy(data, 0, frame, header.length, data.length);
+        frame[frame.length - 2] = '\n';
+        frame[frame.length - 1] = '\n';
+        return frame;
+    }
+
+    private final class Subscriber implements Runnable {
+
+        private final ResponseBodyEmitter emitter;
+        // Set while the subscriber is queued or sending, so only one sender runs it
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // Only used by the sender once the subscriber is added
+        private long next;
+        private volatile boolean heartbeat;
+        private volatile boolean done;
+        // Set when the subscriber is evicted, the sender completes the emitter with it
+        private volatile IOException failure;
+        // The thread blocked in a send and when it started, guarded by the subscriber
+        private Thread sender;
+        private long sendStart;
+
+        private Subscriber(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void schedule() {
+            if (!done && scheduled.compareAndSet(false, true))
+                senders.execute(this);
+        }
+
+        @Override
+        public void run() {
+            do {
+                send();
+                scheduled.set(false);
+            } while (!done && hasFramesToSend() && scheduled.compareAndSet(false, true));
+        }
+
+        private boolean hasFramesToSend() {
+            return next < published || heartbeat || closed;
+        }
+
+        private void send() {
+            if (done)
+                return;
+            long end = published;
+            boolean completed = closed;
+            try {
+                for (long sequence = next; sequence < end; sequence++) {
+                    byte[] frame = frames[(int) (sequence & mask)];
+                    // The frame may have been replaced meanwhile if the subscriber is too slow
+                    if (end - sequence > frames.length || published - sequence > frames.length) {
+                        throw new IOException("The subscriber of " + auctionId + " is too slow");
+                    }
+                    send(frame);
+                    next = sequence + 1;
+                }
+                if (heartbeat) {
+                    heartbeat = false;
+                    send(HEARTBEAT);
+                }
+                if (completed) {
+                    done = true;
+                    subscribers.remove(this);
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException exception) {
+                done = true;
+                subscribers.remove(this);
+                emitter.completeWithError(failure != null ? failure : exception);
+            }
+        }
+
+        private void send(byte[] frame) throws IOException {
+            synchronized (this) {
+                sender = Thread.currentThread();
+                sendStart = System.nanoTime();
+            }
+            try {
+                emitter.send(frame, EVENT_STREAM);
+            } finally {
+                synchronized (this) {
+                    sender = null;
+                }
+                // The interruption of an eviction is only meant for this send
+                Thread.interrupted();
+            }
+            if (failure != null)
+                throw failure;
+        }
+
+    }
+
+}
@@ -0,0 +1,259 @@
+package tv.spideo.test.service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.repository.AuctionHouseRepository;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The metrics of the auction houses, exposed by the actuator:
+ * <ul>
+ *     <li>auction.operations: a timer of every operation of the service, by method and exception</li>
+ *     <li>auction.bids.rejected: the rejected bids by cause</li>
+ *     <li>auction.bids.per.auction: the number of bids of the auctions once they are finished</li>
+ *     <li>auction.houses, auction.auctions (by status) and auction.bids: the stored data</li>
+ * </ul>
+ * The meters of the successful operations are created once, the bid
+ * path only reads the clock twice and updates its timer. The stored
+ * data is only counted when the gauges are read.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+@Component
+public class AuctionMetrics {
+
+    private static final String NO_EXCEPTION = "None";
+
+    private final MeterRegistry meterRegistry;
+    private final OperationTimers[] operations = new OperationTimers[Operation.values().length];
+    private final ConcurrentHashMap<Class<?>, Counter> rejections = new ConcurrentHashMap<>();
+    private final DistributionSummary bidsPerAuction;
+
+    /**
+     * Create a new {@link AuctionMetrics} which registers its meters
+     * in the registry of the application.
+     *
+     * @param meterRegistry the registry of the meters
+     * @param auctionHouseRepository the repository whose data is measured by the gauges
+     */
+    @Autowired
+    public AuctionMetrics(MeterRegistry meterRegistry, AuctionHouseRepository auctionHouseRepository) {
+        this.meterRegistry = meterRegistry;
+        for (Operation operation : Operation.values()) {
+            operations[operation.ordinal()] = new OperationTimers(operation);
+        }
+        this.bidsPerAuction = DistributionSummary.builder("auction.bids.per.auction")
+                .description("The number of bids of the auctions once they are finished")
+                .baseUnit("bids")
+                .register(meterRegistry);
+        Gauge.builder("auction.houses", auctionHouseRepository, (repository) -> repository.findAllAuctionHouses().size())
+                .description("The number of auction houses")
+                .register(meterRegistry);
+        for (Auction.AuctionStatus status : Auction.AuctionStatus.values()) {
+            Gauge.builder("auction.auctions", auctionHouseRepository, (repository) -> countAuctions(repository, status))
+                    .description("The number of auctions by status")
+                    .tag("status", status.name())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("auction.bids", auctionHouseRepository, AuctionMetrics::countBids)
+                .description("The number of bids stored in all the auctions")
+                .baseUnit("bids")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Create a new {@link AuctionMetrics} whose meters do nothing, e.g.
+     * when the service is not created by Spring.
+     *
+     * @param auctionHouseRepository the repository of the service
+     * @return the metrics that are not exposed
+     */
+    public static AuctionMetrics disabled(AuctionHouseRepository auctionHouseRepository) {
+        // A composite registry without registries gives meters that do nothing
+        return new AuctionMetrics(new CompositeMeterRegistry(), auctionHouseRepository);
+    }
+
+    /**
+     * Run an operation of the service and record its duration, by the
+     * class of its exception if it failed. A rejected bid is also
+     * counted by the class of its exception.
+     *
+     * @param operation the operation of the service
+     * @param action the body of the operation
+     * @return the result of the operation
+     */
+    public <T> T record(Operation operation, Supplier<T> action) {
+        long start = System.nanoTime();
+        OperationTimers timers = operations[operation.ordinal()];
+        try {
+            T result = action.get();
+            timers.succeeded.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (RuntimeException exception) {
+            timers.failed(exception).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (operation == Operation.BID_ON_AUCTION)
+                bidRejected(exception);
+            throw exception;
+        }
+    }
+
+    /**
+     * Measure an operation that is completed later, its duration is
+     * recorded once its result is completed, with its exception if
+     * it failed.
+     *
+     * @param operation the measured operation
+     * @param action the operation, it starts when it is called
+     * @return the result of the operation
+     */
+    public <T> CompletableFuture<T> recordAsync(Operation operation, Supplier<CompletableFuture<T>> action) {
+        long start = System.nanoTime();
+        OperationTimers timers = operations[operation.ordinal()];
+        CompletableFuture<T> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException exception) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(exception);
+        }
+        return result.whenComplete((value, error) -> {
+            if (error == null) {
+                timers.succeeded.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            RuntimeException exception = cause instanceof RuntimeException
+                    ? (RuntimeException) cause : new CompletionException(cause);
+            timers.failed(exception).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (operation == Operation.BID_ON_AUCTION)
+                bidRejected(exception);
+        });
+    }
+
+    /**
+     * Count a bid that was rejected.
+     *
+     * @param cause the exception of the rejection
+     */
+    public void bidRejected(RuntimeException cause) {
+        Counter counter = rejections.get(cause.getClass());
+        if (counter == null) {
+            counter = rejections.computeIfAbsent(cause.getClass(), (causeClass) -> Counter.builder("auction.bids.rejected")
+                    .description("The number of rejected bids by cause")
+                    .tag("cause", causeClass.getSimpleName())
+                    .register(meterRegistry));
+        }
+        counter.increment();
+    }
+
+    /**
+     * Record the number of bids of an auction that is finished.
+     *
+     * @param auction the finished auction
+     */
+    public void auctionFinished(Auction auction) {
+        bidsPerAuction.record(auction.getBidLog().size());
+    }
+
+    private static long countAuctions(AuctionHouseRepository repository, Auction.AuctionStatus status) {
+        long auctions = 0;
+        for (AuctionHouse auctionHouse : repository.findAllAuctionHouses()) {
+            auctions += auctionHouse.countAuctionsByStatus(status);
+        }
+        return auctions;
+    }
+
+    private static long countBids(AuctionHouseRepository repository) {
+        long bids = 0;
+        for (AuctionHouse auctionHouse : repository.findAllAuctionHouses()) {
+            for (Auction auction : auctionHouse.getAuctions().values()) {
+                bids += auction.getBidLog().size();
+            }
+        }
+        return bids;
+    }
+
+    /**
+     * The operations of the service, the name is the tag of their timer.
+     */
+    public enum Operation {
+        CREATE_AUCTION_HOUSE("createAuctionHouse"),
+        GET_ALL_AUCTION_HOUSES("getAllAuctionHouses"),
+        GET_AUCTION_HOUSES_BY_CREATOR_ID("getAuctionHousesByCreatorId"),
+        GET_AUCTION_HOUSE_SUMMARIES("getAuctionHouseSummaries"),
+        GET_AUCTION_HOUSE_SUMMARIES_BY_CREATOR_ID("getAuctionHouseSummariesByCreatorId"),
+        DELETE_AUCTION_HOUSE("deleteAuctionHouse"),
+        DELETE_ALL_AUCTION_HOUSES("deleteAllAuctionHouse"),
+        CREATE_AUCTION("createAuction"),
+        GET_AUCTIONS_BY_AUCTION_HOUSE_ID("getAuctionsByAuctionHouseId"),
+        GET_AUCTIONS_PAGE_BY_AUCTION_HOUSE_ID("getAuctionsPageByAuctionHouseId"),
+        GET_AUCTION_SUMMARIES("getAuctionSummaries"),
+        STREAM_AUCTIONS_BY_AUCTION_HOUSE_ID("streamAuctionsByAuctionHouseId"),
+        DELETE_AUCTION("deleteAuction"),
+        GET_AUCTIONS_BY_STATUS("getAuctionsByStatus"),
+        COUNT_AUCTIONS_BY_STATUS("countAuctionsByStatus"),
+        UPDATE_AUCTION_STATUS("updateAuctionStatus"),
+        BID_ON_AUCTION("bidOnAuction"),
+        BID_ON_AUCTIONS("bidOnAuctions"),
+        GET_ALL_BIDDING("getAllBidding"),
+        GET_BIDDING_PAGE("getBiddingPage"),
+        STREAM_BIDDING("streamBidding"),
+        SUBSCRIBE_TO_AUCTION("subscribeToAuction"),
+        GET_AUCTION_WINNER("getAuctionWinner"),
+        GET_AUCTION_LEADER("getAuctionLeader"),
+        AWAIT_AUCTION_LEADER("awaitAuctionLeader");
+
+        private final String method;
+
+        Operation(String method) {
+            this.method = method;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+    }
+
+    private final class OperationTimers {
+
+        private final Operation operation;
+        private final Timer succeeded;
+        private final ConcurrentHashMap<Class<?>, Timer> failed = new ConcurrentHashMap<>();
+
+        private OperationTimers(Operation operation) {
+            this.operation = operation;
+            this.succeeded = timer(NO_EXCEPTION);
+        }
+
+        private Timer failed(RuntimeException exception) {
+            Timer timer = failed.get(exception.getClass());
+            return timer != null ? timer
+                    : failed.computeIfAbsent(exception.getClass(), (exceptionClass) -> timer(exceptionClass.getSimpleName()));
+        }
+
+        private Timer timer(String exception) {
+            return Timer.builder("auction.operations")
+                    .description("The duration of the operations of the auction houses")
+                    .tag("method", operation.getMethod())
+                    .tag("exception", exception)
+                    .register(meterRegistry);
+        }
+
+    }
+
+}
@@ -0,0 +1,181 @@
+package tv.spideo.test.service.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tv.spideo.test.config.AuctionProperties;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Run a task at the deadline of an auction, e.g. to start it or to
+ * finish it. There is at most one task per auction, scheduling another
+ * one cancels the previous one. The deadlines are kept in a
+ * {@link TimingWheel} by a single thread, the other threads hand it the
+ * scheduled and cancelled tasks through a queue, so scheduling and
+ * cancelling are constant time and never wait for the wheel. The due
+ * tasks run on worker threads, so a slow task does not delay the others.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+@Component
+public class AuctionScheduler {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getCanonicalName());
+
+    private final boolean enabled;
+    private final long tickMillis;
+    private final ConcurrentHashMap<String, Timeout> timeouts = new ConcurrentHashMap<>();
+    // The timeouts to add to the wheel or to remove from it
+    private final ConcurrentLinkedQueue<Timeout> commands = new ConcurrentLinkedQueue<>();
+    private final ExecutorService workers;
+    private final Thread ticker;
+    // The tick the ticker sleeps until, a deadline before it wakes the ticker up
+    private volatile long wakeUpTick;
+    private volatile boolean running = true;
+
+    /**
+     * Create a new {@link AuctionScheduler}, its threads are only started
+     * if the scheduler is enabled.
+     *
+     * @param properties the properties of the auction house
+     */
+    @Autowired
+    public AuctionScheduler(AuctionProperties properties) {
+        AuctionProperties.Scheduler scheduler = properties.getScheduler();
+        this.enabled = scheduler.isEnabled();
+        this.tickMillis = Math.max(scheduler.getTick().toMillis(), 1L);
+        if (!enabled) {
+            this.workers = null;
+            this.ticker = null;
+            return;
+        }
+        AtomicInteger workerIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(scheduler.getWorkers(), (runnable) -> {
+            Thread thread = new Thread(runnable, "auction-scheduler-worker-" + workerIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker = new Thread(this::tick, "auction-scheduler");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+        logger.info("Auctions are started and finished on time with ticks of {} ms", tickMillis);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Run a task once a deadline is reached, the task scheduled before for
+     * the same auction is cancelled. A deadline that is already passed runs
+     * the task right away.
+     *
+     * @param auctionId the id of the auction
+     * @param deadline the instant of the task
+     * @param task the task to run
+     */
+    public void schedule(String auctionId, Instant deadline, Runnable task) {
+        if (!enabled)
+            return;
+        Timeout timeout = new Timeout(auctionId, toTick(deadline), task);
+        Timeout previousTimeout = timeouts.put(auctionId, timeout);
+        if (previousTimeout != null && previousTimeout.cancel())
+            commands.offer(previousTimeout);
+        commands.offer(timeout);
+        if (timeout.deadlineTick < wakeUpTick)
+            LockSupport.unpark(ticker);
+    }
+
+    /**
+     * Cancel the task of an auction, if it did not run yet.
+     *
+     * @param auctionId the id of the auction
+     */
+    public void cancel(String auctionId) {
+        if (!enabled)
+            return;
+        Timeout timeout = timeouts.remove(auctionId);
+        if (timeout != null && timeout.cancel())
+            commands.offer(timeout);
+    }
+
+    /**
+     * @return the number of tasks that did not run yet
+     */
+    public int size() {
+        return timeouts.size();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!enabled)
+            return;
+        running = false;
+        LockSupport.unpark(ticker);
+        ticker.join();
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void tick() {
+        TimingWheel wheel = new TimingWheel(currentTick());
+        while (running) {
+            Timeout timeout;
+            while ((timeout = commands.poll()) != null) {
+                if (timeout.isCancelled()) {
+                    wheel.remove(timeout);
+                } else if (timeout.level < 0 && !wheel.add(timeout)) {
+                    expire(timeout);
+                }
+            }
+            wheel.advanceTo(currentTick(), this::expire);
+            long nextTick = wheel.nextTick();
+            wakeUpTick = nextTick;
+            // A timeout scheduled before the tick was published is in the queue
+            if (!commands.isEmpty())
+                continue;
+            if (nextTick == Long.MAX_VALUE) {
+                LockSupport.park(this);
+            } else {
+                long sleepMillis = nextTick * tickMillis - System.currentTimeMillis();
+                if (sleepMillis > 0)
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(sleepMillis));
+            }
+        }
+    }
+
+    private void expire(Timeout timeout) {
+        if (!timeout.expire())
+            return;
+        timeouts.remove(timeout.key, timeout);
+        workers.execute(() -> {
+            try {
+                timeout.task.run();
+            } catch (RuntimeException exception) {
+                logger.error("The scheduled task of the auction {} failed", timeout.key, exception);
+            }
+        });
+    }
+
+    private long currentTick() {
+        return System.currentTimeMillis() / tickMillis;
+    }
+
+    // A task never runs before its deadline, so the deadline is rounded up to the next tick
+    private long toTick(Instant deadline) {
+        long millis = deadline.toEpochMilli();
+        return Math.floorDiv(millis, tickMillis) + (Math.floorMod(millis, tickMillis) == 0 ? 0 : 1);
+    }
+
+}
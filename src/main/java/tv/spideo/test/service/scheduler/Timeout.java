@@ -0,0 +1,51 @@
+package tv.spideo.test.service.scheduler;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A task to run once its deadline is reached. It is scheduled or
+ * cancelled by any thread, its links are only used by the thread of
+ * the {@link AuctionScheduler}.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+final class Timeout {
+
+    static final int SCHEDULED = 0;
+    static final int CANCELLED = 1;
+    static final int EXPIRED = 2;
+
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    final String key;
+    final long deadlineTick;
+    final Runnable task;
+    private volatile int state = SCHEDULED;
+
+    // The position of the timeout in the wheel, the level is -1 when it is not in the wheel
+    Timeout previous;
+    Timeout next;
+    int level = -1;
+    int slot;
+
+    Timeout(String key, long deadlineTick, Runnable task) {
+        this.key = key;
+        this.deadlineTick = deadlineTick;
+        this.task = task;
+    }
+
+    boolean cancel() {
+        return STATE.compareAndSet(this, SCHEDULED, CANCELLED);
+    }
+
+    boolean expire() {
+        return STATE.compareAndSet(this, SCHEDULED, EXPIRED);
+    }
+
+    boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+}
@@ -0,0 +1,180 @@
+package tv.spideo.test.service.scheduler;
+
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel of {@link Timeout}s. Every level has 64
+ * slots, a slot of the first level is one tick and a slot of a level
+ * covers the whole level below it, so six levels cover 2^36 ticks, the
+ * later deadlines wait in the last level until they are closer. A slot
+ * is a doubly linked list, so a timeout is added and removed in constant
+ * time. When the ticks of a level wrap around, the next slot of the level
+ * above is spread again in the levels below it.
+ * It is not thread safe, it is only used by the thread of the
+ * {@link AuctionScheduler}.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+final class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 6;
+    private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+    private final int[] levelSizes = new int[LEVELS];
+    // The last tick that was expired
+    private long currentTick;
+    private int size;
+
+    TimingWheel(long currentTick) {
+        this.currentTick = currentTick;
+    }
+
+    long getCurrentTick() {
+        return currentTick;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Add a timeout in the slot of its deadline.
+     *
+     * @return false if its deadline is already passed, it is not added
+     */
+    boolean add(Timeout timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        if (delta <= 0) {
+            return false;
+        }
+        // A deadline out of the wheel waits in the last slot it can reach
+        long tick = delta < SPAN ? timeout.deadlineTick : currentTick + SPAN - 1;
+        delta = tick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK;
+        link(timeout, level, slot);
+        return true;
+    }
+
+    void remove(Timeout timeout) {
+        if (timeout.level < 0)
+            return;
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            slots[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null)
+            timeout.next.previous = timeout.previous;
+        levelSizes[timeout.level]--;
+        size--;
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
+
+    /**
+     * The first tick where a timeout may expire, the next tick if there
+     * are timeouts in the first level, otherwise the tick where the lowest
+     * level with timeouts is cascaded.
+     */
+    long nextTick() {
+        if (size == 0)
+            return Long.MAX_VALUE;
+        return (currentTick | idleMask()) + 1;
+    }
+
+    /**
+     * Move the wheel until a tick, the timeouts that are due are removed
+     * and given to the consumer in the order of their ticks. The ticks
+     * where nothing can expire or be cascaded are skipped.
+     *
+     * @param tick the actual tick
+     * @param expired the consumer of the timeouts that are due
+     */
+    void advanceTo(long tick, Consumer<Timeout> expired) {
+        while (currentTick < tick) {
+            if (size == 0) {
+                currentTick = tick;
+                return;
+            }
+            // Nothing happens before the lowest level with timeouts is cascaded
+            long idleTick = currentTick | idleMask();
+            if (idleTick >= tick) {
+                currentTick = tick;
+                return;
+            }
+            currentTick = idleTick + 1;
+            cascade();
+            Timeout timeout = unlinkSlot(0, (int) currentTick & SLOT_MASK);
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.next = null;
+                expired.accept(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    // Spread the slots of the levels above once the levels below them wrapped around
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            long lowerTicks = currentTick & ((1L << (SLOT_BITS * level)) - 1);
+            if (lowerTicks != 0)
+                return;
+            Timeout timeout = unlinkSlot(level, (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.next = null;
+                // The deadline may be the actual tick, it is then in the slot expired right after
+                if (!add(timeout))
+                    link(timeout, 0, (int) currentTick & SLOT_MASK);
+                timeout = next;
+            }
+        }
+    }
+
+    // The ticks that can be skipped are the ones of the empty levels below the first one with timeouts
+    private long idleMask() {
+        int level = 0;
+        while (level < LEVELS - 1 && levelSizes[level] == 0) {
+            level++;
+        }
+        return (1L << (SLOT_BITS * level)) - 1;
+    }
+
+    private void link(Timeout timeout, int level, int slot) {
+        Timeout head = slots[level][slot];
+        timeout.previous = null;
+        timeout.next = head;
+        if (head != null)
+            head.previous = timeout;
+        slots[level][slot] = timeout;
+        timeout.level = level;
+        timeout.slot = slot;
+        levelSizes[level]++;
+        size++;
+    }
+
+    // Remove all the timeouts of a slot, they stay chained by their next timeout
+    private Timeout unlinkSlot(int level, int slot) {
+        Timeout head = slots[level][slot];
+        slots[level][slot] = null;
+        for (Timeout timeout = head; timeout != null; timeout = timeout.next) {
+            timeout.previous = null;
+            timeout.level = -1;
+            levelSizes[level]--;
+            size--;
+        }
+        return head;
+    }
+
+}
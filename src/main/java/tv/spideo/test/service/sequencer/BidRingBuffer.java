@@ -0,0 +1,140 @@
+package tv.spideo.test.service.sequencer;
+
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded ring buffer of bids with many producers (the request threads)
+ * and a single consumer (the writer of a shard). The slots are allocated
+ * once, a producer claims a sequence, fills the slot then publishes it,
+ * the consumer reads the published slots in order without any lock.
+ * Once the buffer is closed, the producers reject what they publish
+ * themselves, so no bid waits for a consumer that is gone.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+class BidRingBuffer {
+
+    private static final long PARK_NANOS = 1_000L;
+
+    private final Slot[] slots;
+    private final int mask;
+
+    // The sequence published in every slot, -1 when the slot was never used
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong consumed = new AtomicLong(-1);
+
+    private volatile boolean closed;
+
+    BidRingBuffer(int size) {
+        if (Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("The size of the ring buffer must be a power of two");
+        }
+        this.slots = new Slot[size];
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for (int idx = 0; idx < size; idx++) {
+            this.slots[idx] = new Slot();
+            this.published.set(idx, -1);
+        }
+    }
+
+    /**
+     * Claim the next slot, waiting for the consumer if the buffer
+     * is full, and publish the bid in it. The bid is rejected if
+     * the buffer was closed before the consumer could apply it.
+     */
+    void publish(Auction auction, AuctionBidder bidder, BidSequencer.BidHandler handler,
+                 CompletableFuture<AuctionBidder> result) {
+        long sequence = claimed.incrementAndGet();
+        while (sequence - slots.length > consumed.get()) {
+            if (closed)
+                reject();
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        Slot slot = slots[(int) sequence & mask];
+        slot.auction = auction;
+        slot.bidder = bidder;
+        slot.handler = handler;
+        slot.result = result;
+        // A volatile write, so either the consumer sees the bid when it closes or the producer sees it closed
+        published.set((int) sequence & mask, sequence);
+        if (closed)
+            reject();
+    }
+
+    /**
+     * Apply up to batchSize published bids in order, it must only
+     * be called by the consumer thread.
+     *
+     * @return the number of bids that were applied
+     */
+    int drain(int batchSize) {
+        return drain(batchSize, true);
+    }
+
+    /**
+     * Apply all the bids published until now, then reject the ones
+     * published later. It is called once by the consumer thread when it stops.
+     */
+    synchronized void close(int batchSize) {
+        closed = true;
+        while (drain(batchSize, true) > 0) {
+            // Apply what was published before closing
+        }
+    }
+
+    // Only once the buffer is closed, the producers take the place of the consumer one at a time
+    private synchronized void reject() {
+        while (drain(Integer.MAX_VALUE, false) > 0) {
+            // Reject what was published after closing
+        }
+    }
+
+    private int drain(int batchSize, boolean apply) {
+        long next = consumed.get() + 1;
+        int count = 0;
+        while (count < batchSize && published.get((int) (next + count) & mask) == next + count) {
+            Slot slot = slots[(int) (next + count) & mask];
+            if (apply) {
+                try {
+                    slot.result.complete(slot.handler.accept(slot.auction, slot.bidder));
+                } catch (RuntimeException exception) {
+                    slot.result.completeExceptionally(exception);
+                }
+            } else {
+                slot.result.completeExceptionally(new IllegalStateException("The bid sequencer is stopped"));
+            }
+            slot.clear();
+            count++;
+        }
+        if (count > 0) {
+            consumed.lazySet(next + count - 1);
+        }
+        return count;
+    }
+
+    private static final class Slot {
+
+        private Auction auction;
+        private AuctionBidder bidder;
+        private BidSequencer.BidHandler handler;
+        private CompletableFuture<AuctionBidder> result;
+
+        private void clear() {
+            auction = null;
+            bidder = null;
+            handler = null;
+            result = null;
+        }
+
+    }
+
+}
@@ -0,0 +1,136 @@
+package tv.spideo.test.service.sequencer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tv.spideo.test.config.AuctionProperties;
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The sequenced ingestion mode of the bids. Every auction belongs to a
+ * shard which has its own {@link BidRingBuffer} and a single writer
+ * thread, so the bids of an auction are applied one after another
+ * in batches with no contention. The request thread gets the result
+ * through a {@link CompletableFuture}. The writer still takes the
+ * monitor of the bid log in {@link Auction#bid(AuctionBidder)}, as the
+ * status changes and the imported bids of an auction are not made by
+ * the writer; it is the only thread bidding on the auction, so the
+ * monitor is never contended by another bid.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+@Component
+public class BidSequencer {
+
+    private static final int SPINS_BEFORE_PARKING = 100;
+    private static final long PARK_NANOS = 50_000L;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getCanonicalName());
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final BidRingBuffer[] buffers;
+    private final Thread[] writers;
+    private volatile boolean running = true;
+
+    /**
+     * Create a new {@link BidSequencer}, the writer threads are only
+     * started if the bidding mode is {@link AuctionProperties.BiddingMode#SEQUENCED}.
+     *
+     * @param properties the properties of the auction house
+     */
+    @Autowired
+    public BidSequencer(AuctionProperties properties) {
+        AuctionProperties.Bidding bidding = properties.getBidding();
+        this.enabled = bidding.getMode() == AuctionProperties.BiddingMode.SEQUENCED;
+        this.batchSize = bidding.getBatchSize();
+        int shards = enabled ? bidding.getShards() : 0;
+        this.buffers = new BidRingBuffer[shards];
+        this.writers = new Thread[shards];
+        for (int shard = 0; shard < shards; shard++) {
+            BidRingBuffer buffer = new BidRingBuffer(bidding.getBufferSize());
+            buffers[shard] = buffer;
+            writers[shard] = new Thread(() -> drain(buffer), "bid-sequencer-" + shard);
+            writers[shard].setDaemon(true);
+            writers[shard].start();
+        }
+        if (enabled) {
+            logger.info("Bids are sequenced by {} writer(s) with buffers of {} slots", shards, bidding.getBufferSize());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enqueue a bid on the shard of its auction, the bid is rejected
+     * with an {@link IllegalStateException} if the sequencer is stopped.
+     *
+     * @param auction the auction to bid on
+     * @param bidder the bidder with its price
+     * @param handler the function applied by the writer thread
+     * @return the completion handle of the bid
+     */
+    public CompletableFuture<AuctionBidder> submit(Auction auction, AuctionBidder bidder, BidHandler handler) {
+        if (!running) {
+            throw new IllegalStateException("The bid sequencer is stopped");
+        }
+        CompletableFuture<AuctionBidder> result = new CompletableFuture<>();
+        buffers[(auction.getId().hashCode() & Integer.MAX_VALUE) % buffers.length]
+                .publish(auction, bidder, handler, result);
+        return result;
+    }
+
+    /**
+     * Wait for the result of a bid, the exception thrown by the
+     * handler is rethrown as is to the caller.
+     */
+    public static AuctionBidder await(CompletableFuture<AuctionBidder> result) {
+        try {
+            return result.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw exception;
+        }
+    }
+
+    private void drain(BidRingBuffer buffer) {
+        int idle = 0;
+        while (running) {
+            if (buffer.drain(batchSize) > 0) {
+                idle = 0;
+            } else if (++idle > SPINS_BEFORE_PARKING) {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+        // Apply what was published before stopping, the bids that race with it are rejected by their producer
+        buffer.close(batchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread writer : writers) {
+            writer.join();
+        }
+    }
+
+    @FunctionalInterface
+    public interface BidHandler {
+
+        AuctionBidder accept(Auction auction, AuctionBidder bidder);
+
+    }
+
+}
@@ -1,5 +1,7 @@
 package tv.spideo.test.util;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.UUID;
 
 public class CommonUtils {
@@ -12,4 +14,22 @@ public class CommonUtils {
         return UUID.randomUUID().toString();
     }
 
+    /**
+     * Encode the position of a page so the clients can not rely on its format.
+     */
+    public static String encodeCursor(String position) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor that was given by {@link #encodeCursor(String)}.
+     *
+     * @throws IllegalArgumentException if the cursor is not a valid Base64 string
+     */
+    public static String decodeCursor(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
 }
@@ -0,0 +1,82 @@
+package tv.spideo.test.util.id;
+
+/**
+ * The text of the 64-bit ids: 11 characters of base 62 whose digits
+ * are in the order of ASCII, so the ids of the same length sort as
+ * the numbers they encode and a time-ordered id stays time-ordered
+ * as a string, e.g. in the pages of the auctions.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+public final class CompactIds {
+
+    public static final int LENGTH = 11;
+
+    private static final char[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private static final int BASE = DIGITS.length;
+
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        java.util.Arrays.fill(VALUES, (byte) -1);
+        for (int digit = 0; digit < BASE; digit++) {
+            VALUES[DIGITS[digit]] = (byte) digit;
+        }
+    }
+
+    private CompactIds() {
+    }
+
+    /**
+     * @param id a positive id
+     * @return the 11 characters of the id
+     */
+    public static String encode(long id) {
+        if (id < 0)
+            throw new IllegalArgumentException("A compact id is positive");
+        char[] text = new char[LENGTH];
+        long rest = id;
+        for (int idx = LENGTH - 1; idx >= 0; idx--) {
+            text[idx] = DIGITS[(int) (rest % BASE)];
+            rest /= BASE;
+        }
+        return new String(text);
+    }
+
+    /**
+     * @param text the 11 characters of an id
+     * @return the id
+     * @throws IllegalArgumentException if the text is not an id given by {@link #encode(long)}
+     */
+    public static long decode(String text) {
+        long id = parse(text);
+        if (id < 0)
+            throw new IllegalArgumentException("Not a compact id: " + text);
+        return id;
+    }
+
+    /**
+     * @return true if the text is an id given by {@link #encode(long)}
+     */
+    public static boolean isCompactId(String text) {
+        return parse(text) >= 0;
+    }
+
+    // The id or -1 if the text is not one, 62^11 is above the longs so the overflow is checked
+    private static long parse(String text) {
+        if (text == null || text.length() != LENGTH)
+            return -1;
+        long id = 0;
+        for (int idx = 0; idx < LENGTH; idx++) {
+            char character = text.charAt(idx);
+            int digit = character < VALUES.length ? VALUES[character] : -1;
+            if (digit < 0 || id > (Long.MAX_VALUE - digit) / BASE)
+                return -1;
+            id = id * BASE + digit;
+        }
+        return id;
+    }
+
+}
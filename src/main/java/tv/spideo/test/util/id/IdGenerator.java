@@ -0,0 +1,17 @@
+package tv.spideo.test.util.id;
+
+/**
+ * The generator of the ids of the auction houses, the auctions and
+ * the bids, it is called concurrently by the requests.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+public interface IdGenerator {
+
+    /**
+     * @return a new id that was never given by this generator
+     */
+    String generateId();
+
+}
@@ -0,0 +1,19 @@
+package tv.spideo.test.util.id;
+
+import java.util.UUID;
+
+/**
+ * Random UUIDs, 36 characters, as the ids of the first versions of
+ * the auction house. Every id is drawn from a shared secure random.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+public class UuidIdGenerator implements IdGenerator {
+
+    @Override
+    public String generateId() {
+        return UUID.randomUUID().toString();
+    }
+
+}
@@ -0,0 +1,231 @@
+package tv.spideo.test.web.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+import tv.spideo.test.config.AuctionProperties;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The JSON of the responses that are read again and again while they
+ * do not change, kept with the version of what they serialize, see
+ * {@link tv.spideo.test.domain.Versions}. A response is serialized once
+ * per version and its bytes, and their gzip, are written as they are.
+ * The version is also the entity tag of the response, so a client that
+ * already has it is answered with 304 without any serialization. The
+ * binary formats of the message converters, e.g. Smile and CBOR, are
+ * served and cached the same way to the clients that accept them.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+@Component
+public class SerializedResponseCache {
+
+    // JSON first, it is the format of the clients that accept any
+    private final List<Format> formats = new ArrayList<>();
+
+    private final AuctionProperties.ResponseCache properties;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // The versions start again with the application, so the tags of a previous run never match
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter notModified;
+
+    /**
+     * Create a new {@link SerializedResponseCache} instance with the object
+     * mapper of the JSON responses, the message converters of the other
+     * formats and the registry of its counters.
+     *
+     * @param objectMapper an instance of {@link ObjectMapper}
+     * @param converters the Jackson message converters of the application
+     * @param properties the properties of the auction house
+     * @param meterRegistry the registry of the meters
+     */
+    @Autowired
+    public SerializedResponseCache(ObjectMapper objectMapper, List<AbstractJackson2HttpMessageConverter> converters,
+                                   AuctionProperties properties, MeterRegistry meterRegistry) {
+        this.formats.add(new Format(MediaType.APPLICATION_JSON, objectMapper, ""));
+        for (AbstractJackson2HttpMessageConverter converter : converters) {
+            MediaType mediaType = converter.getSupportedMediaTypes().get(0);
+            if (!mediaType.isCompatibleWith(MediaType.APPLICATION_JSON))
+                this.formats.add(new Format(mediaType, converter.getObjectMapper(), "-" + mediaType.getSubtype()));
+        }
+        this.properties = properties.getResponseCache();
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.notModified = counter(meterRegistry, "not-modified");
+    }
+
+    /**
+     * Answer a read with the bytes of its version. The body is only
+     * built and serialized if the client does not have this version
+     * and it is not cached yet, its exceptions are thrown as they are.
+     *
+     * @param key the resource read, e.g. its path
+     * @param version the actual version of the resource, read before the body
+     * @param body the body of the response
+     * @param request the request, with the entity tags, the formats and the encodings accepted by the client
+     * @return 304 if the client has this version, otherwise 200 with the body in the format of the client
+     */
+    public ResponseEntity<byte[]> respond(String key, long version, Supplier<?> body, WebRequest request) {
+        Format format = negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        String entityTag = entityTag(version, format);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), entityTag)) {
+            notModified.increment();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(entityTag).build();
+        }
+        String formatKey = key + format.tagSuffix;
+        Entry entry = entries.get(formatKey);
+        if (entry != null && entry.version == version) {
+            hits.increment();
+        } else {
+            misses.increment();
+            entry = new Entry(version, serialize(format, body.get()));
+            store(formatKey, entry);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(format.mediaType)
+                .eTag(entityTag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip") && entry.bytes.length >= properties.getGzipMinSize())
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(entry.gzip());
+        return response.body(entry.bytes);
+    }
+
+    // The first format accepted by the client, by quality, JSON if it accepts none of them
+    private Format negotiate(String accept) {
+        if (accept == null)
+            return formats.get(0);
+        List<MediaType> acceptedTypes;
+        try {
+            acceptedTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException exception) {
+            return formats.get(0);
+        }
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+        for (MediaType acceptedType : acceptedTypes) {
+            for (Format format : formats) {
+                if (acceptedType.includes(format.mediaType))
+                    return format;
+            }
+        }
+        return formats.get(0);
+    }
+
+    private void store(String key, Entry entry) {
+        if (entry.bytes.length > properties.getMaxEntrySize())
+            return;
+        // The entries of the deleted resources are dropped with the others, the used ones come back at once
+        if (entries.size() >= properties.getMaxEntries() && !entries.containsKey(key)) {
+            if (properties.getMaxEntries() <= 0)
+                return;
+            entries.clear();
+        }
+        // A concurrent read may have stored a newer version, it is kept
+        entries.merge(key, entry, (actual, stored) -> actual.version >= stored.version ? actual : stored);
+    }
+
+    private static byte[] serialize(Format format, Object body) {
+        try {
+            return format.objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    // A weak tag, the bytes and their gzip are the same representation, the formats are not
+    private String entityTag(long version, Format format) {
+        return "W/\"" + epoch + "-" + Long.toString(version, Character.MAX_RADIX) + format.tagSuffix + "\"";
+    }
+
+    private static boolean matches(String ifNoneMatch, String entityTag) {
+        if (ifNoneMatch == null)
+            return false;
+        String opaqueTag = entityTag.substring(2);
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.equals("*"))
+                return true;
+            if (candidate.startsWith("W/"))
+                candidate = candidate.substring(2);
+            if (candidate.equals(opaqueTag))
+                return true;
+        }
+        return false;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("auction.responses.cached")
+                .description("The reads answered from the serialized responses by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class Format {
+
+        private final MediaType mediaType;
+        private final ObjectMapper objectMapper;
+        private final String tagSuffix;
+
+        private Format(MediaType mediaType, ObjectMapper objectMapper, String tagSuffix) {
+            this.mediaType = mediaType;
+            this.objectMapper = objectMapper;
+            this.tagSuffix = tagSuffix;
+        }
+    }
+
+    private static final class Entry {
+
+        private final long version;
+        private final byte[] bytes;
+        private volatile byte[] gzip;
+
+        private Entry(long version, byte[] bytes) {
+            this.version = version;
+            this.bytes = bytes;
+        }
+
+        // Compressed once, by the first client that accepts gzip
+        private byte[] gzip() {
+            byte[] compressed = gzip;
+            if (compressed == null) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length / 4 + 64);
+                try (GZIPOutputStream gzipOutput = new GZIPOutputStream(output)) {
+                    gzipOutput.write(bytes);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+                compressed = output.toByteArray();
+                gzip = compressed;
+            }
+            return compressed;
+        }
+    }
+
+}
@@ -0,0 +1,279 @@
+package tv.spideo.test.web.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import tv.spideo.test.config.AuctionProperties;
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
+import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.domain.BatchBid;
+import tv.spideo.test.domain.BatchBidResult;
+import tv.spideo.test.service.async.AsyncAuctionHouseService;
+import tv.spideo.test.web.util.ResponseWrapper;
+
+import javax.validation.Valid;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The non-blocking variant of the {@link AuctionHouseController}, its
+ * endpoints start with "/async/auction/house/" and take the same
+ * requests. A request gives its thread back to the server as soon as
+ * its operation waits, so the number of clients is not limited by the
+ * threads of the server but by its connections. The streams, the events,
+ * the import and the export are only served by the {@link AuctionHouseController},
+ * they do not keep a thread while they wait either.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+@RestController
+@Validated
+@RequestMapping("/async/auction/house/")
+public class AsyncAuctionHouseController {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass().getCanonicalName());
+
+    private final AsyncAuctionHouseService asyncAuctionHouseService;
+
+    private final long leaderTimeoutMillis;
+
+    /**
+     * Create a new {@link AsyncAuctionHouseController} instance with the
+     * asynchronous service and the properties, that give the time a
+     * request waits for a new leader, injected to it.
+     *
+     * @param asyncAuctionHouseService an instance of {@link AsyncAuctionHouseService}
+     * @param properties the properties of the auction house
+     */
+    @Autowired
+    public AsyncAuctionHouseController(AsyncAuctionHouseService asyncAuctionHouseService,
+                                       AuctionProperties properties) {
+        this.asyncAuctionHouseService = asyncAuctionHouseService;
+        this.leaderTimeoutMillis = properties.getAsync().getLeaderTimeout().toMillis();
+    }
+
+    /**
+     * Create an auction house.
+     *
+     * <pre><code>Endpoint: POST /async/auction/house/</code></pre>
+     *
+     * @param auctionHouse the auction house that needs to be created
+     * @return the same auction house but with an ID
+     */
+    @PostMapping
+    public CompletableFuture<ResponseEntity<AuctionHouse>> createAuctionHouse(@Valid @RequestBody AuctionHouse auctionHouse) {
+        logger.debug("Create a new Auction House {}", auctionHouse.toString());
+        return asyncAuctionHouseService.createAuctionHouse(auctionHouse)
+                .thenApply(ResponseWrapper::wrapResponse);
+    }
+
+    /**
+     * Get all auction houses.
+     *
+     * <pre><code>Endpoint: GET /async/auction/house/</code></pre>
+     *
+     * @return an empty list or actual list of the auction houses
+     */
+    @GetMapping
+    public CompletableFuture<ResponseEntity<List<AuctionHouse>>> getAllAuctionHouses() {
+        logger.debug("Get all Auction Houses");
+        return asyncAuctionHouseService.getAllAuctionHouses()
+                .thenApply(ResponseWrapper::wrapResponse);
+    }
+
+    /**
+     * Delete an auction house by id.
+     *
+     * <pre><code>Endpoint: DELETE /async/auction/house/:auctionHouseId</code></pre>
+     *
+     * @param auctionHouseId the auction house id that needs to be deleted
+     * @return a boolean if the auction house is deleted
+     */
+    @DeleteMapping("{auctionHouseId}")
+    public CompletableFuture<ResponseEntity<Boolean>> deleteAuctionHouse(@PathVariable String auctionHouseId) {
+        logger.debug("Delete the Auction House {}", auctionHouseId);
+        return asyncAuctionHouseService.deleteAuctionHouse(auctionHouseId)
+                .thenApply(ResponseWrapper::wrapResponse);
+    }
+
+    /**
+     * Create an auction in a specific auction house.
+     *
+     * <pre><code>Endpoint: POST /async/auction/house/:auctionHouseId/create</code></pre>
+     *
+     * @param auctionHouseId the auction house id of the auction
+     * @param auction a valid {@link Auction} model
+     * @return the actual auction with a generated ID
+     */
+    @PostMapping("{auctionHouseId}/create")
+    public CompletableFuture<ResponseEntity<Auction>> createAuction(@PathVariable String auctionHouseId,
+                                                                    @Valid @RequestBody Auction auction) {
+        logger.debug("Create a new Auction {}", auctionHouseId);
+        return asyncAuctionHouseService.createAuction(auctionHouseId, auction)
+                .thenApply(ResponseWrapper::wrapResponse);
+    }
+
+    /**
+     * Get all auctions of a specific auction house.
+     *
+     * <pre><code>Endpoint: GET /async/auction/house/:auctionHouseId</code></pre>
+     *
+     * @param auctionHouseId the auction house id that contains the auction
+     * @return An empty list or a list of auctions of that auction house
+     */
+    @GetMapping("{auctionHouseId}")
+    public CompletableFuture<ResponseEntity<List<Auction>>> getAuctionsByAuctionHouseId(@PathVariable String auctionHouseId) {
+        logger.debug("Get all auctions of the auction house {}", auctionHouseId);
+        return asyncAuctionHouseService.getAuctionsByAuctionHouseId(auctionHouseId)
+                .thenApply(ResponseWrapper::wrapResponse);
+    }
+
+    /**
+     * Delete an auction by id of an auction house.
+     *
+     * <pre><code>Endpoint: DELETE /async/auction/house/:auctionHouseId/:auctionId</code></pre>
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that needs to be deleted
+     * @return a boolean if the auction is deleted
+     */
+    @DeleteMapping("{auctionHouseId}/{auctionId}")
+    public CompletableFuture<ResponseEntity<Boolean>> deleteAuction(@PathVariable String auctionHouseId,
+                                                                    @PathVariable String auctionId) {
+        logger.debug("Delete the Auction {} from the Auction house {}", auctionId, auctionHouseId);
+        return asyncAuctionHouseService.deleteAuction(auctionHouseId, auctionId)
+                .thenApply(ResponseWrapper::wrapResponse);
+    }
+
+    /**
+     * Update an auction's status of an auction house.
+     *
+     * <pre><code>Endpoint: PUT /async/auction/house/:auctionHouseId/:auctionId/status/:status</code></pre>
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that we should use to get the auction to update
+     * @param status the new status of the auction
+     * @return The auction with the updated status
+     */
+    @PutMapping("{auctionHouseId}/{auctionId}/status/{status}")
+    public CompletableFuture<ResponseEntity<Auction>> updateAuctionStatus(@PathVariable String auctionHouseId,
+                                                                          @PathVariable String auctionId,
+                                                                          @PathVariable Auction.AuctionStatus status) {
+        logger.debug("Change the status of the auction {} in the auction house {} ", auctionId, auctionHouseId);
+        return asyncAuctionHouseService.updateAuctionStatus(auctionHouseId, auctionId, status)
+                .thenApply(ResponseWrapper::wrapResponse);
+    }
+
+    /**
+     * Bid on an auction in an auction house, the response is sent once
+     * the bid is durable.
+     *
+     * <pre><code>Endpoint: POST /async/auction/house/:auctionHouseId/:auctionId/bid</code></pre>
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that we should use to get the auction to bid on
+     * @param bidder a valid {@link AuctionBidder} that wants to bid
+     * @return The actual bidder with a generated id
+     */
+    @PostMapping("{auctionHouseId}/{auctionId}/bid")
+    public CompletableFuture<ResponseEntity<AuctionBidder>> bidOnAuction(@PathVariable String auctionHouseId,
+                                                                         @PathVariable String auctionId,
+                                                                         @Valid @RequestBody AuctionBidder bidder) {
+        logger.debug("Bid on the auction {}", auctionHouseId);
+        return asyncAuctionHouseService.bidOnAuction(auctionHouseId, auctionId, bidder)
+                .thenApply(ResponseWrapper::wrapResponse);
+    }
+
+    /**
+     * Bid on many auctions of an auction house in one request.
+     *
+     * <pre><code>Endpoint: POST /async/auction/house/:auctionHouseId/bids</code></pre>
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param bids the bids with the id of their auction, a batch with an invalid bid is rejected
+     * @return The accepted bidder or the error of every bid
+     */
+    @PostMapping("{auctionHouseId}/bids")
+    public CompletableFuture<ResponseEntity<List<BatchBidResult>>> bidOnAuctions(@PathVariable String auctionHouseId,
+                                                                                 @RequestBody List<@Valid BatchBid> bids) {
+        logger.debug("Bid {} times on the auctions of the auction house {}", bids.size(), auctionHouseId);
+        return asyncAuctionHouseService.bidOnAuctions(auctionHouseId, bids)
+                .thenApply(ResponseWrapper::wrapResponse);
+    }
+
+    /**
+     * Get the actual leader of an auction of an auction house.
+     *
+     * <pre><code>Endpoint: GET /async/auction/house/:auctionHouseId/:auctionId/leader</code></pre>
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that we should use to get the auction
+     * @return The bidder that leads the auction {@link AuctionBidder}
+     */
+    @GetMapping("{auctionHouseId}/{auctionId}/leader")
+    public CompletableFuture<ResponseEntity<AuctionBidder>> getAuctionLeader(@PathVariable String auctionHouseId,
+                                                                             @PathVariable String auctionId) {
+        logger.debug("Get the leader of the auction {} in the auction house {}", auctionId, auctionHouseId);
+        return asyncAuctionHouseService.getAuctionLeader(auctionHouseId, auctionId)
+                .thenApply(ResponseWrapper::wrapResponse);
+    }
+
+    /**
+     * Wait for a leader of an auction of an auction house other than
+     * the one the client knows (long polling). The response is sent
+     * as soon as the auction is outbid, or without content once the
+     * leader timeout is reached, the client asks again in both cases.
+     *
+     * <pre><code>Endpoint: GET /async/auction/house/:auctionHouseId/:auctionId/leader?after=:bidderId</code></pre>
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that we should use to get the auction
+     * @param bidderId the id of the leader known by the client, empty if it knows none
+     * @return The new leader of the auction, or no content if it did not change
+     */
+    @GetMapping(value = "{auctionHouseId}/{auctionId}/leader", params = "after")
+    public DeferredResult<ResponseEntity<AuctionBidder>> awaitAuctionLeader(@PathVariable String auctionHouseId,
+                                                                            @PathVariable String auctionId,
+                                                                            @RequestParam("after") String bidderId) {
+        logger.debug("Wait for a new leader of the auction {} in the auction house {}", auctionId, auctionHouseId);
+        DeferredResult<ResponseEntity<AuctionBidder>> result =
+                new DeferredResult<>(leaderTimeoutMillis, ResponseEntity.noContent().build());
+        CompletableFuture<AuctionBidder> leader = asyncAuctionHouseService
+                .awaitAuctionLeader(auctionHouseId, auctionId, bidderId.isEmpty() ? null : bidderId);
+        // The waiter is removed as soon as the client does not need it anymore
+        result.onTimeout(() -> leader.cancel(false));
+        result.onError((error) -> leader.cancel(false));
+        leader.whenComplete((bidder, error) -> {
+            if (error == null)
+                result.setResult(ResponseWrapper.wrapResponse(bidder));
+            else if (!leader.isCancelled())
+                result.setErrorResult(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+        });
+        return result;
+    }
+
+    /**
+     * Get the auction's winner of an auction house.
+     *
+     * <pre><code>Endpoint: GET /async/auction/house/:auctionHouseId/:auctionId/winner</code></pre>
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that we should use to get the auction
+     * @return The winner of the auction {@link AuctionBidder}
+     */
+    @GetMapping("{auctionHouseId}/{auctionId}/winner")
+    public CompletableFuture<ResponseEntity<AuctionBidder>> getAuctionWinner(@PathVariable String auctionHouseId,
+                                                                             @PathVariable String auctionId) {
+        logger.debug("Get the winner of the auction {} in the auction house {}", auctionId, auctionHouseId);
+        return asyncAuctionHouseService.getAuctionWinner(auctionHouseId, auctionId)
+                .thenApply(ResponseWrapper::wrapResponse);
+    }
+}
@@ -1,19 +1,43 @@
 package tv.spideo.test.web.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import tv.spideo.test.domain.Auction;
 import tv.spideo.test.domain.AuctionBidder;
 import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.domain.BatchBid;
+import tv.spideo.test.domain.BatchBidResult;
+import tv.spideo.test.domain.ImportReport;
+import tv.spideo.test.domain.Page;
 import tv.spideo.test.service.AuctionHouseService;
+import tv.spideo.test.service.bulk.AuctionHouseExporter;
+import tv.spideo.test.service.bulk.AuctionHouseImporter;
+import tv.spideo.test.web.cache.SerializedResponseCache;
+import tv.spideo.test.web.util.JsonStreams;
 import tv.spideo.test.web.util.ResponseWrapper;
+import tv.spideo.test.web.util.SparseFields;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * A REST controller which handles all HTTP requests starting with "/auctio/house/".
@@ -22,21 +46,44 @@ import java.util.Map;
  * @since 0.0.1
  */
 @RestController
+@Validated
 @RequestMapping("/auction/house/")
 public class AuctionHouseController {
 
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
     private final Logger logger = LoggerFactory.getLogger(getClass().getCanonicalName());
 
     private final AuctionHouseService auctionHouseService;
 
+    private final AuctionHouseImporter auctionHouseImporter;
+
+    private final AuctionHouseExporter auctionHouseExporter;
+
+    private final ObjectMapper objectMapper;
+
+    private final SerializedResponseCache responseCache;
+
     /**
-     * Create a new {@link AuctionHouseController} instance with the service injected to it.
+     * Create a new {@link AuctionHouseController} instance with the service,
+     * the bulk importer and exporter, the object mapper, used to stream
+     * the responses, and the cache of the serialized responses injected to it.
      *
      * @param auctionHouseService an instance of {@link AuctionHouseService}
+     * @param auctionHouseImporter an instance of {@link AuctionHouseImporter}
+     * @param auctionHouseExporter an instance of {@link AuctionHouseExporter}
+     * @param objectMapper an instance of {@link ObjectMapper}
+     * @param responseCache an instance of {@link SerializedResponseCache}
      */
     @Autowired
-    public AuctionHouseController(AuctionHouseService auctionHouseService) {
+    public AuctionHouseController(AuctionHouseService auctionHouseService, AuctionHouseImporter auctionHouseImporter,
+                                  AuctionHouseExporter auctionHouseExporter, ObjectMapper objectMapper,
+                                  SerializedResponseCache responseCache) {
         this.auctionHouseService = auctionHouseService;
+        this.auctionHouseImporter = auctionHouseImporter;
+        this.auctionHouseExporter = auctionHouseExporter;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
     }
 
 
@@ -59,17 +106,87 @@ public class AuctionHouseController {
     }
 
     /**
-     * Get all auction houses in the actual database.
+     * Import auction houses, auctions and historical bids from a stream
+     * of newline-delimited JSON, the records are applied while the body
+     * is read.
+     *
+     * <pre><code>Endpoint: POST /auction/house/import</code></pre>
+     *
+     * @param input the body of the request, one record per line
+     * @return the report of the import
+     */
+    @PostMapping("import")
+    public ResponseEntity<ImportReport> importAuctionHouses(InputStream input) {
+        logger.debug("Import auction houses");
+        return ResponseWrapper
+                .wrapResponse(auctionHouseImporter.importFrom(input));
+    }
+
+    /**
+     * Export every auction house with its auctions and their bids as
+     * newline-delimited JSON, as they were when the request was received.
+     * The records are written on the request thread while they are read,
+     * as an export may last longer than an asynchronous request, and they
+     * are compressed if the client accepts gzip.
+     *
+     * <pre><code>Endpoint: GET /auction/house/export</code></pre>
+     *
+     * @param acceptEncoding the encodings accepted by the client
+     * @param response the response where the records are written
+     */
+    @GetMapping("export")
+    public void exportAuctionHouses(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                    HttpServletResponse response) throws IOException {
+        AuctionHouseExporter.Cut cut = auctionHouseExporter.cut();
+        logger.debug("Export {} auction houses and {} bids", cut.getAuctionHouses(), cut.getBids());
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        response.setContentType(NDJSON_VALUE);
+        if (gzip)
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        OutputStream output = response.getOutputStream();
+        if (gzip) {
+            GZIPOutputStream gzipOutput = new GZIPOutputStream(output, 64 * 1024);
+            auctionHouseExporter.writeTo(cut, gzipOutput);
+            gzipOutput.finish();
+        } else {
+            auctionHouseExporter.writeTo(cut, output);
+        }
+        output.flush();
+    }
+
+    /**
+     * Get all auction houses in the actual database. The JSON is only
+     * serialized again once something changed, a client that sends the
+     * entity tag of the actual version is answered with 304.
      *
      * <pre><code>Endpoint: GET /auction/house/</code></pre>
      *
+     * @param request the request, with the entity tags known by the client
      * @return an empty list or actual list of the auction houses
      */
     @GetMapping
-    public ResponseEntity<List<AuctionHouse>> getAllAuctionHouses() {
+    public ResponseEntity<byte[]> getAllAuctionHouses(WebRequest request) {
         logger.debug("Get all Auction Houses");
+        return responseCache.respond("houses", auctionHouseService.getAuctionHousesVersion(),
+                auctionHouseService::getAllAuctionHouses, request);
+    }
+
+    /**
+     * Get the summaries of all auction houses, their counts of auctions
+     * without the auctions themselves. Only the given fields are sent,
+     * all of them if none is given.
+     *
+     * <pre><code>Endpoint: GET /auction/house/summary?fields=:fields</code></pre>
+     *
+     * @param fields the fields of the summaries, e.g. "name,auctionCount"
+     * @return an empty list or actual list of the summaries of the auction houses
+     */
+    @GetMapping("summary")
+    public ResponseEntity<MappingJacksonValue> getAuctionHouseSummaries(
+            @RequestParam(value = "fields", required = false) Set<String> fields) {
+        logger.debug("Get the summaries of all Auction Houses with the fields {}", fields);
         return ResponseWrapper
-                .wrapResponse(auctionHouseService.getAllAuctionHouses());
+                .wrapResponse(SparseFields.select(auctionHouseService.getAuctionHouseSummaries(), fields));
     }
 
     /**
@@ -86,6 +203,24 @@ public class AuctionHouseController {
                 .wrapResponse(auctionHouseService.getAuctionHousesByCreatorId(creatorId));
     }
 
+    /**
+     * Get the summaries of the auction houses of a creator, see
+     * {@link #getAuctionHouseSummaries(Set)}.
+     *
+     * <pre><code>Endpoint: GET /auction/house/creator/:creatorId/summary?fields=:fields</code></pre>
+     *
+     * @param creatorId the name of the creator
+     * @param fields the fields of the summaries, e.g. "name,auctionCount"
+     * @return an empty list or actual list of the summaries of the auction houses
+     */
+    @GetMapping("creator/{creatorId}/summary")
+    public ResponseEntity<MappingJacksonValue> getAuctionHouseSummariesByCreatorId(@PathVariable String creatorId,
+            @RequestParam(value = "fields", required = false) Set<String> fields) {
+        logger.debug("Get the summaries of all Auction Houses by creator id {} with the fields {}", creatorId, fields);
+        return ResponseWrapper
+                .wrapResponse(SparseFields.select(auctionHouseService.getAuctionHouseSummariesByCreatorId(creatorId), fields));
+    }
+
     /**
      * Delete an auction house by id, we should also check if the
      * person who wants to delete the auction house has the rights
@@ -128,16 +263,78 @@ public class AuctionHouseController {
     /**
      * Get all auctions of a specific auction house.
      *
+     * The JSON is cached by version of the auction house, as the one of
+     * all the auction houses.
+     *
      * <pre><code>Endpoint: GET /auction/house/:auctionHouseId</code></pre>
      *
      * @param auctionHouseId the auction house id that contains the auction
+     * @param request the request, with the entity tags known by the client
      * @return An empty list or a list of auctions of that auction house
      */
     @GetMapping("{auctionHouseId}")
-    public ResponseEntity<List<Auction>> getAuctionsByAuctionHouseId(@PathVariable String auctionHouseId) {
+    public ResponseEntity<byte[]> getAuctionsByAuctionHouseId(@PathVariable String auctionHouseId,
+                                                              WebRequest request) {
         logger.debug("Get all auctions of the auction house {}", auctionHouseId);
+        return responseCache.respond("house/" + auctionHouseId,
+                auctionHouseService.getAuctionHouseVersion(auctionHouseId),
+                () -> auctionHouseService.getAuctionsByAuctionHouseId(auctionHouseId), request);
+    }
+
+    /**
+     * Get the summaries of the auctions of a specific auction house,
+     * their price and number of bids without the bids themselves.
+     * Only the given fields are sent, all of them if none is given.
+     *
+     * <pre><code>Endpoint: GET /auction/house/:auctionHouseId/summary?fields=:fields</code></pre>
+     *
+     * @param auctionHouseId the auction house id that contains the auctions
+     * @param fields the fields of the summaries, e.g. "name,status,currentPrice"
+     * @return An empty list or a list of the summaries of the auctions
+     */
+    @GetMapping("{auctionHouseId}/summary")
+    public ResponseEntity<MappingJacksonValue> getAuctionSummaries(@PathVariable String auctionHouseId,
+            @RequestParam(value = "fields", required = false) Set<String> fields) {
+        logger.debug("Get the summaries of the auctions of the auction house {} with the fields {}", auctionHouseId, fields);
         return ResponseWrapper
-                .wrapResponse(auctionHouseService.getAuctionsByAuctionHouseId(auctionHouseId));
+                .wrapResponse(SparseFields.select(auctionHouseService.getAuctionSummaries(auctionHouseId), fields));
+    }
+
+    /**
+     * Get a page of auctions of a specific auction house.
+     *
+     * <pre><code>Endpoint: GET /auction/house/:auctionHouseId?limit=:limit&amp;cursor=:cursor</code></pre>
+     *
+     * @param auctionHouseId the auction house id that contains the auction
+     * @param limit the maximum number of auctions in the page
+     * @param cursor the cursor of the previous page, if it is not the first page
+     * @return A page of auctions of that auction house with the cursor of the next one
+     */
+    @GetMapping(value = "{auctionHouseId}", params = "limit")
+    public ResponseEntity<Page<Auction>> getAuctionsPageByAuctionHouseId(@PathVariable String auctionHouseId,
+                                                                        @RequestParam int limit,
+                                                                        @RequestParam(required = false) String cursor) {
+        logger.debug("Get a page of auctions of the auction house {}", auctionHouseId);
+        return ResponseWrapper
+                .wrapResponse(auctionHouseService.getAuctionsPageByAuctionHouseId(auctionHouseId, limit, cursor));
+    }
+
+    /**
+     * Stream all auctions of a specific auction house, the auctions
+     * are written in the response one by one.
+     *
+     * <pre><code>Endpoint: GET /auction/house/:auctionHouseId?stream</code></pre>
+     *
+     * @param auctionHouseId the auction house id that contains the auction
+     * @return A JSON array of the auctions of that auction house
+     */
+    @GetMapping(value = "{auctionHouseId}", params = "stream")
+    public ResponseEntity<StreamingResponseBody> streamAuctionsByAuctionHouseId(@PathVariable String auctionHouseId) {
+        logger.debug("Stream all auctions of the auction house {}", auctionHouseId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(JsonStreams.writeArray(objectMapper,
+                        auctionHouseService.streamAuctionsByAuctionHouseId(auctionHouseId)));
     }
 
     /**
@@ -174,6 +371,23 @@ public class AuctionHouseController {
                 .wrapResponse(auctionHouseService.getAuctionsByStatus(auctionHouseId, status));
     }
 
+    /**
+     * Count the auctions of an auction house by status.
+     *
+     * <pre><code>Endpoint: GET /auction/house/:auctionHouseId/:status/count</code></pre>
+     *
+     * @param auctionHouseId the auction house id that we should to count the auctions
+     * @param status the status of the auction {@link Auction.AuctionStatus}
+     * @return The number of auctions with the given status
+     */
+    @GetMapping("{auctionHouseId}/{status}/count")
+    public ResponseEntity<Integer> countAuctionsByStatus(@PathVariable String auctionHouseId,
+                                                         @PathVariable Auction.AuctionStatus status) {
+        logger.debug("Count auctions with status {} of the auction house {}", status, auctionHouseId);
+        return ResponseWrapper
+                .wrapResponse(auctionHouseService.countAuctionsByStatus(auctionHouseId, status));
+    }
+
     /**
      * Update an auction's status of an auction house.
      *
@@ -212,6 +426,24 @@ public class AuctionHouseController {
                 .wrapResponse(auctionHouseService.bidOnAuction(auctionHouseId, auctionId, bidder));
     }
 
+    /**
+     * Bid on many auctions of an auction house in one request, the
+     * result of every bid is given in the order of the bids.
+     *
+     * <pre><code>Endpoint: POST /auction/house/:auctionHouseId/bids</code></pre>
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param bids the bids with the id of their auction, a batch with an invalid bid is rejected
+     * @return The accepted bidder or the error of every bid
+     */
+    @PostMapping("{auctionHouseId}/bids")
+    public ResponseEntity<List<BatchBidResult>> bidOnAuctions(@PathVariable String auctionHouseId,
+                                                              @RequestBody List<@Valid BatchBid> bids) {
+        logger.debug("Bid {} times on the auctions of the auction house {}", bids.size(), auctionHouseId);
+        return ResponseWrapper
+                .wrapResponse(auctionHouseService.bidOnAuctions(auctionHouseId, bids));
+    }
+
     /**
      * Get all bidding of an auction in an auction house.
      *
@@ -229,20 +461,110 @@ public class AuctionHouseController {
                 .wrapResponse(auctionHouseService.getAllBidding(auctionHouseId, auctionId));
     }
 
+    /**
+     * Get a page of the bidding of an auction in an auction house.
+     *
+     * <pre><code>Endpoint: GET /auction/house/:auctionHouseId/:auctionId/bid?limit=:limit&amp;cursor=:cursor</code></pre>
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that we should use to get the auction
+     * @param limit the maximum number of bids in the page
+     * @param cursor the cursor of the previous page, if it is not the first page
+     * @return A page of the bidders with the cursor of the next one
+     */
+    @GetMapping(value = "{auctionHouseId}/{auctionId}/bid", params = "limit")
+    public ResponseEntity<Page<AuctionBidder>> getBiddingPageOfAuction(@PathVariable String auctionHouseId,
+                                                                      @PathVariable String auctionId,
+                                                                      @RequestParam int limit,
+                                                                      @RequestParam(required = false) String cursor) {
+        logger.debug("Get a page of bidding of the auction {} in the auction house {} ", auctionId, auctionHouseId);
+        return ResponseWrapper
+                .wrapResponse(auctionHouseService.getBiddingPage(auctionHouseId, auctionId, limit, cursor));
+    }
+
+    /**
+     * Stream all bidding of an auction in an auction house, the
+     * bidders are written in the response one by one.
+     *
+     * <pre><code>Endpoint: GET /auction/house/:auctionHouseId/:auctionId/bid?stream</code></pre>
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that we should use to get the auction
+     * @return A JSON array of the bidders in the order they were accepted
+     */
+    @GetMapping(value = "{auctionHouseId}/{auctionId}/bid", params = "stream")
+    public ResponseEntity<StreamingResponseBody> streamAllBiddingOfAuction(@PathVariable String auctionHouseId,
+                                                                           @PathVariable String auctionId) {
+        logger.debug("Stream all bidding of the auction {} in the auction house {} ", auctionId, auctionHouseId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(JsonStreams.writeArray(objectMapper,
+                        auctionHouseService.streamBidding(auctionHouseId, auctionId)));
+    }
+
+    /**
+     * Follow the events of an auction in an auction house as
+     * Server-Sent Events: "bid" for every accepted bid, "status"
+     * for every status change and "winner" once it is finished.
+     * A client that reconnects with the id of the last event it
+     * received gets the events it missed if they are still kept.
+     *
+     * <pre><code>Endpoint: GET /auction/house/:auctionHouseId/:auctionId/events</code></pre>
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that we should use to get the auction
+     * @param lastEventId the id of the last event received before a reconnection
+     * @return A stream of the events of the auction
+     */
+    @GetMapping(value = "{auctionHouseId}/{auctionId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> subscribeToAuction(@PathVariable String auctionHouseId,
+                                                                  @PathVariable String auctionId,
+                                                                  @RequestHeader(value = "Last-Event-ID", required = false)
+                                                                          Long lastEventId) {
+        logger.debug("Subscribe to the events of the auction {} in the auction house {}", auctionId, auctionHouseId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .cacheControl(CacheControl.noCache())
+                .body(auctionHouseService.subscribeToAuction(auctionHouseId, auctionId, lastEventId));
+    }
+
+    /**
+     * Get the actual leader of an auction of an auction house.
+     *
+     * <pre><code>Endpoint: GET /auction/house/:auctionHouseId/:auctionId/leader</code></pre>
+     *
+     * @param auctionHouseId the auction house id that we should to get the auctions
+     * @param auctionId the auction id that we should use to get the auction
+     * @return The bidder that leads the auction {@link AuctionBidder}
+     */
+    @GetMapping("{auctionHouseId}/{auctionId}/leader")
+    public ResponseEntity<AuctionBidder> getAuctionLeader(@PathVariable String auctionHouseId,
+                                                          @PathVariable String auctionId) {
+        logger.debug("Get the leader of the auction {} in the auction house {}", auctionId, auctionHouseId);
+        return ResponseWrapper
+                .wrapResponse(auctionHouseService.getAuctionLeader(auctionHouseId, auctionId));
+    }
+
     /**
      * Get the auction's winner of an auction house.
      *
+     * The JSON is cached by version of the auction, a finished auction
+     * does not change anymore.
+     *
      * <pre><code>Endpoint: GET /auction/house/:auctionHouseId/:auctionId/winner</code></pre>
      *
      * @param auctionHouseId the auction house id that we should to get the auctions
      * @param auctionId the auction id that we should use to get the auction
+     * @param request the request, with the entity tags known by the client
      * @return The winner of the auction {@link AuctionBidder}
      */
     @GetMapping("{auctionHouseId}/{auctionId}/winner")
-    public ResponseEntity<AuctionBidder> getAuctionWinner(@PathVariable String auctionHouseId,
-                                                          @PathVariable String auctionId) {
+    public ResponseEntity<byte[]> getAuctionWinner(@PathVariable String auctionHouseId,
+                                                   @PathVariable String auctionId,
+                                                   WebRequest request) {
         logger.debug("Get the winner of the auction {} in the auction house {}", auctionId, auctionHouseId);
-        return ResponseWrapper
-                .wrapResponse(auctionHouseService.getAuctionWinner(auctionHouseId, auctionId));
+        return responseCache.respond("winner/" + auctionHouseId + "/" + auctionId,
+                auctionHouseService.getAuctionVersion(auctionHouseId, auctionId),
+                () -> auctionHouseService.getAuctionWinner(auctionHouseId, auctionId), request);
     }
 }
@@ -0,0 +1,13 @@
+package tv.spideo.test.web.exception;
+
+import org.zalando.problem.Status;
+
+public class AuctionAlreadyExistException extends RejectionProblem {
+
+    private static final long serialVersionUID = 1L;
+
+    public AuctionAlreadyExistException() {
+        super(ErrorConstants.getAuctionAlreadyExist(), "Auction already exist", Status.BAD_REQUEST);
+    }
+
+}
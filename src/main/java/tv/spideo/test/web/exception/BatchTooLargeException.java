@@ -0,0 +1,13 @@
+package tv.spideo.test.web.exception;
+
+import org.zalando.problem.Status;
+
+public class BatchTooLargeException extends RejectionProblem {
+
+    private static final long serialVersionUID = 1L;
+
+    public BatchTooLargeException() {
+        super(ErrorConstants.getBatchTooLarge(), "The batch has too many bids", Status.BAD_REQUEST);
+    }
+
+}
@@ -1,9 +1,8 @@
 package tv.spideo.test.web.exception;
 
-import org.zalando.problem.AbstractThrowableProblem;
 import org.zalando.problem.Status;
 
-public class BiddingPriceLowException extends AbstractThrowableProblem {
+public class BiddingPriceLowException extends RejectionProblem {
 
     private static final long serialVersionUID = 1L;
 
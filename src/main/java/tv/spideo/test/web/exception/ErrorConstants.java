@@ -4,42 +4,83 @@ import java.net.URI;
 
 class ErrorConstants {
 
+    // The types are created once, they are given to every problem
+    private static final URI DEFAULT_TYPE = URI.create("exception-occured");
+    private static final URI AUCTION_HOUSE_ALREADY_EXIST = URI.create("auction-house-already-exist");
+    private static final URI AUCTION_HOUSE_NOT_FOUND = URI.create("auction-house-not-found");
+    private static final URI AUCTION_ALREADY_EXIST = URI.create("auction-already-exist");
+    private static final URI AUCTION_NOT_FOUND = URI.create("auction-not-found");
+    private static final URI AUCTION_FINISHED = URI.create("auction-already-finished");
+    private static final URI BIDDING_NOT_FOUND = URI.create("bidding-not-found");
+    private static final URI BIDDING_PRICE_LOW = URI.create("bidding-price-is-low");
+    private static final URI INVALID_BID = URI.create("invalid-bid");
+    private static final URI AUCTION_NOT_STARTED = URI.create("bidding-not-started");
+    private static final URI AUCTION_NOT_FINISHED = URI.create("auction-not-finished");
+    private static final URI INVALID_CURSOR = URI.create("invalid-cursor");
+    private static final URI BATCH_TOO_LARGE = URI.create("batch-too-large");
+    private static final URI INVALID_IMPORT_RECORD = URI.create("invalid-import-record");
+    private static final URI JOURNAL_FAILED = URI.create("journal-failed");
+
     private ErrorConstants() {}
 
     static URI getDefaultType() {
-        return URI.create("exception-occured");
+        return DEFAULT_TYPE;
     }
 
     static URI getAuctionHouseAlreadyExist() {
-        return URI.create("auction-house-already-exist");
+        return AUCTION_HOUSE_ALREADY_EXIST;
     }
 
     static URI getAuctionHouseNotFound() {
-        return URI.create("auction-house-not-found");
+        return AUCTION_HOUSE_NOT_FOUND;
+    }
+
+    static URI getAuctionAlreadyExist() {
+        return AUCTION_ALREADY_EXIST;
     }
 
     static URI getAuctionNotFound() {
-        return URI.create("auction-not-found");
+        return AUCTION_NOT_FOUND;
     }
 
     static URI getAuctionFinished() {
-        return URI.create("auction-already-finished");
+        return AUCTION_FINISHED;
     }
 
     static URI getBiddingNotFound() {
-        return URI.create("bidding-not-found");
+        return BIDDING_NOT_FOUND;
     }
 
     static URI getBiddingPriceLow() {
-        return URI.create("bidding-price-is-low");
+        return BIDDING_PRICE_LOW;
+    }
+
+    static URI getInvalidBid() {
+        return INVALID_BID;
     }
 
     static URI getAuctionNotStarted() {
-        return URI.create("bidding-not-started");
+        return AUCTION_NOT_STARTED;
     }
 
     static URI getAuctionNotFinished() {
-        return URI.create("auction-not-finished");
+        return AUCTION_NOT_FINISHED;
+    }
+
+    static URI getInvalidCursor() {
+        return INVALID_CURSOR;
+    }
+
+    static URI getBatchTooLarge() {
+        return BATCH_TOO_LARGE;
+    }
+
+    static URI getInvalidImportRecord() {
+        return INVALID_IMPORT_RECORD;
+    }
+
+    static URI getJournalFailed() {
+        return JOURNAL_FAILED;
     }
 
 }
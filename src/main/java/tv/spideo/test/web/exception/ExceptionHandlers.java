@@ -1,19 +1,58 @@
 package tv.spideo.test.web.exception;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.NativeWebRequest;
 import org.zalando.problem.DefaultProblem;
 import org.zalando.problem.Problem;
 import org.zalando.problem.ProblemBuilder;
+import org.zalando.problem.spring.common.MediaTypes;
 import org.zalando.problem.spring.web.advice.ProblemHandling;
 import org.zalando.problem.violations.ConstraintViolationProblem;
 
 @ControllerAdvice
 public class ExceptionHandlers implements ProblemHandling {
 
+    private final ObjectMapper objectMapper;
+
+    // The body of every kind of rejection, it is rendered the first time it is answered
+    private final Map<Class<? extends RejectionProblem>, byte[]> rejectionBodies = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ExceptionHandlers(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Answer a rejection with its body rendered once, without negotiating the content or logging it, the rejected
+     * bids are already counted by the metrics.
+     *
+     * @param rejection the problem thrown
+     * @return the response of the rejection as application/problem+json
+     */
+    @ExceptionHandler(RejectionProblem.class)
+    public ResponseEntity<byte[]> handleRejection(RejectionProblem rejection) {
+        byte[] body = rejectionBodies.computeIfAbsent(rejection.getClass(), type -> render(rejection));
+        return ResponseEntity.status(rejection.getStatus().getStatusCode()).contentType(MediaTypes.PROBLEM).body(body);
+    }
+
+    private byte[] render(RejectionProblem rejection) {
+        try {
+            return objectMapper.writeValueAsBytes(rejection);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @Override
     public ResponseEntity<Problem> process(@Nullable ResponseEntity<Problem> entity, NativeWebRequest request) {
         if (entity == null || entity.getBody() == null) {
@@ -28,10 +67,15 @@ public class ExceptionHandlers implements ProblemHandling {
                 .withStatus(problem.getStatus())
                 .withTitle(problem.getTitle())
                 .with("path", request.getNativeRequest(HttpServletRequest.class).getRequestURI());
-        builder
-                .withCause(((DefaultProblem) problem).getCause())
-                .withDetail(problem.getDetail())
-                .withInstance(problem.getInstance());
+        if (problem instanceof ConstraintViolationProblem) {
+            // The violations tell the client which field, or which bid of a batch, is invalid
+            builder.with("violations", ((ConstraintViolationProblem) problem).getViolations());
+        } else {
+            builder
+                    .withCause(((DefaultProblem) problem).getCause())
+                    .withDetail(problem.getDetail())
+                    .withInstance(problem.getInstance());
+        }
         problem.getParameters().forEach(builder::with);
         if (!problem.getParameters().containsKey("message") && problem.getStatus() != null) {
             builder.with("message", "error.http." + problem.getStatus().getStatusCode());
@@ -0,0 +1,13 @@
+package tv.spideo.test.web.exception;
+
+import org.zalando.problem.Status;
+
+public class InvalidBidException extends RejectionProblem {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidBidException() {
+        super(ErrorConstants.getInvalidBid(), "Bidding price is not a finite number or bidding time is missing", Status.BAD_REQUEST);
+    }
+
+}
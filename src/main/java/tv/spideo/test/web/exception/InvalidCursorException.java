@@ -0,0 +1,13 @@
+package tv.spideo.test.web.exception;
+
+import org.zalando.problem.Status;
+
+public class InvalidCursorException extends RejectionProblem {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidCursorException() {
+        super(ErrorConstants.getInvalidCursor(), "The cursor is not valid", Status.BAD_REQUEST);
+    }
+
+}
@@ -0,0 +1,19 @@
+package tv.spideo.test.web.exception;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+public class InvalidImportRecordException extends AbstractThrowableProblem {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidImportRecordException() {
+        super(ErrorConstants.getInvalidImportRecord(), "The record is not an auction house, an auction or a bid",
+                Status.BAD_REQUEST);
+    }
+
+    public InvalidImportRecordException(String detail) {
+        super(ErrorConstants.getInvalidImportRecord(), "The record can not be read", Status.BAD_REQUEST, detail);
+    }
+
+}
@@ -0,0 +1,13 @@
+package tv.spideo.test.web.exception;
+
+import org.zalando.problem.Status;
+
+public class JournalFailedException extends RejectionProblem {
+
+    private static final long serialVersionUID = 1L;
+
+    public JournalFailedException() {
+        super(ErrorConstants.getJournalFailed(), "The journal failed, no mutation is accepted", Status.SERVICE_UNAVAILABLE);
+    }
+
+}
@@ -0,0 +1,27 @@
+package tv.spideo.test.web.exception;
+
+import java.net.URI;
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+/**
+ * A problem that is an expected answer to a request (a low bid, an unknown auction...), its body is always the same
+ * so it is rendered once by {@link ExceptionHandlers} and its stack trace is never filled.
+ *
+ * @author Amrane Ait Zeouay
+ * @since 0.0.1
+ */
+public abstract class RejectionProblem extends AbstractThrowableProblem {
+
+    private static final long serialVersionUID = 1L;
+
+    RejectionProblem(URI type, String title, Status status) {
+        super(type, title, status);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+}
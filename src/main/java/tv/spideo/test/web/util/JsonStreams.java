@@ -0,0 +1,39 @@
+package tv.spideo.test.web.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+public interface JsonStreams {
+
+    // The generator is flushed every time this number of items is written
+    int FLUSH_EVERY = 256;
+
+    /**
+     * Write the items of a stream as a JSON array directly in the
+     * response, an item is serialized as soon as it is read so
+     * the memory used does not depend on the number of items.
+     */
+    static <T> StreamingResponseBody writeArray(ObjectMapper objectMapper, Stream<T> items) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return (outputStream) -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+                 Stream<T> actualItems = items) {
+                generator.writeStartArray();
+                int written = 0;
+                for (Iterator<T> iterator = actualItems.iterator(); iterator.hasNext(); ) {
+                    writer.writeValue(generator, iterator.next());
+                    if (++written % FLUSH_EVERY == 0)
+                        generator.flush();
+                }
+                generator.writeEndArray();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,37 @@
+package tv.spideo.test.web.util;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import tv.spideo.test.domain.AuctionHouseSummary;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public interface SparseFields {
+
+    // The id is always kept, so the client can tell the items apart
+    String ID = "id";
+
+    /**
+     * Keep only the given fields of the summaries of a body, the unknown
+     * fields are ignored and all of them are kept if none is given.
+     *
+     * @param body the summaries or a list of them
+     * @param fields the names of the fields asked by the client, may be null
+     * @return the body with the filter of its fields
+     */
+    static MappingJacksonValue select(Object body, Set<String> fields) {
+        SimpleBeanPropertyFilter filter;
+        if (fields == null || fields.isEmpty()) {
+            filter = SimpleBeanPropertyFilter.serializeAll();
+        } else {
+            Set<String> keptFields = new HashSet<>(fields);
+            keptFields.add(ID);
+            filter = SimpleBeanPropertyFilter.filterOutAllExcept(keptFields);
+        }
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(new SimpleFilterProvider().addFilter(AuctionHouseSummary.FIELDS_FILTER, filter));
+        return value;
+    }
+}
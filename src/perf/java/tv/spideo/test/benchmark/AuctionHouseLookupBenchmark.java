@@ -0,0 +1,58 @@
+package tv.spideo.test.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.repository.AuctionHouseRepository;
+import tv.spideo.test.repository.AuctionHouseRepositoryImpl;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Find an auction house by its id and by its name in a repository
+ * with many auction houses, a random one is looked up every time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuctionHouseLookupBenchmark {
+
+    @Param({"1000", "100000"})
+    private int auctionHouses;
+
+    private AuctionHouseRepository auctionHouseRepository;
+    private String[] ids;
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        auctionHouseRepository = new AuctionHouseRepositoryImpl();
+        ids = new String[auctionHouses];
+        names = new String[auctionHouses];
+        for (int idx = 0; idx < auctionHouses; idx++) {
+            AuctionHouse auctionHouse = auctionHouseRepository.saveAuctionHouse(AuctionHouse.builder()
+                    .id("auction-house-" + idx)
+                    .name("Auction house " + idx)
+                    .creatorName("Creator " + (idx % 100))
+                    .build())
+                    .orElseThrow(IllegalStateException::new);
+            ids[idx] = auctionHouse.getId();
+            names[idx] = auctionHouse.getName();
+        }
+    }
+
+    @Benchmark
+    public Optional<AuctionHouse> findAuctionHouseById() {
+        return auctionHouseRepository.findAuctionHouseById(ids[ThreadLocalRandom.current().nextInt(auctionHouses)]);
+    }
+
+    @Benchmark
+    public Optional<AuctionHouse> findAuctionHouseByName() {
+        return auctionHouseRepository.findAuctionHouseByName(names[ThreadLocalRandom.current().nextInt(auctionHouses)]);
+    }
+
+}
@@ -0,0 +1,93 @@
+package tv.spideo.test.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import tv.spideo.test.config.JacksonConfiguration;
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
+import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.repository.AuctionHouseRepositoryImpl;
+import tv.spideo.test.service.AuctionHouseService;
+import tv.spideo.test.util.AuctionHouseServiceBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read an auction house with many auctions and bids: the winner of a
+ * finished auction, the auctions of a status, and an auction with all
+ * of its bids serialized by the object mapper of the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuctionQueryBenchmark {
+
+    private static final Auction.AuctionStatus[] STATUSES = {
+            Auction.AuctionStatus.NOT_STARTED, Auction.AuctionStatus.RUNNING, Auction.AuctionStatus.TERMINATED
+    };
+
+    @Param({"1000"})
+    private int auctions;
+
+    @Param({"100", "10000"})
+    private int bids;
+
+    private AuctionHouseService auctionHouseService;
+    private ObjectMapper objectMapper;
+    private String auctionHouseId;
+    private Auction terminatedAuction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        auctionHouseService = AuctionHouseServiceBuilder.of(new AuctionHouseRepositoryImpl()).build();
+        objectMapper = new JacksonConfiguration().serializingObjectMapper();
+        auctionHouseId = auctionHouseService.createAuctionHouse(AuctionHouse.builder()
+                .name("Benchmark")
+                .creatorName("Benchmark")
+                .build()).getId();
+        for (int idx = 0; idx < auctions; idx++) {
+            auctionHouseService.createAuction(auctionHouseId, Auction.builder()
+                    .name("Auction " + idx)
+                    .description("An auction of the benchmark")
+                    .initialPrice(1)
+                    .status(STATUSES[idx % STATUSES.length])
+                    .build());
+        }
+        // The auction that is read and serialized is the only one with bids
+        Auction auction = auctionHouseService.createAuction(auctionHouseId, Auction.builder()
+                .name("Large auction")
+                .description("An auction of the benchmark with many bids")
+                .initialPrice(1)
+                .status(Auction.AuctionStatus.RUNNING)
+                .build());
+        for (int idx = 0; idx < bids; idx++) {
+            auctionHouseService.bidOnAuction(auctionHouseId, auction.getId(), AuctionBidder.builder()
+                    .name("Bidder " + (idx % 100))
+                    .price(2 + idx)
+                    .build());
+        }
+        terminatedAuction = auctionHouseService.updateAuctionStatus(auctionHouseId, auction.getId(),
+                Auction.AuctionStatus.TERMINATED);
+    }
+
+    @Benchmark
+    public AuctionBidder getAuctionWinner() {
+        return auctionHouseService.getAuctionWinner(auctionHouseId, terminatedAuction.getId());
+    }
+
+    @Benchmark
+    public List<Auction> getAuctionsByStatus() {
+        return auctionHouseService.getAuctionsByStatus(auctionHouseId, Auction.AuctionStatus.RUNNING);
+    }
+
+    @Benchmark
+    public byte[] serializeAuction() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(terminatedAuction);
+    }
+
+}
@@ -0,0 +1,122 @@
+package tv.spideo.test.benchmark;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import tv.spideo.test.config.AuctionProperties;
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
+import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.repository.AuctionHouseRepositoryImpl;
+import tv.spideo.test.service.AuctionHouseService;
+import tv.spideo.test.service.metrics.AuctionMetrics;
+import tv.spideo.test.service.sequencer.BidSequencer;
+import tv.spideo.test.util.AuctionHouseServiceBuilder;
+import tv.spideo.test.web.exception.BiddingPriceLowException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bid on a single running auction, by one thread and by many threads at
+ * the same time. The prices only grow, but when the bidders compete some
+ * of them are outbid before their bid is applied, those bids are rejected
+ * and counted apart from the accepted ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BidBenchmark {
+
+    @Param({"DIRECT", "SEQUENCED"})
+    private AuctionProperties.BiddingMode mode;
+
+    private AuctionHouseService auctionHouseService;
+    private BidSequencer bidSequencer;
+    private String auctionHouseId;
+    private String auctionId;
+    private final AtomicLong price = new AtomicLong();
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Outcome {
+
+        public long accepted;
+        public long rejected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            accepted = 0;
+            rejected = 0;
+        }
+
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AuctionProperties properties = new AuctionProperties();
+        properties.getBidding().setMode(mode);
+        bidSequencer = new BidSequencer(properties);
+        AuctionHouseRepositoryImpl auctionHouseRepository = new AuctionHouseRepositoryImpl();
+        // The bids are measured as in the application
+        auctionHouseService = AuctionHouseServiceBuilder.of(auctionHouseRepository)
+                .properties(properties)
+                .bidSequencer(bidSequencer)
+                .auctionMetrics(new AuctionMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT),
+                        auctionHouseRepository))
+                .build();
+        auctionHouseId = auctionHouseService.createAuctionHouse(AuctionHouse.builder()
+                .name("Benchmark")
+                .creatorName("Benchmark")
+                .build()).getId();
+    }
+
+    // A new auction every iteration, so the history of the bids does not grow across the whole run
+    @Setup(Level.Iteration)
+    public void createAuction() {
+        if (auctionId != null)
+            auctionHouseService.deleteAuction(auctionHouseId, auctionId);
+        auctionId = auctionHouseService.createAuction(auctionHouseId, Auction.builder()
+                .name("Benchmark")
+                .initialPrice(1)
+                .status(Auction.AuctionStatus.RUNNING)
+                .build()).getId();
+        price.set(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        bidSequencer.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public AuctionBidder bidOnAuction(Outcome outcome) {
+        return bid(outcome);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public AuctionBidder bidOnAuctionContended(Outcome outcome) {
+        return bid(outcome);
+    }
+
+    private AuctionBidder bid(Outcome outcome) {
+        AuctionBidder bidder = AuctionBidder.builder()
+                .name("Bidder")
+                .price(price.incrementAndGet())
+                .build();
+        try {
+            AuctionBidder acceptedBidder = auctionHouseService.bidOnAuction(auctionHouseId, auctionId, bidder);
+            outcome.accepted++;
+            return acceptedBidder;
+        } catch (BiddingPriceLowException exception) {
+            outcome.rejected++;
+            return bidder;
+        }
+    }
+
+}
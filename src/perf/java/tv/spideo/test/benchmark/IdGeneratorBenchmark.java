@@ -0,0 +1,64 @@
+package tv.spideo.test.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import tv.spideo.test.util.id.IdGenerator;
+import tv.spideo.test.util.id.SnowflakeIdGenerator;
+import tv.spideo.test.util.id.UuidIdGenerator;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generate the ids of the bids with the random UUIDs and the
+ * time-ordered compact ids, from one thread and from four threads
+ * sharing the generator, then look them up in a map as the auctions
+ * are. Run it with -prof gc to compare the bytes allocated per id.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private static final int KEYS = 100_000;
+
+    @Param({"uuid", "snowflake"})
+    private String generator;
+
+    private IdGenerator idGenerator;
+    private HashMap<String, Integer> positions;
+    private String[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        idGenerator = generator.equals("uuid") ? new UuidIdGenerator() : new SnowflakeIdGenerator(0);
+        positions = new HashMap<>();
+        keys = new String[KEYS];
+        for (int idx = 0; idx < KEYS; idx++) {
+            keys[idx] = idGenerator.generateId();
+            positions.put(keys[idx], idx);
+        }
+    }
+
+    @Benchmark
+    public String generateId() {
+        return idGenerator.generateId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateIdConcurrently() {
+        return idGenerator.generateId();
+    }
+
+    // A copy of the key, so its hash is computed again as for the id of a request
+    @Benchmark
+    public Integer lookUpId() {
+        String key = keys[next++ % KEYS];
+        return positions.get(new String(key.toCharArray()));
+    }
+
+}
@@ -0,0 +1,86 @@
+package tv.spideo.test.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import tv.spideo.test.config.JacksonConfiguration;
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
+import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.repository.AuctionHouseRepositoryImpl;
+import tv.spideo.test.service.AuctionHouseService;
+import tv.spideo.test.util.AuctionHouseServiceBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode an auction with all of its bids in the formats of
+ * the API: JSON, Smile and CBOR. The decoded auction is read as a tree,
+ * as an auction built from its input ignores its bids, so every format
+ * parses the whole document. The size of the document in each format
+ * is printed when the trial starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"1000", "100000"})
+    private int bids;
+
+    private ObjectMapper objectMapper;
+    private Auction auction;
+    private byte[] encodedAuction;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        JacksonConfiguration jacksonConfiguration = new JacksonConfiguration();
+        switch (format) {
+            case "smile":
+                objectMapper = jacksonConfiguration.smileHttpMessageConverter().getObjectMapper();
+                break;
+            case "cbor":
+                objectMapper = jacksonConfiguration.cborHttpMessageConverter().getObjectMapper();
+                break;
+            default:
+                objectMapper = jacksonConfiguration.serializingObjectMapper();
+        }
+        AuctionHouseService auctionHouseService = AuctionHouseServiceBuilder.of(new AuctionHouseRepositoryImpl()).build();
+        String auctionHouseId = auctionHouseService.createAuctionHouse(AuctionHouse.builder()
+                .name("Benchmark")
+                .creatorName("Benchmark")
+                .build()).getId();
+        auction = auctionHouseService.createAuction(auctionHouseId, Auction.builder()
+                .name("Large auction")
+                .description("An auction of the benchmark with many bids")
+                .initialPrice(1)
+                .status(Auction.AuctionStatus.RUNNING)
+                .build());
+        for (int idx = 0; idx < bids; idx++) {
+            auctionHouseService.bidOnAuction(auctionHouseId, auction.getId(), AuctionBidder.builder()
+                    .name("Bidder " + (idx % 100))
+                    .price(2 + idx)
+                    .build());
+        }
+        encodedAuction = objectMapper.writeValueAsBytes(auction);
+        System.out.printf("%n%s: %d bytes for %d bids%n", format, encodedAuction.length, bids);
+    }
+
+    @Benchmark
+    public byte[] encodeAuction() throws IOException {
+        return objectMapper.writeValueAsBytes(auction);
+    }
+
+    @Benchmark
+    public JsonNode decodeAuction() throws IOException {
+        return objectMapper.readTree(encodedAuction);
+    }
+
+}
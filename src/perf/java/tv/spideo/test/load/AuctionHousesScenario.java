@@ -0,0 +1,83 @@
+package tv.spideo.test.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import tv.spideo.test.load.LoadClient.Request;
+import tv.spideo.test.load.LoadClient.Response;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Many auction houses: a part of the requests create new auction houses,
+ * the others read the auctions of a random auction house that exists.
+ */
+final class AuctionHousesScenario extends Scenario {
+
+    private static final int MAX_AUCTION_HOUSES = 1 << 22;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int initialAuctionHouses;
+    private final double createShare;
+    private final AtomicInteger nextName = new AtomicInteger();
+    private final AtomicReferenceArray<String> ids = new AtomicReferenceArray<>(MAX_AUCTION_HOUSES);
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * @param auctionHouses the auction houses created before the load
+     * @param createShare the share of the requests that create an auction house
+     */
+    AuctionHousesScenario(int auctionHouses, double createShare) {
+        super("auction-houses");
+        this.initialAuctionHouses = auctionHouses;
+        this.createShare = createShare;
+    }
+
+    @Override
+    void setUp(LoadClient client) throws IOException {
+        for (int idx = 0; idx < initialAuctionHouses; idx++) {
+            JsonNode auctionHouse = client.sendForJson(createAuctionHouse());
+            add(auctionHouse.get("id").asText());
+        }
+    }
+
+    @Override
+    Request nextRequest(ThreadLocalRandom random) {
+        int actualSize = size.get();
+        if (actualSize == 0 || actualSize < MAX_AUCTION_HOUSES && random.nextDouble() < createShare)
+            return createAuctionHouse();
+        return Request.get("get-auctions", "/auction/house/" + ids.get(random.nextInt(actualSize)));
+    }
+
+    @Override
+    void onResponse(Request request, Response response) {
+        if (request.name.equals("create-auction-house") && response.status == 200) {
+            try {
+                add(objectMapper.readTree(response.body).get("id").asText());
+            } catch (IOException exception) {
+                throw new IllegalStateException("The created auction house can not be read", exception);
+            }
+        }
+    }
+
+    private Request createAuctionHouse() {
+        return Request.post("create-auction-house", "/auction/house/",
+                auctionHouseBody("Load test " + nextName.getAndIncrement()));
+    }
+
+    // The first empty slot is taken and the size only grows once its id is set,
+    // the slots are taken in order so the ones below the size are never empty
+    private void add(String id) {
+        int index = size.get();
+        while (index < MAX_AUCTION_HOUSES) {
+            if (ids.compareAndSet(index, null, id)) {
+                size.incrementAndGet();
+                return;
+            }
+            index++;
+        }
+    }
+
+}
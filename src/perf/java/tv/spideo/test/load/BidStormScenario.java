@@ -0,0 +1,63 @@
+package tv.spideo.test.load;
+
+import tv.spideo.test.load.LoadClient.Request;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A storm of bids on the auctions of an auction house, most of them on
+ * a few hot auctions. The price of every auction only grows, but the
+ * bidders of a hot auction compete, so some of their bids are outbid
+ * and rejected.
+ */
+final class BidStormScenario extends Scenario {
+
+    private final int auctions;
+    private final int hotAuctions;
+    private final double hotShare;
+    private final String bidPrefix;
+    private final String[] paths;
+    private final AtomicLongArray prices;
+
+    /**
+     * @param auctions the running auctions of the auction house
+     * @param hotAuctions the auctions that receive most of the bids
+     * @param hotShare the share of the bids on the hot auctions
+     * @param async true to send the bids to the asynchronous API
+     */
+    BidStormScenario(int auctions, int hotAuctions, double hotShare, boolean async) {
+        super(async ? "bid-storm-async" : "bid-storm");
+        this.auctions = auctions;
+        this.hotAuctions = Math.min(hotAuctions, auctions);
+        this.hotShare = hotShare;
+        this.bidPrefix = async ? "/async/auction/house/" : "/auction/house/";
+        this.paths = new String[auctions];
+        this.prices = new AtomicLongArray(auctions);
+    }
+
+    @Override
+    void setUp(LoadClient client) throws IOException {
+        String auctionHouseId = client.sendForJson(Request.post("create-auction-house", "/auction/house/",
+                auctionHouseBody("Bid storm " + System.nanoTime()))).get("id").asText();
+        for (int idx = 0; idx < auctions; idx++) {
+            String auctionId = client.sendForJson(Request.post("create-auction",
+                    "/auction/house/" + auctionHouseId + "/create", runningAuctionBody("Auction " + idx)))
+                    .get("id").asText();
+            paths[idx] = bidPrefix + auctionHouseId + "/" + auctionId + "/bid";
+            prices.set(idx, 1);
+        }
+    }
+
+    @Override
+    Request nextRequest(ThreadLocalRandom random) {
+        int auction = hotAuctions == auctions || random.nextDouble() < hotShare
+                ? random.nextInt(hotAuctions)
+                : hotAuctions + random.nextInt(auctions - hotAuctions);
+        String name = auction < hotAuctions ? "bid-hot" : "bid-cold";
+        return Request.post(name, paths[auction],
+                bidBody("Bidder " + random.nextInt(1000), prices.incrementAndGet(auction)));
+    }
+
+}
@@ -0,0 +1,115 @@
+package tv.spideo.test.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * A client of the API of the application, it uses the connections of
+ * the JDK which are kept alive between the requests of a thread. The
+ * body of every response is read fully, otherwise its connection could
+ * not be reused.
+ */
+final class LoadClient {
+
+    private final String baseUrl;
+    private final ObjectMapper objectMapper;
+
+    LoadClient(String baseUrl, ObjectMapper objectMapper) {
+        this.baseUrl = baseUrl;
+        this.objectMapper = objectMapper;
+    }
+
+    Response send(Request request) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + request.path).openConnection();
+        connection.setRequestMethod(request.method);
+        connection.setRequestProperty("Accept", "application/json");
+        if (request.body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setFixedLengthStreamingMode(request.body.length);
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(request.body);
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream input = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        return new Response(status, readFully(input));
+    }
+
+    /**
+     * Send a request that is expected to succeed, e.g. to create the
+     * data of a scenario.
+     */
+    JsonNode sendForJson(Request request) throws IOException {
+        Response response = send(request);
+        if (response.status >= 400)
+            throw new IOException(request.method + " " + request.path + " failed with " + response.status
+                    + ": " + new String(response.body, "UTF-8"));
+        return objectMapper.readTree(response.body);
+    }
+
+    byte[] toJson(Object value) throws IOException {
+        return objectMapper.writeValueAsBytes(value);
+    }
+
+    private static byte[] readFully(InputStream input) throws IOException {
+        if (input == null)
+            return new byte[0];
+        try (InputStream body = input) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+
+    /**
+     * A request of a scenario, its name is the operation its latency is recorded for.
+     */
+    static final class Request {
+
+        final String name;
+        final String method;
+        final String path;
+        final byte[] body;
+
+        Request(String name, String method, String path, byte[] body) {
+            this.name = name;
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+
+        static Request get(String name, String path) {
+            return new Request(name, "GET", path, null);
+        }
+
+        static Request post(String name, String path, byte[] body) {
+            return new Request(name, "POST", path, body);
+        }
+
+    }
+
+    static final class Response {
+
+        final int status;
+        final byte[] body;
+
+        Response(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+
+    }
+
+}
@@ -0,0 +1,258 @@
+package tv.spideo.test.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import tv.spideo.test.AuctionHouseApplication;
+import tv.spideo.test.load.LoadClient.Request;
+import tv.spideo.test.load.LoadClient.Response;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An end-to-end load test: the application is started on a random port
+ * and the scenarios are run one after the other against its API, by
+ * clients that send their requests over HTTP in the same JVM. The
+ * latency of every request is recorded in an HDR histogram per
+ * operation, the requests sent during the warm-up are not recorded.
+ * Without a rate the clients send a request as soon as they got the
+ * previous response. With a rate the requests are sent on a schedule
+ * and the latency is measured from the time the request should have
+ * been sent, so a slow response is not hidden by the requests it delayed.
+ * The options are properties of the application, e.g.
+ * {@code --load.scenarios=bid-storm --load.clients=32 --auction.bidding.mode=SEQUENCED},
+ * the results are printed and written in JSON. With {@code --load.watchers=0,1000,10000}
+ * the scenarios are run again with every number of idle connections
+ * waiting for a new leader, to see how the latency holds up as they grow.
+ */
+public final class LoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // The load test runs in the class loader of the JVM, not in the one of the devtools
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        // The system properties override the configuration of the application, not the arguments
+        setDefault("server.port", "0");
+        setDefault("logging.level.root", "WARN");
+        // Every rejected bid is logged by the problem handler
+        setDefault("logging.level.org.zalando.problem", "ERROR");
+        setDefault("logging.level.tv.spideo.test.load", "INFO");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AuctionHouseApplication.class)
+                .run(args);
+        int exitCode = 0;
+        try {
+            Environment environment = context.getEnvironment();
+            int clients = environment.getProperty("load.clients", Integer.class, 16);
+            // The idle connections kept alive, one per client
+            System.setProperty("http.maxConnections", String.valueOf(clients));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port + environment.getProperty("server.servlet.context-path", "");
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+            LoadClient client = new LoadClient(baseUrl, objectMapper);
+
+            // The scenarios are run again with every number of idle connections, they are only added
+            int[] watcherCounts = environment.getProperty("load.watchers", int[].class, new int[]{0});
+            Arrays.sort(watcherCounts);
+            Watchers watchers = null;
+            if (watcherCounts[watcherCounts.length - 1] > 0) {
+                watchers = new Watchers("localhost", port, environment.getProperty("server.servlet.context-path", ""));
+                watchers.setUp(client);
+            }
+            List<Map<String, Object>> results = new ArrayList<>();
+            try {
+                for (int watcherCount : watcherCounts) {
+                    if (watchers != null) {
+                        logger.info("Opening {} connections waiting for a new leader", watcherCount);
+                        if (!watchers.awaitWaiting(watcherCount, 2, TimeUnit.MINUTES))
+                            throw new IllegalStateException("Only " + watchers.getWaiting() + " of " + watcherCount
+                                    + " watchers are waiting, the limit of open files may be too low");
+                    }
+                    for (String name : environment.getProperty("load.scenarios", String[].class,
+                            new String[]{"auction-houses", "bid-storm", "mixed"})) {
+                        Scenario scenario = createScenario(name.trim(), environment);
+                        long watcherFailures = watchers == null ? 0 : watchers.getFailures();
+                        Map<String, Object> result = run(scenario, client, clients, watcherCount, environment);
+                        if (watchers != null) {
+                            result.put("watcherFailures", watchers.getFailures() - watcherFailures);
+                            result.put("watcherAnswers", watchers.getAnswers());
+                        }
+                        results.add(result);
+                        if ((Long) result.get("errors") > 0 || watchers != null && watchers.getFailures() > watcherFailures)
+                            exitCode = 1;
+                    }
+                }
+            } finally {
+                if (watchers != null)
+                    watchers.close();
+            }
+            File output = new File(environment.getProperty("load.output", "target/load-result.json"));
+            if (output.getParentFile() != null)
+                output.getParentFile().mkdirs();
+            objectMapper.writer().with(SerializationFeature.INDENT_OUTPUT).writeValue(output, results);
+            logger.info("The results are written in {}", output.getAbsolutePath());
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null)
+            System.setProperty(key, value);
+    }
+
+    private static Scenario createScenario(String name, Environment environment) {
+        switch (name) {
+            case "auction-houses":
+                return new AuctionHousesScenario(
+                        environment.getProperty("load.auction-houses.initial", Integer.class, 1000),
+                        environment.getProperty("load.auction-houses.create-share", Double.class, 0.2));
+            case "bid-storm":
+                return new BidStormScenario(
+                        environment.getProperty("load.bid-storm.auctions", Integer.class, 100),
+                        environment.getProperty("load.bid-storm.hot-auctions", Integer.class, 3),
+                        environment.getProperty("load.bid-storm.hot-share", Double.class, 0.9),
+                        environment.getProperty("load.bid-storm.async", Boolean.class, false));
+            case "mixed":
+                return new MixedScenario(
+                        environment.getProperty("load.mixed.auction-houses", Integer.class, 10),
+                        environment.getProperty("load.mixed.auctions", Integer.class, 50),
+                        environment.getProperty("load.mixed.bids", Integer.class, 5),
+                        environment.getProperty("load.mixed.bid-share", Double.class, 0.1));
+            default:
+                throw new IllegalArgumentException("Unknown scenario " + name
+                        + ", the scenarios are auction-houses, bid-storm and mixed");
+        }
+    }
+
+    private static Map<String, Object> run(Scenario scenario, LoadClient client, int clients, int watchers,
+                                           Environment environment) throws Exception {
+        Duration warmUp = environment.getProperty("load.warm-up", Duration.class, Duration.ofSeconds(10));
+        Duration duration = environment.getProperty("load.duration", Duration.class, Duration.ofSeconds(30));
+        double rate = environment.getProperty("load.rate", Double.class, 0d);
+        logger.info("Setting up the scenario {}", scenario.getName());
+        scenario.setUp(client);
+
+        long start = System.nanoTime();
+        long measureStart = start + warmUp.toNanos();
+        long end = measureStart + duration.toNanos();
+        // The interval between the requests of a client, 0 to send them as fast as possible
+        long interval = rate > 0 ? (long) (clients * TimeUnit.SECONDS.toNanos(1) / rate) : 0L;
+        logger.info("Running the scenario {} with {} clients and {} watchers for {} s after a warm-up of {} s",
+                scenario.getName(), clients, watchers, duration.getSeconds(), warmUp.getSeconds());
+        List<Map<String, OperationStats>> clientStats = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int idx = 0; idx < clients; idx++) {
+            Map<String, OperationStats> stats = new TreeMap<>();
+            clientStats.add(stats);
+            // The clients do not start at the same time when they follow a rate
+            long firstRequest = start + (interval * idx) / clients;
+            Thread thread = new Thread(() -> sendRequests(scenario, client, stats, firstRequest, interval,
+                    measureStart, end), "load-client-" + idx);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<String, OperationStats> operations = new TreeMap<>();
+        for (Map<String, OperationStats> stats : clientStats) {
+            stats.forEach((operation, operationStats) ->
+                    operations.computeIfAbsent(operation, (key) -> new OperationStats()).add(operationStats));
+        }
+        return report(scenario, clients, watchers, rate, duration, operations);
+    }
+
+    private static void sendRequests(Scenario scenario, LoadClient client, Map<String, OperationStats> stats,
+                                     long firstRequest, long interval, long measureStart, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long nextRequest = firstRequest;
+        while (true) {
+            long intendedStart;
+            if (interval > 0) {
+                intendedStart = nextRequest;
+                nextRequest += interval;
+                long wait;
+                while ((wait = intendedStart - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                intendedStart = System.nanoTime();
+            }
+            if (intendedStart >= end)
+                return;
+            Request request = scenario.nextRequest(random);
+            int status;
+            try {
+                Response response = client.send(request);
+                status = response.status;
+                scenario.onResponse(request, response);
+            } catch (IOException exception) {
+                status = -1;
+            }
+            long latency = System.nanoTime() - intendedStart;
+            if (intendedStart >= measureStart)
+                stats.computeIfAbsent(request.name, (key) -> new OperationStats())
+                        .record(status, TimeUnit.NANOSECONDS.toMicros(latency));
+        }
+    }
+
+    private static Map<String, Object> report(Scenario scenario, int clients, int watchers, double rate,
+                                              Duration duration, Map<String, OperationStats> operations) {
+        double seconds = duration.toNanos() / 1e9;
+        OperationStats total = new OperationStats();
+        Map<String, Object> operationResults = new LinkedHashMap<>();
+        StringBuilder table = new StringBuilder(String.format(Locale.ROOT, "%n%-24s %10s %10s %8s %8s %8s %8s %8s %8s%n",
+                "operation", "requests", "req/s", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "rejected"));
+        operations.forEach((operation, stats) -> {
+            total.add(stats);
+            operationResults.put(operation, stats.toMap(seconds));
+            appendRow(table, operation, stats.toMap(seconds));
+        });
+        appendRow(table, "total", total.toMap(seconds));
+        logger.info("Scenario {} with {} watchers:{}", scenario.getName(), watchers, table);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("scenario", scenario.getName());
+        result.put("clients", clients);
+        result.put("watchers", watchers);
+        result.put("rate", rate);
+        result.put("durationSeconds", seconds);
+        result.put("requests", total.getCount());
+        result.put("errors", total.getErrors());
+        result.put("total", total.toMap(seconds));
+        result.put("operations", operationResults);
+        return result;
+    }
+
+    private static void appendRow(StringBuilder table, String operation, Map<String, Object> stats) {
+        table.append(String.format(Locale.ROOT, "%-24s %10d %10.1f %8d %8.2f %8.2f %8.2f %8.2f %8d%n", operation,
+                stats.get("count"), stats.get("throughput"), stats.get("errors"),
+                (Long) stats.get("p50Micros") / 1000.0, (Long) stats.get("p99Micros") / 1000.0,
+                (Long) stats.get("p999Micros") / 1000.0, (Long) stats.get("maxMicros") / 1000.0,
+                stats.get("rejected")));
+    }
+
+}
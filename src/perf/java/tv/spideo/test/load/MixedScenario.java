@@ -0,0 +1,81 @@
+package tv.spideo.test.load;
+
+import tv.spideo.test.load.LoadClient.Request;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Mostly reads on auctions that are bid on: the leaders, the pages of
+ * bids and of auctions and the auctions by status, with a small share
+ * of bids so the reads never see a frozen auction.
+ */
+final class MixedScenario extends Scenario {
+
+    private final int auctionHouses;
+    private final int auctionsPerHouse;
+    private final int bidsPerAuction;
+    private final double bidShare;
+    private final String[] auctionHousePaths;
+    private final String[] auctionPaths;
+    private final AtomicLongArray prices;
+
+    /**
+     * @param auctionHouses the auction houses created before the load
+     * @param auctionsPerHouse the running auctions of every auction house
+     * @param bidsPerAuction the bids on every auction before the load
+     * @param bidShare the share of the requests that bid
+     */
+    MixedScenario(int auctionHouses, int auctionsPerHouse, int bidsPerAuction, double bidShare) {
+        super("mixed");
+        this.auctionHouses = auctionHouses;
+        this.auctionsPerHouse = auctionsPerHouse;
+        this.bidsPerAuction = bidsPerAuction;
+        this.bidShare = bidShare;
+        this.auctionHousePaths = new String[auctionHouses];
+        this.auctionPaths = new String[auctionHouses * auctionsPerHouse];
+        this.prices = new AtomicLongArray(auctionPaths.length);
+    }
+
+    @Override
+    void setUp(LoadClient client) throws IOException {
+        for (int house = 0; house < auctionHouses; house++) {
+            String auctionHouseId = client.sendForJson(Request.post("create-auction-house", "/auction/house/",
+                    auctionHouseBody("Mixed " + house + " " + System.nanoTime()))).get("id").asText();
+            auctionHousePaths[house] = "/auction/house/" + auctionHouseId;
+            for (int idx = 0; idx < auctionsPerHouse; idx++) {
+                int auction = house * auctionsPerHouse + idx;
+                String auctionId = client.sendForJson(Request.post("create-auction",
+                        auctionHousePaths[house] + "/create", runningAuctionBody("Auction " + idx)))
+                        .get("id").asText();
+                auctionPaths[auction] = auctionHousePaths[house] + "/" + auctionId;
+                prices.set(auction, 1);
+                for (int bid = 0; bid < bidsPerAuction; bid++) {
+                    client.sendForJson(Request.post("bid", auctionPaths[auction] + "/bid",
+                            bidBody("Bidder " + bid, prices.incrementAndGet(auction))));
+                }
+            }
+        }
+    }
+
+    @Override
+    Request nextRequest(ThreadLocalRandom random) {
+        double operation = random.nextDouble();
+        if (operation < bidShare) {
+            int auction = random.nextInt(auctionPaths.length);
+            return Request.post("bid", auctionPaths[auction] + "/bid",
+                    bidBody("Bidder " + random.nextInt(1000), prices.incrementAndGet(auction)));
+        }
+        // The reads share the rest of the requests
+        operation = (operation - bidShare) / (1 - bidShare);
+        if (operation < 0.5)
+            return Request.get("get-leader", auctionPaths[random.nextInt(auctionPaths.length)] + "/leader");
+        if (operation < 0.7)
+            return Request.get("get-bids-page", auctionPaths[random.nextInt(auctionPaths.length)] + "/bid?limit=20");
+        if (operation < 0.85)
+            return Request.get("get-auctions-page", auctionHousePaths[random.nextInt(auctionHouses)] + "?limit=20");
+        return Request.get("get-auctions-by-status", auctionHousePaths[random.nextInt(auctionHouses)] + "/RUNNING");
+    }
+
+}
@@ -0,0 +1,59 @@
+package tv.spideo.test.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The latencies of an operation in microseconds, with the number of
+ * requests that were rejected (4xx) and that failed (5xx or no response).
+ * It is only updated by one client, the stats of the clients are added
+ * together once they stopped.
+ */
+final class OperationStats {
+
+    // Latencies up to an hour with 3 significant digits
+    private final Histogram histogram = new Histogram(3_600_000_000L, 3);
+    private long rejected;
+    private long errors;
+
+    void record(int status, long latencyMicros) {
+        histogram.recordValue(Math.min(Math.max(latencyMicros, 0L), histogram.getHighestTrackableValue()));
+        if (status < 0 || status >= 500) {
+            errors++;
+        } else if (status >= 400) {
+            rejected++;
+        }
+    }
+
+    void add(OperationStats other) {
+        histogram.add(other.histogram);
+        rejected += other.rejected;
+        errors += other.errors;
+    }
+
+    long getCount() {
+        return histogram.getTotalCount();
+    }
+
+    long getErrors() {
+        return errors;
+    }
+
+    Map<String, Object> toMap(double seconds) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", histogram.getTotalCount());
+        stats.put("rejected", rejected);
+        stats.put("errors", errors);
+        stats.put("throughput", Math.round(histogram.getTotalCount() / seconds * 10) / 10.0);
+        stats.put("meanMicros", Math.round(histogram.getMean()));
+        stats.put("p50Micros", histogram.getValueAtPercentile(50));
+        stats.put("p90Micros", histogram.getValueAtPercentile(90));
+        stats.put("p99Micros", histogram.getValueAtPercentile(99));
+        stats.put("p999Micros", histogram.getValueAtPercentile(99.9));
+        stats.put("maxMicros", histogram.getMaxValue());
+        return stats;
+    }
+
+}
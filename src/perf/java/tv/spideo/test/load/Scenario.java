@@ -0,0 +1,59 @@
+package tv.spideo.test.load;
+
+import tv.spideo.test.load.LoadClient.Request;
+import tv.spideo.test.load.LoadClient.Response;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A scenario of the load test: it creates its data before it is run,
+ * then every client asks it for its next request, from many threads.
+ */
+abstract class Scenario {
+
+    private final String name;
+
+    Scenario(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Create the auction houses and auctions the requests are sent to,
+     * before the load starts.
+     */
+    abstract void setUp(LoadClient client) throws IOException;
+
+    abstract Request nextRequest(ThreadLocalRandom random);
+
+    /**
+     * Called with every response, e.g. to keep the ids of the created auction houses.
+     */
+    void onResponse(Request request, Response response) {
+    }
+
+    static byte[] auctionHouseBody(String name) {
+        return json(String.format(Locale.ROOT, "{\"name\":\"%s\",\"creatorName\":\"%s\"}", name, "Load test"));
+    }
+
+    static byte[] runningAuctionBody(String name) {
+        return json(String.format(Locale.ROOT,
+                "{\"name\":\"%s\",\"description\":\"An auction of the load test\",\"initialPrice\":1,\"status\":\"RUNNING\"}",
+                name));
+    }
+
+    static byte[] bidBody(String bidderName, long price) {
+        return json(String.format(Locale.ROOT, "{\"name\":\"%s\",\"price\":%d}", bidderName, price));
+    }
+
+    private static byte[] json(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
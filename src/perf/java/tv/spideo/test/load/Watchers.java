@@ -0,0 +1,194 @@
+package tv.spideo.test.load;
+
+import tv.spideo.test.load.LoadClient.Request;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Idle clients of the asynchronous API, as the followers of an auction
+ * on slow networks: every watcher keeps a connection open with a request
+ * waiting for a new leader of an auction that is never outbid. They are
+ * all handled by a single selector thread, so thousands of them do not
+ * cost the load test a thread each. A watcher that is answered, i.e.
+ * after the leader timeout, asks again on a new connection.
+ */
+final class Watchers implements Closeable {
+
+    // The connections opened at once, so the backlog of the server is not overflowed
+    private static final int MAX_CONNECTING = 256;
+
+    private final InetSocketAddress address;
+    private final String contextPath;
+    private final Selector selector;
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(16 * 1024);
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong answers = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private byte[] request;
+    private Thread thread;
+    private int connecting;
+    private int connected;
+    private volatile int target;
+    private volatile boolean running = true;
+
+    Watchers(String host, int port, String contextPath) throws IOException {
+        this.address = new InetSocketAddress(host, port);
+        this.contextPath = contextPath;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Create the auction the watchers wait on and start the selector thread.
+     */
+    void setUp(LoadClient client) throws IOException {
+        String auctionHouseId = client.sendForJson(Request.post("create-auction-house", "/auction/house/",
+                Scenario.auctionHouseBody("Watched " + System.nanoTime()))).get("id").asText();
+        String auctionId = client.sendForJson(Request.post("create-auction", "/auction/house/" + auctionHouseId
+                + "/create", Scenario.runningAuctionBody("Watched auction"))).get("id").asText();
+        request = ("GET " + contextPath + "/async/auction/house/" + auctionHouseId + "/" + auctionId
+                + "/leader?after= HTTP/1.1\r\nHost: " + address.getHostString()
+                + "\r\nAccept: application/json\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        thread = new Thread(this::run, "load-watchers");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Open connections until the given number of watchers wait, the
+     * watchers are only added.
+     *
+     * @return false if they did not all wait before the timeout
+     */
+    boolean awaitWaiting(int count, long timeout, TimeUnit unit) throws InterruptedException {
+        target = Math.max(target, count);
+        selector.wakeup();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (waiting.get() < count) {
+            if (System.nanoTime() - deadline > 0)
+                return false;
+            Thread.sleep(50);
+        }
+        return true;
+    }
+
+    int getWaiting() {
+        return waiting.get();
+    }
+
+    long getAnswers() {
+        return answers.get();
+    }
+
+    long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                while (connected + connecting < target && connecting < MAX_CONNECTING) {
+                    connect();
+                }
+                selector.select(100);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    handle(key);
+                }
+                selector.selectedKeys().clear();
+            } catch (IOException exception) {
+                failures.incrementAndGet();
+            }
+        }
+    }
+
+    private void connect() throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        connecting++;
+        SelectionKey key = channel.register(selector, SelectionKey.OP_CONNECT);
+        try {
+            if (channel.connect(address))
+                connected(key);
+        } catch (IOException exception) {
+            failures.incrementAndGet();
+            disconnect(key, false);
+        }
+    }
+
+    private void connected(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        // The request is small, it is written at once in the buffer of the socket
+        ByteBuffer buffer = ByteBuffer.wrap(request);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        key.interestOps(SelectionKey.OP_READ);
+        connecting--;
+        connected++;
+        waiting.incrementAndGet();
+    }
+
+    private void handle(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        try {
+            if (key.isConnectable()) {
+                if (channel.finishConnect())
+                    connected(key);
+            } else if (key.isReadable()) {
+                readBuffer.clear();
+                // The response is dropped, the connection is closed by the server once it is sent
+                if (channel.read(readBuffer) < 0) {
+                    answers.incrementAndGet();
+                    disconnect(key, true);
+                }
+            }
+        } catch (IOException exception) {
+            failures.incrementAndGet();
+            disconnect(key, key.interestOps() == SelectionKey.OP_READ);
+        }
+    }
+
+    private void disconnect(SelectionKey key, boolean wasWaiting) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // The connection is dropped anyway
+        }
+        if (wasWaiting) {
+            connected--;
+            waiting.decrementAndGet();
+        } else {
+            connecting--;
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+package tv.spideo.test.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import tv.spideo.test.config.AuctionProperties;
+import tv.spideo.test.config.IdConfiguration;
+import tv.spideo.test.config.JacksonConfiguration;
+import tv.spideo.test.config.JournalConfiguration;
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
+import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.domain.BatchBid;
+import tv.spideo.test.repository.AuctionHouseRepositoryImpl;
+import tv.spideo.test.service.AuctionHouseService;
+import tv.spideo.test.service.async.AsyncAuctionHouseService;
+import tv.spideo.test.service.event.AuctionEventBroadcaster;
+import tv.spideo.test.service.metrics.AuctionMetrics;
+import tv.spideo.test.service.scheduler.AuctionScheduler;
+import tv.spideo.test.service.sequencer.BidSequencer;
+import tv.spideo.test.util.TestCommonUtils;
+import tv.spideo.test.web.controller.AsyncAuctionHouseController;
+import tv.spideo.test.web.exception.ExceptionHandlers;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(AsyncAuctionHouseController.class)
+@ContextConfiguration(classes = {AsyncAuctionHouseController.class, AsyncAuctionHouseService.class, AuctionHouseService.class,
+        AuctionHouseRepositoryImpl.class, BidSequencer.class, AuctionScheduler.class, AuctionEventBroadcaster.class,
+        AuctionMetrics.class, SimpleMeterRegistry.class, AuctionProperties.class, JournalConfiguration.class,
+        JacksonConfiguration.class, IdConfiguration.class, ExceptionHandlers.class})
+class AsyncAuctionHouseControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AuctionHouseService auctionHouseService;
+
+    private static AuctionHouse mockedAuctionHouse;
+    private static AuctionBidder mockedBidder;
+
+    @BeforeEach
+    void init() {
+        mockedAuctionHouse = TestCommonUtils.generateRandomAuctionHouse(false, 0);
+        mockedBidder = TestCommonUtils.generateRandomBidder();
+    }
+
+    @AfterEach
+    void clearAll() {
+        auctionHouseService.deleteAllAuctionHouse();
+    }
+
+    @Test
+    @DisplayName("It should create an auction house and an auction without blocking the request")
+    void itShouldCreateAnAuctionHouseAndAnAuction() throws Exception {
+        MvcResult creation = mockMvc.perform(post("/async/auction/house/")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(mockedAuctionHouse))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(creation))
+                .andExpect(status().isOk())
+                .andReturn();
+        AuctionHouse auctionHouse = objectMapper.readValue(result.getResponse().getContentAsString(), AuctionHouse.class);
+        Assertions.assertEquals(mockedAuctionHouse.getName(), auctionHouse.getName());
+
+        Auction mockedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        creation = mockMvc.perform(post("/async/auction/house/{auctionHouseId}/create", auctionHouse.getId())
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(mockedAuction))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(creation))
+                .andExpect(status().isOk());
+
+        MvcResult auctions = mockMvc.perform(get("/async/auction/house/{auctionHouseId}", auctionHouse.getId())
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result = mockMvc.perform(asyncDispatch(auctions))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<Auction> savedAuctions = objectMapper.readValue(result.getResponse().getContentAsString(),
+                new TypeReference<List<Auction>>() {});
+        Assertions.assertEquals(1, savedAuctions.size());
+        Assertions.assertEquals(mockedAuction.getName(), savedAuctions.get(0).getName());
+    }
+
+    @Test
+    @DisplayName("It should bid on an auction and reject a low bid with a problem")
+    void itShouldBidOnAnAuction() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        Auction mockedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction savedAuction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+
+        mockedBidder.setPrice(savedAuction.getInitialPrice() + 100d);
+        MvcResult bid = mockMvc.perform(post("/async/auction/house/{auctionHouseId}/{auctionId}/bid",
+                    auctionHouse.getId(), savedAuction.getId())
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(mockedBidder))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(bid))
+                .andExpect(status().isOk())
+                .andReturn();
+        AuctionBidder bidder = objectMapper.readValue(result.getResponse().getContentAsString(), AuctionBidder.class);
+        Assertions.assertEquals(mockedBidder.getPrice(), bidder.getPrice());
+        Assertions.assertNotNull(bidder.getId());
+
+        bid = mockMvc.perform(post("/async/auction/house/{auctionHouseId}/{auctionId}/bid",
+                    auctionHouse.getId(), savedAuction.getId())
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(mockedBidder))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(bid))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.type").value("bidding-price-is-low"));
+    }
+
+    @Test
+    @DisplayName("It should reject a batch of bids with an invalid bid before it is applied")
+    void itShouldRejectABatchWithAnInvalidBid() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        Auction mockedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction savedAuction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+        List<BatchBid> bids = Arrays.asList(
+                new BatchBid(savedAuction.getId(), "valid", savedAuction.getInitialPrice() + 1),
+                new BatchBid(null, "without-auction", savedAuction.getInitialPrice() + 2));
+
+        mockMvc.perform(post("/async/auction/house/{auctionHouseId}/bids", auctionHouse.getId())
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(bids))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.violations[0].field").value("bidOnAuctions.bids[1].auctionId"));
+        Assertions.assertTrue(auctionHouseService.getAllBidding(auctionHouse.getId(), savedAuction.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("It should answer the clients waiting for a new leader once the auction is outbid")
+    void itShouldWaitForANewLeader() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        Auction mockedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction savedAuction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+
+        MvcResult waiting = mockMvc.perform(get("/async/auction/house/{auctionHouseId}/{auctionId}/leader",
+                    auctionHouse.getId(), savedAuction.getId())
+                .param("after", "")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockedBidder.setPrice(savedAuction.getInitialPrice() + 1);
+        AuctionBidder leader = auctionHouseService.bidOnAuction(auctionHouse.getId(), savedAuction.getId(), mockedBidder);
+        // The waiters are completed by the dispatcher thread of the events
+        waiting.getAsyncResult(5000);
+        mockMvc.perform(asyncDispatch(waiting))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(leader.getId()));
+
+        // The known leader did not change before the timeout
+        waiting = mockMvc.perform(get("/async/auction/house/{auctionHouseId}/{auctionId}/leader",
+                    auctionHouse.getId(), savedAuction.getId())
+                .param("after", leader.getId())
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockAsyncContext asyncContext = (MockAsyncContext) waiting.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+        mockMvc.perform(asyncDispatch(waiting))
+                .andExpect(status().isNoContent());
+    }
+}
@@ -1,39 +1,78 @@
 package tv.spideo.test.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import tv.spideo.test.config.AuctionProperties;
+import tv.spideo.test.config.JacksonConfiguration;
+import tv.spideo.test.config.IdConfiguration;
+import tv.spideo.test.config.JournalConfiguration;
 import tv.spideo.test.domain.Auction;
 import tv.spideo.test.domain.AuctionBidder;
 import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.domain.BatchBid;
+import tv.spideo.test.domain.BatchBidResult;
+import tv.spideo.test.domain.ImportRecord;
+import tv.spideo.test.domain.ImportReport;
+import tv.spideo.test.domain.Page;
 import tv.spideo.test.repository.AuctionHouseRepositoryImpl;
 import tv.spideo.test.service.AuctionHouseService;
+import tv.spideo.test.service.bulk.AuctionHouseExporter;
+import tv.spideo.test.service.bulk.AuctionHouseImporter;
+import tv.spideo.test.service.event.AuctionEventBroadcaster;
+import tv.spideo.test.service.metrics.AuctionMetrics;
+import tv.spideo.test.service.scheduler.AuctionScheduler;
+import tv.spideo.test.service.sequencer.BidSequencer;
 import tv.spideo.test.util.TestCommonUtils;
+import tv.spideo.test.web.cache.SerializedResponseCache;
 import tv.spideo.test.web.controller.AuctionHouseController;
 import tv.spideo.test.web.exception.AuctionNotFoundException;
+import tv.spideo.test.web.exception.BiddingPriceLowException;
+import tv.spideo.test.web.exception.ExceptionHandlers;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @AutoConfigureMockMvc
 @ExtendWith(SpringExtension.class)
-@WebMvcTest(AuctionHouseController.class)
-@ContextConfiguration(classes = {AuctionHouseController.class, AuctionHouseService.class, AuctionHouseRepositoryImpl.class})
+@WebMvcTest(controllers = AuctionHouseController.class, properties = "auction.bidding.max-batch-size=1000")
+@ContextConfiguration(classes = {AuctionHouseController.class, AuctionHouseService.class, AuctionHouseRepositoryImpl.class,
+        BidSequencer.class, AuctionScheduler.class, AuctionEventBroadcaster.class, AuctionHouseImporter.class, AuctionHouseExporter.class,
+        AuctionMetrics.class, SimpleMeterRegistry.class, AuctionProperties.class, JournalConfiguration.class,
+        JacksonConfiguration.class, IdConfiguration.class, SerializedResponseCache.class, ExceptionHandlers.class})
 class AuctionHouseControllerTests {
 
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+    private static final MediaType CBOR = MediaType.valueOf("application/cbor");
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -43,6 +82,15 @@ class AuctionHouseControllerTests {
     @Autowired
     private AuctionHouseService auctionHouseService;
 
+    @Autowired
+    private AuctionHouseExporter auctionHouseExporter;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborHttpMessageConverter;
+
     private static AuctionHouse mockedAuctionHouse;
     private static Auction mockedAuction;
     private static AuctionBidder mockedBidder;
@@ -103,6 +151,145 @@ class AuctionHouseControllerTests {
         Assertions.assertEquals(objectMapper.writeValueAsString(savedAuctionHouses), auctionHouses);
     }
 
+    @Test
+    @DisplayName("It should answer an unchanged auction house with 304 and a changed one with its new version")
+    void itShouldAnswerAnUnchangedAuctionHouseWithNotModified() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction savedAuction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+
+        MvcResult result = mockMvc.perform(get("/auction/house/{auctionHouseId}", auctionHouse.getId())
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+        String entityTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotNull(entityTag);
+
+        mockMvc.perform(get("/auction/house/{auctionHouseId}", auctionHouse.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, entityTag)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+
+        // An accepted bid changes the auction, so the auction house that serializes it
+        mockedBidder.setPrice(savedAuction.getInitialPrice() + 10d);
+        auctionHouseService.bidOnAuction(auctionHouse.getId(), savedAuction.getId(), mockedBidder);
+        result = mockMvc.perform(get("/auction/house/{auctionHouseId}", auctionHouse.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, entityTag)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+        Assertions.assertNotEquals(entityTag, result.getResponse().getHeader(HttpHeaders.ETAG));
+        Assertions.assertEquals(objectMapper.writeValueAsString(auctionHouseService.getAuctionsByAuctionHouseId(auctionHouse.getId())),
+                result.getResponse().getContentAsString());
+
+        TestCommonUtils.generateListOfRandomAuction(auctionHouse)
+                .forEach((auction) -> auctionHouseService.createAuction(auctionHouse.getId(), auction));
+        result = mockMvc.perform(get("/auction/house/{auctionHouseId}", auctionHouse.getId())
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+        Assertions.assertEquals("gzip", result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+        ByteArrayOutputStream auctions = new ByteArrayOutputStream();
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            byte[] buffer = new byte[8192];
+            for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+                auctions.write(buffer, 0, read);
+            }
+        }
+        Assertions.assertEquals(objectMapper.writeValueAsString(auctionHouseService.getAuctionsByAuctionHouseId(auctionHouse.getId())),
+                auctions.toString("UTF-8"));
+
+        result = mockMvc.perform(get("/auction/house/")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+        mockMvc.perform(get("/auction/house/")
+                .header(HttpHeaders.IF_NONE_MATCH, result.getResponse().getHeader(HttpHeaders.ETAG))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("It should get the summaries of the auction houses and their auctions with the asked fields")
+    void itShouldGetTheSummariesWithTheAskedFields() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction savedAuction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+        mockedBidder.setPrice(savedAuction.getInitialPrice() + 10d);
+        auctionHouseService.bidOnAuction(auctionHouse.getId(), savedAuction.getId(), mockedBidder);
+
+        mockMvc.perform(get("/auction/house/summary")
+                .param("fields", "name,auctionCount")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(auctionHouse.getId()))
+                .andExpect(jsonPath("$[0].name").value(auctionHouse.getName()))
+                .andExpect(jsonPath("$[0].auctionCount").value(1))
+                .andExpect(jsonPath("$[0].creatorName").doesNotExist())
+                .andExpect(jsonPath("$[0].auctions").doesNotExist());
+
+        mockMvc.perform(get("/auction/house/creator/{creatorId}/summary", auctionHouse.getCreatorName())
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].creatorName").value(auctionHouse.getCreatorName()))
+                .andExpect(jsonPath("$[0].auctionCountByStatus.RUNNING").value(1));
+
+        mockMvc.perform(get("/auction/house/{auctionHouseId}/summary", auctionHouse.getId())
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(savedAuction.getId()))
+                .andExpect(jsonPath("$[0].status").value("RUNNING"))
+                .andExpect(jsonPath("$[0].currentPrice").value(mockedBidder.getPrice()))
+                .andExpect(jsonPath("$[0].bidCount").value(1))
+                .andExpect(jsonPath("$[0].bidders").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("It should bid and read the auctions in the binary formats asked by the client")
+    void itShouldNegotiateTheBinaryFormats() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction savedAuction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+
+        ObjectMapper smileMapper = smileHttpMessageConverter.getObjectMapper();
+        mockedBidder.setPrice(savedAuction.getInitialPrice() + 10d);
+        MvcResult result = mockMvc.perform(post("/auction/house/{auctionHouseId}/{auctionId}/bid",
+                    auctionHouse.getId(), savedAuction.getId())
+                .contentType(SMILE)
+                .content(smileMapper.writeValueAsBytes(mockedBidder))
+                .accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn();
+        AuctionBidder bidder = smileMapper.readValue(result.getResponse().getContentAsByteArray(), AuctionBidder.class);
+        Assertions.assertEquals(mockedBidder.getPrice(), bidder.getPrice());
+
+        // The cached auctions are served in the format of each client
+        ObjectMapper cborMapper = cborHttpMessageConverter.getObjectMapper();
+        result = mockMvc.perform(get("/auction/house/{auctionHouseId}", auctionHouse.getId())
+                .accept(CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(CBOR))
+                .andReturn();
+        List<Auction> auctions = cborMapper.readValue(result.getResponse().getContentAsByteArray(),
+                new TypeReference<List<Auction>>() {});
+        Assertions.assertEquals(savedAuction.getId(), auctions.get(0).getId());
+        Assertions.assertEquals(bidder.getPrice(), auctions.get(0).getCurrentPrice());
+        String cborTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        result = mockMvc.perform(get("/auction/house/{auctionHouseId}", auctionHouse.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, cborTag)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        Assertions.assertNotEquals(cborTag, result.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
     @Test
     @DisplayName("it should get all auction houses by creator id")
     void itShouldGetAuctionHouseByCreatorId() throws Exception {
@@ -218,6 +405,26 @@ class AuctionHouseControllerTests {
         Assertions.assertEquals(objectMapper.writeValueAsString(runningAuctions), auctions);
     }
 
+    @Test
+    @DisplayName("It should count the auctions by a specific status of an auction house")
+    void itShouldCountAuctionsByStatus() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        long runningAuctions = TestCommonUtils.generateListOfRandomAuction(auctionHouse)
+                .stream()
+                .map((auction) -> auctionHouseService.createAuction(auctionHouse.getId(), auction))
+                .filter((auction) -> auction.getStatus() == Auction.AuctionStatus.RUNNING)
+                .count();
+
+        MvcResult result = mockMvc.perform(get("/auction/house/{auctionHouseId}/{status}/count",
+                    auctionHouse.getId(), Auction.AuctionStatus.RUNNING)
+                .contentType("application/json")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Assertions.assertEquals(String.valueOf(runningAuctions), result.getResponse().getContentAsString());
+    }
+
     @Test
     @DisplayName("It should update an auction's status of an auction house")
     void itShouldUpdateAnAuctionStatus() throws Exception {
@@ -268,6 +475,30 @@ class AuctionHouseControllerTests {
         Assertions.assertNotNull(bidder.getId());
     }
 
+    @Test
+    @DisplayName("It should reject a low bid with the same problem every time")
+    void itShouldRejectALowBid() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(mockedAuctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction savedAuction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+
+        mockedBidder.setPrice(savedAuction.getInitialPrice() - 1d);
+        String problem = objectMapper.writeValueAsString(new BiddingPriceLowException());
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/auction/house/{auctionHouseId}/{auctionId}/bid",
+                        auctionHouse.getId(), savedAuction.getId())
+                    .contentType("application/json")
+                    .content(objectMapper.writeValueAsString(mockedBidder))
+                    .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(content().contentType("application/problem+json"))
+                    .andExpect(content().json(problem, true));
+        }
+        Assertions.assertEquals(0, new BiddingPriceLowException().getStackTrace().length);
+    }
+
     @Test
     @DisplayName("It should get the actual winner of a specific auction")
     void itShouldGetTheWinnerOfAnAuction() throws Exception {
@@ -313,4 +544,372 @@ class AuctionHouseControllerTests {
         Assertions.assertEquals(mockedBidder.getName(), winner.getName());
     }
 
+    @Test
+    @DisplayName("It should get the actual leader of a running auction")
+    void itShouldGetTheLeaderOfAnAuction() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(mockedAuctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction savedAuction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+
+        mockedBidder.setPrice(savedAuction.getInitialPrice() + 100d);
+        auctionHouseService.bidOnAuction(auctionHouse.getId(), savedAuction.getId(), mockedBidder);
+
+        MvcResult result = mockMvc.perform(get("/auction/house/{auctionHouseId}/{auctionId}/leader",
+                auctionHouse.getId(), savedAuction.getId())
+                .contentType("application/json")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        AuctionBidder leader = objectMapper.readValue(result.getResponse().getContentAsString(), AuctionBidder.class);
+        Assertions.assertEquals(mockedBidder.getId(), leader.getId());
+        Assertions.assertEquals(mockedBidder.getPrice(), leader.getPrice());
+    }
+
+    @Test
+    @DisplayName("It should get the auctions of an auction house page by page")
+    void itShouldGetAuctionsPageByPage() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        TestCommonUtils.generateListOfRandomAuction(auctionHouse)
+                .forEach((auction) -> auctionHouseService.createAuction(auctionHouse.getId(), auction));
+
+        List<String> auctionIds = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder request = get("/auction/house/{auctionHouseId}", auctionHouse.getId())
+                    .param("limit", "2")
+                    .contentType("application/json")
+                    .accept(MediaType.APPLICATION_JSON);
+            if (cursor != null)
+                request.param("cursor", cursor);
+            MvcResult result = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn();
+            Page<Auction> page = objectMapper.readValue(result.getResponse().getContentAsString(),
+                    new TypeReference<Page<Auction>>() {});
+            Assertions.assertTrue(page.getItems().size() <= 2);
+            page.getItems().forEach((auction) -> auctionIds.add(auction.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        List<String> savedAuctionIds = auctionHouseService.getAuctionsByAuctionHouseId(auctionHouse.getId())
+                .stream()
+                .map(Auction::getId)
+                .sorted()
+                .collect(Collectors.toList());
+        Assertions.assertEquals(savedAuctionIds, auctionIds);
+    }
+
+    @Test
+    @DisplayName("It should get the bidding of an auction page by page and as a stream")
+    void itShouldGetBiddingPageByPageAndAsAStream() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(mockedAuctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction savedAuction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+        List<Double> biddingPrices = TestCommonUtils.generateListOfBiddingPrices(savedAuction.getInitialPrice());
+        biddingPrices.forEach((price) -> {
+            AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+            bidder.setPrice(price);
+            auctionHouseService.bidOnAuction(auctionHouse.getId(), savedAuction.getId(), bidder);
+        });
+
+        MvcResult firstPage = mockMvc.perform(get("/auction/house/{auctionHouseId}/{auctionId}/bid",
+                auctionHouse.getId(), savedAuction.getId())
+                .param("limit", "3")
+                .contentType("application/json")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+        Page<AuctionBidder> page = objectMapper.readValue(firstPage.getResponse().getContentAsString(),
+                new TypeReference<Page<AuctionBidder>>() {});
+        Assertions.assertEquals(3, page.getItems().size());
+        Assertions.assertNotNull(page.getNextCursor());
+
+        MvcResult lastPage = mockMvc.perform(get("/auction/house/{auctionHouseId}/{auctionId}/bid",
+                auctionHouse.getId(), savedAuction.getId())
+                .param("limit", "3")
+                .param("cursor", page.getNextCursor())
+                .contentType("application/json")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+        page = objectMapper.readValue(lastPage.getResponse().getContentAsString(),
+                new TypeReference<Page<AuctionBidder>>() {});
+        Assertions.assertEquals(1, page.getItems().size());
+        Assertions.assertEquals(biddingPrices.get(3), page.getItems().get(0).getPrice());
+        Assertions.assertNull(page.getNextCursor());
+
+        MvcResult stream = mockMvc.perform(get("/auction/house/{auctionHouseId}/{auctionId}/bid",
+                auctionHouse.getId(), savedAuction.getId())
+                .param("stream", "true")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult streamedResult = mockMvc.perform(asyncDispatch(stream))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<AuctionBidder> bidders = objectMapper.readValue(streamedResult.getResponse().getContentAsString(),
+                new TypeReference<List<AuctionBidder>>() {});
+        Assertions.assertEquals(biddingPrices, bidders.stream().map(AuctionBidder::getPrice).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("It should push the bids, the status and the winner of an auction to its subscribers")
+    void itShouldStreamTheEventsOfAnAuction() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(mockedAuctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction savedAuction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+
+        List<MvcResult> subscriptions = new ArrayList<>();
+        for (int idx = 0; idx < 3; idx++) {
+            subscriptions.add(mockMvc.perform(get("/auction/house/{auctionHouseId}/{auctionId}/events",
+                    auctionHouse.getId(), savedAuction.getId())
+                    .accept(MediaType.TEXT_EVENT_STREAM))
+                    .andExpect(request().asyncStarted())
+                    .andReturn());
+        }
+        List<Double> biddingPrices = TestCommonUtils.generateListOfBiddingPrices(savedAuction.getInitialPrice());
+        biddingPrices.forEach((price) -> {
+            AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+            bidder.setPrice(price);
+            auctionHouseService.bidOnAuction(auctionHouse.getId(), savedAuction.getId(), bidder);
+        });
+        auctionHouseService.updateAuctionStatus(auctionHouse.getId(), savedAuction.getId(), Auction.AuctionStatus.TERMINATED);
+
+        for (MvcResult subscription : subscriptions) {
+            // The events are sent by the dispatcher thread, the stream is completed after the winner
+            subscription.getAsyncResult(5000);
+            mockMvc.perform(asyncDispatch(subscription))
+                    .andExpect(status().isOk());
+            String events = subscription.getResponse().getContentAsString();
+            Assertions.assertTrue(events.startsWith("event: status\ndata: "));
+            Assertions.assertEquals(biddingPrices.size(), events.split("event: bid\n", -1).length - 1);
+            Assertions.assertTrue(events.contains("id: " + biddingPrices.size() + "\nevent: status\ndata: "
+                    + "{\"auctionId\":\"" + savedAuction.getId() + "\",\"status\":\"TERMINATED\""));
+            Assertions.assertTrue(events.endsWith("\"price\":" + biddingPrices.get(biddingPrices.size() - 1) + "}\n\n"));
+            Assertions.assertTrue(events.contains("event: winner\n"));
+        }
+
+        // A finished auction only sends its last status and its winner
+        MvcResult lateSubscription = mockMvc.perform(get("/auction/house/{auctionHouseId}/{auctionId}/events",
+                auctionHouse.getId(), savedAuction.getId())
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(lateSubscription))
+                .andExpect(status().isOk());
+        Assertions.assertEquals(2, lateSubscription.getResponse().getContentAsString().split("\n\n").length);
+    }
+
+    @Test
+    @DisplayName("It should bid on the auctions of an auction house in one request")
+    void itShouldBidOnAuctionsInOneRequest() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(mockedAuctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction savedAuction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+        List<BatchBid> bids = new ArrayList<>();
+        for (int idx = 1; idx <= 100; idx++) {
+            bids.add(new BatchBid(savedAuction.getId(), "bidder-" + idx, savedAuction.getInitialPrice() + idx));
+        }
+        bids.add(new BatchBid(savedAuction.getId(), "too-low", savedAuction.getInitialPrice()));
+
+        MvcResult result = mockMvc.perform(post("/auction/house/{auctionHouseId}/bids", auctionHouse.getId())
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(bids))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<BatchBidResult> results = objectMapper.readValue(result.getResponse().getContentAsString(),
+                new TypeReference<List<BatchBidResult>>() {});
+        Assertions.assertEquals(bids.size(), results.size());
+        Assertions.assertEquals(100, results.stream().filter(BatchBidResult::isAccepted).count());
+        Assertions.assertFalse(results.get(100).isAccepted());
+        Assertions.assertEquals(savedAuction.getInitialPrice() + 100,
+                auctionHouseService.getAuctionLeader(auctionHouse.getId(), savedAuction.getId()).getPrice());
+    }
+
+    @Test
+    @DisplayName("It should reject a batch of bids with an invalid bid")
+    void itShouldRejectABatchWithAnInvalidBid() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(mockedAuctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction savedAuction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+        List<BatchBid> bids = Arrays.asList(
+                new BatchBid(savedAuction.getId(), "valid", savedAuction.getInitialPrice() + 1),
+                new BatchBid(null, "without-auction", savedAuction.getInitialPrice() + 2));
+
+        mockMvc.perform(post("/auction/house/{auctionHouseId}/bids", auctionHouse.getId())
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(bids))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType("application/problem+json"))
+                .andExpect(jsonPath("$.violations[0].field").value("bidOnAuctions.bids[1].auctionId"));
+        Assertions.assertTrue(auctionHouseService.getAllBidding(auctionHouse.getId(), savedAuction.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("It should reject a batch with more bids than the maximum batch size")
+    void itShouldRejectABatchTooLarge() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(mockedAuctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction savedAuction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+        List<BatchBid> bids = new ArrayList<>();
+        for (int idx = 1; idx <= 1001; idx++) {
+            bids.add(new BatchBid(savedAuction.getId(), "bidder-" + idx, savedAuction.getInitialPrice() + idx));
+        }
+
+        mockMvc.perform(post("/auction/house/{auctionHouseId}/bids", auctionHouse.getId())
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(bids))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.type").value("batch-too-large"));
+        Assertions.assertTrue(auctionHouseService.getAllBidding(auctionHouse.getId(), savedAuction.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("It should import auction houses, auctions and bids from newline-delimited JSON")
+    void itShouldImportRecordsFromNewlineDelimitedJson() throws Exception {
+        mockedAuctionHouse.setId("imported-house");
+        mockedAuction = TestCommonUtils.generateRandomAuction(mockedAuctionHouse, false, 0);
+        mockedAuction.setId("imported-auction");
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        List<String> lines = new ArrayList<>();
+        lines.add(objectMapper.writeValueAsString(ImportRecord.ofAuctionHouse(mockedAuctionHouse)));
+        lines.add(objectMapper.writeValueAsString(ImportRecord.ofAuction("imported-house", mockedAuction)));
+        // The bids were accepted by the old platform, a lower one is kept in the history
+        for (double price : new double[] {20, 30, 25}) {
+            mockedBidder = TestCommonUtils.generateRandomBidder();
+            mockedBidder.setPrice(mockedAuction.getInitialPrice() + price);
+            lines.add(objectMapper.writeValueAsString(ImportRecord.ofBid("imported-house", "imported-auction", mockedBidder)));
+        }
+        lines.add(objectMapper.writeValueAsString(ImportRecord.ofAuction("unknown-house", mockedAuction)));
+        lines.add(objectMapper.writeValueAsString(ImportRecord.ofBid("imported-house", "unknown-auction", mockedBidder)));
+        lines.add("{\"unknown\": 1}");
+        lines.add("{\"auctionHouseId\": \"imported-house\", \"auction\": {\"initialPrice\": \"free\"}}");
+        mockedBidder.setPrice(mockedAuction.getInitialPrice() + 40);
+        lines.add(objectMapper.writeValueAsString(ImportRecord.ofBid("imported-house", "imported-auction", mockedBidder)));
+        // A bid without a bidding time is rejected alone, the import goes on
+        lines.add("{\"auctionHouseId\": \"imported-house\", \"auctionId\": \"imported-auction\", "
+                + "\"bid\": {\"price\": 1000000, \"biddingTime\": null}}");
+        // An auction that exists is not replaced, the bids that follow it are rejected
+        lines.add(objectMapper.writeValueAsString(ImportRecord.ofAuction("imported-house", mockedAuction)));
+        mockedBidder = TestCommonUtils.generateRandomBidder();
+        mockedBidder.setPrice(mockedAuction.getInitialPrice() + 50);
+        lines.add(objectMapper.writeValueAsString(ImportRecord.ofBid("imported-house", "imported-auction", mockedBidder)));
+
+        MvcResult result = mockMvc.perform(post("/auction/house/import")
+                .contentType("application/x-ndjson")
+                .content(String.join("\n", lines))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+        ImportReport report = objectMapper.readValue(result.getResponse().getContentAsString(), ImportReport.class);
+        Assertions.assertTrue(report.isCompleted());
+        Assertions.assertEquals(lines.size(), report.getRecords());
+        Assertions.assertEquals(1, report.getAuctionHouses());
+        Assertions.assertEquals(1, report.getAuctions());
+        Assertions.assertEquals(4, report.getBids());
+        Assertions.assertEquals(7, report.getRejected());
+        Assertions.assertEquals(Arrays.asList(6L, 7L, 8L, 9L, 11L, 12L, 13L), report.getRejections().stream()
+                .map(ImportReport.Rejection::getLine).collect(Collectors.toList()));
+        Assertions.assertEquals("auction-house-not-found", report.getRejections().get(0).getError());
+        Assertions.assertEquals("auction-not-found", report.getRejections().get(1).getError());
+        Assertions.assertEquals("invalid-import-record", report.getRejections().get(4).getError());
+        Assertions.assertEquals("auction-already-exist", report.getRejections().get(5).getError());
+        Assertions.assertEquals("auction-already-exist", report.getRejections().get(6).getError());
+        Assertions.assertEquals(4, auctionHouseService.streamBidding("imported-house", "imported-auction").count());
+        Assertions.assertEquals(mockedAuction.getInitialPrice() + 40,
+                auctionHouseService.getAuctionLeader("imported-house", "imported-auction").getPrice());
+
+        // A line that is not JSON stops the import, the records before it stay imported
+        String importedName = mockedAuctionHouse.getName();
+        do {
+            mockedAuctionHouse = TestCommonUtils.generateRandomAuctionHouse(false, 0);
+        } while (importedName.equals(mockedAuctionHouse.getName()));
+        result = mockMvc.perform(post("/auction/house/import")
+                .contentType("application/x-ndjson")
+                .content(objectMapper.writeValueAsString(ImportRecord.ofAuctionHouse(mockedAuctionHouse))
+                        + "\n{\"auction\": \n")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+        report = objectMapper.readValue(result.getResponse().getContentAsString(), ImportReport.class);
+        Assertions.assertFalse(report.isCompleted());
+        Assertions.assertEquals(1, report.getAuctionHouses());
+        Assertions.assertEquals("invalid-import-record", report.getRejections().get(0).getError());
+        Assertions.assertEquals(2, auctionHouseService.getAllAuctionHouses().size());
+    }
+
+    @Test
+    @DisplayName("It should export the auction houses as they were when the export started and import them back")
+    void itShouldExportAndImportTheAuctionHouses() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        List<Auction> auctions = new ArrayList<>();
+        for (int idx = 0; idx < 3; idx++) {
+            mockedAuction = TestCommonUtils.generateRandomAuction(mockedAuctionHouse, false, 0);
+            mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+            auctions.add(auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction));
+        }
+        for (int idx = 1; idx <= 10; idx++) {
+            mockedBidder = TestCommonUtils.generateRandomBidder();
+            mockedBidder.setPrice(auctions.get(idx % 3).getInitialPrice() + idx);
+            auctionHouseService.bidOnAuction(auctionHouse.getId(), auctions.get(idx % 3).getId(), mockedBidder);
+        }
+
+        // The bids accepted after the cut are not exported, the copies of the cut take no version
+        long version = auctionHouseService.getAuctionHousesVersion();
+        AuctionHouseExporter.Cut cut = auctionHouseExporter.cut();
+        Assertions.assertEquals(version, auctionHouseService.getAuctionHousesVersion());
+        mockedBidder = TestCommonUtils.generateRandomBidder();
+        mockedBidder.setPrice(auctions.get(0).getCurrentPrice() + 1);
+        auctionHouseService.bidOnAuction(auctionHouse.getId(), auctions.get(0).getId(), mockedBidder);
+        ByteArrayOutputStream cutOutput = new ByteArrayOutputStream();
+        Assertions.assertEquals(1 + 3 + 10, auctionHouseExporter.writeTo(cut, cutOutput));
+
+        MvcResult result = mockMvc.perform(get("/auction/house/export")
+                .header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andReturn();
+        Assertions.assertEquals("gzip", result.getResponse().getHeader("Content-Encoding"));
+        byte[] exported = readAll(new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray())));
+        String[] lines = new String(exported, "UTF-8").split("\n");
+        Assertions.assertEquals(1 + 3 + 11, lines.length);
+        Assertions.assertEquals(auctionHouse.getId(),
+                objectMapper.readValue(lines[0], ImportRecord.class).getAuctionHouse().getId());
+
+        auctionHouseService.deleteAllAuctionHouse();
+        result = mockMvc.perform(post("/auction/house/import")
+                .contentType("application/x-ndjson")
+                .content(exported)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+        ImportReport report = objectMapper.readValue(result.getResponse().getContentAsString(), ImportReport.class);
+        Assertions.assertEquals(0, report.getRejected());
+        for (Auction auction : auctions) {
+            Assertions.assertEquals(auction.getBidLog().size(),
+                    auctionHouseService.streamBidding(auctionHouse.getId(), auction.getId()).count());
+            Assertions.assertEquals(auction.getLeader().getBidder().getId(),
+                    auctionHouseService.getAuctionLeader(auctionHouse.getId(), auction.getId()).getId());
+        }
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) > 0) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
 }
@@ -0,0 +1,112 @@
+package tv.spideo.test.domain;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tv.spideo.test.util.CommonUtils;
+import tv.spideo.test.util.TestCommonUtils;
+import tv.spideo.test.util.id.SnowflakeIdGenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+class BidLogTests {
+
+    @Test
+    @DisplayName("It should give back the appended bids in order across many chunks")
+    void itShouldAppendAndReadBids() {
+        BidLog bidLog = new BidLog();
+        List<AuctionBidder> bidders = new ArrayList<>();
+        for (int idx = 0; idx < 20_000; idx++) {
+            AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+            bidder.setId(CommonUtils.generateUUID());
+            bidder.setPrice(idx);
+            bidders.add(bidder);
+            Assertions.assertEquals(idx, bidLog.append(bidder));
+        }
+        Assertions.assertEquals(bidders.size(), bidLog.size());
+
+        List<AuctionBidder> loggedBidders = new ArrayList<>();
+        bidLog.forEach(loggedBidders::add);
+        for (int idx = 0; idx < bidders.size(); idx++) {
+            Assertions.assertEquals(bidders.get(idx).getId(), loggedBidders.get(idx).getId());
+            Assertions.assertEquals(bidders.get(idx).getName(), loggedBidders.get(idx).getName());
+            Assertions.assertEquals(bidders.get(idx).getPrice(), loggedBidders.get(idx).getPrice());
+            Assertions.assertEquals(bidders.get(idx).getBiddingTime().toEpochMilli(),
+                    loggedBidders.get(idx).getBiddingTime().toEpochMilli());
+        }
+        Assertions.assertEquals(bidders.get(12_345).getId(), bidLog.get(12_345).getId());
+        Assertions.assertEquals(12_345d, bidLog.getPrice(12_345));
+    }
+
+    @Test
+    @DisplayName("It should only go through the bids of the given range")
+    void itShouldReadARangeOfBids() {
+        BidLog bidLog = new BidLog();
+        for (int idx = 0; idx < 100; idx++) {
+            AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+            bidder.setId(CommonUtils.generateUUID());
+            bidder.setPrice(idx);
+            bidLog.append(bidder);
+        }
+        List<Double> prices = new ArrayList<>();
+        bidLog.forEach(10, 20, (bidder) -> prices.add(bidder.getPrice()));
+        Assertions.assertEquals(10, prices.size());
+        Assertions.assertEquals(10d, prices.get(0));
+        Assertions.assertEquals(19d, prices.get(9));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> bidLog.get(100));
+    }
+
+    @Test
+    @DisplayName("It should write the bids and read them back with their names and the highest price")
+    void itShouldWriteAndReadBids() throws Exception {
+        BidLog bidLog = new BidLog();
+        for (int idx = 0; idx < 10_000; idx++) {
+            AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+            bidder.setId(CommonUtils.generateUUID());
+            bidder.setName("bidder-" + (idx % 7));
+            bidder.setPrice(idx);
+            bidLog.append(bidder);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bidLog.writeTo(new DataOutputStream(bytes), 9_000);
+
+        BidLog readBidLog = BidLog.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        Assertions.assertEquals(9_000, readBidLog.size());
+        Assertions.assertEquals(8_999, readBidLog.getHighestPricePosition());
+        Assertions.assertEquals(bidLog.get(4_321).getId(), readBidLog.get(4_321).getId());
+        Assertions.assertEquals(bidLog.get(4_321).getName(), readBidLog.get(4_321).getName());
+
+        // The dictionary of the names is restored, so a known name is not added twice
+        AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+        bidder.setId(CommonUtils.generateUUID());
+        bidder.setName("bidder-3");
+        Assertions.assertEquals(9_000, readBidLog.append(bidder));
+        Assertions.assertEquals("bidder-3", readBidLog.get(9_000).getName());
+    }
+
+    @Test
+    @DisplayName("It should give back the compact ids and the UUIDs of the bids as they were appended")
+    void itShouldKeepTheCompactIdsAndTheUUIDs() {
+        BidLog bidLog = new BidLog();
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(3);
+        List<String> ids = new ArrayList<>();
+        for (int idx = 0; idx < 100; idx++) {
+            AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+            bidder.setId(idx % 2 == 0 ? idGenerator.generateId() : CommonUtils.generateUUID());
+            ids.add(bidder.getId());
+            bidLog.append(bidder);
+        }
+        for (int idx = 0; idx < ids.size(); idx++) {
+            Assertions.assertEquals(ids.get(idx), bidLog.get(idx).getId());
+        }
+        Assertions.assertTrue(BidLog.isValidId(ids.get(0)));
+        Assertions.assertFalse(BidLog.isValidId("00000000-0000-0000-0000-000000000001"));
+        Assertions.assertFalse(BidLog.isValidId("not an id"));
+    }
+
+}
@@ -0,0 +1,112 @@
+package tv.spideo.test.repository.journal;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
+import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.util.CommonUtils;
+import tv.spideo.test.util.TestCommonUtils;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+class WriteAheadLogTests {
+
+    @Test
+    @DisplayName("It should give back the appended records in order")
+    void itShouldReplayTheAppendedRecords(@TempDir Path directory) throws Exception {
+        AuctionHouse auctionHouse = TestCommonUtils.generateRandomAuctionHouse(false, 0);
+        auctionHouse.setId(CommonUtils.generateUUID());
+        Auction auction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        auction.setId(CommonUtils.generateUUID());
+        AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+        bidder.setId(CommonUtils.generateUUID());
+
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 1024 * 1024, true, 16);
+        List<CompletableFuture<Void>> durables = new ArrayList<>();
+        durables.add(writeAheadLog.append(JournalRecord.auctionHouseSaved(auctionHouse)));
+        durables.add(writeAheadLog.append(JournalRecord.auctionSaved(auctionHouse.getId(), auction)));
+        durables.add(writeAheadLog.append(JournalRecord.auctionStatusChanged(auctionHouse.getId(), auction.getId(),
+                Auction.AuctionStatus.RUNNING)));
+        durables.add(writeAheadLog.append(JournalRecord.bidAccepted(auctionHouse.getId(), auction.getId(), bidder)));
+        CompletableFuture.allOf(durables.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        writeAheadLog.close();
+
+        List<JournalRecord> records = new ArrayList<>();
+        WriteAheadLog reopenedWriteAheadLog = new WriteAheadLog(directory, 1024 * 1024, true, 16);
+        reopenedWriteAheadLog.replay((restoredAuctionHouse) -> { }, records::add);
+        reopenedWriteAheadLog.close();
+
+        Assertions.assertEquals(4, records.size());
+        Assertions.assertEquals(auctionHouse.getName(), records.get(0).getAuctionHouseName());
+        Assertions.assertEquals(auctionHouse.getCreatorName(), records.get(0).getCreatorName());
+        Assertions.assertEquals(auction.getName(), records.get(1).getAuction().getName());
+        Assertions.assertEquals(auction.getStartingTime(), records.get(1).getAuction().getStartingTime());
+        Assertions.assertEquals(auction.getInitialPrice(), records.get(1).getAuction().getInitialPrice());
+        Assertions.assertEquals(Auction.AuctionStatus.RUNNING, records.get(2).getStatus());
+        Assertions.assertEquals(bidder.getId(), records.get(3).getBidder().getId());
+        Assertions.assertEquals(bidder.getPrice(), records.get(3).getBidder().getPrice());
+    }
+
+    @Test
+    @DisplayName("It should cut a torn record at the end of the log and append after the valid ones")
+    void itShouldCutATornRecord(@TempDir Path directory) throws Exception {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 1024 * 1024, false, 16);
+        for (int idx = 0; idx < 3; idx++) {
+            writeAheadLog.append(JournalRecord.auctionHouseDeleted("auction-house-" + idx)).get(10, TimeUnit.SECONDS);
+        }
+        writeAheadLog.close();
+
+        // Simulate a crash in the middle of the last record
+        Path segment = Files.list(directory).findFirst().orElseThrow(IllegalStateException::new);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        List<JournalRecord> records = new ArrayList<>();
+        WriteAheadLog reopenedWriteAheadLog = new WriteAheadLog(directory, 1024 * 1024, false, 16);
+        reopenedWriteAheadLog.replay((restoredAuctionHouse) -> { }, records::add);
+        reopenedWriteAheadLog.append(JournalRecord.auctionHouseDeleted("auction-house-3")).get(10, TimeUnit.SECONDS);
+        reopenedWriteAheadLog.close();
+        Assertions.assertEquals(2, records.size());
+
+        records.clear();
+        WriteAheadLog replayedWriteAheadLog = new WriteAheadLog(directory, 1024 * 1024, false, 16);
+        replayedWriteAheadLog.replay((restoredAuctionHouse) -> { }, records::add);
+        replayedWriteAheadLog.close();
+        Assertions.assertEquals(
+                Arrays.asList("auction-house-0", "auction-house-1", "auction-house-3"),
+                records.stream().map(JournalRecord::getAuctionHouseId).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("It should reject the records once a write failed instead of leaving them waiting")
+    void itShouldRejectTheRecordsOnceAWriteFailed(@TempDir Path directory) throws Exception {
+        Path logDirectory = directory.resolve("log");
+        WriteAheadLog writeAheadLog = new WriteAheadLog(logDirectory, 1024 * 1024, false, 16);
+        // The segment can not be created anymore
+        Files.delete(logDirectory);
+
+        CompletableFuture<Void> failed = writeAheadLog.append(JournalRecord.auctionHouseDeleted("auction-house-0"));
+        Assertions.assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+        Assertions.assertNotNull(writeAheadLog.getFailure());
+        CompletableFuture<Void> rejected = writeAheadLog.append(JournalRecord.auctionHouseDeleted("auction-house-1"));
+        ExecutionException rejection = Assertions.assertThrows(ExecutionException.class,
+                () -> rejected.get(10, TimeUnit.SECONDS));
+        Assertions.assertTrue(rejection.getCause() instanceof IllegalStateException);
+        writeAheadLog.close();
+    }
+
+}
@@ -0,0 +1,63 @@
+package tv.spideo.test.repository.storage;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tv.spideo.test.domain.AuctionBidder;
+import tv.spideo.test.domain.BidLog;
+import tv.spideo.test.util.CommonUtils;
+import tv.spideo.test.util.TestCommonUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+class MappedBidLogStorageTests {
+
+    @Test
+    @DisplayName("It should read the bids in place after the storage is opened again")
+    void itShouldReopenTheBidLogs(@TempDir Path directory) throws Exception {
+        MappedBidLogStorage storage = new MappedBidLogStorage(directory);
+        BidLog bidLog = storage.open("auction");
+        List<AuctionBidder> bidders = new ArrayList<>();
+        // More bids than a region and more names than a region of names
+        for (int idx = 0; idx < 40_000; idx++) {
+            AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+            bidder.setId(CommonUtils.generateUUID());
+            bidder.setName(bidder.getName() + "-" + idx + "-" + String.join("", Collections.nCopies(20, "x")));
+            bidder.setPrice(idx);
+            bidders.add(bidder);
+            bidLog.append(bidder);
+        }
+        Assertions.assertSame(bidLog, storage.open("auction"));
+        storage.close();
+
+        MappedBidLogStorage reopenedStorage = new MappedBidLogStorage(directory);
+        BidLog reopenedBidLog = reopenedStorage.open("auction");
+        Assertions.assertTrue(reopenedBidLog.isPersistent());
+        Assertions.assertEquals(bidders.size(), reopenedBidLog.size());
+        Assertions.assertEquals(bidders.size() - 1, reopenedBidLog.getHighestPricePosition());
+        for (int idx = 0; idx < bidders.size(); idx += 997) {
+            AuctionBidder bidder = reopenedBidLog.get(idx);
+            Assertions.assertEquals(bidders.get(idx).getId(), bidder.getId());
+            Assertions.assertEquals(bidders.get(idx).getName(), bidder.getName());
+            Assertions.assertEquals(bidders.get(idx).getPrice(), bidder.getPrice());
+        }
+
+        // The names are indexed again, so a known bidder does not add a name
+        AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+        bidder.setId(CommonUtils.generateUUID());
+        bidder.setName(bidders.get(0).getName());
+        bidder.setPrice(bidders.size());
+        Assertions.assertEquals(bidders.size(), reopenedBidLog.append(bidder));
+        Assertions.assertEquals(bidders.get(0).getName(), reopenedBidLog.get(bidders.size()).getName());
+
+        reopenedStorage.retain(Collections.emptySet());
+        Assertions.assertEquals(0, Files.list(directory).filter((file) -> file.toString().endsWith(".bids")).count());
+        reopenedStorage.close();
+    }
+
+}
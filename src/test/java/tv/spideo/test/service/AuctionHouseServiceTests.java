@@ -1,16 +1,34 @@
 package tv.spideo.test.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import tv.spideo.test.config.AuctionProperties;
 import tv.spideo.test.domain.Auction;
 import tv.spideo.test.domain.AuctionBidder;
 import tv.spideo.test.domain.AuctionHouse;
+import tv.spideo.test.domain.BatchBid;
+import tv.spideo.test.domain.BatchBidResult;
 import tv.spideo.test.repository.AuctionHouseRepositoryImpl;
+import tv.spideo.test.repository.journal.WriteAheadLog;
+import tv.spideo.test.repository.storage.MappedBidLogStorage;
+import tv.spideo.test.service.metrics.AuctionMetrics;
+import tv.spideo.test.service.scheduler.AuctionScheduler;
+import tv.spideo.test.service.sequencer.BidSequencer;
+import tv.spideo.test.util.AuctionHouseServiceBuilder;
 import tv.spideo.test.util.CommonUtils;
 import tv.spideo.test.util.TestCommonUtils;
 import tv.spideo.test.web.exception.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -23,7 +41,7 @@ class AuctionHouseServiceTests {
 
     @BeforeAll
     static void setUp() {
-        auctionHouseService = new AuctionHouseService(new AuctionHouseRepositoryImpl());
+        auctionHouseService = AuctionHouseServiceBuilder.of(new AuctionHouseRepositoryImpl()).build();
     }
 
     @BeforeEach
@@ -97,6 +115,57 @@ class AuctionHouseServiceTests {
         auctionHouses.forEach((auctionHouse) -> Assertions.assertNotEquals(auctionHouse.getId(), randomAuctionHouse.getId()));
     }
 
+    @Test
+    @DisplayName("It should release the name and the creator of a deleted auction house")
+    void itShouldReindexADeletedAuctionHouse() {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        Assertions.assertEquals(1, auctionHouseService.getAuctionHousesByCreatorId(auctionHouse.getCreatorName()).size());
+
+        auctionHouseService.deleteAuctionHouse(auctionHouse.getId());
+        Assertions.assertTrue(auctionHouseService.getAuctionHousesByCreatorId(auctionHouse.getCreatorName()).isEmpty());
+
+        AuctionHouse sameNameAuctionHouse = auctionHouseService.createAuctionHouse(AuctionHouse.builder()
+                .name(auctionHouse.getName())
+                .creatorName(auctionHouse.getCreatorName())
+                .build());
+        Assertions.assertNotEquals(auctionHouse.getId(), sameNameAuctionHouse.getId());
+        Assertions.assertEquals(sameNameAuctionHouse.getId(), auctionHouseService
+                .getAuctionHousesByCreatorId(auctionHouse.getCreatorName()).get(0).getId());
+    }
+
+    @Test
+    @DisplayName("It should create only one auction house when the same name is used concurrently")
+    void itShouldCreateOnlyOneAuctionHouseWithTheSameName() throws Exception {
+        int threads = 8;
+        AtomicInteger createdAuctionHouses = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    auctionHouseService.createAuctionHouse(AuctionHouse.builder()
+                            .name(mockedAuctionHouse.getName())
+                            .creatorName(mockedAuctionHouse.getCreatorName())
+                            .build());
+                    createdAuctionHouses.incrementAndGet();
+                } catch (AuctionHouseAlreadyExistException ignored) {
+                    // Another thread took the name first
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(1, createdAuctionHouses.get());
+        Assertions.assertEquals(1, auctionHouseService.getAllAuctionHouses().size());
+    }
+
     @Test
     @DisplayName("It should add an auction in a specific auction house")
     void itShouldAddAnAuction() {
@@ -215,6 +284,26 @@ class AuctionHouseServiceTests {
                 .forEach((auction) -> Assertions.assertEquals(Auction.AuctionStatus.NOT_STARTED, auction.getStatus()));
     }
 
+    @Test
+    @DisplayName("It should count and move the auctions of an auction house when their status is updated")
+    void itShouldCountAuctionsByStatus() {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        List<Auction> auctions = IntStream.range(0, 3)
+                .mapToObj((index) -> auctionHouseService.createAuction(auctionHouse.getId(), TestCommonUtils.generateRandomAuction()))
+                .collect(Collectors.toList());
+        Assertions.assertEquals(3, auctionHouseService.countAuctionsByStatus(auctionHouse.getId(), Auction.AuctionStatus.NOT_STARTED));
+        Assertions.assertEquals(0, auctionHouseService.countAuctionsByStatus(auctionHouse.getId(), Auction.AuctionStatus.RUNNING));
+
+        auctionHouseService.updateAuctionStatus(auctionHouse.getId(), auctions.get(0).getId(), Auction.AuctionStatus.RUNNING);
+        auctionHouseService.deleteAuction(auctionHouse.getId(), auctions.get(1).getId());
+
+        Assertions.assertEquals(1, auctionHouseService.countAuctionsByStatus(auctionHouse.getId(), Auction.AuctionStatus.NOT_STARTED));
+        Assertions.assertEquals(1, auctionHouseService.countAuctionsByStatus(auctionHouse.getId(), Auction.AuctionStatus.RUNNING));
+        List<Auction> runningAuctions = auctionHouseService.getAuctionsByStatus(auctionHouse.getId(), Auction.AuctionStatus.RUNNING);
+        Assertions.assertEquals(1, runningAuctions.size());
+        Assertions.assertEquals(auctions.get(0).getId(), runningAuctions.get(0).getId());
+    }
+
     @Test
     @DisplayName("It should bid on a specific auction")
     void itShouldBidOnAnAuction() {
@@ -274,6 +363,21 @@ class AuctionHouseServiceTests {
                 .forEach((price) -> Assertions.assertTrue(biddingPrices.contains(price)));
     }
 
+    @Test
+    @DisplayName("It should throw an invalid cursor exception when the cursor was not given by a previous page")
+    void itShouldThrowInvalidCursorException() {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(mockedAuctionHouse, false, 0);
+        Auction auction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+        Assertions.assertThrows(InvalidCursorException.class, () ->
+                auctionHouseService.getBiddingPage(auctionHouse.getId(), auction.getId(), 10, "not-a-cursor!")
+        );
+        Assertions.assertThrows(InvalidCursorException.class, () ->
+                auctionHouseService.getBiddingPage(auctionHouse.getId(), auction.getId(), 10,
+                        CommonUtils.encodeCursor("first"))
+        );
+    }
+
     @Test
     @DisplayName("It should throw an auction not started exception if a bidder want to bid")
     void itShouldThrowAuctionNotStartedException() {
@@ -299,6 +403,85 @@ class AuctionHouseServiceTests {
         );
     }
 
+    @Test
+    @DisplayName("It should refuse a bid whose price is not a finite number and keep the leader")
+    void itShouldRefuseANonFinitePrice() {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(mockedAuctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction auction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+        mockedBidder.setPrice(auction.getInitialPrice() + 1);
+        AuctionBidder leader = auctionHouseService.bidOnAuction(auctionHouse.getId(), auction.getId(), mockedBidder);
+
+        for (double price : new double[] {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+            bidder.setPrice(price);
+            Assertions.assertThrows(InvalidBidException.class, () ->
+                    auctionHouseService.bidOnAuction(auctionHouse.getId(), auction.getId(), bidder));
+        }
+        // A lower bid is still refused once the others were
+        mockedBidder = TestCommonUtils.generateRandomBidder();
+        mockedBidder.setPrice(auction.getInitialPrice() + 0.5);
+        Assertions.assertThrows(BiddingPriceLowException.class, () ->
+                auctionHouseService.bidOnAuction(auctionHouse.getId(), auction.getId(), mockedBidder));
+        Assertions.assertEquals(leader.getId(), auctionHouseService.getAuctionLeader(auctionHouse.getId(), auction.getId()).getId());
+        Assertions.assertEquals(1, auction.getBidLog().size());
+    }
+
+    @Test
+    @DisplayName("It should refuse a bid without a bidding time before it leads the auction")
+    void itShouldRefuseABidWithoutBiddingTime() {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(mockedAuctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction auction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+        AuctionBidder bidder = AuctionBidder.builder()
+                .name("Anonymous")
+                .biddingTime(null)
+                .price(auction.getInitialPrice() + 1)
+                .build();
+        Assertions.assertThrows(InvalidBidException.class, () ->
+                auctionHouseService.bidOnAuction(auctionHouse.getId(), auction.getId(), bidder));
+        Assertions.assertNull(auction.getLeader());
+        Assertions.assertEquals(0, auction.getBidLog().size());
+    }
+
+    @Test
+    @DisplayName("It should not put a deleted auction back in the auctions of its status")
+    void itShouldNotChangeTheStatusOfADeletedAuction() {
+        AuctionHouseRepositoryImpl auctionHouseRepository = new AuctionHouseRepositoryImpl();
+        AuctionHouseService service = AuctionHouseServiceBuilder.of(auctionHouseRepository).build();
+        AuctionHouse auctionHouse = service.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(mockedAuctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.NOT_STARTED);
+        Auction auction = service.createAuction(auctionHouse.getId(), mockedAuction);
+        Assertions.assertTrue(service.deleteAuction(auctionHouse.getId(), auction.getId()));
+
+        // A status change that got the auction before it was deleted
+        Assertions.assertFalse(auctionHouseRepository.withAuctionLock(auction.getId(), () ->
+                auctionHouseRepository.saveAuctionStatus(auctionHouse, auction, Auction.AuctionStatus.RUNNING)).isPresent());
+        for (Auction.AuctionStatus status : Auction.AuctionStatus.values()) {
+            Assertions.assertEquals(0, service.countAuctionsByStatus(auctionHouse.getId(), status));
+        }
+    }
+
+    @Test
+    @DisplayName("It should not journal a bid whose auction was deleted once the bid was accepted")
+    void itShouldNotSaveTheBidOfADeletedAuction() {
+        AuctionHouseRepositoryImpl auctionHouseRepository = new AuctionHouseRepositoryImpl();
+        AuctionHouseService service = AuctionHouseServiceBuilder.of(auctionHouseRepository).build();
+        AuctionHouse auctionHouse = service.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(mockedAuctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction auction = service.createAuction(auctionHouse.getId(), mockedAuction);
+        mockedBidder.setPrice(auction.getInitialPrice() + 1);
+        AuctionBidder bidder = service.bidOnAuction(auctionHouse.getId(), auction.getId(), mockedBidder);
+        Assertions.assertTrue(auctionHouseRepository.saveBid(auctionHouse, auction, bidder).isPresent());
+
+        Assertions.assertTrue(service.deleteAuction(auctionHouse.getId(), auction.getId()));
+        Assertions.assertFalse(auctionHouseRepository.saveBid(auctionHouse, auction, bidder).isPresent());
+    }
+
     @Test
     @DisplayName("It should display the winner of a finished auction of a specific auction house")
     void itShouldDisplayTheWinnerOfaFinishedAuction() {
@@ -338,6 +521,34 @@ class AuctionHouseServiceTests {
         Assertions.assertEquals(biddingPrices.get(3), finishedAuction.getPrice());
     }
 
+    @Test
+    @DisplayName("It should display the actual leader of a running auction")
+    void itShouldDisplayTheLeaderOfARunningAuction() {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(mockedAuctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction auction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+
+        Assertions.assertThrows(NoBiddingFoundException.class, () ->
+                auctionHouseService.getAuctionLeader(auctionHouse.getId(), auction.getId())
+        );
+
+        List<Double> biddingPrices = TestCommonUtils.generateListOfBiddingPrices(auction.getInitialPrice());
+        AuctionBidder firstBidder = TestCommonUtils.generateRandomBidder();
+        firstBidder.setPrice(biddingPrices.get(1));
+        auctionHouseService.bidOnAuction(auctionHouse.getId(), auction.getId(), firstBidder);
+
+        AuctionBidder secondBidder = TestCommonUtils.generateRandomBidder();
+        secondBidder.setPrice(biddingPrices.get(0));
+        Assertions.assertThrows(BiddingPriceLowException.class, () ->
+                auctionHouseService.bidOnAuction(auctionHouse.getId(), auction.getId(), secondBidder)
+        );
+
+        AuctionBidder leader = auctionHouseService.getAuctionLeader(auctionHouse.getId(), auction.getId());
+        Assertions.assertEquals(firstBidder.getId(), leader.getId());
+        Assertions.assertEquals(biddingPrices.get(1), leader.getPrice());
+    }
+
     @Test
     @DisplayName("It should throw an auction not terminated exception when we want to get the winner of the auction")
     void itShouldThrowAuctionNotFinishedException() {
@@ -374,4 +585,571 @@ class AuctionHouseServiceTests {
                         .getAuctionWinner(auctionHouse.getId(), auction.getId())
         );
     }
+
+    @Test
+    @DisplayName("It should not lose any bid when many bidders bid on the same auctions concurrently")
+    void itShouldKeepAllBidsUnderConcurrentBidding() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        List<Auction> auctions = new ArrayList<>();
+        for (int idx = 0; idx < 4; idx++) {
+            Auction auction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+            auction.setStatus(Auction.AuctionStatus.RUNNING);
+            auctions.add(auctionHouseService.createAuction(auctionHouse.getId(), auction));
+        }
+
+        int threads = 8;
+        int biddingPerThread = 500;
+        AtomicInteger acceptedBidding = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int idx = 0; idx < biddingPerThread; idx++) {
+                    Auction auction = auctions.get(ThreadLocalRandom.current().nextInt(auctions.size()));
+                    AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+                    bidder.setPrice(auction.getInitialPrice() + ThreadLocalRandom.current().nextInt(1, 1_000_000));
+                    try {
+                        auctionHouseService.bidOnAuction(auctionHouse.getId(), auction.getId(), bidder);
+                        acceptedBidding.incrementAndGet();
+                    } catch (BiddingPriceLowException ignored) {
+                        // Another bidder was faster with a higher price
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int savedBidding = auctions.stream().mapToInt((auction) -> auction.getBidding().size()).sum();
+        Assertions.assertEquals(acceptedBidding.get(), savedBidding);
+        auctions.forEach((auction) -> Assertions.assertEquals(auction.getBidding().values()
+                .stream()
+                .mapToDouble(Double::doubleValue)
+                .max()
+                .orElse(auction.getInitialPrice()), auction.getCurrentPrice()));
+    }
+
+    @Test
+    @DisplayName("It should never accept a lower price over a higher one when bidding on the same auction concurrently")
+    void itShouldKeepTheHighestBidUnderConcurrentBidding() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction auction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+
+        int threads = 8;
+        int biddingPerThread = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int offset = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int idx = 0; idx < biddingPerThread; idx++) {
+                    AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+                    // Every thread bids with distinct prices, the highest one is known
+                    bidder.setPrice(auction.getInitialPrice() + 1 + idx * threads + offset);
+                    try {
+                        auctionHouseService.bidOnAuction(auctionHouse.getId(), auction.getId(), bidder);
+                    } catch (BiddingPriceLowException ignored) {
+                        // Another bidder was faster with a higher price
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        double highestPrice = auction.getInitialPrice() + threads * biddingPerThread;
+        Assertions.assertEquals(highestPrice, auction.getCurrentPrice());
+        Assertions.assertEquals(highestPrice, auction.getLeader().getPrice());
+        Assertions.assertEquals(highestPrice, auction.getLeader().getBidder().getPrice());
+        // The history is in the order of the prices
+        for (int position = 1; position < auction.getBidLog().size(); position++) {
+            Assertions.assertTrue(auction.getBidLog().getPrice(position) > auction.getBidLog().getPrice(position - 1));
+        }
+    }
+
+    @Test
+    @DisplayName("It should never accept a bid once the auction is terminated")
+    void itShouldNotChangeTheWinnerOfATerminatedAuction() throws Exception {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction auction = auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger prices = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            futures.add(executor.submit(() -> {
+                while (true) {
+                    AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+                    bidder.setPrice(auction.getInitialPrice() + prices.incrementAndGet());
+                    try {
+                        auctionHouseService.bidOnAuction(auctionHouse.getId(), auction.getId(), bidder);
+                    } catch (BiddingPriceLowException ignored) {
+                        // Another bidder was faster with a higher price
+                    } catch (AuctionNotStartedException finished) {
+                        return null;
+                    }
+                }
+            }));
+        }
+        while (auction.getBidLog().size() < 1000) {
+            Thread.yield();
+        }
+        auctionHouseService.updateAuctionStatus(auctionHouse.getId(), auction.getId(), Auction.AuctionStatus.TERMINATED);
+        AuctionBidder winner = auctionHouseService.getAuctionWinner(auctionHouse.getId(), auction.getId());
+        int bids = auction.getBidLog().size();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(bids, auction.getBidLog().size());
+        Assertions.assertEquals(winner.getId(), auctionHouseService.getAuctionWinner(auctionHouse.getId(), auction.getId()).getId());
+        Assertions.assertEquals(winner.getId(), auction.getBidLog().get(bids - 1).getId());
+    }
+
+    @Test
+    @DisplayName("It should apply the bids in order when they are sequenced by a single writer")
+    void itShouldBidOnAnAuctionWithSequencedBidding() throws Exception {
+        AuctionProperties properties = new AuctionProperties();
+        properties.getBidding().setMode(AuctionProperties.BiddingMode.SEQUENCED);
+        properties.getBidding().setBufferSize(64);
+        BidSequencer bidSequencer = new BidSequencer(properties);
+        AuctionHouseService sequencedService = AuctionHouseServiceBuilder.of(new AuctionHouseRepositoryImpl())
+                .bidSequencer(bidSequencer)
+                .build();
+        try {
+            AuctionHouse auctionHouse = sequencedService.createAuctionHouse(mockedAuctionHouse);
+            mockedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+            mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+            Auction auction = sequencedService.createAuction(auctionHouse.getId(), mockedAuction);
+
+            mockedBidder.setPrice(auction.getInitialPrice() - 1);
+            Assertions.assertThrows(BiddingPriceLowException.class, () ->
+                    sequencedService.bidOnAuction(auctionHouse.getId(), auction.getId(), mockedBidder)
+            );
+
+            int threads = 4;
+            int biddingPerThread = 500;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int offset = thread;
+                futures.add(executor.submit(() -> {
+                    for (int idx = 0; idx < biddingPerThread; idx++) {
+                        AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+                        bidder.setPrice(auction.getInitialPrice() + 1 + idx * threads + offset);
+                        try {
+                            sequencedService.bidOnAuction(auctionHouse.getId(), auction.getId(), bidder);
+                        } catch (BiddingPriceLowException ignored) {
+                            // Another bidder was faster with a higher price
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+
+            Assertions.assertEquals(auction.getInitialPrice() + threads * biddingPerThread, auction.getCurrentPrice());
+        } finally {
+            bidSequencer.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("It should bid without waiting for the sequencer and the write-ahead log")
+    void itShouldBidOnAnAuctionAsynchronously(@TempDir Path directory) throws Exception {
+        AuctionProperties properties = new AuctionProperties();
+        properties.getBidding().setMode(AuctionProperties.BiddingMode.SEQUENCED);
+        properties.getBidding().setBufferSize(64);
+        BidSequencer bidSequencer = new BidSequencer(properties);
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 1024 * 1024, true, 64);
+        AuctionHouseService asyncService = AuctionHouseServiceBuilder.of(new AuctionHouseRepositoryImpl(writeAheadLog))
+                .bidSequencer(bidSequencer)
+                .build();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            AuctionHouse auctionHouse = asyncService.createAuctionHouse(mockedAuctionHouse);
+            mockedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+            mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+            Auction auction = asyncService.createAuction(auctionHouse.getId(), mockedAuction);
+
+            CompletableFuture<AuctionBidder> newLeader =
+                    asyncService.awaitAuctionLeader(auctionHouse.getId(), auction.getId(), null);
+            Assertions.assertFalse(newLeader.isDone());
+
+            // The bids are all sent before the first one is durable
+            List<CompletableFuture<AuctionBidder>> bids = new ArrayList<>();
+            for (int idx = 1; idx <= 200; idx++) {
+                AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+                bidder.setPrice(auction.getInitialPrice() + idx);
+                bids.add(asyncService.bidOnAuctionAsync(auctionHouse.getId(), auction.getId(), bidder, executor));
+            }
+            for (CompletableFuture<AuctionBidder> bid : bids) {
+                Assertions.assertNotNull(bid.get(30, TimeUnit.SECONDS).getId());
+            }
+            Assertions.assertEquals(auction.getInitialPrice() + 200, auction.getCurrentPrice());
+            Assertions.assertNotNull(newLeader.get(30, TimeUnit.SECONDS).getId());
+
+            mockedBidder.setPrice(auction.getInitialPrice());
+            ExecutionException rejected = Assertions.assertThrows(ExecutionException.class, () ->
+                    asyncService.bidOnAuctionAsync(auctionHouse.getId(), auction.getId(), mockedBidder, executor)
+                            .get(30, TimeUnit.SECONDS));
+            Assertions.assertTrue(rejected.getCause() instanceof BiddingPriceLowException);
+
+            // The leader is known, so the waiter only ends with the auction
+            String leaderId = asyncService.getAuctionLeader(auctionHouse.getId(), auction.getId()).getId();
+            CompletableFuture<AuctionBidder> finished =
+                    asyncService.awaitAuctionLeader(auctionHouse.getId(), auction.getId(), leaderId);
+            asyncService.updateAuctionStatus(auctionHouse.getId(), auction.getId(), Auction.AuctionStatus.TERMINATED);
+            ExecutionException finishedException = Assertions.assertThrows(ExecutionException.class, () ->
+                    finished.get(30, TimeUnit.SECONDS));
+            Assertions.assertTrue(finishedException.getCause() instanceof AuctionFinishedException);
+        } finally {
+            executor.shutdown();
+            bidSequencer.stop();
+            writeAheadLog.close();
+        }
+    }
+
+    @Test
+    @DisplayName("It should rebuild the auction houses from the write-ahead log after a restart")
+    void itShouldRestoreTheAuctionHousesFromTheWriteAheadLog(@TempDir Path directory) throws Exception {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 512, true, 64);
+        AuctionHouseService durableService = AuctionHouseServiceBuilder.of(new AuctionHouseRepositoryImpl(writeAheadLog)).build();
+        AuctionHouse auctionHouse = durableService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.NOT_STARTED);
+        Auction auction = durableService.createAuction(auctionHouse.getId(), mockedAuction);
+        Auction deletedAuction = durableService.createAuction(auctionHouse.getId(),
+                TestCommonUtils.generateRandomAuction(auctionHouse, false, 0));
+        durableService.updateAuctionStatus(auctionHouse.getId(), auction.getId(), Auction.AuctionStatus.RUNNING);
+        List<Double> prices = TestCommonUtils.generateListOfBiddingPrices(auction.getInitialPrice());
+        for (double price : prices) {
+            AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+            bidder.setPrice(price);
+            durableService.bidOnAuction(auctionHouse.getId(), auction.getId(), bidder);
+        }
+        durableService.deleteAuction(auctionHouse.getId(), deletedAuction.getId());
+        durableService.updateAuctionStatus(auctionHouse.getId(), auction.getId(), Auction.AuctionStatus.TERMINATED);
+        AuctionBidder winner = durableService.getAuctionWinner(auctionHouse.getId(), auction.getId());
+        writeAheadLog.close();
+
+        // The segments are small, so the log was split in many of them
+        Assertions.assertTrue(Files.list(directory).count() > 1);
+
+        WriteAheadLog reopenedWriteAheadLog = new WriteAheadLog(directory, 512, true, 64);
+        try {
+            AuctionHouseService restartedService = AuctionHouseServiceBuilder.of(
+                    new AuctionHouseRepositoryImpl(reopenedWriteAheadLog)).build();
+            Assertions.assertEquals(auctionHouse.getName(),
+                    restartedService.getAllAuctionHouses().get(0).getName());
+            List<Auction> auctions = restartedService.getAuctionsByAuctionHouseId(auctionHouse.getId());
+            Assertions.assertEquals(1, auctions.size());
+            Assertions.assertEquals(Auction.AuctionStatus.TERMINATED, auctions.get(0).getStatus());
+            Assertions.assertEquals(prices.size(), auctions.get(0).getBidLog().size());
+            Assertions.assertEquals(winner.getId(),
+                    restartedService.getAuctionWinner(auctionHouse.getId(), auction.getId()).getId());
+            Assertions.assertEquals(1, restartedService.countAuctionsByStatus(auctionHouse.getId(),
+                    Auction.AuctionStatus.TERMINATED));
+        } finally {
+            reopenedWriteAheadLog.close();
+        }
+    }
+
+    @Test
+    @DisplayName("It should load the snapshot and replay only the tail of the write-ahead log")
+    void itShouldRestoreTheAuctionHousesFromASnapshot(@TempDir Path directory) throws Exception {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 1024, true, 64);
+        AuctionHouseRepositoryImpl repository = new AuctionHouseRepositoryImpl(writeAheadLog);
+        AuctionHouseService durableService = AuctionHouseServiceBuilder.of(repository).build();
+        AuctionHouse auctionHouse = durableService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction auction = durableService.createAuction(auctionHouse.getId(), mockedAuction);
+
+        // The snapshot is written while the bidders keep bidding
+        int threads = 4;
+        int biddingPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int offset = thread;
+            futures.add(executor.submit(() -> {
+                for (int idx = 0; idx < biddingPerThread; idx++) {
+                    AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+                    bidder.setPrice(auction.getInitialPrice() + 1 + idx * threads + offset);
+                    try {
+                        durableService.bidOnAuction(auctionHouse.getId(), auction.getId(), bidder);
+                    } catch (BiddingPriceLowException ignored) {
+                        // Another bidder was faster with a higher price
+                    }
+                }
+                return null;
+            }));
+        }
+        writeAheadLog.snapshot(repository::findAllAuctionHouses);
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        AuctionHouse otherAuctionHouse = durableService.createAuctionHouse(AuctionHouse.builder()
+                .name("Created after the snapshot")
+                .creatorName("Snapshot creator")
+                .build());
+        durableService.updateAuctionStatus(auctionHouse.getId(), auction.getId(), Auction.AuctionStatus.TERMINATED);
+        int bids = auction.getBidLog().size();
+        writeAheadLog.close();
+
+        WriteAheadLog reopenedWriteAheadLog = new WriteAheadLog(directory, 1024, true, 64);
+        try {
+            AuctionHouseService restartedService = AuctionHouseServiceBuilder.of(
+                    new AuctionHouseRepositoryImpl(reopenedWriteAheadLog)).build();
+            Auction restoredAuction = restartedService.getAuctionsByAuctionHouseId(auctionHouse.getId()).get(0);
+            Assertions.assertEquals(bids, restoredAuction.getBidLog().size());
+            Assertions.assertEquals(auction.getCurrentPrice(), restoredAuction.getCurrentPrice());
+            Assertions.assertEquals(Auction.AuctionStatus.TERMINATED, restoredAuction.getStatus());
+            Assertions.assertEquals(otherAuctionHouse.getName(),
+                    restartedService.getAuctionHousesByCreatorId(otherAuctionHouse.getCreatorName()).get(0).getName());
+            Assertions.assertTrue(reopenedWriteAheadLog.getReplayTime().toNanos() > 0);
+        } finally {
+            reopenedWriteAheadLog.close();
+        }
+    }
+
+    @Test
+    @DisplayName("It should keep the bids in memory-mapped files and find them after a restart")
+    void itShouldRestoreTheBidsFromTheMappedFiles(@TempDir Path directory) throws Exception {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 1024 * 1024, true, 64);
+        MappedBidLogStorage bidLogStorage = new MappedBidLogStorage(directory.resolve("bids"), true);
+        AuctionHouseService mappedService = AuctionHouseServiceBuilder.of(
+                new AuctionHouseRepositoryImpl(writeAheadLog, bidLogStorage)).build();
+        AuctionHouse auctionHouse = mappedService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        mockedAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        Auction auction = mappedService.createAuction(auctionHouse.getId(), mockedAuction);
+        Auction deletedAuction = mappedService.createAuction(auctionHouse.getId(),
+                TestCommonUtils.generateRandomAuction(auctionHouse, false, 0));
+        Assertions.assertTrue(auction.getBidLog().isPersistent());
+        long journalSize = Files.size(directory.resolve(Files.list(directory)
+                .filter((file) -> file.toString().endsWith(".log")).findFirst().get().getFileName()));
+        List<Double> prices = TestCommonUtils.generateListOfBiddingPrices(auction.getInitialPrice());
+        for (double price : prices) {
+            AuctionBidder bidder = TestCommonUtils.generateRandomBidder();
+            bidder.setPrice(price);
+            mappedService.bidOnAuction(auctionHouse.getId(), auction.getId(), bidder);
+        }
+        mappedService.updateAuctionStatus(auctionHouse.getId(), auction.getId(), Auction.AuctionStatus.TERMINATED);
+        AuctionBidder winner = mappedService.getAuctionWinner(auctionHouse.getId(), auction.getId());
+        mappedService.deleteAuction(auctionHouse.getId(), deletedAuction.getId());
+        Assertions.assertFalse(Files.exists(directory.resolve("bids").resolve(deletedAuction.getId() + ".bids")));
+        writeAheadLog.snapshot(() -> mappedService.getAllAuctionHouses());
+        writeAheadLog.close();
+        bidLogStorage.close();
+
+        // The bids were not journaled
+        Assertions.assertTrue(Files.list(directory).filter((file) -> file.toString().endsWith(".log"))
+                .allMatch((file) -> file.toFile().length() <= journalSize));
+
+        WriteAheadLog reopenedWriteAheadLog = new WriteAheadLog(directory, 1024 * 1024, true, 64);
+        MappedBidLogStorage reopenedBidLogStorage = new MappedBidLogStorage(directory.resolve("bids"));
+        try {
+            AuctionHouseService restartedService = AuctionHouseServiceBuilder.of(
+                    new AuctionHouseRepositoryImpl(reopenedWriteAheadLog, reopenedBidLogStorage)).build();
+            List<Auction> auctions = restartedService.getAuctionsByAuctionHouseId(auctionHouse.getId());
+            Assertions.assertEquals(1, auctions.size());
+            Assertions.assertEquals(prices.size(), auctions.get(0).getBidLog().size());
+            Assertions.assertEquals(auction.getCurrentPrice(), auctions.get(0).getCurrentPrice());
+            Assertions.assertEquals(winner.getId(),
+                    restartedService.getAuctionWinner(auctionHouse.getId(), auction.getId()).getId());
+        } finally {
+            reopenedWriteAheadLog.close();
+            reopenedBidLogStorage.close();
+        }
+    }
+
+    @Test
+    @DisplayName("It should not open the bid logs of an auction house whose name is already used")
+    void itShouldNotOpenTheBidLogsOfARejectedAuctionHouse(@TempDir Path directory) throws Exception {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 1024 * 1024, false, 64);
+        MappedBidLogStorage bidLogStorage = new MappedBidLogStorage(directory.resolve("bids"));
+        try {
+            AuctionHouseRepositoryImpl auctionHouseRepository = new AuctionHouseRepositoryImpl(writeAheadLog, bidLogStorage);
+            Assertions.assertTrue(auctionHouseRepository.saveAuctionHouse(mockedAuctionHouse).isPresent());
+            AuctionHouse sameName = AuctionHouse.builder().name(mockedAuctionHouse.getName()).build();
+            mockedAuction = TestCommonUtils.generateRandomAuction(sameName, false, 0);
+            mockedAuction.setId("rejected-auction");
+            sameName.getAuctions().put(mockedAuction.getId(), mockedAuction);
+
+            Assertions.assertFalse(auctionHouseRepository.saveAuctionHouse(sameName).isPresent());
+            Assertions.assertFalse(Files.exists(directory.resolve("bids").resolve("rejected-auction.bids")));
+        } finally {
+            writeAheadLog.close();
+            bidLogStorage.close();
+        }
+    }
+
+    @Test
+    @DisplayName("It should only change the versions of the repository that saved the mutation")
+    void itShouldKeepTheVersionsOfEveryRepository() {
+        AuctionHouseService otherService = AuctionHouseServiceBuilder.of(new AuctionHouseRepositoryImpl()).build();
+        long otherVersion = otherService.getAuctionHousesVersion();
+        long version = auctionHouseService.getAuctionHousesVersion();
+
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        mockedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        auctionHouseService.createAuction(auctionHouse.getId(), mockedAuction);
+
+        Assertions.assertTrue(auctionHouseService.getAuctionHousesVersion() > version);
+        Assertions.assertEquals(auctionHouseService.getAuctionHousesVersion(),
+                auctionHouseService.getAuctionHouseVersion(auctionHouse.getId()));
+        Assertions.assertEquals(otherVersion, otherService.getAuctionHousesVersion());
+    }
+
+    @Test
+    @DisplayName("It should apply a batch of bids on many auctions and give the result of every bid")
+    void itShouldBidOnManyAuctionsInOneBatch() {
+        AuctionHouse auctionHouse = auctionHouseService.createAuctionHouse(mockedAuctionHouse);
+        Auction runningAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        runningAuction.setStatus(Auction.AuctionStatus.RUNNING);
+        runningAuction = auctionHouseService.createAuction(auctionHouse.getId(), runningAuction);
+        Auction notStartedAuction = TestCommonUtils.generateRandomAuction(auctionHouse, false, 0);
+        notStartedAuction.setStatus(Auction.AuctionStatus.NOT_STARTED);
+        notStartedAuction = auctionHouseService.createAuction(auctionHouse.getId(), notStartedAuction);
+        double price = runningAuction.getInitialPrice();
+
+        List<BatchBidResult> results = auctionHouseService.bidOnAuctions(auctionHouse.getId(), Arrays.asList(
+                new BatchBid(runningAuction.getId(), "first", price + 1),
+                new BatchBid(notStartedAuction.getId(), "second", price + 1),
+                new BatchBid(runningAuction.getId(), "third", price + 3),
+                new BatchBid("unknown", "fourth", price + 4),
+                new BatchBid(runningAuction.getId(), "fifth", price + 2)));
+
+        Assertions.assertEquals(5, results.size());
+        Assertions.assertEquals(Arrays.asList(true, false, true, false, false),
+                results.stream().map(BatchBidResult::isAccepted).collect(Collectors.toList()));
+        Assertions.assertEquals("third", results.get(2).getBidder().getName());
+        Assertions.assertEquals("bidding-not-started", results.get(1).getError());
+        Assertions.assertEquals("auction-not-found", results.get(3).getError());
+        Assertions.assertEquals("bidding-price-is-low", results.get(4).getError());
+        Assertions.assertEquals(2, runningAuction.getBidLog().size());
+        Assertions.assertEquals(price + 3, runningAuction.getCurrentPrice());
+        Assertions.assertThrows(AuctionHouseNotFoundException.class, () ->
+                auctionHouseService.bidOnAuctions("unknown", new ArrayList<>()));
+    }
+
+    @Test
+    @DisplayName("It should start and finish the auctions at their starting and end time")
+    void itShouldStartAndFinishTheAuctionsOnTime() throws Exception {
+        AuctionProperties properties = new AuctionProperties();
+        properties.getScheduler().setEnabled(true);
+        AuctionScheduler auctionScheduler = new AuctionScheduler(properties);
+        AuctionHouseService scheduledService = AuctionHouseServiceBuilder.of(new AuctionHouseRepositoryImpl())
+                .properties(properties)
+                .auctionScheduler(auctionScheduler)
+                .build();
+        try {
+            AuctionHouse auctionHouse = scheduledService.createAuctionHouse(mockedAuctionHouse);
+            Instant startingTime = Instant.now().plusMillis(200);
+            Instant endTime = startingTime.plusMillis(200);
+            Auction auction = scheduledService.createAuction(auctionHouse.getId(), Auction.builder()
+                    .name("scheduled")
+                    .initialPrice(10)
+                    .startingTime(startingTime)
+                    .endTime(endTime)
+                    .build());
+            // The end of this one is cancelled by deleting it
+            Auction deletedAuction = scheduledService.createAuction(auctionHouse.getId(), Auction.builder()
+                    .name("deleted")
+                    .status(Auction.AuctionStatus.RUNNING)
+                    .endTime(endTime)
+                    .build());
+            Assertions.assertEquals(2, auctionScheduler.size());
+            scheduledService.deleteAuction(auctionHouse.getId(), deletedAuction.getId());
+            Assertions.assertEquals(1, auctionScheduler.size());
+            Assertions.assertEquals(Auction.AuctionStatus.NOT_STARTED, auction.getStatus());
+
+            while (auction.getStatus() == Auction.AuctionStatus.NOT_STARTED) {
+                Thread.sleep(1);
+            }
+            Assertions.assertFalse(Instant.now().isBefore(startingTime));
+            Assertions.assertEquals(Auction.AuctionStatus.RUNNING, auction.getStatus());
+            mockedBidder.setPrice(11);
+            scheduledService.bidOnAuction(auctionHouse.getId(), auction.getId(), mockedBidder);
+
+            while (auction.getStatus() == Auction.AuctionStatus.RUNNING) {
+                Thread.sleep(1);
+            }
+            Assertions.assertFalse(Instant.now().isBefore(endTime));
+            Assertions.assertEquals(Auction.AuctionStatus.TERMINATED, auction.getStatus());
+            Assertions.assertEquals(mockedBidder.getId(),
+                    scheduledService.getAuctionWinner(auctionHouse.getId(), auction.getId()).getId());
+            Assertions.assertEquals(0, auctionScheduler.size());
+        } finally {
+            auctionScheduler.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("It should measure the operations, the rejected bids and the stored auctions and bids")
+    void itShouldMeasureTheAuctionHouses() {
+        AuctionProperties properties = new AuctionProperties();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AuctionHouseRepositoryImpl auctionHouseRepository = new AuctionHouseRepositoryImpl();
+        AuctionHouseService measuredService = AuctionHouseServiceBuilder.of(auctionHouseRepository)
+                .properties(properties)
+                .auctionMetrics(new AuctionMetrics(meterRegistry, auctionHouseRepository))
+                .build();
+        AuctionHouse auctionHouse = measuredService.createAuctionHouse(mockedAuctionHouse);
+        Auction auction = measuredService.createAuction(auctionHouse.getId(), Auction.builder()
+                .name("measured")
+                .initialPrice(10)
+                .status(Auction.AuctionStatus.RUNNING)
+                .build());
+        mockedBidder.setPrice(20);
+        measuredService.bidOnAuction(auctionHouse.getId(), auction.getId(), mockedBidder);
+        Assertions.assertThrows(BiddingPriceLowException.class, () -> measuredService.bidOnAuction(auctionHouse.getId(),
+                auction.getId(), AuctionBidder.builder().name("low").price(15).build()));
+        List<BatchBidResult> results = measuredService.bidOnAuctions(auctionHouse.getId(),
+                Arrays.asList(new BatchBid(auction.getId(), "batch", 30), new BatchBid(auction.getId(), "batch", 25)));
+        Assertions.assertFalse(results.get(1).isAccepted());
+        measuredService.updateAuctionStatus(auctionHouse.getId(), auction.getId(), Auction.AuctionStatus.TERMINATED);
+
+        Assertions.assertEquals(1, meterRegistry.get("auction.operations")
+                .tags("method", "bidOnAuction", "exception", "None").timer().count());
+        Assertions.assertEquals(1, meterRegistry.get("auction.operations")
+                .tags("method", "bidOnAuction", "exception", "BiddingPriceLowException").timer().count());
+        Assertions.assertEquals(1, meterRegistry.get("auction.operations")
+                .tags("method", "bidOnAuctions", "exception", "None").timer().count());
+        Assertions.assertEquals(2, meterRegistry.get("auction.bids.rejected")
+                .tag("cause", "BiddingPriceLowException").counter().count());
+        Assertions.assertEquals(1, meterRegistry.get("auction.houses").gauge().value());
+        Assertions.assertEquals(1, meterRegistry.get("auction.auctions")
+                .tag("status", "TERMINATED").gauge().value());
+        Assertions.assertEquals(0, meterRegistry.get("auction.auctions")
+                .tag("status", "RUNNING").gauge().value());
+        Assertions.assertEquals(2, meterRegistry.get("auction.bids").gauge().value());
+        Assertions.assertEquals(1, meterRegistry.get("auction.bids.per.auction").summary().count());
+        Assertions.assertEquals(2, meterRegistry.get("auction.bids.per.auction").summary().totalAmount());
+    }
+
 }
@@ -0,0 +1,113 @@
+package tv.spideo.test.service.event;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import tv.spideo.test.domain.AuctionBidder;
+import tv.spideo.test.domain.BidLog;
+import tv.spideo.test.util.CommonUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+class AuctionEventChannelTests {
+
+    @Test
+    @DisplayName("It should keep streaming to the other subscribers while one of them is blocked, then disconnect it")
+    void itShouldNotBlockTheSubscribersBehindASlowOne() throws Exception {
+        ExecutorService senders = Executors.newFixedThreadPool(2);
+        try {
+            AuctionEventChannel channel = new AuctionEventChannel("auction", 4, senders, 0);
+            CountDownLatch slowSendStarted = new CountDownLatch(1);
+            CompletableFuture<Throwable> slowFailure = new CompletableFuture<>();
+            channel.subscribe(new ResponseBodyEmitter() {
+                @Override
+                public void send(Object object, MediaType mediaType) throws IOException {
+                    slowSendStarted.countDown();
+                    try {
+                        // The client never reads its stream
+                        new CountDownLatch(1).await();
+                    } catch (InterruptedException exception) {
+                        throw new InterruptedIOException();
+                    }
+                }
+
+                @Override
+                public void completeWithError(Throwable exception) {
+                    slowFailure.complete(exception);
+                }
+            }, null);
+            CountDownLatch received = new CountDownLatch(2);
+            channel.subscribe(new ResponseBodyEmitter() {
+                @Override
+                public void send(Object object, MediaType mediaType) {
+                    received.countDown();
+                }
+            }, null);
+
+            channel.publish(AuctionEventBroadcaster.BID_EVENT, "{}".getBytes(StandardCharsets.UTF_8));
+            channel.dispatch();
+            Assertions.assertTrue(slowSendStarted.await(1, TimeUnit.SECONDS));
+            channel.publish(AuctionEventBroadcaster.BID_EVENT, "{}".getBytes(StandardCharsets.UTF_8));
+            channel.dispatch();
+            Assertions.assertTrue(received.await(1, TimeUnit.SECONDS));
+
+            channel.evictStalled(System.nanoTime(), 0L);
+            Assertions.assertTrue(slowFailure.get(1, TimeUnit.SECONDS).getMessage().contains("too slow"));
+        } finally {
+            senders.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("It should send the bids in the order of the history whatever the order they are published in")
+    void itShouldSendTheBidsInTheOrderOfTheHistory() throws Exception {
+        ExecutorService senders = Executors.newSingleThreadExecutor();
+        try {
+            BidLog bidLog = new BidLog();
+            AuctionEventChannel channel = new AuctionEventChannel("auction", 8, senders, 0);
+            List<String> frames = new CopyOnWriteArrayList<>();
+            CountDownLatch received = new CountDownLatch(3);
+            channel.subscribe(new ResponseBodyEmitter() {
+                @Override
+                public void send(Object object, MediaType mediaType) {
+                    frames.add(new String((byte[]) object, StandardCharsets.UTF_8));
+                    received.countDown();
+                }
+            }, null);
+            for (int idx = 0; idx < 3; idx++) {
+                bidLog.append(AuctionBidder.builder()
+                        .id(CommonUtils.generateUUID())
+                        .name("bidder-" + idx)
+                        .price(idx + 1)
+                        .build());
+            }
+            Function<AuctionBidder, byte[]> serializer = (bidder) -> bidder.getName().getBytes(StandardCharsets.UTF_8);
+
+            // The last bid is saved first, the others are published with it
+            Assertions.assertTrue(channel.publishBids(bidLog, 2, serializer));
+            Assertions.assertFalse(channel.publishBids(bidLog, 0, serializer));
+            Assertions.assertFalse(channel.publishBids(bidLog, 1, serializer));
+            channel.dispatch();
+            Assertions.assertTrue(received.await(1, TimeUnit.SECONDS));
+            Assertions.assertEquals(3, frames.size());
+            for (int idx = 0; idx < 3; idx++) {
+                Assertions.assertEquals("id: " + idx + "\nevent: bid\ndata: bidder-" + idx + "\n\n", frames.get(idx));
+            }
+        } finally {
+            senders.shutdownNow();
+        }
+    }
+
+}
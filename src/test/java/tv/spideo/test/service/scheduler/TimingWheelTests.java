@@ -0,0 +1,55 @@
+package tv.spideo.test.service.scheduler;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+class TimingWheelTests {
+
+    @Test
+    @DisplayName("It should expire every timeout at its tick in every level of the wheel and never a cancelled one")
+    void itShouldExpireTheTimeoutsAtTheirTick() {
+        long start = 1_571_000_000_000L;
+        TimingWheel wheel = new TimingWheel(start);
+        Random random = new Random(42);
+        List<Timeout> timeouts = new ArrayList<>();
+        Set<Timeout> cancelled = new HashSet<>();
+        for (int idx = 0; idx < 100_000; idx++) {
+            // Deadlines from the first level to past the last one
+            long delta = 1 + (long) (Math.pow(2, random.nextDouble() * 38));
+            Timeout timeout = new Timeout("auction-" + idx, start + delta, () -> { });
+            Assertions.assertTrue(wheel.add(timeout));
+            timeouts.add(timeout);
+            if (idx % 3 == 0) {
+                wheel.remove(timeout);
+                cancelled.add(timeout);
+            }
+        }
+        Assertions.assertEquals(timeouts.size() - cancelled.size(), wheel.size());
+
+        Set<Timeout> expired = new HashSet<>();
+        long tick = start;
+        while (wheel.size() > 0) {
+            long previousTick = tick;
+            // Small steps near the start, then big jumps
+            tick += tick - start < 100_000 ? 1 + random.nextInt(10) : 1 + random.nextInt(1 << 28);
+            long actualTick = tick;
+            wheel.advanceTo(tick, (timeout) -> {
+                Assertions.assertTrue(timeout.deadlineTick > previousTick && timeout.deadlineTick <= actualTick,
+                        "The timeout of " + timeout.key + " expired late or early");
+                Assertions.assertTrue(expired.add(timeout));
+            });
+        }
+        Assertions.assertEquals(timeouts.size() - cancelled.size(), expired.size());
+        expired.retainAll(cancelled);
+        Assertions.assertTrue(expired.isEmpty());
+        Assertions.assertFalse(wheel.add(new Timeout("late", tick, () -> { })));
+    }
+
+}
@@ -0,0 +1,43 @@
+package tv.spideo.test.service.sequencer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tv.spideo.test.domain.Auction;
+import tv.spideo.test.domain.AuctionBidder;
+import tv.spideo.test.util.TestCommonUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+class BidRingBufferTests {
+
+    @Test
+    @DisplayName("It should apply the bids published before it is closed and reject the ones published after, even when it is full")
+    void itShouldRejectTheBidsPublishedOnceClosed() throws Exception {
+        BidRingBuffer buffer = new BidRingBuffer(4);
+        Auction auction = Auction.builder().id("auction").build();
+        BidSequencer.BidHandler handler = (bidAuction, bidder) -> bidder;
+        CompletableFuture<AuctionBidder> applied = new CompletableFuture<>();
+        buffer.publish(auction, TestCommonUtils.generateRandomBidder(), handler, applied);
+        buffer.close(16);
+        Assertions.assertTrue(applied.isDone() && !applied.isCompletedExceptionally());
+
+        List<CompletableFuture<AuctionBidder>> rejected = new ArrayList<>();
+        // More bids than slots, nobody consumes them anymore
+        for (int idx = 0; idx < 10; idx++) {
+            CompletableFuture<AuctionBidder> result = new CompletableFuture<>();
+            buffer.publish(auction, TestCommonUtils.generateRandomBidder(), handler, result);
+            rejected.add(result);
+        }
+        for (CompletableFuture<AuctionBidder> result : rejected) {
+            ExecutionException exception = Assertions.assertThrows(ExecutionException.class,
+                    () -> result.get(1, TimeUnit.SECONDS));
+            Assertions.assertTrue(exception.getCause() instanceof IllegalStateException);
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package tv.spideo.test.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import tv.spideo.test.config.AuctionProperties;
+import tv.spideo.test.config.JacksonConfiguration;
+import tv.spideo.test.repository.AuctionHouseRepository;
+import tv.spideo.test.service.AuctionHouseService;
+import tv.spideo.test.service.event.AuctionEventBroadcaster;
+import tv.spideo.test.service.metrics.AuctionMetrics;
+import tv.spideo.test.service.scheduler.AuctionScheduler;
+import tv.spideo.test.service.sequencer.BidSequencer;
+
+public class AuctionHouseServiceBuilder {
+
+    private final AuctionHouseRepository auctionHouseRepository;
+    private AuctionProperties properties = new AuctionProperties();
+    private BidSequencer bidSequencer;
+    private AuctionEventBroadcaster eventBroadcaster;
+    private AuctionScheduler auctionScheduler;
+    private AuctionMetrics auctionMetrics;
+
+    private AuctionHouseServiceBuilder(AuctionHouseRepository auctionHouseRepository) {
+        this.auctionHouseRepository = auctionHouseRepository;
+    }
+
+    public static AuctionHouseServiceBuilder of(AuctionHouseRepository auctionHouseRepository) {
+        return new AuctionHouseServiceBuilder(auctionHouseRepository);
+    }
+
+    // The object mapper of the application, with the modules of the Instant fields
+    public static ObjectMapper objectMapper() {
+        return new JacksonConfiguration().serializingObjectMapper();
+    }
+
+    public AuctionHouseServiceBuilder properties(AuctionProperties properties) {
+        this.properties = properties;
+        return this;
+    }
+
+    public AuctionHouseServiceBuilder bidSequencer(BidSequencer bidSequencer) {
+        this.bidSequencer = bidSequencer;
+        return this;
+    }
+
+    public AuctionHouseServiceBuilder eventBroadcaster(AuctionEventBroadcaster eventBroadcaster) {
+        this.eventBroadcaster = eventBroadcaster;
+        return this;
+    }
+
+    public AuctionHouseServiceBuilder auctionScheduler(AuctionScheduler auctionScheduler) {
+        this.auctionScheduler = auctionScheduler;
+        return this;
+    }
+
+    public AuctionHouseServiceBuilder auctionMetrics(AuctionMetrics auctionMetrics) {
+        this.auctionMetrics = auctionMetrics;
+        return this;
+    }
+
+    // The missing collaborators are built from the properties, bids are applied directly by default
+    public AuctionHouseService build() {
+        return new AuctionHouseService(auctionHouseRepository, properties,
+                bidSequencer != null ? bidSequencer : new BidSequencer(properties),
+                eventBroadcaster != null ? eventBroadcaster : new AuctionEventBroadcaster(properties, objectMapper()),
+                auctionScheduler != null ? auctionScheduler : new AuctionScheduler(properties),
+                auctionMetrics != null ? auctionMetrics : AuctionMetrics.disabled(auctionHouseRepository));
+    }
+
+}
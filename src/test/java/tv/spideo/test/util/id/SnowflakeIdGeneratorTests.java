@@ -0,0 +1,57 @@
+package tv.spideo.test.util.id;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+class SnowflakeIdGeneratorTests {
+
+    @Test
+    @DisplayName("It should give ids ordered as numbers and as strings even when the clock stops or goes back")
+    void itShouldGiveOrderedIds() {
+        long[] now = {System.currentTimeMillis()};
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE, () -> now[0]);
+        long previousId = idGenerator.nextId();
+        String previousText = CompactIds.encode(previousId);
+        // More ids than the sequence of a millisecond, then the clock goes back
+        for (int idx = 0; idx < 10_000; idx++) {
+            if (idx == 5_000)
+                now[0] -= 1_000;
+            long id = idGenerator.nextId();
+            String text = CompactIds.encode(id);
+            Assertions.assertTrue(id > previousId);
+            Assertions.assertTrue(text.compareTo(previousText) > 0);
+            Assertions.assertEquals(id, CompactIds.decode(text));
+            previousId = id;
+            previousText = text;
+        }
+        Assertions.assertEquals(CompactIds.LENGTH, previousText.length());
+        Assertions.assertFalse(CompactIds.isCompactId("zzzzzzzzzzz"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE + 1));
+    }
+
+    @Test
+    @DisplayName("It should never give the same id to concurrent threads")
+    void itShouldGiveUniqueIdsConcurrently() throws InterruptedException {
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(0);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                for (int idx = 0; idx < 50_000; idx++) {
+                    ids.add(idGenerator.generateId());
+                }
+            });
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        Assertions.assertEquals(400_000, ids.size());
+    }
+
+}